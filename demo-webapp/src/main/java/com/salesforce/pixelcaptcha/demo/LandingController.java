@@ -10,56 +10,86 @@ package com.salesforce.pixelcaptcha.demo;
 import com.google.gson.Gson;
 import com.salesforce.pixelcaptcha.interfaces.Captcha;
 import com.salesforce.pixelcaptcha.interfaces.ValidationResult;
+import com.salesforce.pixelcaptcha.core.CaptchaSpec;
 import com.salesforce.pixelcaptcha.core.PixelCaptchaProvider;
-import org.springframework.context.annotation.Scope;
+import com.salesforce.pixelcaptcha.utils.PngEncoder;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.annotation.PostConstruct;
-import javax.imageio.ImageIO;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * One controller and one PixelCaptchaProvider serve all sessions. A session only keeps the configuration it chose
+ * through setConfig. CAPTCHAs of that configuration are generated with the shared provider, whose metadata factories
+ * are built once per configuration. The provider generates CAPTCHAs from seeds, so getCaptchaInfo only issues a seed
+ * and getCaptchaImage paints and encodes the image when the browser asks for it.
+ *
  * @author Gursev Singh Kalra @ Salesforce.com
  */
 
 @Controller
-@Scope(value = "session")
 public class LandingController {
+    private static final String CONFIG_ATTRIBUTE = "pixelcaptchaConfig";
+    private static final Gson GSON = new Gson();
     private final String ERROR = "{\"status\":\"error\", \"message\": \"An error occurred. Please check the configuration parameters\"}";
     private PixelCaptchaProvider pcp;
-    private Properties p;
+    private Properties defaultProperties;
+    // Holds at most one spec per configuration that setConfig accepts
+    private final ConcurrentMap<Properties, CaptchaSpec> captchaSpecs = new ConcurrentHashMap<>();
 
     /* Default Configuration on application startup */
     @PostConstruct
     public void init() {
-        p = new Properties();
-        p.setProperty("captchaWidth", "400");
-        p.setProperty("captchaHeight", "300");
-        p.setProperty("responseCount", "10");
-        p.setProperty("challengeCount", "2");
-        p.setProperty("codePoints", "0-255");
-        pcp = new PixelCaptchaProvider(p);
+        defaultProperties = new Properties();
+        defaultProperties.setProperty("captchaWidth", "400");
+        defaultProperties.setProperty("captchaHeight", "300");
+        defaultProperties.setProperty("responseCount", "10");
+        defaultProperties.setProperty("challengeCount", "2");
+        defaultProperties.setProperty("codePoints", "0-255");
+        Properties providerProperties = new Properties();
+        providerProperties.putAll(defaultProperties);
+        providerProperties.setProperty("seededGeneration", "true");
+        pcp = new PixelCaptchaProvider(providerProperties);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pcp.shutdown();
+    }
+
+    /*
+     * The configuration of the session, or the default one. The Properties are not changed once they are stored in a
+     * session, so they also serve as the key of the parsed spec.
+     */
+    private Properties getSessionProperties(HttpSession session) {
+        Object p = session.getAttribute(CONFIG_ATTRIBUTE);
+        return p instanceof Properties ? (Properties) p : defaultProperties;
+    }
+
+    private CaptchaSpec getCaptchaSpec(Properties p) {
+        return captchaSpecs.computeIfAbsent(p, CaptchaSpec::fromProperties);
     }
 
     private String convertBufferedImageToPngBase64(BufferedImage bi) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try {
-            ImageIO.write(bi, "png", baos);
-        } catch (IOException e) {
-            System.out.println(e);
-        }
-        String encoded = Base64.getEncoder().encodeToString(baos.toByteArray());
+        String encoded = Base64.getEncoder().encodeToString(PngEncoder.getInstance().encode(bi));
         return encoded;
     }
 
@@ -69,8 +99,7 @@ public class LandingController {
         m.put("width", Integer.toString(c.getImage().getWidth()));
         m.put("height", Integer.toString(c.getImage().getHeight()));
         m.put("image", "data:image/png;base64," + convertBufferedImageToPngBase64(c.getImage()));
-        Gson gson = new Gson();
-        return gson.toJson(m);
+        return GSON.toJson(m);
     }
 
     @RequestMapping(method = RequestMethod.GET, value = {"/", "/landing"})
@@ -80,25 +109,54 @@ public class LandingController {
 
     @ResponseBody
     @RequestMapping(method = RequestMethod.GET, value = {"/getCaptcha"}, produces = MediaType.APPLICATION_JSON_VALUE)
-    public String getCaptcha() {
-        Captcha c = pcp.getCaptcha();
+    public String getCaptcha(HttpSession session) {
+        Captcha c = pcp.getCaptcha(getCaptchaSpec(getSessionProperties(session)));
         return buildCaptchaJSON(c);
     }
 
+    /*
+     * Returns the identifier and size of a new CAPTCHA and the URL of its image. Only the seed of the CAPTCHA is
+     * stored; nothing is rendered until getCaptchaImage is called.
+     */
+    @ResponseBody
+    @RequestMapping(method = RequestMethod.GET, value = {"/getCaptchaInfo"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public String getCaptchaInfo(HttpSession session) throws UnsupportedEncodingException {
+        CaptchaSpec spec = getCaptchaSpec(getSessionProperties(session));
+        String id = pcp.issueSeededCaptcha(spec);
+        Map<String, String> m = new HashMap<>();
+        m.put("id", id);
+        m.put("width", Integer.toString(spec.getCaptchaWidth()));
+        m.put("height", Integer.toString(spec.getCaptchaHeight()));
+        m.put("image", "/getCaptchaImage?id=" + URLEncoder.encode(id, "UTF-8"));
+        return GSON.toJson(m);
+    }
+
+    /*
+     * Paints the CAPTCHA from its seed and encodes the PNG image straight into the response. The image can be fetched
+     * again, for example by a retry, until the CAPTCHA is verified.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = {"/getCaptchaImage"})
+    public void getCaptchaImage(@RequestParam("id") String id, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.IMAGE_PNG_VALUE);
+        response.setHeader("Cache-Control", "no-store");
+        if (!pcp.renderCaptcha(id, response.getOutputStream()))
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+    }
+
     @ResponseBody
     @RequestMapping(
             method = RequestMethod.GET,
             value = {"/getConfig"},
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public String getConfig() {
+    public String getConfig(HttpSession session) {
+        Properties p = getSessionProperties(session);
         Map<String, Object> m = new HashMap<>();
         Map<String, String> pMap = new HashMap<>();
         for (final String name : p.stringPropertyNames())
             pMap.put(name, p.getProperty(name));
         m.put("configuration", pMap);
-        Gson gson = new Gson();
-        return gson.toJson(m).toString();
+        return GSON.toJson(m);
     }
 
 
@@ -115,7 +173,7 @@ public class LandingController {
             produces = MediaType.APPLICATION_JSON_VALUE,
             consumes = MediaType.APPLICATION_JSON_VALUE
     )
-    public String setConfig(@RequestBody CaptchaConfig config) {
+    public String setConfig(@RequestBody CaptchaConfig config, HttpSession session) {
 
         switch (config.getCodePoints()) {
             case "0-255":
@@ -147,7 +205,7 @@ public class LandingController {
             return ERROR;
         }
 
-        p = new Properties();
+        Properties p = new Properties();
         if (config.getOrientation().equals("horizontal")) {
             p.setProperty("captchaWidth", "400");
             p.setProperty("captchaHeight", "300");
@@ -160,7 +218,8 @@ public class LandingController {
         p.setProperty("challengeCount", config.getChallengeCount());
         p.setProperty("ordered", config.getOrdered());
         p.setProperty("responseCount", config.getResponseCount());
-        pcp.init(p);
+        getCaptchaSpec(p);
+        session.setAttribute(CONFIG_ATTRIBUTE, p);
 
         Map<String, Object> m = new HashMap<>();
         Map<String, String> pMap = new HashMap<>();
@@ -168,8 +227,7 @@ public class LandingController {
             pMap.put(name, p.getProperty(name));
         m.put("status", "success");
         m.put("configuration", pMap);
-        Gson gson = new Gson();
-        return gson.toJson(m).toString();
+        return GSON.toJson(m);
     }
 
     @ResponseBody
@@ -178,8 +236,7 @@ public class LandingController {
             produces = MediaType.APPLICATION_JSON_VALUE,
             consumes = MediaType.APPLICATION_JSON_VALUE)
     public String verifySolution(@RequestBody ClientSolutionDO clientSolutionDO) {
-        Gson gson = new Gson();
-        String solutionAsString = gson.toJson(clientSolutionDO.getSolutionCoordinates()).toString();
+        String solutionAsString = GSON.toJson(clientSolutionDO.getSolutionCoordinates());
         ValidationResult vr = pcp.verify(clientSolutionDO.getPixelcaptchaId(), solutionAsString);
         Map<String, Object> m = new HashMap<>();
         if (vr.isPositive()) {
@@ -188,6 +245,6 @@ public class LandingController {
             m.put("status", "failure");
         }
         m.put("details", vr);
-        return new Gson().toJson(m);
+        return GSON.toJson(m);
     }
 }
@@ -30,7 +30,7 @@ function initPixelcaptcha() {
 function retrieveCaptchaAndDraw() {
     clearCapturedCoordinates();
     var request = new XMLHttpRequest();
-    request.open("GET", "/getCaptcha");
+    request.open("GET", "/getCaptchaInfo");
     request.onreadystatechange = function () {
         if (request.readyState == 4 && request.status == 200) {
             loadCaptchaFromResponse(request.responseText);
@@ -59,6 +59,7 @@ function loadCaptchaFromResponse(jsonString) {
         context.drawImage(img, 0, 0, canvas.width, canvas.height);
     }
 
+    // A URL that streams the PNG image, or a data URI from the /getCaptcha endpoint
     img.src = json["image"];
     //var context = canvas.getContext("2d");
     //context.drawImage(img, 0, 0, canvas.width, canvas.height);
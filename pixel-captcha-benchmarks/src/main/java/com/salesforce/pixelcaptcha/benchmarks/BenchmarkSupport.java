@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.benchmarks;
+
+import com.salesforce.pixelcaptcha.core.GlobalConstants;
+import com.salesforce.pixelcaptcha.core.ImageColorMode;
+import com.salesforce.pixelcaptcha.core.MasterConfig;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaDimension;
+import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
+import com.salesforce.pixelcaptcha.utils.Helper;
+import com.salesforce.pixelcaptcha.utils.PrintableCharFinder;
+
+/**
+ * Builds the library configuration objects for the benchmark parameters the same way PixelCaptchaController does.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+final class BenchmarkSupport {
+
+    static final String HORIZONTAL = "horizontal";
+    static final String VERTICAL = "vertical";
+
+    private BenchmarkSupport() {
+    }
+
+    static MasterConfig buildMasterConfig(String orientation, ChallengeAndResponseCount challengeAndResponseCount,
+                                          String codePoints, boolean ordered) {
+        return buildMasterConfig(orientation, challengeAndResponseCount, codePoints, ordered, GlobalConstants.IMAGE_COLOR_MODE);
+    }
+
+    static MasterConfig buildMasterConfig(String orientation, ChallengeAndResponseCount challengeAndResponseCount,
+                                          String codePoints, boolean ordered, ImageColorMode imageColorMode) {
+        CaptchaDimension captchaDimension;
+        if (HORIZONTAL.equals(orientation)) {
+            captchaDimension = new CaptchaDimension(GlobalConstants.DEFAULT_WIDTH, GlobalConstants.DEFAULT_HEIGHT);
+        } else if (VERTICAL.equals(orientation)) {
+            captchaDimension = new CaptchaDimension(GlobalConstants.DEFAULT_HEIGHT, GlobalConstants.DEFAULT_WIDTH);
+        } else {
+            throw new IllegalArgumentException("Unknown orientation " + orientation);
+        }
+
+        return new MasterConfig(captchaDimension, printableCodePoints(codePoints), challengeAndResponseCount, ordered, imageColorMode);
+    }
+
+    private static int[] printableCodePoints(String codePoints) {
+        int[] all = Helper.convertCodePointsToSortedIntArrayNoDuplicates(codePoints, GlobalConstants.DEFAULT_CHAR_RANGE);
+        return PrintableCharFinder.getInstance().getPrintableCodePoints(all);
+    }
+}
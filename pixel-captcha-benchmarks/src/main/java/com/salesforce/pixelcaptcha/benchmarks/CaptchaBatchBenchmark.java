@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.benchmarks;
+
+import com.salesforce.pixelcaptcha.core.PixelCaptchaController;
+import com.salesforce.pixelcaptcha.interfaces.Captcha;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares generating a batch of CAPTCHAs with PixelCaptchaController.getCaptchas, which renders on the common fork/join
+ * pool and stores the solutions with one bulk put, against calling getCaptcha in a loop on one thread. The speedup is
+ * bounded by the number of cores available to the fork/join pool.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CaptchaBatchBenchmark {
+
+    @Param({"64"})
+    public int batchSize;
+
+    @Param({"default", "compact"})
+    public String solutionStore;
+
+    private PixelCaptchaController controller;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("codePoints", "0-4095");
+        properties.setProperty("solutionStore", solutionStore);
+        properties.setProperty("glyphRendering", "CACHED_OUTLINE");
+        controller = new PixelCaptchaController();
+        controller.initProperties(properties);
+    }
+
+    @Benchmark
+    public List<Captcha> loop() {
+        List<Captcha> captchas = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++)
+            captchas.add(controller.getCaptcha());
+        return captchas;
+    }
+
+    @Benchmark
+    public List<Captcha> batch() {
+        return controller.getCaptchas(batchSize);
+    }
+}
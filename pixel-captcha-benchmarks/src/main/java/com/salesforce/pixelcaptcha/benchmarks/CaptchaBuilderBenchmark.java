@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.benchmarks;
+
+import com.salesforce.pixelcaptcha.core.CaptchaBuilder;
+import com.salesforce.pixelcaptcha.core.CaptchaMetadataFactory;
+import com.salesforce.pixelcaptcha.core.GlyphRenderingMode;
+import com.salesforce.pixelcaptcha.core.RenderContext;
+import com.salesforce.pixelcaptcha.core.SvgCaptchaBuilder;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaMetadata;
+import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures CaptchaBuilder.buildImageWithCollapsedChallenge for horizontal and vertical CAPTCHAs, painting into a new
+ * image and into the reusable image of the thread's RenderContext. buildSvgWithCollapsedChallenge measures the SVG
+ * output of SvgCaptchaBuilder for comparison. It always uses the glyph outline cache, whatever glyphRenderingMode is.
+ * A fixed set of metadata objects is generated up front so that only rendering is measured. With CACHED_OUTLINE and
+ * SCANLINE the glyph outline cache, and with SPRITE_ATLAS the sprite atlas, warm up during the warmup iterations, so the steady
+ * state hit rate is measured.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CaptchaBuilderBenchmark {
+
+    private static final int METADATA_COUNT = 64;
+
+    @Param({"horizontal", "vertical"})
+    public String orientation;
+
+    @Param({"TWO_TEN", "TWO_ELEVEN", "TWO_TWELVE",
+            "THREE_TEN", "THREE_ELEVEN", "THREE_TWELVE",
+            "FOUR_TEN", "FOUR_ELEVEN", "FOUR_TWELVE"})
+    public ChallengeAndResponseCount challengeAndResponseCount;
+
+    @Param({"0-255", "0-4095", "0-65535"})
+    public String codePoints;
+
+    @Param({"DRAW_STRING", "CACHED_OUTLINE", "SPRITE_ATLAS", "SCANLINE"})
+    public GlyphRenderingMode glyphRenderingMode;
+
+    private CaptchaMetadata[] captchaMetadata;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CaptchaMetadataFactory factory = new CaptchaMetadataFactory(
+                BenchmarkSupport.buildMasterConfig(orientation, challengeAndResponseCount, codePoints, false));
+        captchaMetadata = new CaptchaMetadata[METADATA_COUNT];
+        for (int i = 0; i < METADATA_COUNT; i++)
+            captchaMetadata[i] = factory.getCaptchaMetadata();
+    }
+
+    @Benchmark
+    public BufferedImage buildImageWithCollapsedChallenge() {
+        CaptchaMetadata cmd = captchaMetadata[next];
+        next = (next + 1) % METADATA_COUNT;
+        return CaptchaBuilder.buildImageWithCollapsedChallenge(cmd, glyphRenderingMode);
+    }
+
+    @Benchmark
+    public BufferedImage buildImageWithRenderContext() {
+        CaptchaMetadata cmd = captchaMetadata[next];
+        next = (next + 1) % METADATA_COUNT;
+        try (RenderContext renderContext = RenderContext.acquire()) {
+            return CaptchaBuilder.buildImageWithCollapsedChallenge(cmd, glyphRenderingMode, renderContext);
+        }
+    }
+
+    @Benchmark
+    public String buildSvgWithCollapsedChallenge() {
+        CaptchaMetadata cmd = captchaMetadata[next];
+        next = (next + 1) % METADATA_COUNT;
+        return SvgCaptchaBuilder.buildSvgWithCollapsedChallenge(cmd);
+    }
+}
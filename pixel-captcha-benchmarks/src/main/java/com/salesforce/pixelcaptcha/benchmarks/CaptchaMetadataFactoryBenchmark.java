@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.benchmarks;
+
+import com.salesforce.pixelcaptcha.core.CaptchaMetadataFactory;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaMetadata;
+import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures CaptchaMetadataFactory.getCaptchaMetadata, which picks the characters, fonts, transforms and coordinates.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CaptchaMetadataFactoryBenchmark {
+
+    @Param({"horizontal", "vertical"})
+    public String orientation;
+
+    @Param({"TWO_TEN", "TWO_ELEVEN", "TWO_TWELVE",
+            "THREE_TEN", "THREE_ELEVEN", "THREE_TWELVE",
+            "FOUR_TEN", "FOUR_ELEVEN", "FOUR_TWELVE"})
+    public ChallengeAndResponseCount challengeAndResponseCount;
+
+    @Param({"0-255", "0-4095", "0-65535"})
+    public String codePoints;
+
+    private CaptchaMetadataFactory captchaMetadataFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        captchaMetadataFactory = new CaptchaMetadataFactory(
+                BenchmarkSupport.buildMasterConfig(orientation, challengeAndResponseCount, codePoints, false));
+    }
+
+    @Benchmark
+    public CaptchaMetadata getCaptchaMetadata() {
+        return captchaMetadataFactory.getCaptchaMetadata();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.benchmarks;
+
+import com.salesforce.pixelcaptcha.core.CaptchaBuilder;
+import com.salesforce.pixelcaptcha.core.CaptchaMetadataFactory;
+import com.salesforce.pixelcaptcha.core.ImageColorMode;
+import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
+import com.salesforce.pixelcaptcha.utils.PngEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PNG encoding of a rendered CAPTCHA through ImageIO and through PngEncoder, for each ImageColorMode.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PngEncodingBenchmark {
+
+    @Param({"horizontal", "vertical"})
+    public String orientation;
+
+    @Param({"TWO_TEN", "FOUR_TWELVE"})
+    public ChallengeAndResponseCount challengeAndResponseCount;
+
+    @Param({"0-255", "0-4095", "0-65535"})
+    public String codePoints;
+
+    @Param({"RGB", "INDEXED_2_BIT", "INDEXED_4_BIT"})
+    public ImageColorMode imageColorMode;
+
+    private BufferedImage image;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CaptchaMetadataFactory factory = new CaptchaMetadataFactory(
+                BenchmarkSupport.buildMasterConfig(orientation, challengeAndResponseCount, codePoints, false, imageColorMode));
+        image = CaptchaBuilder.buildImageWithCollapsedChallenge(factory.getCaptchaMetadata());
+    }
+
+    @Benchmark
+    public byte[] imageIoPng() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", baos);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] pngEncoder() {
+        return PngEncoder.getInstance().encode(image);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.benchmarks;
+
+import com.google.common.io.ByteStreams;
+import com.salesforce.pixelcaptcha.utils.PrintableCodePointIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading the printable code point table from the text list and from the binary bitset, and extracting the
+ * printable code points of a range. The resources are read into memory up front so that only decoding is measured.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrintableCodePointIndexBenchmark {
+
+    private byte[] text;
+    private byte[] binary;
+    private PrintableCodePointIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        text = readResource("printable_chars/serif_printable.txt");
+        binary = readResource("printable_chars/serif_printable.bin");
+        index = PrintableCodePointIndex.read(new ByteArrayInputStream(binary));
+    }
+
+    private static byte[] readResource(String path) throws IOException {
+        try (InputStream in = PrintableCodePointIndexBenchmark.class.getClassLoader().getResourceAsStream(path)) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    @Benchmark
+    public PrintableCodePointIndex parseText() throws IOException {
+        return PrintableCodePointIndex.parse(new InputStreamReader(new ByteArrayInputStream(text), StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public PrintableCodePointIndex readBinary() throws IOException {
+        return PrintableCodePointIndex.read(new ByteArrayInputStream(binary));
+    }
+
+    @Benchmark
+    public int[] codePointsOfFullRange() {
+        return index.codePoints(0, 65535);
+    }
+}
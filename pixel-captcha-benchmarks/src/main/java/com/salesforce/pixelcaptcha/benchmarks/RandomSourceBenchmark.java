@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.benchmarks;
+
+import com.salesforce.pixelcaptcha.core.CaptchaMetadataFactory;
+import com.salesforce.pixelcaptcha.core.GlobalConstants;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaMetadata;
+import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
+import com.salesforce.pixelcaptcha.utils.RandomSource;
+import com.salesforce.pixelcaptcha.utils.impl.ChaCha20RandomSource;
+import com.salesforce.pixelcaptcha.utils.impl.SecureRandomSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the shared SecureRandom with the per-thread DRBGs. Run with -t to see how each scales with threads, for
+ * example -t 1 and -t 8.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RandomSourceBenchmark {
+
+    @Param({GlobalConstants.SECURE_RANDOM_SOURCE, "chacha20"})
+    public String randomSource;
+
+    private RandomSource source;
+    private CaptchaMetadataFactory captchaMetadataFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = GlobalConstants.SECURE_RANDOM_SOURCE.equals(randomSource)
+                ? SecureRandomSource.getInstance() : ChaCha20RandomSource.getInstance();
+        captchaMetadataFactory = new CaptchaMetadataFactory(BenchmarkSupport.buildMasterConfig(BenchmarkSupport.HORIZONTAL,
+                ChallengeAndResponseCount.FOUR_TWELVE, GlobalConstants.DEFAULT_CHAR_RANGE, false), source);
+    }
+
+    @Benchmark
+    public int nextInt() {
+        return source.nextInt(1000);
+    }
+
+    @Benchmark
+    public CaptchaMetadata getCaptchaMetadata() {
+        return captchaMetadataFactory.getCaptchaMetadata();
+    }
+}
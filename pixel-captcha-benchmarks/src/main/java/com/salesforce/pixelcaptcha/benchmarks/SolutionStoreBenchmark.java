@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.benchmarks;
+
+import com.google.common.base.Optional;
+import com.salesforce.pixelcaptcha.core.CaptchaMetadataFactory;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaSolution;
+import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
+import com.salesforce.pixelcaptcha.storage.CaptchaSolutionStore;
+import com.salesforce.pixelcaptcha.storage.impl.CompactCaptchaSolutionStore;
+import com.salesforce.pixelcaptcha.storage.impl.PixelCaptchaSolutionStore;
+import com.salesforce.pixelcaptcha.storage.impl.TokenCaptchaSolutionStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a store followed by a get of the same CAPTCHA solution, with several threads hitting the same store.
+ * Use -t to change the thread count.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SolutionStoreBenchmark {
+
+    @Param({"TWO_TEN", "THREE_TEN", "FOUR_TEN"})
+    public ChallengeAndResponseCount challengeAndResponseCount;
+
+    @Param({"0-255", "0-4095", "0-65535"})
+    public String codePoints;
+
+    @Param({"cache", "compact", "token"})
+    public String storeType;
+
+    private CaptchaSolutionStore store;
+    private CaptchaSolution solution;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CaptchaMetadataFactory factory = new CaptchaMetadataFactory(BenchmarkSupport.buildMasterConfig(
+                BenchmarkSupport.HORIZONTAL, challengeAndResponseCount, codePoints, false));
+        solution = factory.getCaptchaMetadata().getSolution();
+        if ("compact".equals(storeType)) {
+            store = new CompactCaptchaSolutionStore(CompactCaptchaSolutionStore.DEFAULT_SIZE, CompactCaptchaSolutionStore.DEFAULT_TIMEOUT);
+        } else if ("token".equals(storeType)) {
+            store = new TokenCaptchaSolutionStore(new byte[16], TokenCaptchaSolutionStore.DEFAULT_SIZE, TokenCaptchaSolutionStore.DEFAULT_TIMEOUT);
+        } else {
+            store = new PixelCaptchaSolutionStore(PixelCaptchaSolutionStore.DEFAULT_SIZE, PixelCaptchaSolutionStore.DEFAULT_TIMEOUT);
+        }
+    }
+
+    @Benchmark
+    public Optional<CaptchaSolution> storeAndGet() {
+        String identifier = store.storeCaptchaSolution(solution);
+        return store.getCaptchaSolution(identifier);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.benchmarks;
+
+import com.salesforce.pixelcaptcha.core.CaptchaMetadataFactory;
+import com.salesforce.pixelcaptcha.core.UnorderedMatching;
+import com.salesforce.pixelcaptcha.core.VerificationEngine;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaSolution;
+import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
+import com.salesforce.pixelcaptcha.interfaces.ValidationResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures VerificationEngine.verifySolution for ordered and unordered solutions.
+ * The unordered response is the solution in reverse click order, so the matching has to search.
+ * unorderedMatching has no effect on ordered solutions.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VerificationEngineBenchmark {
+
+    @Param({"true", "false"})
+    public boolean ordered;
+
+    @Param({"TWO_TEN", "THREE_TEN", "FOUR_TEN"})
+    public ChallengeAndResponseCount challengeAndResponseCount;
+
+    @Param({"0-255", "0-4095", "0-65535"})
+    public String codePoints;
+
+    @Param({"GREEDY", "OPTIMAL"})
+    public UnorderedMatching unorderedMatching;
+
+    private VerificationEngine verificationEngine;
+    private CaptchaSolution solution;
+    private List<Point> response;
+    private int[] responseCoordinates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CaptchaMetadataFactory factory = new CaptchaMetadataFactory(BenchmarkSupport.buildMasterConfig(
+                BenchmarkSupport.HORIZONTAL, challengeAndResponseCount, codePoints, ordered));
+        verificationEngine = VerificationEngine.getInstance();
+        solution = factory.getCaptchaMetadata().getSolution();
+
+        response = new ArrayList<>();
+        for (Point p : solution.getPoints())
+            response.add(new Point(p.x + 2, p.y - 2));
+        if (!ordered)
+            Collections.reverse(response);
+
+        responseCoordinates = new int[response.size() * 2];
+        for (int i = 0; i < response.size(); i++) {
+            responseCoordinates[2 * i] = response.get(i).x;
+            responseCoordinates[2 * i + 1] = response.get(i).y;
+        }
+    }
+
+    @Benchmark
+    public ValidationResult verifySolution() {
+        return verificationEngine.verifySolution(solution, response, unorderedMatching);
+    }
+
+    @Benchmark
+    public ValidationResult verifySolutionCoordinates() {
+        return verificationEngine.verifySolution(solution, responseCoordinates, unorderedMatching);
+    }
+}
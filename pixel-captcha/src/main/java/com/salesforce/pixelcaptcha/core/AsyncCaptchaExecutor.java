@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs CAPTCHA work off the calling thread and exposes it as CompletableFutures.
+ * <p/>
+ * The executor owns a fixed number of render threads fed by a bounded queue. When the queue is full the returned
+ * future fails with RejectedExecutionException instead of blocking the caller, which lets servlet and event loop
+ * front ends shed load. Each call may carry a timeout, after which the future fails with TimeoutException.
+ * <p/>
+ * A future that is cancelled or times out before its task starts removes the task from the queue, or skips it if it
+ * was handed to another executor. Java2D rendering cannot be interrupted, so a task that is already running finishes
+ * and its result is discarded.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class AsyncCaptchaExecutor {
+
+    private static final AtomicInteger EXECUTOR_SEQUENCE = new AtomicInteger();
+
+    public static final int MIN_THREADS = 1;
+    public static final int MAX_THREADS = 64;
+    public static final int MIN_QUEUE_CAPACITY = 1;
+
+    private final ThreadPoolExecutor renderThreads;
+
+    /**
+     * @param threadCount   number of render threads
+     * @param queueCapacity number of tasks that may wait for a render thread
+     */
+    public AsyncCaptchaExecutor(int threadCount, int queueCapacity) {
+        if (threadCount < MIN_THREADS || threadCount > MAX_THREADS)
+            throw new IllegalArgumentException("Render thread count must be between " + MIN_THREADS + " and " + MAX_THREADS);
+        if (queueCapacity < MIN_QUEUE_CAPACITY)
+            throw new IllegalArgumentException("Queue capacity cannot be less than " + MIN_QUEUE_CAPACITY);
+
+        this.renderThreads = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new AsyncThreadFactory());
+    }
+
+    /**
+     * Runs the task on the render threads of this executor.
+     *
+     * @param task    work to run
+     * @param timeout time after which the future fails with TimeoutException. 0 or less means no timeout.
+     * @param unit    unit of the timeout
+     * @return future completed with the result of the task
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task, long timeout, TimeUnit unit) {
+        return submit(task, renderThreads, timeout, unit);
+    }
+
+    /**
+     * Runs the task on the supplied executor. The timeout is still enforced by this executor.
+     *
+     * @param task     work to run
+     * @param executor executor that runs the task
+     * @param timeout  time after which the future fails with TimeoutException. 0 or less means no timeout.
+     * @param unit     unit of the timeout
+     * @return future completed with the result of the task
+     */
+    public <T> CompletableFuture<T> submit(final Supplier<T> task, Executor executor, long timeout, TimeUnit unit) {
+        if (task == null || executor == null || unit == null)
+            throw new NullPointerException("Task, executor and time unit cannot be null");
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Runnable runnable = () -> {
+            // Cancelled or timed out while waiting in the queue
+            if (future.isDone())
+                return;
+            try {
+                future.complete(task.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        };
+
+        try {
+            executor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        if (timeout > 0) {
+            final ScheduledFuture<?> timer = TimeoutScheduler.INSTANCE.schedule(
+                    () -> future.completeExceptionally(new TimeoutException("CAPTCHA task did not complete in time")),
+                    timeout, unit);
+            future.whenComplete((result, failure) -> timer.cancel(false));
+        }
+
+        if (executor == renderThreads) {
+            // Frees the queue slot of a task whose future was cancelled or timed out before it started
+            future.whenComplete((result, failure) -> {
+                if (failure != null)
+                    renderThreads.remove(runnable);
+            });
+        }
+        return future;
+    }
+
+    /**
+     * @return number of tasks waiting for a render thread
+     */
+    public int getQueueSize() {
+        return renderThreads.getQueue().size();
+    }
+
+    /**
+     * Stops accepting tasks. Tasks that were already submitted still run.
+     */
+    public void shutdown() {
+        renderThreads.shutdown();
+    }
+
+    /**
+     * One daemon thread shared by every executor. Timer tasks only complete futures.
+     */
+    private static final class TimeoutScheduler {
+        private static final ScheduledThreadPoolExecutor INSTANCE;
+
+        static {
+            INSTANCE = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "pixelcaptcha-async-timeout");
+                t.setDaemon(true);
+                return t;
+            });
+            INSTANCE.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    private static class AsyncThreadFactory implements ThreadFactory {
+        private final int executorNumber = EXECUTOR_SEQUENCE.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "pixelcaptcha-async-" + executorNumber + "-render-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
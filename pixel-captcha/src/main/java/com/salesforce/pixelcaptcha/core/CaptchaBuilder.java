@@ -8,12 +8,17 @@
 package com.salesforce.pixelcaptcha.core;
 
 import com.salesforce.pixelcaptcha.dataobj.CaptchaMetadata;
-import com.salesforce.pixelcaptcha.dataobj.PointProperty;
+import com.salesforce.pixelcaptcha.dataobj.GlyphArray;
+import com.salesforce.pixelcaptcha.utils.GlyphOutlineCache;
+import com.salesforce.pixelcaptcha.utils.GlyphRasterizer;
+import com.salesforce.pixelcaptcha.utils.GlyphSpriteAtlas;
+import com.salesforce.pixelcaptcha.utils.PngEncoder;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.security.SecureRandom;
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Stateless class. Given a CaptchaMetadata object, the purpose of this class is to paint a CAPTCHA image and returned
@@ -22,9 +27,6 @@ import java.util.List;
  * @author Gursev Singh Kalra @ Salesforce.com
  */
 public class CaptchaBuilder {
-    private static long WHITE = -1;
-    private static SecureRandom sr = new SecureRandom();
-    private static int MAX_OVERLAP_PERCENTAGE = 15; // Percentage overlap
 
     /**
      * NOT USED
@@ -56,23 +58,16 @@ public class CaptchaBuilder {
 
         g2d.setColor(Color.black);
 
-        for (PointProperty pp : captchaMetadata.getChallenge()) {
-            drawStringAtPoint(g2d,
-                    pp.getColor(),
-                    pp.getFont(),
-                    pp.getStringToWrite(),
-                    pp.getPoint().x,
-                    pp.getPoint().y);
+        GlyphArray challenge = captchaMetadata.getChallengeGlyphs();
+        for (int i = 0; i < challenge.size(); i++) {
+            drawGlyph(bi, g2d, GlyphRenderingMode.DRAW_STRING, challenge, i);
         }
 
-        for (PointProperty pp : captchaMetadata.getSolutionOptions()) {
-            drawStringAtPoint(g2d,
-                    pp.getColor(),
-                    pp.getFont(),
-                    pp.getStringToWrite(),
-                    pp.getPoint().x,
-                    pp.getPoint().y);
+        GlyphArray solutionOptions = captchaMetadata.getSolutionOptionGlyphs();
+        for (int i = 0; i < solutionOptions.size(); i++) {
+            drawGlyph(bi, g2d, GlyphRenderingMode.DRAW_STRING, solutionOptions, i);
         }
+        g2d.dispose();
 
         return bi;
     }
@@ -85,130 +80,150 @@ public class CaptchaBuilder {
      */
 
     public static BufferedImage buildImageWithCollapsedChallenge(CaptchaMetadata captchaMetadata) {
-        if (captchaMetadata == null)
-            throw new IllegalArgumentException("CaptchaMetadata object cannot be null");
+        return buildImageWithCollapsedChallenge(captchaMetadata, GlobalConstants.GLYPH_RENDERING_MODE);
+    }
 
-        if (captchaMetadata.getCaptchaDimension().getWidth() >= captchaMetadata.getCaptchaDimension().getHeight()) {
-            return buildHorizontalCAPTCHA(captchaMetadata);
-        } else {
-            return buildVerticalCAPTCHA(captchaMetadata);
+    /**
+     * Paints a CAPTCHA as per the CaptchaMetadata object supplied.
+     *
+     * @param captchaMetadata    CaptchaMetadata object for the CAPTCHA.
+     * @param glyphRenderingMode how the characters are painted
+     * @return BufferedImage with the new CAPTCHA
+     */
+    public static BufferedImage buildImageWithCollapsedChallenge(CaptchaMetadata captchaMetadata, GlyphRenderingMode glyphRenderingMode) {
+        validate(captchaMetadata, glyphRenderingMode);
+
+        BufferedImage bi = getBufferedImage(captchaMetadata);
+        Graphics2D g2d = bi.createGraphics();
+        captchaMetadata.getImageColorMode().configure(g2d);
+        try {
+            buildCAPTCHA(bi, g2d, captchaMetadata, glyphRenderingMode);
+        } finally {
+            g2d.dispose();
         }
+        return bi;
     }
 
-    private static BufferedImage getBufferedImage(CaptchaMetadata captchaMetadata) {
-        return new BufferedImage(
+    /**
+     * Paints a CAPTCHA into the reusable image of a RenderContext, so no image or Graphics2D is allocated once the
+     * context has painted a CAPTCHA of the same size and ImageColorMode.
+     *
+     * @param captchaMetadata    CaptchaMetadata object for the CAPTCHA.
+     * @param glyphRenderingMode how the characters are painted
+     * @param renderContext      acquired context of the calling thread
+     * @return image owned by the context. It is only valid until the context paints the next CAPTCHA or is released.
+     */
+    public static BufferedImage buildImageWithCollapsedChallenge(CaptchaMetadata captchaMetadata, GlyphRenderingMode glyphRenderingMode, RenderContext renderContext) {
+        validate(captchaMetadata, glyphRenderingMode);
+        if (renderContext == null)
+            throw new IllegalArgumentException("RenderContext cannot be null");
+
+        RenderContext.Buffer buffer = renderContext.getBuffer(
                 captchaMetadata.getCaptchaDimension().getWidth(),
                 captchaMetadata.getCaptchaDimension().getHeight(),
-                captchaMetadata.getImageType()
+                captchaMetadata.getImageColorMode()
         );
+        buildCAPTCHA(buffer.getImage(), buffer.getGraphics(), captchaMetadata, glyphRenderingMode);
+        return buffer.getImage();
     }
 
-    private static void drawSolution(BufferedImage bi, CaptchaMetadata captchaMetadata) {
-        Graphics2D g2d = bi.createGraphics();
-        for (PointProperty pp : captchaMetadata.getSolutionOptions()) {
-            drawStringAtPoint(g2d,
-                    pp.getColor(),
-                    pp.getFont(),
-                    pp.getStringToWrite(),
-                    pp.getPoint().x,
-                    pp.getPoint().y);
-        }
+    /**
+     * Paints a CAPTCHA into the RenderContext of the calling thread and writes it to the stream as a PNG image with
+     * the default PngEncoder. Only the encoded bytes leave the reusable image.
+     *
+     * @param captchaMetadata    CaptchaMetadata object for the CAPTCHA.
+     * @param glyphRenderingMode how the characters are painted
+     * @param out                receives the PNG image. It is not closed.
+     * @throws IOException if writing to the stream fails
+     */
+    public static void writeImageWithCollapsedChallenge(CaptchaMetadata captchaMetadata, GlyphRenderingMode glyphRenderingMode, OutputStream out) throws IOException {
+        writeImageWithCollapsedChallenge(captchaMetadata, glyphRenderingMode, PngEncoder.getInstance(), out);
     }
 
-    private static int scanForNextHorizontalChallengeXCoordinateForVerticalCaptcha(BufferedImage bi, int startX, int referenceFontSize) {
-        int nextX = startX;
-        int scanWidth = (int) (referenceFontSize * 1.5);
-        int maxOverlap = (referenceFontSize * MAX_OVERLAP_PERCENTAGE) / 100;
-        int heightToScan = (bi.getWidth() / 5) * 2; /*This is twice the maximum font size*/
-
-
-        for (int xMovement = 0; xMovement < scanWidth; xMovement++) {
-            for (int y = 0; y < heightToScan; y++) {
-                if (startX + xMovement >= bi.getWidth())
-                    break;
-                long pixel = bi.getRGB(startX + xMovement, y);
-                if (pixel != WHITE) {
-                    nextX = startX + xMovement;
-                    break;
-                }
-            }
+    /**
+     * Paints a CAPTCHA into the RenderContext of the calling thread and writes it to the stream as a PNG image. Only
+     * the encoded bytes leave the reusable image.
+     *
+     * @param captchaMetadata    CaptchaMetadata object for the CAPTCHA.
+     * @param glyphRenderingMode how the characters are painted
+     * @param pngEncoder         encodes the image
+     * @param out                receives the PNG image. It is not closed.
+     * @throws IOException if writing to the stream fails
+     */
+    public static void writeImageWithCollapsedChallenge(CaptchaMetadata captchaMetadata, GlyphRenderingMode glyphRenderingMode, PngEncoder pngEncoder, OutputStream out) throws IOException {
+        if (pngEncoder == null)
+            throw new IllegalArgumentException("PngEncoder cannot be null");
+        if (out == null)
+            throw new IllegalArgumentException("OutputStream cannot be null");
+
+        try (RenderContext renderContext = RenderContext.acquire()) {
+            pngEncoder.write(buildImageWithCollapsedChallenge(captchaMetadata, glyphRenderingMode, renderContext), out);
         }
-
-        // Now I have the y coordinate by which the text potentially ends. Time to get the next random coordinate for the overlap
-        nextX -= sr.nextInt(maxOverlap);
-        return nextX;
     }
 
-    private static void drawCollapsedChallengeForVerticalCAPTCHA(BufferedImage bi, CaptchaMetadata captchaMetadata) {
-        List<PointProperty> challengePointProperties = captchaMetadata.getChallenge();
-        int challengeCount = challengePointProperties.size();
-        PointProperty pp = challengePointProperties.get(0);
-
-        Graphics2D g2d = bi.createGraphics();
-        drawStringAtPoint(g2d, pp.getColor(), pp.getFont(), pp.getStringToWrite(), pp.getPoint().x, pp.getPoint().y);
-
-        Point tempPoint = pp.getPoint();
-
-        for (int i = 1; i < challengeCount; i++) {
-            int tempX = scanForNextHorizontalChallengeXCoordinateForVerticalCaptcha(bi, tempPoint.x, pp.getFont().getSize());
-            tempPoint = new Point(tempX, pp.getPoint().y); // change X, keep the same Y
-            pp = challengePointProperties.get(i);
-            drawStringAtPoint(g2d, pp.getColor(), pp.getFont(), pp.getStringToWrite(), tempPoint.x, tempPoint.y);
-        }
-
+    private static void validate(CaptchaMetadata captchaMetadata, GlyphRenderingMode glyphRenderingMode) {
+        if (captchaMetadata == null)
+            throw new IllegalArgumentException("CaptchaMetadata object cannot be null");
+        if (glyphRenderingMode == null)
+            throw new IllegalArgumentException("GlyphRenderingMode cannot be null");
     }
 
-
-    private static void drawStringAtPoint(Graphics2D g2d, Color color, Font font, String string, int x, int y) {
-        g2d.setColor(color);
-        g2d.setFont(font);
-        g2d.drawString(string, x, y);
+    private static BufferedImage getBufferedImage(CaptchaMetadata captchaMetadata) {
+        return captchaMetadata.getImageColorMode().createImage(
+                captchaMetadata.getCaptchaDimension().getWidth(),
+                captchaMetadata.getCaptchaDimension().getHeight()
+        );
     }
 
-    private static int scanForNextVerticalChallengeYCoordinateForHorizontalCaptcha(BufferedImage bi, int startY, int referenceFontSize) {
-        int nextY = startY;
-        int scanHeight = (int) (referenceFontSize * 1.5);
-        int maxOverlap = (referenceFontSize * MAX_OVERLAP_PERCENTAGE) / 100;
-        int widthToScan = (bi.getWidth() / 5) * 2; /*This is twice the maximum font size*/
-
-        for (int yMovement = 0; yMovement < scanHeight; yMovement++) {
-            for (int x = 0; x < widthToScan; x++) {
-                if (startY - yMovement < 0)
-                    break;
-                long pixel = bi.getRGB(x, startY - yMovement);
-                if (pixel != WHITE) {
-                    nextY = startY - yMovement;
-                    break;
-                }
-            }
+    private static void drawSolution(BufferedImage bi, Graphics2D g2d, CaptchaMetadata captchaMetadata, GlyphRenderingMode glyphRenderingMode) {
+        GlyphArray solutionOptions = captchaMetadata.getSolutionOptionGlyphs();
+        for (int i = 0; i < solutionOptions.size(); i++) {
+            drawGlyph(bi, g2d, glyphRenderingMode, solutionOptions, i);
         }
-
-        // Now I have the y coordinate by which the text possibly ends. Time to get the next random coordinate for the overlap
-        nextY += sr.nextInt(maxOverlap);
-        return nextY;
     }
 
-    private static void drawCollapsedChallengeForHorizontalCAPTCHA(BufferedImage bi, CaptchaMetadata captchaMetadata) {
-//        List<PointProperty> pointPropertyList = captchaMetadata.getChallenge();
-        List<PointProperty> challengePointProperties = captchaMetadata.getChallenge();
-        int challengeCount = challengePointProperties.size();
-        PointProperty pp = challengePointProperties.get(challengeCount - 1);
+    /**
+     * The challenge coordinates are already collapsed by CaptchaMetadataFactory, so the characters are painted as is.
+     * The drawing order is kept from the time the layout was done on the image: bottom up for horizontal CAPTCHAs and
+     * left to right for vertical CAPTCHAs.
+     */
+    private static void drawCollapsedChallengeForVerticalCAPTCHA(BufferedImage bi, Graphics2D g2d, CaptchaMetadata captchaMetadata, GlyphRenderingMode glyphRenderingMode) {
+        GlyphArray challenge = captchaMetadata.getChallengeGlyphs();
+        for (int i = 0; i < challenge.size(); i++) {
+            drawGlyph(bi, g2d, glyphRenderingMode, challenge, i);
+        }
+    }
 
-        Graphics2D g2d = bi.createGraphics();
-        drawStringAtPoint(g2d, pp.getColor(), pp.getFont(), pp.getStringToWrite(), pp.getPoint().x, pp.getPoint().y);
 
-        Point tempPoint = pp.getPoint();
+    private static void drawGlyph(BufferedImage bi, Graphics2D g2d, GlyphRenderingMode glyphRenderingMode, GlyphArray glyphs, int i) {
+        g2d.setColor(glyphs.getColor(i));
+        if (glyphRenderingMode == GlyphRenderingMode.CACHED_OUTLINE) {
+            // The outline is transformed directly, so the transformed font is never derived
+            AffineTransform fontTransform = glyphs.getTransform(i, new AffineTransform());
+            g2d.fill(GlyphOutlineCache.getInstance().getOutline(glyphs.getBaseFont(i), glyphs.getString(i), fontTransform, glyphs.getX(i), glyphs.getY(i)));
+        } else if (glyphRenderingMode == GlyphRenderingMode.SPRITE_ATLAS) {
+            // BufferedImage painting is synchronous, so writing the raster directly can be mixed with Graphics2D calls
+            AffineTransform fontTransform = glyphs.getTransform(i, new AffineTransform());
+            GlyphSpriteAtlas.getInstance().draw(bi, glyphs.getBaseFont(i), glyphs.getCodePoint(i), fontTransform, glyphs.getX(i), glyphs.getY(i), glyphs.getColor(i));
+        } else if (glyphRenderingMode == GlyphRenderingMode.SCANLINE) {
+            // Antialiased as g2d.fill would be, which follows the hints set by the ImageColorMode
+            AffineTransform fontTransform = glyphs.getTransform(i, new AffineTransform());
+            boolean antialiased = RenderingHints.VALUE_ANTIALIAS_ON.equals(g2d.getRenderingHint(RenderingHints.KEY_ANTIALIASING));
+            GlyphRasterizer.fill(bi, GlyphOutlineCache.getInstance().getOutline(glyphs.getBaseFont(i), glyphs.getString(i), fontTransform, glyphs.getX(i), glyphs.getY(i)), glyphs.getColor(i), antialiased);
+        } else {
+            g2d.setFont(glyphs.getFont(i));
+            g2d.drawString(glyphs.getString(i), glyphs.getX(i), glyphs.getY(i));
+        }
+    }
 
-        for (int i = 2; i <= challengeCount; i++) {
-            int tempY = scanForNextVerticalChallengeYCoordinateForHorizontalCaptcha(bi, tempPoint.y, pp.getFont().getSize());
-            tempPoint = new Point(pp.getPoint().x, tempY); // keep the same X, change the Y
-            pp = challengePointProperties.get(challengeCount - i);
-            drawStringAtPoint(g2d, pp.getColor(), pp.getFont(), pp.getStringToWrite(), tempPoint.x, tempPoint.y);
+    private static void drawCollapsedChallengeForHorizontalCAPTCHA(BufferedImage bi, Graphics2D g2d, CaptchaMetadata captchaMetadata, GlyphRenderingMode glyphRenderingMode) {
+        GlyphArray challenge = captchaMetadata.getChallengeGlyphs();
+        for (int i = challenge.size() - 1; i >= 0; i--) {
+            drawGlyph(bi, g2d, glyphRenderingMode, challenge, i);
         }
     }
 
-    private static void paintCaptchaBackground(BufferedImage bi, CaptchaMetadata captchaMetadata) {
-        Graphics2D g2d = bi.createGraphics();
+    private static void paintCaptchaBackground(Graphics2D g2d, CaptchaMetadata captchaMetadata) {
         g2d.setColor(captchaMetadata.getBackgroundColor());
         g2d.fillRect(
                 0,
@@ -218,30 +233,21 @@ public class CaptchaBuilder {
         );
     }
 
-    private static BufferedImage buildCAPTCHA(CaptchaMetadata captchaMetadata, boolean isHorizontal) {
-        BufferedImage bi = getBufferedImage(captchaMetadata);
-        paintCaptchaBackground(bi, captchaMetadata);
+    /**
+     * Paints the whole image, so a reused image and Graphics2D need no clearing. Every character sets its own color
+     * and font.
+     */
+    private static void buildCAPTCHA(BufferedImage bi, Graphics2D g2d, CaptchaMetadata captchaMetadata, GlyphRenderingMode glyphRenderingMode) {
+        boolean isHorizontal = captchaMetadata.getCaptchaDimension().getWidth() >= captchaMetadata.getCaptchaDimension().getHeight();
+        paintCaptchaBackground(g2d, captchaMetadata);
 
         if (isHorizontal) {
-            drawCollapsedChallengeForHorizontalCAPTCHA(bi, captchaMetadata);
+            drawCollapsedChallengeForHorizontalCAPTCHA(bi, g2d, captchaMetadata, glyphRenderingMode);
         } else {
-            drawCollapsedChallengeForVerticalCAPTCHA(bi, captchaMetadata);
+            drawCollapsedChallengeForVerticalCAPTCHA(bi, g2d, captchaMetadata, glyphRenderingMode);
         }
 
-        drawSolution(bi, captchaMetadata);
-        return bi;
-
-    }
-
-
-    private static BufferedImage buildHorizontalCAPTCHA(CaptchaMetadata captchaMetadata) {
-        boolean isHorizontal = true;
-        return buildCAPTCHA(captchaMetadata, isHorizontal);
-    }
-
-    private static BufferedImage buildVerticalCAPTCHA(CaptchaMetadata captchaMetadata) {
-        boolean isHorizontal = false;
-        return buildCAPTCHA(captchaMetadata, isHorizontal);
+        drawSolution(bi, g2d, captchaMetadata, glyphRenderingMode);
     }
 
 }
@@ -13,18 +13,23 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Optional;
 
 import com.salesforce.pixelcaptcha.dataobj.CaptchaDimension;
 import com.salesforce.pixelcaptcha.dataobj.CaptchaSolution;
-import com.salesforce.pixelcaptcha.dataobj.PointProperty;
 import com.salesforce.pixelcaptcha.dataobj.CaptchaMetadata;
+import com.salesforce.pixelcaptcha.dataobj.GlyphArray;
 import com.salesforce.pixelcaptcha.dataobj.impl.PixelCaptchaSolution;
-import com.salesforce.pixelcaptcha.dataobj.impl.PixelCaptchaPointProperty;
 import com.salesforce.pixelcaptcha.utils.RandomFontFactory;
-import com.salesforce.pixelcaptcha.utils.RandomStringFactory;
+import com.salesforce.pixelcaptcha.utils.RandomSource;
+import com.salesforce.pixelcaptcha.utils.impl.ChaCha20RandomSource;
 import com.salesforce.pixelcaptcha.utils.impl.RandomTransformFactoryImpl;
 import com.salesforce.pixelcaptcha.utils.impl.RandomUnicodeStringFactoryImpl;
+import com.salesforce.pixelcaptcha.utils.impl.SeededRandomSource;
 import com.salesforce.pixelcaptcha.utils.Helper;
+import com.salesforce.pixelcaptcha.utils.PoissonDiskSampler;
 import com.salesforce.pixelcaptcha.utils.RandomPointFactory;
 
 /**
@@ -32,8 +37,9 @@ import com.salesforce.pixelcaptcha.utils.RandomPointFactory;
  *         This class contains most of the math required for generating the metadata for a CAPTCHA instance.
  */
 public class CaptchaMetadataFactory {
-    private static final Color responseColor = Color.BLACK;
-    private static final Color challengeColor = Color.BLUE;
+    // Also the palette colors of the indexed ImageColorModes
+    static final Color responseColor = Color.BLACK;
+    static final Color challengeColor = Color.BLUE;
     private RandomFontFactory challengeFontFactory;
     private RandomTransformFactoryImpl challengeTransformFactory;
     private static int BUFFER = 10;
@@ -42,7 +48,7 @@ public class CaptchaMetadataFactory {
     private RandomFontFactory responseFontFactory;
     private RandomTransformFactoryImpl responseTransformFactory;
 
-    private RandomStringFactory randomStringFactory;
+    private RandomUnicodeStringFactoryImpl randomStringFactory;
     private int challengeCount;
     private int responseCount;
     private Rectangle challengeRect;
@@ -52,23 +58,41 @@ public class CaptchaMetadataFactory {
     private boolean isHorizontalCaptcha;
     private CaptchaDimension captchaDimensions;
     private MasterConfig masterConfig;
+    private RandomSource randomSource;
+
+    // Layout cost of the response characters for this configuration
+    private final LongAdder rejectedResponseSamples = new LongAdder();
+    private final LongAdder responseLayoutFallbacks = new LongAdder();
 
 
     public CaptchaMetadataFactory(MasterConfig masterConfig) {
+        this(masterConfig, ChaCha20RandomSource.getInstance());
+    }
+
+    /**
+     * @param masterConfig CAPTCHA configuration
+     * @param randomSource source of every random choice made for the CAPTCHAs of this factory
+     */
+    public CaptchaMetadataFactory(MasterConfig masterConfig, RandomSource randomSource) {
         if (masterConfig == null)
             throw new NullPointerException("Master Config cannot be null");
+        if (randomSource == null)
+            throw new NullPointerException("Random source cannot be null");
 
         this.masterConfig = masterConfig;
+        this.randomSource = randomSource;
 
         this.challengeFontFactory = new RandomFontFactory.Builder()
 //                .minFontSize(masterConfig.getMinFontSize())
                 .minFontSize(masterConfig.getAvgFontSize()) //Using larger minimum font size for challenge characters for better clarity and usability
                 .maxFontSize(masterConfig.getMaxFontSize())
+                .randomSource(randomSource)
                 .build();
 
         this.responseFontFactory = new RandomFontFactory.Builder()
                 .minFontSize(masterConfig.getMinFontSize())
                 .maxFontSize(masterConfig.getMaxFontSize())
+                .randomSource(randomSource)
                 .build();
 
         // With default shear values
@@ -79,6 +103,7 @@ public class CaptchaMetadataFactory {
                 .maxScaleY(1.2)
                 .minRotation(0)
                 .maxRotation(40)
+                .randomSource(randomSource)
                 .build();
 
         this.responseTransformFactory = new RandomTransformFactoryImpl.Builder()
@@ -92,10 +117,11 @@ public class CaptchaMetadataFactory {
                 .maxShearY(0.4)
                 .minShearX(0.0)
                 .maxShearX(0.4)
+                .randomSource(randomSource)
                 .build();
 
 
-        this.randomStringFactory = new RandomUnicodeStringFactoryImpl(masterConfig.getPrintableCodePoints());
+        this.randomStringFactory = new RandomUnicodeStringFactoryImpl(masterConfig.getPrintableCodePoints(), randomSource);
 
 
         /*
@@ -115,59 +141,79 @@ public class CaptchaMetadataFactory {
 
 
     public CaptchaMetadata getCaptchaMetadata() {
+        return getCaptchaMetadata(this.randomSource);
+    }
+
+    public MasterConfig getMasterConfig() {
+        return this.masterConfig;
+    }
+
+    /**
+     * Derives the CAPTCHA from a seed. Every random choice is drawn from a SeededRandomSource, so the same seed, the
+     * same MasterConfig and the same JDK and fonts always yield the same metadata and, through CaptchaBuilder, the same
+     * image. This allows a CAPTCHA to be stored as its seed and re-rendered or verified on demand.
+     *
+     * @param seed SeededRandomSource.SEED_LENGTH random bytes
+     * @return metadata for the CAPTCHA identified by the seed
+     */
+    public CaptchaMetadata getCaptchaMetadata(byte[] seed) {
+        return getCaptchaMetadata(new SeededRandomSource(seed));
+    }
+
+    /**
+     * @param rand source of every random choice made for this CAPTCHA, used instead of the factory's source
+     * @return metadata for a new CAPTCHA
+     */
+    public CaptchaMetadata getCaptchaMetadata(RandomSource rand) {
+        if (rand == null)
+            throw new NullPointerException("Random source cannot be null");
+
         // This holds the sum of distance of all clicks from the center of the response characters.
         double maxDeviation = 0;
 
-        CaptchaMetadata captchaMetadata = null;
-        List<PointProperty> responsePP = new ArrayList<>();
-        List<PointProperty> challengePP = new ArrayList<>();
-        List<Point> solution = new ArrayList<>();
+        // The characters are collected in parallel arrays. Transformed fonts, strings and PointProperty objects are
+        // only created if a caller of CaptchaMetadata asks for them.
+        GlyphArray responses = new GlyphArray(this.responseCount);
+        GlyphArray challenge = new GlyphArray(this.challengeCount);
+        List<Point> solution = new ArrayList<>(this.challengeCount);
+        // Reused for every character. GlyphArray copies the values.
+        AffineTransform aft = new AffineTransform();
 
         // Start building response area
-        // The points variable contains all points created so far. This is used to calculate appropriate distance
-        // for the new point. For each new point, the RandomPointFactory.getRandomPointWithDistance call makes sure that
-        // the new point is at least averageFontSize from all the existing points in the responseAndNoise
-        // The current code does not consider the possibility of duplicate string being present.
-        List<Point> points = new ArrayList<>();
-        Set<String> stringSet = new HashSet<>();
+        // The sampler holds all points created so far and makes sure that each new point is at least averageFontSize
+        // from all the existing points in the responseAndNoise rectangle, with a bounded number of attempts.
+        PoissonDiskSampler responseSampler = new PoissonDiskSampler(responseAndNoiseRect, averageFontSize, rand);
+        // Make sure that characters do not repeat
+        int[] codePoints = randomStringFactory.getDistinctCodePoints(this.responseCount, rand);
 
         for (int i = 0; i < this.responseCount; i++) {
-            AffineTransform aft = responseTransformFactory.getRandomTransform();
-            Font font = responseFontFactory.getRandomFont();
-            font = font.deriveFont(aft);
-
-            // Make sure that characters do not repeat
-            String string;
-            boolean exists;
-            do {
-                string = randomStringFactory.getOneCharString();
-                exists = stringSet.contains(string);
-            } while (exists);
-
-            stringSet.add(string);
+            responseTransformFactory.getRandomTransform(rand, aft);
+            Font font = responseFontFactory.getRandomFont(rand);
+
             // Maintain average font size difference between two points for usability
-            Point point = RandomPointFactory.getRandomPointWithDistance(responseAndNoiseRect, points, averageFontSize);
-            points.add(point);
+            Optional<Point> sampledPoint = responseSampler.next();
+            if (!sampledPoint.isPresent())
+                throw new IllegalStateException("The response area cannot hold " + this.responseCount + " characters");
+            Point point = sampledPoint.get();
 
-            responsePP.add(new PixelCaptchaPointProperty(string, point, font, this.responseColor));
+            responses.add(codePoints[i], point.x, point.y, font, aft, this.responseColor);
         }
-
+        rejectedResponseSamples.add(responseSampler.getRejectedCount());
+        responseLayoutFallbacks.add(responseSampler.getFallbackCount());
 
         //Start building challenge area and the solution
-        RandomPointFactory rpf = new RandomPointFactory(BUFFER, BUFFER);
-        AffineTransform aft;
+        RandomPointFactory rpf = new RandomPointFactory(BUFFER, BUFFER, rand);
 
-        // The responseChooser will be used to choose the random characters from responsePP while constructing the
+        // The responseChooser will be used to choose the random characters from the responses while constructing the
         // challenge array.
-        int[] randomResponseChooser = new int[responsePP.size()];
+        int[] randomResponseChooser = new int[responses.size()];
         for (int i = 0; i < randomResponseChooser.length; i++)
             randomResponseChooser[i] = i;
-        Helper.shuffleIntArray(randomResponseChooser); // randomize the array
+        Helper.shuffleIntArray(randomResponseChooser, rand); // randomize the array
 
         // Only one commonFont for the entire challenge
         // Pick the first element
-        Font commonFont = challengeFontFactory.getRandomFont();
-        Font newFont;
+        Font commonFont = challengeFontFactory.getRandomFont(rand);
 
 		/*
         Horizontal CAPTCHA has vertical challenge points, whereas Vertical CAPTCHA has horizontal challenge points.
@@ -175,16 +221,15 @@ public class CaptchaMetadataFactory {
         Point point;
         if (this.isHorizontalCaptcha) {
             //The challenge is vertical for horizontal CAPTCHA.
-            point = RandomPointFactory.getFirstVChallengePointFromTopInRegion(challengeRect, challengeCount);
+            point = RandomPointFactory.getFirstVChallengePointFromTopInRegion(challengeRect, challengeCount, rand);
         } else {
             //The challenge is horizontal for Vertical CAPTCHA.
-            point = RandomPointFactory.getFirstHChallengePointFromLeftInRegion(challengeRect, challengeCount);
+            point = RandomPointFactory.getFirstHChallengePointFromLeftInRegion(challengeRect, challengeCount, rand);
         }
 
-        PointProperty pp = responsePP.get(randomResponseChooser[0]); // Pick the first value from the random array
-        aft = challengeTransformFactory.getRandomTransform();
-        newFont = commonFont.deriveFont(aft);
-        challengePP.add(new PixelCaptchaPointProperty(pp.getStringToWrite(), point, newFont, this.challengeColor));
+        int response = randomResponseChooser[0]; // Pick the first value from the random array
+        challengeTransformFactory.getRandomTransform(rand, aft);
+        challenge.add(responses.getCodePoint(response), point.x, point.y, commonFont, aft, this.challengeColor);
 
 		/*
 		 It is important to note that the solution point coordinates are different
@@ -199,14 +244,14 @@ public class CaptchaMetadataFactory {
 		 C-------------+
 
 		 */
-        solution.add(computeSolutionFromChallenge(pp)); // also considers the rotation
+        solution.add(computeSolutionFromChallenge(responses, response)); // also considers the rotation
 
 
-        maxDeviation += pp.getFont().getSize();
+        maxDeviation += responses.getFontSize(response);
         // Now pick the rest of the elements
         for (int i = 1; i < this.challengeCount; i++) {
-            pp = responsePP.get(randomResponseChooser[i]);
-            maxDeviation += pp.getFont().getSize();
+            response = randomResponseChooser[i];
+            maxDeviation += responses.getFontSize(response);
             // Note that the same commonFont is used for all challenges. This may be to change for better security? Need to analyze.
             // Possible add random rotation for exact same properties
             if (this.isHorizontalCaptcha) {
@@ -218,20 +263,36 @@ public class CaptchaMetadataFactory {
             }
 
 //            newFont = challengeFontFactory.randomlyRotateFont(point, commonFont);
-            aft = challengeTransformFactory.getRandomTransform();
-            newFont = commonFont.deriveFont(aft);
+            challengeTransformFactory.getRandomTransform(rand, aft);
 
-            challengePP.add(new PixelCaptchaPointProperty(pp.getStringToWrite(), point, newFont, this.challengeColor));
-            solution.add(computeSolutionFromChallenge(pp));
+            challenge.add(responses.getCodePoint(response), point.x, point.y, commonFont, aft, this.challengeColor);
+            solution.add(computeSolutionFromChallenge(responses, response));
         }
 
+        // Pack the challenge characters against each other. The builder draws them at these coordinates as is.
+        CollapsedChallengeLayout.layout(challenge, this.captchaDimensions, this.isHorizontalCaptcha, rand);
+
         maxDeviation = maxDeviation / STD_DEVIATION_RATIO;
         CaptchaSolution pCaptchaSolution = new PixelCaptchaSolution(solution, maxDeviation, this.ordered);
-        captchaMetadata = new CaptchaMetadata(challengePP, responsePP, pCaptchaSolution, this.captchaDimensions);
+        return new CaptchaMetadata(challenge, responses, pCaptchaSolution, this.captchaDimensions, this.masterConfig.getImageColorMode());
+    }
+
 
-        return captchaMetadata;
+    /**
+     * @return number of response positions rejected for being too close to another response, over all CAPTCHAs
+     * generated by this factory
+     */
+    public long getRejectedResponseSampleCount() {
+        return rejectedResponseSamples.sum();
     }
 
+    /**
+     * @return number of response positions that were found by scanning the response area after the random attempts
+     * ran out, over all CAPTCHAs generated by this factory
+     */
+    public long getResponseLayoutFallbackCount() {
+        return responseLayoutFallbacks.sum();
+    }
 
     /**
      * This method calculates the center position of the response character which may be rotated
@@ -240,13 +301,14 @@ public class CaptchaMetadataFactory {
      * character at its current rotation and makes the verification simpler and more accurate during the
      * user clicks.
      *
-     * @param pp
+     * @param responses response characters
+     * @param i         index of the response character
      * @return
      */
-    private Point computeSolutionFromChallenge(PointProperty pp) {
+    private Point computeSolutionFromChallenge(GlyphArray responses, int i) {
         Point rotatedPoint;
-        int fontSize = pp.getFont().getSize();
-        Point referencePoint = pp.getPoint();
+        int fontSize = responses.getFontSize(i);
+        Point referencePoint = new Point(responses.getX(i), responses.getY(i));
         double charHeight = fontSize * GlobalConstants.V_FONT_MULTIPLIER;
         double charWidth = fontSize;
         // Since the character's first position is upright, and entire character is to the right of the reference point,
@@ -259,8 +321,7 @@ public class CaptchaMetadataFactory {
         // What works it the following:
         // Math.atan2(aft.getShearY(), aft.getScaleY());
         // aft is the AffineTransform
-        AffineTransform aft = pp.getFont().getTransform();
-        double rotation = Math.toDegrees(Math.atan2(aft.getShearY(), aft.getScaleY()));
+        double rotation = responses.getRotation(i);
         rotatedPoint = Helper.rotatePoint(referencePoint, midPoint, (int) rotation);
         return rotatedPoint;
     }
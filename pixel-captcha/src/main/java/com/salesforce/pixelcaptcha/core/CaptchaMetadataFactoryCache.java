@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.core;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaDimension;
+import com.salesforce.pixelcaptcha.utils.PrintableCharFinder;
+import com.salesforce.pixelcaptcha.utils.RandomSource;
+
+/**
+ * A bounded LRU cache of CaptchaMetadataFactory instances, and through them their MasterConfigs, keyed by CaptchaSpec
+ * and random source.
+ * <p/>
+ * Setting up a configuration finds the printable characters among all of its code points and builds the font,
+ * transform and string factories. The cache does this once per configuration in the process, so controllers and
+ * providers with the same configuration share one factory and switching between cached configurations costs a
+ * lookup. Factories and MasterConfigs are not changed after they are built and are safe to share between threads.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class CaptchaMetadataFactoryCache {
+    public static final int DEFAULT_SIZE = 64;
+
+    private static CaptchaMetadataFactoryCache INSTANCE = null;
+
+    private final LoadingCache<FactoryKey, CaptchaMetadataFactory> factories;
+
+    public CaptchaMetadataFactoryCache(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("The cache size must be positive");
+
+        factories = CacheBuilder.newBuilder()
+                .maximumSize(size)
+                .recordStats()
+                .build(new CacheLoader<FactoryKey, CaptchaMetadataFactory>() {
+                    @Override
+                    public CaptchaMetadataFactory load(FactoryKey key) {
+                        CaptchaSpec spec = key.captchaSpec;
+                        int[] printableCodePoints = PrintableCharFinder.getInstance().getPrintableCodePoints(spec.getCodePoints());
+                        MasterConfig masterConfig = new MasterConfig(
+                                new CaptchaDimension(spec.getCaptchaWidth(), spec.getCaptchaHeight()),
+                                printableCodePoints,
+                                spec.getChallengeAndResponseCount(),
+                                spec.isOrdered(),
+                                spec.getImageColorMode());
+                        return new CaptchaMetadataFactory(masterConfig, key.randomSource);
+                    }
+                });
+    }
+
+    public static synchronized CaptchaMetadataFactoryCache getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new CaptchaMetadataFactoryCache(DEFAULT_SIZE);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @param captchaSpec  configuration of the CAPTCHAs
+     * @param randomSource source of the random choices of CAPTCHAs that are not derived from a seed
+     * @return the shared factory for the configuration
+     * @throws IllegalArgumentException if the spec does not make a valid MasterConfig, for example because it has
+     *                                  too few printable code points
+     */
+    public CaptchaMetadataFactory getCaptchaMetadataFactory(CaptchaSpec captchaSpec, RandomSource randomSource) {
+        if (captchaSpec == null || randomSource == null)
+            throw new NullPointerException("CaptchaSpec and random source cannot be null");
+
+        try {
+            return factories.getUnchecked(new FactoryKey(captchaSpec, randomSource));
+        } catch (UncheckedExecutionException e) {
+            // Surface the validation errors of MasterConfig as they are
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Seeded CAPTCHAs are stored with the version of their MasterConfig. Any factory of that version derives the same
+     * metadata from a seed, whatever its random source.
+     *
+     * @param configVersion MasterConfig.getVersion() of the configuration
+     * @return a cached factory of the configuration, or Optional.absent() if none is cached
+     */
+    public Optional<CaptchaMetadataFactory> getCaptchaMetadataFactory(long configVersion) {
+        for (CaptchaMetadataFactory factory : factories.asMap().values()) {
+            if (factory.getMasterConfig().getVersion() == configVersion)
+                return Optional.of(factory);
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * @return hit, miss and eviction counts since the cache was created
+     */
+    public CacheStats getStats() {
+        return factories.stats();
+    }
+
+    public long getSize() {
+        return factories.size();
+    }
+
+    private static final class FactoryKey {
+        private final CaptchaSpec captchaSpec;
+        // Random sources are compared by identity. The provided ones are singletons.
+        private final RandomSource randomSource;
+
+        FactoryKey(CaptchaSpec captchaSpec, RandomSource randomSource) {
+            this.captchaSpec = captchaSpec;
+            this.randomSource = randomSource;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof FactoryKey))
+                return false;
+            FactoryKey other = (FactoryKey) o;
+            return randomSource == other.randomSource && captchaSpec.equals(other.captchaSpec);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * captchaSpec.hashCode() + System.identityHashCode(randomSource);
+        }
+    }
+}
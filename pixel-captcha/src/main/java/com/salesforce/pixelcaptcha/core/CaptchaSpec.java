@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.core;
+
+import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
+import com.salesforce.pixelcaptcha.utils.Helper;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Immutable description of the CAPTCHAs of one configuration: size, challenge and response counts, code points,
+ * ordering and image colors. The code points are kept sorted and without duplicates, so specs that only differ in how
+ * their code point ranges were written are equal. A spec selects a shared CaptchaMetadataFactory through
+ * CaptchaMetadataFactoryCache.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public final class CaptchaSpec {
+    private final int captchaWidth;
+    private final int captchaHeight;
+    private final ChallengeAndResponseCount challengeAndResponseCount;
+    private final int[] codePoints;
+    private final boolean ordered;
+    private final ImageColorMode imageColorMode;
+
+    private CaptchaSpec(Builder builder) {
+        this.captchaWidth = builder.captchaWidth;
+        this.captchaHeight = builder.captchaHeight;
+        this.challengeAndResponseCount = getChallengeAndResponseCount(builder.challengeCount, builder.responseCount);
+        this.codePoints = Helper.convertCodePointsToSortedIntArrayNoDuplicates(builder.codePoints, GlobalConstants.DEFAULT_CHAR_RANGE);
+        this.ordered = builder.ordered;
+        this.imageColorMode = builder.imageColorMode;
+    }
+
+    /**
+     * Reads the spec from the captchaWidth, captchaHeight, challengeCount, responseCount, codePoints, ordered and
+     * imageColorMode properties. Missing properties take their defaults.
+     *
+     * @param properties CAPTCHA configuration
+     * @return the spec
+     */
+    public static CaptchaSpec fromProperties(Properties properties) {
+        if (properties == null)
+            throw new NullPointerException("Properties cannot be null");
+
+        return new Builder()
+                .captchaWidth(Helper.convertStringToIntOrDefault(properties.getProperty("captchaWidth"), GlobalConstants.DEFAULT_WIDTH))
+                .captchaHeight(Helper.convertStringToIntOrDefault(properties.getProperty("captchaHeight"), GlobalConstants.DEFAULT_HEIGHT))
+                .challengeCount(Helper.convertStringToIntOrDefault(properties.getProperty("challengeCount"), GlobalConstants.DEFAULT_CHALLENGE_COUNT))
+                .responseCount(Helper.convertStringToIntOrDefault(properties.getProperty("responseCount"), GlobalConstants.DEFAULT_RESPONSE_COUNT))
+                .codePoints(properties.getProperty("codePoints"))
+                .ordered("true".equals(properties.getProperty("ordered")))
+                .imageColorMode(ImageColorMode.fromStringOrDefault(properties.getProperty("imageColorMode"), GlobalConstants.IMAGE_COLOR_MODE))
+                .build();
+    }
+
+    private static ChallengeAndResponseCount getChallengeAndResponseCount(int challengeCount, int responseCount) {
+        boolean validChallengeCount = false;
+        for (ChallengeAndResponseCount challengeAndResponseCount : ChallengeAndResponseCount.values()) {
+            if (challengeAndResponseCount.challengeCount() != challengeCount)
+                continue;
+            validChallengeCount = true;
+            if (challengeAndResponseCount.responseCount() == responseCount)
+                return challengeAndResponseCount;
+        }
+        if (!validChallengeCount)
+            throw new IllegalArgumentException("challengeCount is invalid");
+        throw new IllegalArgumentException("Invalid challenge response count combination");
+    }
+
+    public int getCaptchaWidth() {
+        return captchaWidth;
+    }
+
+    public int getCaptchaHeight() {
+        return captchaHeight;
+    }
+
+    public ChallengeAndResponseCount getChallengeAndResponseCount() {
+        return challengeAndResponseCount;
+    }
+
+    /**
+     * @return copy of the code points in ascending order without duplicates, before unprintable ones are removed
+     */
+    public int[] getCodePoints() {
+        return codePoints.clone();
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public ImageColorMode getImageColorMode() {
+        return imageColorMode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof CaptchaSpec))
+            return false;
+        CaptchaSpec other = (CaptchaSpec) o;
+        return captchaWidth == other.captchaWidth && captchaHeight == other.captchaHeight
+                && challengeAndResponseCount == other.challengeAndResponseCount && ordered == other.ordered
+                && imageColorMode == other.imageColorMode && Arrays.equals(codePoints, other.codePoints);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = captchaWidth;
+        result = 31 * result + captchaHeight;
+        result = 31 * result + challengeAndResponseCount.hashCode();
+        result = 31 * result + Arrays.hashCode(codePoints);
+        result = 31 * result + (ordered ? 1 : 0);
+        result = 31 * result + imageColorMode.hashCode();
+        return result;
+    }
+
+    public static class Builder {
+        private int captchaWidth = GlobalConstants.DEFAULT_WIDTH;
+        private int captchaHeight = GlobalConstants.DEFAULT_HEIGHT;
+        private int challengeCount = GlobalConstants.DEFAULT_CHALLENGE_COUNT;
+        private int responseCount = GlobalConstants.DEFAULT_RESPONSE_COUNT;
+        private String codePoints = GlobalConstants.DEFAULT_CHAR_RANGE;
+        private boolean ordered = GlobalConstants.ORDERED;
+        private ImageColorMode imageColorMode = GlobalConstants.IMAGE_COLOR_MODE;
+
+        public Builder captchaWidth(int captchaWidth) {
+            this.captchaWidth = captchaWidth;
+            return this;
+        }
+
+        public Builder captchaHeight(int captchaHeight) {
+            this.captchaHeight = captchaHeight;
+            return this;
+        }
+
+        public Builder challengeCount(int challengeCount) {
+            this.challengeCount = challengeCount;
+            return this;
+        }
+
+        public Builder responseCount(int responseCount) {
+            this.responseCount = responseCount;
+            return this;
+        }
+
+        /**
+         * @param codePoints comma separated decimal code points and ranges such as 0-255,1024-1279. Null or empty
+         *                   selects the default range.
+         */
+        public Builder codePoints(String codePoints) {
+            this.codePoints = codePoints;
+            return this;
+        }
+
+        public Builder ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        public Builder imageColorMode(ImageColorMode imageColorMode) {
+            this.imageColorMode = imageColorMode;
+            return this;
+        }
+
+        public CaptchaSpec build() {
+            if (captchaWidth <= 0 || captchaHeight <= 0)
+                throw new IllegalArgumentException("Both height and width must be greater than zero");
+            if (imageColorMode == null)
+                throw new NullPointerException("ImageColorMode cannot be null");
+            return new CaptchaSpec(this);
+        }
+    }
+}
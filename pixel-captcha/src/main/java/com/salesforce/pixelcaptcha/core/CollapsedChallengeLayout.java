@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.core;
+
+import com.salesforce.pixelcaptcha.dataobj.CaptchaDimension;
+import com.salesforce.pixelcaptcha.dataobj.GlyphArray;
+import com.salesforce.pixelcaptcha.dataobj.PointProperty;
+import com.salesforce.pixelcaptcha.dataobj.impl.PixelCaptchaPointProperty;
+import com.salesforce.pixelcaptcha.utils.RandomSource;
+
+import java.awt.Point;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stateless class. Computes the final coordinates of the collapsed challenge characters.
+ * <p/>
+ * The challenge characters are packed against each other with a small random overlap. The horizontal CAPTCHA stacks
+ * them from the bottom up, the vertical CAPTCHA lines them up from left to right. The position of each character
+ * depends on how far the previously placed characters extend, which is derived from the outline bounds of the
+ * transformed glyphs. No image is needed, so the layout can be done together with the rest of the metadata.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+class CollapsedChallengeLayout {
+    private static final int MAX_OVERLAP_PERCENTAGE = 15; // Percentage overlap
+    private static final double SCAN_MULTIPLIER = 1.5;
+
+    // Matches the Graphics2D of a BufferedImage with default rendering hints
+    private static final FontRenderContext FRC = new FontRenderContext(null, false, false);
+
+    private CollapsedChallengeLayout() {
+    }
+
+    /**
+     * Returns the challenge characters in the same order, with their final coordinates.
+     *
+     * @param challenge        challenge characters. The anchor character (last for horizontal, first for vertical
+     *                         CAPTCHAs) keeps its coordinates.
+     * @param captchaDimension dimensions of the CAPTCHA
+     * @param isHorizontal     true for horizontal CAPTCHAs
+     * @param randomSource     source of the random overlaps
+     * @return a new list of challenge characters
+     */
+    static List<PointProperty> layout(List<PointProperty> challenge, CaptchaDimension captchaDimension, boolean isHorizontal, RandomSource randomSource) {
+        GlyphArray glyphs = GlyphArray.fromPointProperties(challenge);
+        layout(glyphs, captchaDimension, isHorizontal, randomSource);
+
+        List<PointProperty> placed = new ArrayList<>(challenge.size());
+        for (int i = 0; i < challenge.size(); i++) {
+            PointProperty pp = challenge.get(i);
+            Point point = new Point(glyphs.getX(i), glyphs.getY(i));
+            placed.add(point.equals(pp.getPoint()) ? pp : new PixelCaptchaPointProperty(pp.getStringToWrite(), point, pp.getFont(), pp.getColor()));
+        }
+        return placed;
+    }
+
+    /**
+     * Moves the challenge characters to their final coordinates.
+     *
+     * @param challenge        challenge characters. The anchor character (last for horizontal, first for vertical
+     *                         CAPTCHAs) keeps its coordinates.
+     * @param captchaDimension dimensions of the CAPTCHA
+     * @param isHorizontal     true for horizontal CAPTCHAs
+     * @param randomSource     source of the random overlaps
+     */
+    static void layout(GlyphArray challenge, CaptchaDimension captchaDimension, boolean isHorizontal, RandomSource randomSource) {
+        if (isHorizontal) {
+            layoutForHorizontalCaptcha(challenge, captchaDimension, randomSource);
+        } else {
+            layoutForVerticalCaptcha(challenge, captchaDimension, randomSource);
+        }
+    }
+
+    /**
+     * Challenge characters are stacked bottom up starting with the last character. Each following character is
+     * placed at the topmost row covered by the characters placed so far, looking at most 1.5 times the font size
+     * above the previous character, plus a random overlap.
+     */
+    private static void layoutForHorizontalCaptcha(GlyphArray challenge, CaptchaDimension captchaDimension, RandomSource randomSource) {
+        int challengeCount = challenge.size();
+        // Vertical extent of each placed character as [top, bottom) rows
+        int[] tops = new int[challengeCount];
+        int[] bottoms = new int[challengeCount];
+
+        int previous = challengeCount - 1;
+        // Each character takes the X the previous character had before it was moved
+        int previousX = challenge.getX(previous);
+        int pointY = challenge.getY(previous);
+        Rectangle2D bounds = getGlyphBounds(challenge, previous);
+        tops[previous] = (int) Math.floor(pointY + bounds.getMinY());
+        bottoms[previous] = (int) Math.ceil(pointY + bounds.getMaxY());
+
+        for (int i = challengeCount - 2; i >= 0; i--) {
+            int referenceFontSize = challenge.getFontSize(previous);
+            int scanHeight = (int) (referenceFontSize * SCAN_MULTIPLIER);
+            int windowTop = Math.max(pointY - scanHeight + 1, 0);
+            int windowBottom = Math.min(pointY, captchaDimension.getHeight() - 1);
+
+            int nextY = pointY;
+            for (int j = i + 1; j < challengeCount; j++) {
+                // Topmost row of this character that falls inside the window
+                int top = Math.max(tops[j], windowTop);
+                if (top < bottoms[j] && top <= windowBottom && top < nextY)
+                    nextY = top;
+            }
+            nextY += randomSource.nextInt((referenceFontSize * MAX_OVERLAP_PERCENTAGE) / 100);
+
+            pointY = nextY;
+            int originalX = challenge.getX(i);
+            challenge.setPoint(i, previousX, pointY); // keep the X of the previous character, change the Y
+            previousX = originalX;
+            previous = i;
+            bounds = getGlyphBounds(challenge, i);
+            tops[i] = (int) Math.floor(pointY + bounds.getMinY());
+            bottoms[i] = (int) Math.ceil(pointY + bounds.getMaxY());
+        }
+    }
+
+    /**
+     * Challenge characters are lined up left to right starting with the first character. Each following character is
+     * placed at the rightmost column covered by the characters placed so far, looking at most 1.5 times the font size
+     * to the right of the previous character, minus a random overlap.
+     */
+    private static void layoutForVerticalCaptcha(GlyphArray challenge, CaptchaDimension captchaDimension, RandomSource randomSource) {
+        int challengeCount = challenge.size();
+        // Horizontal extent of each placed character as [left, right) columns
+        int[] lefts = new int[challengeCount];
+        int[] rights = new int[challengeCount];
+
+        // Each character takes the Y the previous character had before it was moved
+        int previousY = challenge.getY(0);
+        int pointX = challenge.getX(0);
+        Rectangle2D bounds = getGlyphBounds(challenge, 0);
+        lefts[0] = (int) Math.floor(pointX + bounds.getMinX());
+        rights[0] = (int) Math.ceil(pointX + bounds.getMaxX());
+
+        for (int i = 1; i < challengeCount; i++) {
+            int referenceFontSize = challenge.getFontSize(i - 1);
+            int scanWidth = (int) (referenceFontSize * SCAN_MULTIPLIER);
+            int windowLeft = Math.max(pointX, 0);
+            int windowRight = Math.min(pointX + scanWidth, captchaDimension.getWidth()) - 1;
+
+            int nextX = pointX;
+            for (int j = 0; j < i; j++) {
+                // Rightmost column of this character that falls inside the window
+                int right = Math.min(rights[j] - 1, windowRight);
+                if (right >= lefts[j] && right >= windowLeft && right > nextX)
+                    nextX = right;
+            }
+            nextX -= randomSource.nextInt((referenceFontSize * MAX_OVERLAP_PERCENTAGE) / 100);
+
+            pointX = nextX;
+            int originalY = challenge.getY(i);
+            challenge.setPoint(i, pointX, previousY); // change X, keep the Y of the previous character
+            previousY = originalY;
+            bounds = getGlyphBounds(challenge, i);
+            lefts[i] = (int) Math.floor(pointX + bounds.getMinX());
+            rights[i] = (int) Math.ceil(pointX + bounds.getMaxX());
+        }
+    }
+
+    /**
+     * @return outline bounds of the character relative to its drawing origin, including the font transform
+     */
+    private static Rectangle2D getGlyphBounds(GlyphArray glyphs, int i) {
+        return glyphs.getFont(i).createGlyphVector(FRC, glyphs.getString(i)).getVisualBounds();
+    }
+}
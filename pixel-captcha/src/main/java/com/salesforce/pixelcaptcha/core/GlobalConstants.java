@@ -29,10 +29,33 @@ public class GlobalConstants {
     public static final String DEFAULT_CHAR_RANGE = "0-4095";
     public static final int STORAGE_SIZE = 1000000;
     public static final int CAPTCHA_TIMEOUT = 30 * 60; //30 mins timeout
+    // Value of the solutionStore property that selects CompactCaptchaSolutionStore
+    public static final String COMPACT_SOLUTION_STORE = "compact";
+    // Value of the solutionStore property that selects TokenCaptchaSolutionStore
+    public static final String TOKEN_SOLUTION_STORE = "token";
+    // Value of the randomSource property that selects the shared platform SecureRandom instead of per-thread DRBGs
+    public static final String SECURE_RANDOM_SOURCE = "secureRandom";
+    // Stores only the seed of each CAPTCHA and re-derives its image and solution on demand. Disabled by default.
+    public static final boolean SEEDED_GENERATION = false;
+    // Part of MasterConfig.getVersion(). Increment whenever a change alters the CAPTCHA derived from a given seed.
+    public static final int GENERATOR_VERSION = 3;
     public static final int CHALLENGE_DELTA_PERCENTAGE = 10;
 
     public static final int MIN_PRINTABLE_CHARS = 20;
     public static final boolean ORDERED = false;
+    public static final UnorderedMatching UNORDERED_MATCHING = UnorderedMatching.GREEDY;
+    public static final GlyphRenderingMode GLYPH_RENDERING_MODE = GlyphRenderingMode.DRAW_STRING;
+    public static final ImageColorMode IMAGE_COLOR_MODE = ImageColorMode.RGB;
+
+    // Pre-rendered CAPTCHA pool. Disabled by default.
+    public static final boolean POOL_ENABLED = false;
+    public static final int DEFAULT_POOL_RENDER_THREADS = 2;
+    public static final int DEFAULT_POOL_LOW_WATERMARK = 16;
+    public static final int DEFAULT_POOL_HIGH_WATERMARK = 64;
+
+    // Render executor behind the asynchronous provider API
+    public static final int DEFAULT_ASYNC_THREADS = Math.min(Runtime.getRuntime().availableProcessors(), AsyncCaptchaExecutor.MAX_THREADS);
+    public static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 256;
 
     //		public static final int DEFAULT_IMAGE_TYPE = BufferedImage.TYPE_USHORT_GRAY;
     public static final int DEFAULT_IMAGE_TYPE = BufferedImage.TYPE_USHORT_555_RGB;
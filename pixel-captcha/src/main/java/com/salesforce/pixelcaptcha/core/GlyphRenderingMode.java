@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.core;
+
+/**
+ * How CaptchaBuilder paints the CAPTCHA characters.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public enum GlyphRenderingMode {
+    /**
+     * Graphics2D.drawString with the transformed font. Lays out the glyph for every character.
+     */
+    DRAW_STRING,
+
+    /**
+     * Fills the glyph outline from GlyphOutlineCache after applying the font transform. The glyph is laid out once
+     * per string, font name, style and size.
+     */
+    CACHED_OUTLINE,
+
+    /**
+     * Composites a pre-rasterized bitmap of the character from GlyphSpriteAtlas with its own affine resampling. The
+     * glyph is rasterized once per code point, font name, style and base size.
+     */
+    SPRITE_ATLAS,
+
+    /**
+     * Scan converts the transformed glyph outline from GlyphOutlineCache with GlyphRasterizer, straight into the image
+     * raster. Neither Graphics2D nor the font pipeline paints the characters, so threads share no rendering locks.
+     */
+    SCANLINE;
+
+    /**
+     * Converts a property value to a GlyphRenderingMode. The comparison ignores case and underscores, so both
+     * CACHED_OUTLINE and cachedOutline are accepted.
+     *
+     * @param value        property value, may be null
+     * @param defaultValue value returned when the property value is null or not recognized
+     * @return the rendering mode
+     */
+    public static GlyphRenderingMode fromStringOrDefault(String value, GlyphRenderingMode defaultValue) {
+        if (value != null) {
+            for (GlyphRenderingMode glyphRenderingMode : values()) {
+                if (glyphRenderingMode.name().replace("_", "").equalsIgnoreCase(value.trim().replace("_", "")))
+                    return glyphRenderingMode;
+            }
+        }
+        return defaultValue;
+    }
+}
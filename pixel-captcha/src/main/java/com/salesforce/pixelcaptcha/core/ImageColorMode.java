@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.core;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+
+/**
+ * Pixel format of the CAPTCHA images. A CAPTCHA only uses the white background, the challenge color and the response
+ * color, so the indexed modes store each pixel as a 2 or 4 bit palette index instead of 16 bits of RGB.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public enum ImageColorMode {
+    /**
+     * 16 bit RGB pixels (TYPE_USHORT_555_RGB)
+     */
+    RGB(GlobalConstants.DEFAULT_IMAGE_TYPE, null, false),
+
+    /**
+     * 2 bit palette of the background, challenge and response colors. Characters are painted without antialiasing.
+     */
+    INDEXED_2_BIT(BufferedImage.TYPE_BYTE_BINARY, createPalette(2, 0), false),
+
+    /**
+     * 4 bit palette of the background, challenge and response colors and 6 shades between the background and each of
+     * the other two. Characters are painted with antialiasing, which maps edge pixels to the nearest shade.
+     */
+    INDEXED_4_BIT(BufferedImage.TYPE_BYTE_BINARY, createPalette(4, 6), true);
+
+    private final int imageType;
+    private final IndexColorModel palette;
+    private final boolean antialiased;
+
+    ImageColorMode(int imageType, IndexColorModel palette, boolean antialiased) {
+        this.imageType = imageType;
+        this.palette = palette;
+        this.antialiased = antialiased;
+    }
+
+    /**
+     * The first three entries are the background, challenge and response colors. Each group of shades blends the
+     * background into the challenge or the response color.
+     */
+    private static IndexColorModel createPalette(int bits, int shades) {
+        // Enum constants are created before static fields, so the background color of CaptchaMetadata is kept locally
+        Color background = Color.WHITE;
+        Color[] colors = {background, CaptchaMetadataFactory.challengeColor, CaptchaMetadataFactory.responseColor};
+        int size = colors.length + 2 * shades;
+        byte[] r = new byte[size];
+        byte[] g = new byte[size];
+        byte[] b = new byte[size];
+        int index = 0;
+        for (Color color : colors) {
+            r[index] = (byte) color.getRed();
+            g[index] = (byte) color.getGreen();
+            b[index] = (byte) color.getBlue();
+            index++;
+        }
+        for (int c = 1; c < colors.length; c++) {
+            for (int shade = 1; shade <= shades; shade++) {
+                double weight = (double) shade / (shades + 1);
+                r[index] = blend(background.getRed(), colors[c].getRed(), weight);
+                g[index] = blend(background.getGreen(), colors[c].getGreen(), weight);
+                b[index] = blend(background.getBlue(), colors[c].getBlue(), weight);
+                index++;
+            }
+        }
+        return new IndexColorModel(bits, size, r, g, b);
+    }
+
+    private static byte blend(int from, int to, double weight) {
+        return (byte) Math.round(from + (to - from) * weight);
+    }
+
+    /**
+     * @return the BufferedImage type of the images. Both indexed modes use TYPE_BYTE_BINARY with their own palette.
+     */
+    public int getImageType() {
+        return this.imageType;
+    }
+
+    /**
+     * @return number of bits that store one pixel
+     */
+    public int getBitsPerPixel() {
+        return this.palette == null ? 16 : this.palette.getPixelSize();
+    }
+
+    public BufferedImage createImage(int width, int height) {
+        if (this.palette == null)
+            return new BufferedImage(width, height, this.imageType);
+        return new BufferedImage(width, height, this.imageType, this.palette);
+    }
+
+    /**
+     * Sets the rendering hints of the mode on a Graphics2D of an image created by createImage.
+     */
+    void configure(Graphics2D g2d) {
+        if (this.antialiased) {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        }
+    }
+
+    /**
+     * Converts a property value to an ImageColorMode. The comparison ignores case and underscores, so both
+     * INDEXED_2_BIT and indexed2Bit are accepted.
+     *
+     * @param value        property value, may be null
+     * @param defaultValue value returned when the property value is null or not recognized
+     * @return the color mode
+     */
+    public static ImageColorMode fromStringOrDefault(String value, ImageColorMode defaultValue) {
+        if (value != null) {
+            for (ImageColorMode imageColorMode : values()) {
+                if (imageColorMode.name().replace("_", "").equalsIgnoreCase(value.trim().replace("_", "")))
+                    return imageColorMode;
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -9,6 +9,8 @@ package com.salesforce.pixelcaptcha.core;
 
 import java.awt.Rectangle;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.salesforce.pixelcaptcha.dataobj.CaptchaDimension;
 import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
 
@@ -19,6 +21,7 @@ public class MasterConfig {
     private Rectangle challengeRect;
     private Rectangle responseRect;
     private int imageType;
+    private ImageColorMode imageColorMode;
 
 
     private int minFontSize;
@@ -35,6 +38,7 @@ public class MasterConfig {
 
     private boolean isHorizontalCaptcha;
     private boolean ordered;
+    private long version;
 
 
     // min font size, max font size, challenge font generator, response font generator
@@ -50,10 +54,18 @@ public class MasterConfig {
                         int[] printableCodePoints,
                         ChallengeAndResponseCount challengeAndResponseCount,
                         boolean ordered) {
+        this(captchaDimensions, printableCodePoints, challengeAndResponseCount, ordered, GlobalConstants.IMAGE_COLOR_MODE);
+    }
+
+    public MasterConfig(CaptchaDimension captchaDimensions,
+                        int[] printableCodePoints,
+                        ChallengeAndResponseCount challengeAndResponseCount,
+                        boolean ordered,
+                        ImageColorMode imageColorMode) {
         super();
 
-        if (captchaDimensions == null || printableCodePoints == null || challengeAndResponseCount == null)
-            throw new NullPointerException("One of captchaDimensions, printableCodePoints or challengeResponseCount is null");
+        if (captchaDimensions == null || printableCodePoints == null || challengeAndResponseCount == null || imageColorMode == null)
+            throw new NullPointerException("One of captchaDimensions, printableCodePoints, challengeResponseCount or imageColorMode is null");
 
         if (printableCodePoints.length <= GlobalConstants.MIN_PRINTABLE_CHARS)
             throw new IllegalArgumentException("Code points count cannot less than or equal to" + GlobalConstants.MIN_PRINTABLE_CHARS);
@@ -65,7 +77,8 @@ public class MasterConfig {
         this.captchaDimensions = captchaDimensions;
         this.printableCodePoints = printableCodePoints;
         this.challengeAndResponseCount = challengeAndResponseCount;
-        this.imageType = GlobalConstants.DEFAULT_IMAGE_TYPE;
+        this.imageColorMode = imageColorMode;
+        this.imageType = imageColorMode.getImageType();
 
         initFontSizes();
         if (this.captchaDimensions.getWidth() >= this.captchaDimensions.getHeight()) {
@@ -81,6 +94,28 @@ public class MasterConfig {
         }
 
         this.ordered = ordered;
+        this.version = computeVersion();
+    }
+
+    /**
+     * Hashes everything that changes the CAPTCHA derived from a seed, so that a seed is only ever re-rendered with
+     * the configuration it was created with.
+     */
+    private long computeVersion() {
+        Hasher hasher = Hashing.murmur3_128().newHasher()
+                .putInt(GlobalConstants.GENERATOR_VERSION)
+                .putInt(this.captchaDimensions.getWidth())
+                .putInt(this.captchaDimensions.getHeight())
+                .putInt(this.challengeAndResponseCount.challengeCount())
+                .putInt(this.challengeAndResponseCount.responseCount())
+                .putInt(this.imageType)
+                .putInt(this.imageColorMode.getBitsPerPixel())
+                .putBoolean(this.ordered)
+                .putInt(this.printableCodePoints.length);
+        for (int codePoint : this.printableCodePoints) {
+            hasher.putInt(codePoint);
+        }
+        return hasher.hash().asLong();
     }
 
     private void initFontSizes() {
@@ -152,6 +187,10 @@ public class MasterConfig {
         return this.imageType;
     }
 
+    public ImageColorMode getImageColorMode() {
+        return this.imageColorMode;
+    }
+
     public int getMinFontSize() {
         return this.minFontSize;
     }
@@ -179,4 +218,11 @@ public class MasterConfig {
     public boolean isOrdered() {
         return this.ordered;
     }
+
+    /**
+     * @return a hash of the generation relevant settings. Equal configurations have equal versions.
+     */
+    public long getVersion() {
+        return this.version;
+    }
 }
@@ -11,22 +11,35 @@ import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.UUID;
 import java.util.Date;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 import com.google.common.base.Optional;
+import com.google.common.io.BaseEncoding;
 
 import com.salesforce.pixelcaptcha.dataobj.*;
 import com.salesforce.pixelcaptcha.interfaces.ValidationResult;
 import com.salesforce.pixelcaptcha.interfaces.Captcha;
 import com.salesforce.pixelcaptcha.dataobj.impl.PixelCaptcha;
+import com.salesforce.pixelcaptcha.storage.CaptchaSeedStore;
 import com.salesforce.pixelcaptcha.storage.CaptchaSolutionStore;
+import com.salesforce.pixelcaptcha.storage.impl.CompactCaptchaSolutionStore;
+import com.salesforce.pixelcaptcha.storage.impl.PixelCaptchaSeedStore;
 import com.salesforce.pixelcaptcha.storage.impl.PixelCaptchaSolutionStore;
+import com.salesforce.pixelcaptcha.storage.impl.TokenCaptchaSolutionStore;
 import com.salesforce.pixelcaptcha.utils.Helper;
-import com.salesforce.pixelcaptcha.utils.PrintableCharFinder;
+import com.salesforce.pixelcaptcha.utils.PngEncoder;
+import com.salesforce.pixelcaptcha.utils.RandomSource;
+import com.salesforce.pixelcaptcha.utils.impl.ChaCha20RandomSource;
+import com.salesforce.pixelcaptcha.utils.impl.SecureRandomSource;
+import com.salesforce.pixelcaptcha.utils.impl.SeededRandomSource;
 
 import javax.imageio.ImageIO;
 
@@ -36,13 +49,19 @@ public class PixelCaptchaController {
     private MasterConfig masterConfig;
     private CaptchaMetadataFactory captchaMetadataFactory;
     private CaptchaSolutionStore captchaSolutionStore;
+    private CaptchaSeedStore captchaSeedStore;
+    private RandomSource randomSource;
+    private boolean seededGeneration = GlobalConstants.SEEDED_GENERATION;
     private VerificationEngine verificationEngine;
-    private PrintableCharFinder printableCharFinder;
+    private PrerenderedCaptchaPool captchaPool;
+    private UnorderedMatching unorderedMatching = GlobalConstants.UNORDERED_MATCHING;
+    private GlyphRenderingMode glyphRenderingMode = GlobalConstants.GLYPH_RENDERING_MODE;
+    private PngEncoder pngEncoder = PngEncoder.getInstance();
 
     public PixelCaptchaController() {
-        printableCharFinder = PrintableCharFinder.getInstance();
         this.identifier = UUID.randomUUID().toString();
         this.captchaSolutionStore = PixelCaptchaSolutionStore.getInstance();
+        this.captchaSeedStore = PixelCaptchaSeedStore.getInstance();
     }
 
     public static void main(String... args) {
@@ -132,107 +151,102 @@ public class PixelCaptchaController {
 
     }
 
+    /**
+     * Reads the configuration. The CaptchaMetadataFactory of the configuration comes from the shared
+     * CaptchaMetadataFactoryCache, so calling this again with a configuration used before is cheap.
+     *
+     * @param properties configuration
+     */
     public void initProperties(Properties properties) {
-        int challengeCount;
-        int responseCount;
-        int captchaWidth;
-        int captchaHeight;
-        int[] codePoints;
-        int[] printableCodePoints;
-        boolean ordered;
-
-        challengeCount = Helper.convertStringToIntOrDefault(properties.getProperty("challengeCount"), GlobalConstants.DEFAULT_CHALLENGE_COUNT);
-        responseCount = Helper.convertStringToIntOrDefault(properties.getProperty("responseCount"), GlobalConstants.DEFAULT_RESPONSE_COUNT);
+        CaptchaSpec captchaSpec = CaptchaSpec.fromProperties(properties);
 
-        captchaWidth = Helper.convertStringToIntOrDefault(properties.getProperty("captchaWidth"), GlobalConstants.DEFAULT_WIDTH);
-        captchaHeight = Helper.convertStringToIntOrDefault(properties.getProperty("captchaHeight"), GlobalConstants.DEFAULT_HEIGHT);
+        unorderedMatching = UnorderedMatching.fromStringOrDefault(properties.getProperty("unorderedMatching"), GlobalConstants.UNORDERED_MATCHING);
 
-        codePoints = Helper.convertCodePointsToSortedIntArrayNoDuplicates(properties.getProperty("codePoints"), GlobalConstants.DEFAULT_CHAR_RANGE);
-        printableCodePoints = identifyPrintableCodePoints(codePoints);
+        glyphRenderingMode = GlyphRenderingMode.fromStringOrDefault(properties.getProperty("glyphRendering"), GlobalConstants.GLYPH_RENDERING_MODE);
+        pngEncoder = new PngEncoder.Builder()
+                .compressionLevel(Helper.convertStringToIntOrDefault(properties.getProperty("pngCompressionLevel"), PngEncoder.DEFAULT_COMPRESSION_LEVEL))
+                .filter(PngEncoder.Filter.fromStringOrDefault(properties.getProperty("pngFilter"), PngEncoder.DEFAULT_FILTER))
+                .build();
 
-        if (properties.getProperty("ordered") != null && properties.getProperty("ordered").equals("true")) {
-            ordered = true;
+        String solutionStore = properties.getProperty("solutionStore");
+        if (GlobalConstants.COMPACT_SOLUTION_STORE.equals(solutionStore)) {
+            captchaSolutionStore = CompactCaptchaSolutionStore.getInstance();
+        } else if (GlobalConstants.TOKEN_SOLUTION_STORE.equals(solutionStore)) {
+            captchaSolutionStore = getTokenCaptchaSolutionStore(properties.getProperty("solutionStoreKey"));
         } else {
-            ordered = false;
+            captchaSolutionStore = PixelCaptchaSolutionStore.getInstance();
         }
 
+        seededGeneration = GlobalConstants.SEEDED_GENERATION;
+        if (properties.getProperty("seededGeneration") != null)
+            seededGeneration = properties.getProperty("seededGeneration").equals("true");
 
-        CaptchaDimension captchaDimension = new CaptchaDimension(captchaWidth, captchaHeight);
-        ChallengeAndResponseCount challengeAndResponseCount;
-
-        challengeAndResponseCount = getChallengeResponseCount(challengeCount, responseCount);
-        masterConfig = new MasterConfig(captchaDimension, printableCodePoints, challengeAndResponseCount, ordered);
-        captchaMetadataFactory = new CaptchaMetadataFactory(masterConfig);
+        randomSource = getRandomSource(properties.getProperty("randomSource"));
+        captchaMetadataFactory = CaptchaMetadataFactoryCache.getInstance().getCaptchaMetadataFactory(captchaSpec, randomSource);
+        masterConfig = captchaMetadataFactory.getMasterConfig();
         verificationEngine = VerificationEngine.getInstance();
 
+        initCaptchaPool(properties);
     }
 
-    private int[] identifyPrintableCodePoints(int[] codePoints) {
-        List<Integer> printableCodePoints = new ArrayList<>();
-        for (int cp : codePoints) {
-            if (printableCharFinder.isPrintableChar(cp)) {
-                printableCodePoints.add(cp);
-            }
-        }
-        return Helper.convertIntegerListToIntArray(printableCodePoints);
+    private static RandomSource getRandomSource(String randomSource) {
+        if (GlobalConstants.SECURE_RANDOM_SOURCE.equals(randomSource))
+            return SecureRandomSource.getInstance();
+        return ChaCha20RandomSource.getInstance();
     }
 
-    private ChallengeAndResponseCount getChallengeResponseCount(int challengeCount, int responseCount) {
-        ChallengeAndResponseCount carc;
-        switch (challengeCount) {
-            case 2:
-                switch (responseCount) {
-                    case 10:
-                        carc = ChallengeAndResponseCount.TWO_TEN;
-                        break;
-                    case 11:
-                        carc = ChallengeAndResponseCount.TWO_ELEVEN;
-                        break;
-                    case 12:
-                        carc = ChallengeAndResponseCount.TWO_TWELVE;
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Invalid challenge response count combination");
+    /**
+     * @param base64Key Base64 encoded AES key shared by all nodes. When null, a random key is used and only this
+     *                  process can verify the CAPTCHAs it issues.
+     * @return the token store
+     * @throws IllegalStateException if the token store of the process already uses a different key
+     */
+    private static TokenCaptchaSolutionStore getTokenCaptchaSolutionStore(String base64Key) {
+        if (base64Key == null)
+            return TokenCaptchaSolutionStore.getInstance();
+        return TokenCaptchaSolutionStore.getInstance(BaseEncoding.base64().decode(base64Key.trim()),
+                TokenCaptchaSolutionStore.DEFAULT_SIZE, TokenCaptchaSolutionStore.DEFAULT_TIMEOUT);
+    }
 
-                }
-                break;
-            case 3:
-                switch (responseCount) {
-                    case 10:
-                        carc = ChallengeAndResponseCount.THREE_TEN;
-                        break;
-                    case 11:
-                        carc = ChallengeAndResponseCount.THREE_ELEVEN;
-                        break;
-                    case 12:
-                        carc = ChallengeAndResponseCount.THREE_TWELVE;
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Invalid challenge response count combination");
-                }
-                break;
-            case 4:
-                switch (responseCount) {
-                    case 10:
-                        carc = ChallengeAndResponseCount.FOUR_TEN;
-                        break;
-                    case 11:
-                        carc = ChallengeAndResponseCount.FOUR_ELEVEN;
-                        break;
-                    case 12:
-                        carc = ChallengeAndResponseCount.FOUR_TWELVE;
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Invalid challenge response count combination");
-                }
-                break;
-            default:
-                throw new IllegalArgumentException("challengeCount is invalid");
-        }
-        return carc;
+    /**
+     * Starts a pre-rendered CAPTCHA pool when poolEnabled is set to true. Any pool created by an earlier call
+     * to initProperties is shut down since its CAPTCHAs were rendered for the old configuration. The pool is not
+     * started in seeded generation mode, which deliberately keeps no rendered images in memory.
+     *
+     * @param properties
+     */
+    private void initCaptchaPool(Properties properties) {
+        shutdown();
+
+        boolean poolEnabled = GlobalConstants.POOL_ENABLED;
+        if (properties.getProperty("poolEnabled") != null)
+            poolEnabled = properties.getProperty("poolEnabled").equals("true");
+
+        if (!poolEnabled || seededGeneration)
+            return;
 
+        int renderThreads = Helper.convertStringToIntOrDefault(properties.getProperty("poolRenderThreads"), GlobalConstants.DEFAULT_POOL_RENDER_THREADS);
+        int lowWatermark = Helper.convertStringToIntOrDefault(properties.getProperty("poolLowWatermark"), GlobalConstants.DEFAULT_POOL_LOW_WATERMARK);
+        int highWatermark = Helper.convertStringToIntOrDefault(properties.getProperty("poolHighWatermark"), GlobalConstants.DEFAULT_POOL_HIGH_WATERMARK);
+        captchaPool = new PrerenderedCaptchaPool(captchaMetadataFactory, glyphRenderingMode, renderThreads, lowWatermark, highWatermark);
     }
 
+    /**
+     * Stops the background render threads of the pre-rendered CAPTCHA pool, if one is running.
+     */
+    public void shutdown() {
+        if (captchaPool != null) {
+            captchaPool.shutdown();
+            captchaPool = null;
+        }
+    }
+
+    /**
+     * @return the pre-rendered CAPTCHA pool, or Optional.absent() when the pool mode is not enabled
+     */
+    public Optional<PrerenderedCaptchaPool> getCaptchaPool() {
+        return Optional.fromNullable(captchaPool);
+    }
 
 //	private BufferedImage getCaptchaImage() {
 //		BufferedImage bi = CaptchaBuilder.buildImage(captchaMetadataFactory.getCaptchaMetadata());
@@ -277,15 +291,29 @@ public class PixelCaptchaController {
         g2d.setColor(Color.black);
         g2d.draw(challengeRect);
         g2d.draw(responseRect);
+        g2d.dispose();
     }
 
 
     public Captcha getCaptcha() {
         if (masterConfig == null)
             throw new IllegalAccessError("initProperties must be called prior to this method");
-        CaptchaMetadata cmd = captchaMetadataFactory.getCaptchaMetadata();
-//		BufferedImage bi = CaptchaBuilder.buildImage(cmd);
-        BufferedImage bi = CaptchaBuilder.buildImageWithCollapsedChallenge(cmd);
+        if (seededGeneration)
+            return getSeededCaptcha(captchaMetadataFactory);
+
+        CaptchaMetadata cmd;
+        BufferedImage bi;
+        PrerenderedCaptchaPool pool = this.captchaPool;
+        PrerenderedCaptchaPool.Entry entry = pool == null ? null : pool.poll();
+        if (entry != null) {
+            cmd = entry.getCaptchaMetadata();
+            bi = entry.getImage();
+        } else {
+            // No pool or the pool ran dry. Render on the calling thread.
+            cmd = captchaMetadataFactory.getCaptchaMetadata();
+//		    bi = CaptchaBuilder.buildImage(cmd);
+            bi = CaptchaBuilder.buildImageWithCollapsedChallenge(cmd, glyphRenderingMode);
+        }
 //        paintDebuggingInformation(bi, cmd, masterConfig.getChallengeRectangle(), masterConfig.getResponseRectangle() );
         String id = this.captchaSolutionStore.storeCaptchaSolution(cmd.getSolution());
 //        try {
@@ -296,6 +324,309 @@ public class PixelCaptchaController {
         return new PixelCaptcha(bi, id);
     }
 
+    /**
+     * Generates a CAPTCHA of the given configuration instead of the one read by initProperties. The factory of the
+     * configuration comes from the shared CaptchaMetadataFactoryCache, so switching between configurations needs no
+     * initialization. The stores, random source and glyph rendering of this controller are used. The pre-rendered pool
+     * only serves CAPTCHAs of the configuration read by initProperties.
+     *
+     * @param captchaSpec configuration of the CAPTCHA
+     * @return the CAPTCHA Object
+     */
+    public Captcha getCaptcha(CaptchaSpec captchaSpec) {
+        if (captchaSpec == null)
+            throw new NullPointerException("CaptchaSpec cannot be null");
+        if (masterConfig == null)
+            throw new IllegalAccessError("initProperties must be called prior to this method");
+
+        CaptchaMetadataFactory factory = CaptchaMetadataFactoryCache.getInstance().getCaptchaMetadataFactory(captchaSpec, randomSource);
+        if (factory == captchaMetadataFactory)
+            return getCaptcha();
+        if (seededGeneration)
+            return getSeededCaptcha(factory);
+
+        CaptchaMetadata cmd = factory.getCaptchaMetadata();
+        BufferedImage bi = CaptchaBuilder.buildImageWithCollapsedChallenge(cmd, glyphRenderingMode);
+        return new PixelCaptcha(bi, this.captchaSolutionStore.storeCaptchaSolution(cmd.getSolution()));
+    }
+
+    /**
+     * Issues a CAPTCHA of the given configuration in seeded generation mode without rendering it. Only the seed is
+     * drawn and stored; renderCaptcha(identifier, out) paints the image when it is requested, so nothing is rendered
+     * for CAPTCHAs whose image is never fetched.
+     *
+     * @param captchaSpec configuration of the CAPTCHA
+     * @return identifier of the CAPTCHA
+     * @throws IllegalStateException if seeded generation is off
+     */
+    public String issueSeededCaptcha(CaptchaSpec captchaSpec) {
+        if (captchaSpec == null)
+            throw new NullPointerException("CaptchaSpec cannot be null");
+        if (masterConfig == null)
+            throw new IllegalAccessError("initProperties must be called prior to this method");
+        if (!seededGeneration)
+            throw new IllegalStateException("Seeded generation is off");
+
+        CaptchaMetadataFactory factory = CaptchaMetadataFactoryCache.getInstance().getCaptchaMetadataFactory(captchaSpec, randomSource);
+        byte[] seed = new byte[SeededRandomSource.SEED_LENGTH];
+        randomSource.nextBytes(seed);
+        return this.captchaSeedStore.storeCaptchaSeed(new CaptchaSeed(seed, factory.getMasterConfig().getVersion()));
+    }
+
+    /**
+     * Generates count CAPTCHAs in parallel on the common fork/join pool. The metadata factory, fonts and glyph
+     * caches are shared by the whole batch and the solutions, or the seeds in seeded generation mode, are stored
+     * with one bulk put. The pre-rendered pool is not drawn from.
+     *
+     * @param count number of CAPTCHAs. Must be positive.
+     * @return the CAPTCHAs, each with its own identifier
+     */
+    public List<Captcha> getCaptchas(int count) {
+        if (masterConfig == null)
+            throw new IllegalAccessError("initProperties must be called prior to this method");
+        if (count <= 0)
+            throw new IllegalArgumentException("CAPTCHA count must be greater than 0");
+
+        boolean seeded = this.seededGeneration;
+        CaptchaBatchTask batch = new CaptchaBatchTask(captchaMetadataFactory, glyphRenderingMode,
+                seeded ? randomSource : null, count);
+        ForkJoinPool.commonPool().invoke(batch);
+
+        List<String> ids;
+        if (seeded) {
+            List<CaptchaSeed> seeds = new ArrayList<>(count);
+            for (byte[] seed : batch.seeds) {
+                seeds.add(new CaptchaSeed(seed, masterConfig.getVersion()));
+            }
+            ids = this.captchaSeedStore.storeCaptchaSeeds(seeds);
+        } else {
+            ids = this.captchaSolutionStore.storeCaptchaSolutions(Arrays.asList(batch.solutions));
+        }
+
+        List<Captcha> captchas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            captchas.add(new PixelCaptcha(batch.images[i], ids.get(i)));
+        }
+        return captchas;
+    }
+
+    /**
+     * Streaming variant of getCaptchas(int). The CAPTCHAs are generated in batches of batchSize and handed to the
+     * consumer on the calling thread as each batch completes, so only one batch of images is held at a time.
+     *
+     * @param count     number of CAPTCHAs. Must be positive.
+     * @param batchSize number of CAPTCHAs generated and stored together. Must be positive.
+     * @param consumer  receives every CAPTCHA
+     */
+    public void getCaptchas(int count, int batchSize, Consumer<? super Captcha> consumer) {
+        if (consumer == null)
+            throw new NullPointerException("Consumer cannot be null");
+        if (count <= 0 || batchSize <= 0)
+            throw new IllegalArgumentException("CAPTCHA count and batch size must be greater than 0");
+
+        for (int done = 0; done < count; done += batchSize) {
+            for (Captcha captcha : getCaptchas(Math.min(batchSize, count - done))) {
+                consumer.accept(captcha);
+            }
+        }
+    }
+
+    /**
+     * Splits the batch in halves until single CAPTCHAs remain. Each CAPTCHA takes a millisecond or more to render, so
+     * the splitting overhead is negligible and idle workers can steal any remaining work.
+     */
+    private static final class CaptchaBatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CaptchaMetadataFactory factory;
+        private final GlyphRenderingMode glyphRenderingMode;
+        // Null unless the CAPTCHAs are derived from seeds
+        private final RandomSource seedSource;
+        private final BufferedImage[] images;
+        private final CaptchaSolution[] solutions;
+        private final byte[][] seeds;
+        private final int from;
+        private final int to;
+
+        CaptchaBatchTask(CaptchaMetadataFactory factory, GlyphRenderingMode glyphRenderingMode, RandomSource seedSource, int count) {
+            this(factory, glyphRenderingMode, seedSource, new BufferedImage[count], new CaptchaSolution[count],
+                    new byte[count][], 0, count);
+        }
+
+        private CaptchaBatchTask(CaptchaMetadataFactory factory, GlyphRenderingMode glyphRenderingMode, RandomSource seedSource,
+                                 BufferedImage[] images, CaptchaSolution[] solutions, byte[][] seeds, int from, int to) {
+            this.factory = factory;
+            this.glyphRenderingMode = glyphRenderingMode;
+            this.seedSource = seedSource;
+            this.images = images;
+            this.solutions = solutions;
+            this.seeds = seeds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                CaptchaMetadata cmd;
+                if (seedSource != null) {
+                    seeds[from] = new byte[SeededRandomSource.SEED_LENGTH];
+                    seedSource.nextBytes(seeds[from]);
+                    cmd = factory.getCaptchaMetadata(seeds[from]);
+                } else {
+                    cmd = factory.getCaptchaMetadata();
+                }
+                images[from] = CaptchaBuilder.buildImageWithCollapsedChallenge(cmd, glyphRenderingMode);
+                solutions[from] = cmd.getSolution();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CaptchaBatchTask(factory, glyphRenderingMode, seedSource, images, solutions, seeds, from, middle),
+                    new CaptchaBatchTask(factory, glyphRenderingMode, seedSource, images, solutions, seeds, middle, to));
+        }
+    }
+
+    /**
+     * Only the seed and the config version are stored. The image and the solution are derived from the seed again
+     * by renderCaptcha and verifyCaptcha.
+     */
+    private Captcha getSeededCaptcha(CaptchaMetadataFactory factory) {
+        byte[] seed = new byte[SeededRandomSource.SEED_LENGTH];
+        randomSource.nextBytes(seed);
+        CaptchaMetadata cmd = factory.getCaptchaMetadata(seed);
+        BufferedImage bi = CaptchaBuilder.buildImageWithCollapsedChallenge(cmd, glyphRenderingMode);
+        String id = this.captchaSeedStore.storeCaptchaSeed(new CaptchaSeed(seed, factory.getMasterConfig().getVersion()));
+        return new PixelCaptcha(bi, id);
+    }
+
+    /**
+     * @return the factory of the configuration a seed was issued with: the factory of this controller, or for
+     * CAPTCHAs issued through getCaptcha(CaptchaSpec) a cached factory of the same configuration version. Absent when
+     * the seed is absent or its configuration is no longer cached.
+     */
+    private Optional<CaptchaMetadataFactory> getSeededFactory(Optional<CaptchaSeed> captchaSeed) {
+        if (!captchaSeed.isPresent())
+            return Optional.absent();
+        if (captchaSeed.get().getConfigVersion() == masterConfig.getVersion())
+            return Optional.of(captchaMetadataFactory);
+        return CaptchaMetadataFactoryCache.getInstance().getCaptchaMetadataFactory(captchaSeed.get().getConfigVersion());
+    }
+
+    /**
+     * Renders the image of an issued CAPTCHA again from its seed, for example on a node other than the one that
+     * issued it. The CAPTCHA stays valid for verification.
+     *
+     * @param captchaIdentifier identifier returned with the CAPTCHA
+     * @return the image, or Optional.absent() if seeded generation is off, the CAPTCHA is unknown or expired, or it
+     * was issued with a configuration that is neither this controller's nor cached
+     */
+    public Optional<BufferedImage> renderCaptcha(String captchaIdentifier) {
+        if (captchaIdentifier == null)
+            throw new NullPointerException("CAPTCHA identifier cannot be null");
+        if (masterConfig == null)
+            throw new IllegalAccessError("initProperties must be called prior to this method");
+        if (!seededGeneration)
+            return Optional.absent();
+
+        Optional<CaptchaSeed> captchaSeed = captchaSeedStore.getCaptchaSeed(captchaIdentifier);
+        Optional<CaptchaMetadataFactory> factory = getSeededFactory(captchaSeed);
+        if (!factory.isPresent())
+            return Optional.absent();
+
+        CaptchaMetadata cmd = factory.get().getCaptchaMetadata(captchaSeed.get().getSeed());
+        return Optional.of(CaptchaBuilder.buildImageWithCollapsedChallenge(cmd, glyphRenderingMode));
+    }
+
+    /**
+     * Generates a CAPTCHA and writes its image to the stream as a PNG image, encoded as set by the pngCompressionLevel
+     * and pngFilter properties. Unless the image comes from the pre-rendered pool, it is painted into the reusable
+     * image of the calling thread and only the encoded bytes are copied out.
+     *
+     * @param out receives the PNG image. It is not closed.
+     * @return identifier of the CAPTCHA
+     * @throws IOException if writing to the stream fails
+     */
+    public String writeCaptcha(OutputStream out) throws IOException {
+        if (out == null)
+            throw new NullPointerException("OutputStream cannot be null");
+        if (masterConfig == null)
+            throw new IllegalAccessError("initProperties must be called prior to this method");
+
+        if (seededGeneration) {
+            byte[] seed = new byte[SeededRandomSource.SEED_LENGTH];
+            randomSource.nextBytes(seed);
+            CaptchaBuilder.writeImageWithCollapsedChallenge(captchaMetadataFactory.getCaptchaMetadata(seed), glyphRenderingMode, pngEncoder, out);
+            return this.captchaSeedStore.storeCaptchaSeed(new CaptchaSeed(seed, masterConfig.getVersion()));
+        }
+
+        CaptchaMetadata cmd;
+        PrerenderedCaptchaPool pool = this.captchaPool;
+        PrerenderedCaptchaPool.Entry entry = pool == null ? null : pool.poll();
+        if (entry != null) {
+            cmd = entry.getCaptchaMetadata();
+            pngEncoder.write(entry.getImage(), out);
+        } else {
+            cmd = captchaMetadataFactory.getCaptchaMetadata();
+            CaptchaBuilder.writeImageWithCollapsedChallenge(cmd, glyphRenderingMode, pngEncoder, out);
+        }
+        return this.captchaSolutionStore.storeCaptchaSolution(cmd.getSolution());
+    }
+
+    /**
+     * Generates a CAPTCHA and writes it as an SVG document built from the glyph outlines. Nothing is painted or
+     * encoded on the server. The pre-rendered pool is not drawn from.
+     *
+     * @param out receives the SVG document. It is not closed.
+     * @return identifier of the CAPTCHA
+     * @throws IOException if writing to out fails
+     */
+    public String writeCaptchaSvg(Appendable out) throws IOException {
+        if (out == null)
+            throw new NullPointerException("Appendable cannot be null");
+        if (masterConfig == null)
+            throw new IllegalAccessError("initProperties must be called prior to this method");
+
+        if (seededGeneration) {
+            byte[] seed = new byte[SeededRandomSource.SEED_LENGTH];
+            randomSource.nextBytes(seed);
+            out.append(SvgCaptchaBuilder.buildSvgWithCollapsedChallenge(captchaMetadataFactory.getCaptchaMetadata(seed)));
+            return this.captchaSeedStore.storeCaptchaSeed(new CaptchaSeed(seed, masterConfig.getVersion()));
+        }
+
+        CaptchaMetadata cmd = captchaMetadataFactory.getCaptchaMetadata();
+        out.append(SvgCaptchaBuilder.buildSvgWithCollapsedChallenge(cmd));
+        return this.captchaSolutionStore.storeCaptchaSolution(cmd.getSolution());
+    }
+
+    /**
+     * Writes the image of an issued CAPTCHA to the stream as a PNG image, rendered again from its seed in the reusable
+     * image of the calling thread.
+     *
+     * @param captchaIdentifier identifier returned with the CAPTCHA
+     * @param out               receives the PNG image. It is not closed.
+     * @return false, with nothing written, if seeded generation is off, the CAPTCHA is unknown or expired, or it was
+     * issued with a configuration that is neither this controller's nor cached
+     * @throws IOException if writing to the stream fails
+     */
+    public boolean renderCaptcha(String captchaIdentifier, OutputStream out) throws IOException {
+        if (captchaIdentifier == null)
+            throw new NullPointerException("CAPTCHA identifier cannot be null");
+        if (out == null)
+            throw new NullPointerException("OutputStream cannot be null");
+        if (masterConfig == null)
+            throw new IllegalAccessError("initProperties must be called prior to this method");
+        if (!seededGeneration)
+            return false;
+
+        Optional<CaptchaSeed> captchaSeed = captchaSeedStore.getCaptchaSeed(captchaIdentifier);
+        Optional<CaptchaMetadataFactory> factory = getSeededFactory(captchaSeed);
+        if (!factory.isPresent())
+            return false;
+
+        CaptchaMetadata cmd = factory.get().getCaptchaMetadata(captchaSeed.get().getSeed());
+        CaptchaBuilder.writeImageWithCollapsedChallenge(cmd, glyphRenderingMode, pngEncoder, out);
+        return true;
+    }
+
 
     private String createPointString(CaptchaMetadata cmd, String id) {
         StringBuilder sb = new StringBuilder();
@@ -340,14 +671,24 @@ public class PixelCaptchaController {
     }
 
     public ValidationResult verifyCaptcha(String captchaIdentifier, List<Point> solution) {
-        Optional<CaptchaSolution> captchaSolutionOptional = captchaSolutionStore.getCaptchaSolution(captchaIdentifier);
+        Optional<CaptchaSolution> captchaSolutionOptional = seededGeneration ?
+                getSeededCaptchaSolution(captchaIdentifier) :
+                captchaSolutionStore.getCaptchaSolution(captchaIdentifier);
         if (captchaSolutionOptional.isPresent()) {
-            return verificationEngine.verifySolution(captchaSolutionOptional.get(), solution);
+            return verificationEngine.verifySolution(captchaSolutionOptional.get(), solution, unorderedMatching);
         } else {
             return new PixelCaptchaValidationResult(false, 0, "Solution not found or expired");
         }
     }
 
+    private Optional<CaptchaSolution> getSeededCaptchaSolution(String captchaIdentifier) {
+        Optional<CaptchaSeed> captchaSeed = captchaSeedStore.removeCaptchaSeed(captchaIdentifier);
+        Optional<CaptchaMetadataFactory> factory = getSeededFactory(captchaSeed);
+        if (!factory.isPresent())
+            return Optional.absent();
+        return Optional.of(factory.get().getCaptchaMetadata(captchaSeed.get().getSeed()).getSolution());
+    }
+
     public String getIdentifier() {
         return this.identifier;
     }
@@ -7,14 +7,21 @@
 package com.salesforce.pixelcaptcha.core;
 
 import java.awt.*;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.salesforce.pixelcaptcha.interfaces.ValidationResult;
 import com.salesforce.pixelcaptcha.interfaces.Captcha;
 import com.salesforce.pixelcaptcha.interfaces.CaptchaProvider;
+import com.salesforce.pixelcaptcha.utils.Helper;
 
 /**
  * @author Gursev Singh Kalra @ Salesforce.com
@@ -22,6 +29,7 @@ import com.salesforce.pixelcaptcha.interfaces.CaptchaProvider;
 public class PixelCaptchaProvider implements CaptchaProvider {
 
     PixelCaptchaController pcc;
+    AsyncCaptchaExecutor asyncExecutor;
 
     /**
      * SERVICE_NAME is the name of the this CAPTCHA implementation.
@@ -53,8 +61,24 @@ public class PixelCaptchaProvider implements CaptchaProvider {
         if (properties == null) {
             throw new IllegalArgumentException("Properties cannot be null");
         }
+        shutdown();
         pcc = new PixelCaptchaController();
         pcc.initProperties(properties);
+
+        int asyncThreads = Helper.convertStringToIntOrDefault(properties.getProperty("asyncThreads"), GlobalConstants.DEFAULT_ASYNC_THREADS);
+        int asyncQueueCapacity = Helper.convertStringToIntOrDefault(properties.getProperty("asyncQueueCapacity"), GlobalConstants.DEFAULT_ASYNC_QUEUE_CAPACITY);
+        asyncExecutor = new AsyncCaptchaExecutor(asyncThreads, asyncQueueCapacity);
+    }
+
+    /**
+     * Stops the pre-rendered pool and the render executor of the asynchronous API. CAPTCHAs that were already
+     * requested asynchronously are still generated.
+     */
+    public void shutdown() {
+        if (pcc != null)
+            pcc.shutdown();
+        if (asyncExecutor != null)
+            asyncExecutor.shutdown();
     }
 
     @Override
@@ -64,6 +88,102 @@ public class PixelCaptchaProvider implements CaptchaProvider {
         return pcc.getCaptcha();
     }
 
+    /**
+     * Generates a CAPTCHA of the given configuration without initializing the provider again. The configuration is
+     * set up once per process and kept in CaptchaMetadataFactoryCache.
+     *
+     * @param captchaSpec configuration of the CAPTCHA
+     * @return the CAPTCHA Object
+     */
+    public Captcha getCaptcha(CaptchaSpec captchaSpec) {
+        if (pcc == null)
+            throw new IllegalStateException("Captcha Provider is not initialized.");
+        return pcc.getCaptcha(captchaSpec);
+    }
+
+    /**
+     * Issues a CAPTCHA without rendering it. Requires the seededGeneration property.
+     *
+     * @param captchaSpec configuration of the CAPTCHA
+     * @return identifier of the CAPTCHA, whose image is written by renderCaptcha
+     */
+    public String issueSeededCaptcha(CaptchaSpec captchaSpec) {
+        if (pcc == null)
+            throw new IllegalStateException("Captcha Provider is not initialized.");
+        return pcc.issueSeededCaptcha(captchaSpec);
+    }
+
+    /**
+     * Writes the PNG image of a CAPTCHA issued in seeded generation mode, rendered from its seed.
+     *
+     * @param captchaIdentifier identifier of the CAPTCHA
+     * @param out               receives the PNG image. It is not closed.
+     * @return false, with nothing written, if the CAPTCHA is unknown, expired or not seeded
+     * @throws IOException if writing to the stream fails
+     */
+    public boolean renderCaptcha(String captchaIdentifier, OutputStream out) throws IOException {
+        if (pcc == null)
+            throw new IllegalStateException("Captcha Provider is not initialized.");
+        return pcc.renderCaptcha(captchaIdentifier, out);
+    }
+
+    @Override
+    public List<Captcha> getCaptchas(int count) {
+        if (pcc == null)
+            throw new IllegalStateException("Captcha Provider is not initialized.");
+        return pcc.getCaptchas(count);
+    }
+
+    @Override
+    public void getCaptchas(int count, int batchSize, Consumer<? super Captcha> consumer) {
+        if (pcc == null)
+            throw new IllegalStateException("Captcha Provider is not initialized.");
+        pcc.getCaptchas(count, batchSize, consumer);
+    }
+
+    @Override
+    public CompletableFuture<Captcha> getCaptchaAsync() {
+        return getCaptchaAsync(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableFuture<Captcha> getCaptchaAsync(long timeout, TimeUnit unit) {
+        if (pcc == null)
+            throw new IllegalStateException("Captcha Provider is not initialized.");
+        final PixelCaptchaController controller = pcc;
+        return asyncExecutor.submit(() -> controller.getCaptcha(), timeout, unit);
+    }
+
+    @Override
+    public CompletableFuture<Captcha> getCaptchaAsync(Executor executor) {
+        return getCaptchaAsync(executor, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param executor runs the generation instead of the render executor of this provider
+     * @param timeout  time after which the future fails with TimeoutException. 0 or less means no timeout.
+     * @param unit     unit of the timeout
+     * @return future completed with the CAPTCHA Object
+     */
+    public CompletableFuture<Captcha> getCaptchaAsync(Executor executor, long timeout, TimeUnit unit) {
+        if (pcc == null)
+            throw new IllegalStateException("Captcha Provider is not initialized.");
+        final PixelCaptchaController controller = pcc;
+        return asyncExecutor.submit(() -> controller.getCaptcha(), executor, timeout, unit);
+    }
+
+    @Override
+    public CompletableFuture<ValidationResult> verifyAsync(String captchaIdentifier, String response) {
+        return verifyAsync(captchaIdentifier, response, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableFuture<ValidationResult> verifyAsync(final String captchaIdentifier, final String response, long timeout, TimeUnit unit) {
+        if (pcc == null)
+            throw new IllegalStateException("Captcha Provider is not initialized.");
+        return asyncExecutor.submit(() -> verify(captchaIdentifier, response), timeout, unit);
+    }
+
     /**
      * Accepts CAPTCHA identifier, the response and returns status if the validation succeeded or not
      *
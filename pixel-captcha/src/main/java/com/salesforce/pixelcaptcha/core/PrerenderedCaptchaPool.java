@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.core;
+
+import com.salesforce.pixelcaptcha.dataobj.CaptchaMetadata;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of CAPTCHAs that are rendered ahead of time by background threads.
+ * <p/>
+ * The render threads fill the pool up to the high watermark and then go idle. They are woken up again once
+ * the pool drops below the low watermark. A CAPTCHA handed out by the pool has no solution stored yet; the
+ * caller stores the solution when it issues the CAPTCHA so that the store timeout starts at issue time.
+ * <p/>
+ * A render thread whose render fails waits before the next attempt, doubling the wait with every consecutive failure
+ * up to MAX_BACKOFF_MILLIS, so a failure that persists, such as a font that cannot be loaded, does not keep the
+ * threads busy. Requests are served by inline rendering meanwhile.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class PrerenderedCaptchaPool {
+
+    private static final Logger LOGGER = Logger.getLogger(PrerenderedCaptchaPool.class.getName());
+    private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+
+    public static final int MIN_RENDER_THREADS = 1;
+    public static final int MAX_RENDER_THREADS = 64;
+    private static final long SHUTDOWN_WAIT_MILLIS = 1000;
+    static final long MIN_BACKOFF_MILLIS = 100;
+    static final long MAX_BACKOFF_MILLIS = 60 * 1000;
+
+    private final CaptchaMetadataFactory captchaMetadataFactory;
+    private final GlyphRenderingMode glyphRenderingMode;
+    private final BlockingQueue<Entry> queue;
+    private final ExecutorService renderThreads;
+    private final int lowWatermark;
+    private final int highWatermark;
+
+    private final Object refillLock = new Object();
+    private volatile boolean refilling = true;
+    private volatile boolean running = true;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final BackOffSleeper backOffSleeper;
+
+    /**
+     * Waits between the render attempts of a render thread whose renders keep failing.
+     */
+    interface BackOffSleeper {
+        /**
+         * @param millis how long to wait
+         * @throws InterruptedException if the render thread must stop
+         */
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    /**
+     * A pre-rendered CAPTCHA image along with the metadata it was rendered from.
+     */
+    public static class Entry {
+        private final CaptchaMetadata captchaMetadata;
+        private final BufferedImage image;
+
+        Entry(CaptchaMetadata captchaMetadata, BufferedImage image) {
+            this.captchaMetadata = captchaMetadata;
+            this.image = image;
+        }
+
+        public CaptchaMetadata getCaptchaMetadata() {
+            return captchaMetadata;
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+    }
+
+    /**
+     * Creates the pool and starts the render threads. The pool starts filling immediately.
+     *
+     * @param captchaMetadataFactory factory used by the render threads
+     * @param renderThreadCount      number of background render threads
+     * @param lowWatermark           refilling starts when the pool size drops below this value
+     * @param highWatermark          the maximum number of CAPTCHAs held by the pool
+     */
+    public PrerenderedCaptchaPool(CaptchaMetadataFactory captchaMetadataFactory, int renderThreadCount, int lowWatermark, int highWatermark) {
+        this(captchaMetadataFactory, GlobalConstants.GLYPH_RENDERING_MODE, renderThreadCount, lowWatermark, highWatermark);
+    }
+
+    /**
+     * Creates the pool and starts the render threads. The pool starts filling immediately.
+     *
+     * @param captchaMetadataFactory factory used by the render threads
+     * @param glyphRenderingMode     how the render threads paint the characters
+     * @param renderThreadCount      number of background render threads
+     * @param lowWatermark           refilling starts when the pool size drops below this value
+     * @param highWatermark          the maximum number of CAPTCHAs held by the pool
+     */
+    public PrerenderedCaptchaPool(CaptchaMetadataFactory captchaMetadataFactory, GlyphRenderingMode glyphRenderingMode,
+                                  int renderThreadCount, int lowWatermark, int highWatermark) {
+        this(captchaMetadataFactory, glyphRenderingMode, renderThreadCount, lowWatermark, highWatermark, null);
+    }
+
+    /**
+     * Creates the pool with the given back off. A null backOffSleeper waits on the pool and ends the wait on shutdown.
+     */
+    PrerenderedCaptchaPool(CaptchaMetadataFactory captchaMetadataFactory, GlyphRenderingMode glyphRenderingMode,
+                           int renderThreadCount, int lowWatermark, int highWatermark, BackOffSleeper backOffSleeper) {
+        if (captchaMetadataFactory == null)
+            throw new NullPointerException("captchaMetadataFactory cannot be null");
+
+        if (glyphRenderingMode == null)
+            throw new NullPointerException("glyphRenderingMode cannot be null");
+
+        if (renderThreadCount < MIN_RENDER_THREADS || renderThreadCount > MAX_RENDER_THREADS)
+            throw new IllegalArgumentException("Render thread count must be between " + MIN_RENDER_THREADS + " and " + MAX_RENDER_THREADS);
+
+        if (highWatermark <= 0 || lowWatermark < 0 || lowWatermark > highWatermark)
+            throw new IllegalArgumentException("Watermarks must satisfy 0 <= lowWatermark <= highWatermark and highWatermark > 0");
+
+        this.captchaMetadataFactory = captchaMetadataFactory;
+        this.glyphRenderingMode = glyphRenderingMode;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.backOffSleeper = backOffSleeper != null ? backOffSleeper : this::waitUnlessShutDown;
+        this.queue = new ArrayBlockingQueue<>(highWatermark);
+        this.renderThreads = Executors.newFixedThreadPool(renderThreadCount, new RenderThreadFactory());
+
+        for (int i = 0; i < renderThreadCount; i++) {
+            renderThreads.execute(new Runnable() {
+                @Override
+                public void run() {
+                    refill();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns a pre-rendered CAPTCHA, or null when the pool is empty. Never blocks.
+     *
+     * @return a pool entry or null
+     */
+    public Entry poll() {
+        Entry entry = queue.poll();
+        if (entry == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+
+        if (queue.size() < lowWatermark && !refilling) {
+            synchronized (refillLock) {
+                refilling = true;
+                refillLock.notifyAll();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Stops the render threads. CAPTCHAs already in the pool are discarded.
+     * Waits up to SHUTDOWN_WAIT_MILLIS for a render that is in progress to finish.
+     */
+    public void shutdown() {
+        running = false;
+        synchronized (refillLock) {
+            refillLock.notifyAll();
+        }
+        renderThreads.shutdownNow();
+        try {
+            renderThreads.awaitTermination(SHUTDOWN_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queue.clear();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return number of renders by the background threads that failed
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    public int getSize() {
+        return queue.size();
+    }
+
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    private void refill() {
+        int consecutiveFailures = 0;
+        while (running) {
+            synchronized (refillLock) {
+                while (running && !refilling) {
+                    try {
+                        refillLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+
+            if (!running)
+                return;
+
+            try {
+                CaptchaMetadata cmd = captchaMetadataFactory.getCaptchaMetadata();
+                BufferedImage bi = CaptchaBuilder.buildImageWithCollapsedChallenge(cmd, glyphRenderingMode);
+                if (!running)
+                    return;
+                if (!queue.offer(new Entry(cmd, bi)) || queue.size() >= highWatermark) {
+                    refilling = false;
+                }
+                consecutiveFailures = 0;
+            } catch (RuntimeException e) {
+                // A failed render must not kill the render thread. The request path falls back to inline rendering.
+                failureCount.incrementAndGet();
+                consecutiveFailures++;
+                if (consecutiveFailures == 1)
+                    LOGGER.log(Level.WARNING, "Failed to pre-render a CAPTCHA", e);
+                else
+                    LOGGER.log(Level.FINE, "Failed to pre-render a CAPTCHA " + consecutiveFailures + " times in a row", e);
+                if (!backOff(consecutiveFailures))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Waits before the next render after consecutive failures.
+     *
+     * @return false if the thread was interrupted
+     */
+    private boolean backOff(int consecutiveFailures) {
+        long delay = Math.min(MAX_BACKOFF_MILLIS, MIN_BACKOFF_MILLIS << Math.min(consecutiveFailures - 1, 20));
+        try {
+            backOffSleeper.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    /*
+     * The default back off. Shutdown ends the wait early.
+     */
+    private void waitUnlessShutDown(long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        synchronized (refillLock) {
+            long remaining;
+            while (running && (remaining = deadline - System.currentTimeMillis()) > 0)
+                refillLock.wait(remaining);
+        }
+    }
+
+    private static class RenderThreadFactory implements ThreadFactory {
+        private final int poolNumber = POOL_SEQUENCE.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "pixelcaptcha-pool-" + poolNumber + "-render-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.core;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Reusable rendering buffers. Every thread owns one context that keeps a BufferedImage and its Graphics2D for each of
+ * the last few image sizes and ImageColorModes painted on it, so painting a CAPTCHA into a context allocates neither.
+ * <p/>
+ * An image painted into a context belongs to the context and is overwritten by the next CAPTCHA of the same size. It
+ * has to be copied out, for example as encoded bytes, or the context kept acquired for as long as the image is used.
+ * <p/>
+ * Usage:
+ * <pre>
+ * try (RenderContext context = RenderContext.acquire()) {
+ *     BufferedImage bi = CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, mode, context);
+ *     ImageIO.write(bi, "png", out);
+ * }
+ * </pre>
+ * Not thread safe. A context must only be used by the thread that acquired it.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public final class RenderContext implements AutoCloseable {
+    // Number of image sizes kept per thread. Controllers usually render a single size.
+    static final int MAX_BUFFERS = 4;
+
+    private static final ThreadLocal<RenderContext> THREAD_CONTEXT = new ThreadLocal<RenderContext>() {
+        @Override
+        protected RenderContext initialValue() {
+            return new RenderContext(true);
+        }
+    };
+
+    private final boolean pooled;
+    // Most recently used buffer first
+    private final Buffer[] buffers = new Buffer[MAX_BUFFERS];
+    private int bufferCount;
+    private boolean acquired;
+    private long allocationCount;
+
+    private RenderContext(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    /**
+     * @return the context of the calling thread. If that context is already acquired, for example by a caller further
+     * up the stack, a new context is returned that is disposed of on release.
+     */
+    public static RenderContext acquire() {
+        RenderContext context = THREAD_CONTEXT.get();
+        if (context.acquired)
+            context = new RenderContext(false);
+        context.acquired = true;
+        return context;
+    }
+
+    /**
+     * Hands the context back. Images painted into it must no longer be used.
+     */
+    public void release() {
+        if (!acquired)
+            throw new IllegalStateException("RenderContext is not acquired");
+        acquired = false;
+        if (!pooled)
+            dispose();
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    /**
+     * @return number of images this context has allocated since it was created
+     */
+    public long getAllocationCount() {
+        return allocationCount;
+    }
+
+    Buffer getBuffer(int width, int height, ImageColorMode imageColorMode) {
+        if (!acquired)
+            throw new IllegalStateException("RenderContext must be acquired before use");
+
+        int found = -1;
+        for (int i = 0; i < bufferCount; i++) {
+            if (buffers[i].matches(width, height, imageColorMode)) {
+                found = i;
+                break;
+            }
+        }
+
+        Buffer buffer;
+        if (found >= 0) {
+            buffer = buffers[found];
+        } else {
+            if (bufferCount == MAX_BUFFERS)
+                buffers[--bufferCount].dispose();
+            buffer = new Buffer(imageColorMode.createImage(width, height), imageColorMode);
+            allocationCount++;
+            found = bufferCount++;
+        }
+        System.arraycopy(buffers, 0, buffers, 1, found);
+        buffers[0] = buffer;
+        return buffer;
+    }
+
+    private void dispose() {
+        for (int i = 0; i < bufferCount; i++) {
+            buffers[i].dispose();
+            buffers[i] = null;
+        }
+        bufferCount = 0;
+    }
+
+    static final class Buffer {
+        private final BufferedImage image;
+        private final Graphics2D graphics;
+        private final ImageColorMode imageColorMode;
+
+        private Buffer(BufferedImage image, ImageColorMode imageColorMode) {
+            this.image = image;
+            this.graphics = image.createGraphics();
+            this.imageColorMode = imageColorMode;
+            imageColorMode.configure(this.graphics);
+        }
+
+        BufferedImage getImage() {
+            return image;
+        }
+
+        Graphics2D getGraphics() {
+            return graphics;
+        }
+
+        private boolean matches(int width, int height, ImageColorMode imageColorMode) {
+            return image.getWidth() == width && image.getHeight() == height && this.imageColorMode == imageColorMode;
+        }
+
+        private void dispose() {
+            graphics.dispose();
+        }
+    }
+}
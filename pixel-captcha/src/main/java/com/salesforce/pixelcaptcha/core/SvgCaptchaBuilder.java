@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.core;
+
+import com.salesforce.pixelcaptcha.dataobj.CaptchaMetadata;
+import com.salesforce.pixelcaptcha.dataobj.GlyphArray;
+import com.salesforce.pixelcaptcha.utils.GlyphOutlineCache;
+
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stateless class. Given a CaptchaMetadata object, writes the CAPTCHA as an SVG document instead of painting it, so
+ * that the browser rasterizes it.
+ * <p/>
+ * Every character becomes the transformed outline of its glyph from GlyphOutlineCache, the same outline that
+ * CaptchaBuilder fills in the CACHED_OUTLINE mode. The outlines of all characters of a color are joined into a single
+ * path. Coordinates are rounded to a fixed number of fraction digits and written as relative path commands with
+ * repeated command letters and separators left out.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class SvgCaptchaBuilder {
+    public static final int DEFAULT_FRACTION_DIGITS = 1;
+    public static final int MAX_FRACTION_DIGITS = 3;
+
+    /**
+     * Writes the CAPTCHA with coordinates rounded to DEFAULT_FRACTION_DIGITS.
+     *
+     * @param captchaMetadata CaptchaMetadata object for the CAPTCHA.
+     * @return the SVG document
+     */
+    public static String buildSvgWithCollapsedChallenge(CaptchaMetadata captchaMetadata) {
+        return buildSvgWithCollapsedChallenge(captchaMetadata, DEFAULT_FRACTION_DIGITS);
+    }
+
+    /**
+     * @param captchaMetadata CaptchaMetadata object for the CAPTCHA.
+     * @param fractionDigits  number of fraction digits kept in the coordinates, from 0 to MAX_FRACTION_DIGITS
+     * @return the SVG document
+     */
+    public static String buildSvgWithCollapsedChallenge(CaptchaMetadata captchaMetadata, int fractionDigits) {
+        if (captchaMetadata == null)
+            throw new IllegalArgumentException("CaptchaMetadata object cannot be null");
+        if (fractionDigits < 0 || fractionDigits > MAX_FRACTION_DIGITS)
+            throw new IllegalArgumentException("Fraction digits must be between 0 and " + MAX_FRACTION_DIGITS);
+
+        int width = captchaMetadata.getCaptchaDimension().getWidth();
+        int height = captchaMetadata.getCaptchaDimension().getHeight();
+        // The challenge is painted first, as in CaptchaBuilder. Characters of one color are joined in one path.
+        Map<Color, PathWriter> paths = new LinkedHashMap<>();
+        appendGlyphs(paths, captchaMetadata.getChallengeGlyphs(), fractionDigits);
+        appendGlyphs(paths, captchaMetadata.getSolutionOptionGlyphs(), fractionDigits);
+
+        StringBuilder svg = new StringBuilder(4096);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+                .append("\" height=\"").append(height)
+                .append("\" viewBox=\"0 0 ").append(width).append(' ').append(height).append("\">");
+        svg.append("<rect width=\"").append(width).append("\" height=\"").append(height)
+                .append("\" fill=\"").append(toHex(captchaMetadata.getBackgroundColor())).append("\"/>");
+        for (Map.Entry<Color, PathWriter> path : paths.entrySet()) {
+            svg.append("<path fill=\"").append(toHex(path.getKey())).append('"');
+            if (path.getValue().evenOdd)
+                svg.append(" fill-rule=\"evenodd\"");
+            svg.append(" d=\"").append(path.getValue().d).append("\"/>");
+        }
+        return svg.append("</svg>").toString();
+    }
+
+    private static void appendGlyphs(Map<Color, PathWriter> paths, GlyphArray glyphs, int fractionDigits) {
+        AffineTransform fontTransform = new AffineTransform();
+        for (int i = 0; i < glyphs.size(); i++) {
+            PathWriter path = paths.get(glyphs.getColor(i));
+            if (path == null) {
+                path = new PathWriter(fractionDigits);
+                paths.put(glyphs.getColor(i), path);
+            }
+            glyphs.getTransform(i, fontTransform);
+            Shape outline = GlyphOutlineCache.getInstance().getOutline(glyphs.getBaseFont(i), glyphs.getString(i),
+                    fontTransform, glyphs.getX(i), glyphs.getY(i));
+            path.append(outline.getPathIterator(null));
+        }
+    }
+
+    /**
+     * @return #rgb when every channel repeats its hex digit, #rrggbb otherwise
+     */
+    static String toHex(Color color) {
+        int rgb = color.getRGB() & 0xFFFFFF;
+        if (((rgb >> 4) & 0x0F0F0F) == (rgb & 0x0F0F0F))
+            return "#" + Integer.toHexString((rgb >> 16) & 0xF) + Integer.toHexString((rgb >> 8) & 0xF) + Integer.toHexString(rgb & 0xF);
+        return String.format("#%06x", rgb);
+    }
+
+    /**
+     * Writes path data with relative commands. The current point is kept in rounded units, so rounding errors do not
+     * add up along a path.
+     */
+    private static final class PathWriter {
+        private final StringBuilder d = new StringBuilder(1024);
+        private final double scale;
+        private final int fractionDigits;
+        private final double[] coords = new double[6];
+        private boolean evenOdd;
+        private long currentX;
+        private long currentY;
+        private long subpathX;
+        private long subpathY;
+        private char lastCommand;
+
+        PathWriter(int fractionDigits) {
+            this.fractionDigits = fractionDigits;
+            this.scale = Math.pow(10, fractionDigits);
+        }
+
+        void append(PathIterator iterator) {
+            evenOdd |= iterator.getWindingRule() == PathIterator.WIND_EVEN_ODD;
+            for (; !iterator.isDone(); iterator.next()) {
+                switch (iterator.currentSegment(coords)) {
+                    case PathIterator.SEG_MOVETO:
+                        // An implicit command after m is a line, so m is always written
+                        lastCommand = 0;
+                        segment('m', 1);
+                        subpathX = currentX;
+                        subpathY = currentY;
+                        break;
+                    case PathIterator.SEG_LINETO:
+                        if (Math.round(coords[0] * scale) != currentX || Math.round(coords[1] * scale) != currentY)
+                            segment('l', 1);
+                        break;
+                    case PathIterator.SEG_QUADTO:
+                        segment('q', 2);
+                        break;
+                    case PathIterator.SEG_CUBICTO:
+                        segment('c', 3);
+                        break;
+                    case PathIterator.SEG_CLOSE:
+                        d.append('z');
+                        lastCommand = 'z';
+                        currentX = subpathX;
+                        currentY = subpathY;
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Appends a command whose points are all relative to the current point, as SVG defines them.
+         */
+        private void segment(char command, int points) {
+            if (command != lastCommand) {
+                d.append(command);
+                lastCommand = command;
+            }
+            long x = 0;
+            long y = 0;
+            for (int p = 0; p < points; p++) {
+                x = Math.round(coords[2 * p] * scale);
+                y = Math.round(coords[2 * p + 1] * scale);
+                appendNumber(x - currentX);
+                appendNumber(y - currentY);
+            }
+            currentX = x;
+            currentY = y;
+        }
+
+        /**
+         * Appends a value in rounded units without leading or trailing zeros. A separator is only written where the
+         * number would otherwise run into the previous one.
+         */
+        private void appendNumber(long units) {
+            char previous = d.charAt(d.length() - 1);
+            if (units >= 0 && !Character.isLetter(previous))
+                d.append(' ');
+            if (units < 0) {
+                d.append('-');
+                units = -units;
+            }
+            long integer = fractionDigits == 0 ? units : units / (long) scale;
+            long fraction = fractionDigits == 0 ? 0 : units % (long) scale;
+            if (integer != 0 || fraction == 0)
+                d.append(integer);
+            if (fraction != 0) {
+                int digits = fractionDigits;
+                while (fraction % 10 == 0) {
+                    fraction /= 10;
+                    digits--;
+                }
+                String significant = Long.toString(fraction);
+                d.append('.');
+                for (int zeros = digits - significant.length(); zeros > 0; zeros--) {
+                    d.append('0');
+                }
+                d.append(significant);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.core;
+
+/**
+ * Strategy used by VerificationEngine to pair the clicks with the solution points of an unordered CAPTCHA.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public enum UnorderedMatching {
+    /**
+     * Each click, in click order, is paired with the nearest solution point that is still unpaired.
+     * The outcome depends on the click order and can reject a response that has a valid pairing.
+     */
+    GREEDY,
+
+    /**
+     * The clicks are paired with the solution points so that the total deviation is the smallest possible.
+     * The outcome does not depend on the click order.
+     */
+    OPTIMAL;
+
+    /**
+     * Converts a property value to an UnorderedMatching. The comparison ignores case.
+     *
+     * @param value        property value, may be null
+     * @param defaultValue value returned when the property value is null or not recognized
+     * @return the matching strategy
+     */
+    public static UnorderedMatching fromStringOrDefault(String value, UnorderedMatching defaultValue) {
+        if (value != null) {
+            for (UnorderedMatching unorderedMatching : values()) {
+                if (unorderedMatching.name().equalsIgnoreCase(value.trim()))
+                    return unorderedMatching;
+            }
+        }
+        return defaultValue;
+    }
+}
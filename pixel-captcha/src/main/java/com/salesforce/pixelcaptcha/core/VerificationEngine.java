@@ -12,7 +12,6 @@ import com.salesforce.pixelcaptcha.dataobj.CaptchaSolution;
 import com.salesforce.pixelcaptcha.dataobj.PixelCaptchaValidationResult;
 
 import java.awt.*;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,6 +23,11 @@ public class VerificationEngine {
     public static final int SIZE_MISMATCH = 1;
     public static final int THRESHOLD_EXCEEDED = 2;
 
+    // Size of the bitmask that tracks the matched solution points
+    private static final int MAX_UNORDERED_POINTS = Long.SIZE;
+
+    private static final int[][][] PERMUTATIONS = buildPermutations(GlobalConstants.MAX_CHALLENGE_COUNT);
+
     private static final String INVALID_SIZE = "Challenge and response size is different";
     private static VerificationEngine INSTANCE = null;
 
@@ -46,65 +50,177 @@ public class VerificationEngine {
      * @return A ValidationResult object
      */
     public ValidationResult verifySolution(CaptchaSolution pixelCaptchaSolution, List<Point> response) {
-        if (pixelCaptchaSolution == null || response == null)
+        return verifySolution(pixelCaptchaSolution, response, GlobalConstants.UNORDERED_MATCHING);
+    }
+
+    /**
+     * This method performs CAPTCHA validation validation
+     *
+     * @param pixelCaptchaSolution The solution for a particular CAPTCHA
+     * @param response             The response provided by the user
+     * @param unorderedMatching    How the response is paired with the solution when the solution is unordered
+     * @return A ValidationResult object
+     */
+    public ValidationResult verifySolution(CaptchaSolution pixelCaptchaSolution, List<Point> response, UnorderedMatching unorderedMatching) {
+        if (pixelCaptchaSolution == null || response == null || unorderedMatching == null)
             throw new IllegalArgumentException("One of the arguments to verifySolution is null");
 
-        if (pixelCaptchaSolution.getPoints().size() != response.size()) {
+        return verify(pixelCaptchaSolution, response, null, response.size(), unorderedMatching);
+    }
+
+    /**
+     * This method performs CAPTCHA validation on the raw click coordinates.
+     *
+     * @param pixelCaptchaSolution The solution for a particular CAPTCHA
+     * @param responseCoordinates  The response provided by the user as x and y pairs: {x0, y0, x1, y1, ...}
+     * @return A ValidationResult object
+     */
+    public ValidationResult verifySolution(CaptchaSolution pixelCaptchaSolution, int[] responseCoordinates) {
+        return verifySolution(pixelCaptchaSolution, responseCoordinates, GlobalConstants.UNORDERED_MATCHING);
+    }
+
+    /**
+     * This method performs CAPTCHA validation on the raw click coordinates.
+     *
+     * @param pixelCaptchaSolution The solution for a particular CAPTCHA
+     * @param responseCoordinates  The response provided by the user as x and y pairs: {x0, y0, x1, y1, ...}
+     * @param unorderedMatching    How the response is paired with the solution when the solution is unordered
+     * @return A ValidationResult object
+     */
+    public ValidationResult verifySolution(CaptchaSolution pixelCaptchaSolution, int[] responseCoordinates, UnorderedMatching unorderedMatching) {
+        if (pixelCaptchaSolution == null || responseCoordinates == null || unorderedMatching == null)
+            throw new IllegalArgumentException("One of the arguments to verifySolution is null");
+
+        if (responseCoordinates.length % 2 != 0)
+            throw new IllegalArgumentException("Response coordinates must be x and y pairs");
+
+        return verify(pixelCaptchaSolution, null, responseCoordinates, responseCoordinates.length / 2, unorderedMatching);
+    }
+
+    /**
+     * Exactly one of response and responseCoordinates is set.
+     */
+    private ValidationResult verify(CaptchaSolution pixelCaptchaSolution, List<Point> response, int[] responseCoordinates, int responseSize,
+                                    UnorderedMatching unorderedMatching) {
+        List<Point> solution = pixelCaptchaSolution.getPoints();
+        if (solution.size() != responseSize) {
             return new PixelCaptchaValidationResult(false, SIZE_MISMATCH, INVALID_SIZE);
         }
 
-        ValidationResult result;
+        int totalDistance;
         if (pixelCaptchaSolution.isOrdered()) {
-            result = verifySolutionOrdered(pixelCaptchaSolution, response);
+            totalDistance = getOrderedDistance(solution, response, responseCoordinates);
+        } else if (unorderedMatching == UnorderedMatching.OPTIMAL && solution.size() < PERMUTATIONS.length) {
+            totalDistance = getOptimalUnorderedDistance(solution, response, responseCoordinates);
         } else {
-            result = verifySolutionUnordered(pixelCaptchaSolution, response);
-        }
-        return result;
-    }
-
-    private ValidationResult verifySolutionOrdered(CaptchaSolution pixelCaptchaSolution, List<Point> response) {
-        int totalDistance = 0;
-        for (int i = 0; i < response.size(); i++) {
-            int distance = (int) response.get(i).distance(pixelCaptchaSolution.getPoints().get(i));
-            totalDistance += distance;
+            // Solutions larger than the permutation table are matched greedily
+            totalDistance = getGreedyUnorderedDistance(solution, response, responseCoordinates);
         }
 
         if (totalDistance <= pixelCaptchaSolution.getMaxDeviation()) {
-            return new PixelCaptchaValidationResult(true, MATCH, "Maximum permissible deviation = " + pixelCaptchaSolution.getMaxDeviation() + ", actual value = " + totalDistance);
+            return new PixelCaptchaValidationResult(true, MATCH, pixelCaptchaSolution.getMaxDeviation(), totalDistance);
         } else {
-            return new PixelCaptchaValidationResult(false, THRESHOLD_EXCEEDED, "Maximum permissible deviation = " + pixelCaptchaSolution.getMaxDeviation() + ", actual value = " + totalDistance);
+            return new PixelCaptchaValidationResult(false, THRESHOLD_EXCEEDED, pixelCaptchaSolution.getMaxDeviation(), totalDistance);
         }
+    }
 
+    private int getOrderedDistance(List<Point> solution, List<Point> response, int[] responseCoordinates) {
+        int totalDistance = 0;
+        for (int i = 0; i < solution.size(); i++) {
+            Point solutionPoint = solution.get(i);
+            long dx = getX(response, responseCoordinates, i) - solutionPoint.x;
+            long dy = getY(response, responseCoordinates, i) - solutionPoint.y;
+            totalDistance += (int) Math.sqrt(dx * dx + dy * dy);
+        }
+        return totalDistance;
     }
 
-    private ValidationResult verifySolutionUnordered(CaptchaSolution pixelCaptchaSolution, List<Point> response) {
-        // Not changing the values inside pixelCaptchaSolution.
-        List<Point> tempSolutionPoints = new ArrayList<>();
-        for (Point p : pixelCaptchaSolution.getPoints())
-            tempSolutionPoints.add(p);
+    /**
+     * Each response point is matched with the nearest solution point that has not been matched yet.
+     * The matched solution points are tracked in a bitmask instead of being removed from a copy of the solution.
+     */
+    private int getGreedyUnorderedDistance(List<Point> solution, List<Point> response, int[] responseCoordinates) {
+        int solutionSize = solution.size();
+        if (solutionSize > MAX_UNORDERED_POINTS)
+            throw new IllegalArgumentException("Unordered solutions cannot have more than " + MAX_UNORDERED_POINTS + " points");
 
+        long used = 0L;
         int totalDistance = 0;
-        for (Point responsePoint : response) {
-            int minDistance = Integer.MAX_VALUE;
-            int minDistanceIndex = Integer.MAX_VALUE;
-//            int minDistance = 100000;
-//            int minDistanceIndex = 1000000;
-            for (int i = 0; i < tempSolutionPoints.size(); i++) {
-                int distance = (int) responsePoint.distance(tempSolutionPoints.get(i));
-                if (distance < minDistance) {
-                    minDistance = distance;
+        for (int r = 0; r < solutionSize; r++) {
+            int x = getX(response, responseCoordinates, r);
+            int y = getY(response, responseCoordinates, r);
+            long minSquaredDistance = Long.MAX_VALUE;
+            int minDistanceIndex = -1;
+            for (int i = 0; i < solutionSize; i++) {
+                if ((used & (1L << i)) != 0)
+                    continue;
+                Point solutionPoint = solution.get(i);
+                long dx = x - solutionPoint.x;
+                long dy = y - solutionPoint.y;
+                long squaredDistance = dx * dx + dy * dy;
+                if (squaredDistance < minSquaredDistance) {
+                    minSquaredDistance = squaredDistance;
                     minDistanceIndex = i;
                 }
             }
-            //Removing to ensure that same response point cannot be used several times for minimum distance calculation
-            tempSolutionPoints.remove(minDistanceIndex);
-            totalDistance += minDistance;
+            //Marking as used to ensure that same solution point cannot be used several times for minimum distance calculation
+            used |= 1L << minDistanceIndex;
+            totalDistance += (int) Math.sqrt(minSquaredDistance);
         }
+        return totalDistance;
+    }
 
-        if (totalDistance <= pixelCaptchaSolution.getMaxDeviation()) {
-            return new PixelCaptchaValidationResult(true, MATCH, "Maximum permissible deviation = " + String.format("%.2f", pixelCaptchaSolution.getMaxDeviation()) + ", actual value = " + totalDistance);
-        } else {
-            return new PixelCaptchaValidationResult(false, THRESHOLD_EXCEEDED, "Maximum permissible deviation = " + String.format("%.2f", pixelCaptchaSolution.getMaxDeviation()) + ", actual value = " + totalDistance);
+    /**
+     * Tries every pairing of the response points with the solution points and returns the smallest total distance.
+     * With at most MAX_CHALLENGE_COUNT points there are at most 24 pairings, listed in PERMUTATIONS.
+     */
+    private int getOptimalUnorderedDistance(List<Point> solution, List<Point> response, int[] responseCoordinates) {
+        int[][] permutations = PERMUTATIONS[solution.size()];
+        int minTotalDistance = Integer.MAX_VALUE;
+        for (int[] permutation : permutations) {
+            int totalDistance = 0;
+            for (int r = 0; r < permutation.length && totalDistance < minTotalDistance; r++) {
+                Point solutionPoint = solution.get(permutation[r]);
+                long dx = getX(response, responseCoordinates, r) - solutionPoint.x;
+                long dy = getY(response, responseCoordinates, r) - solutionPoint.y;
+                totalDistance += (int) Math.sqrt(dx * dx + dy * dy);
+            }
+            if (totalDistance < minTotalDistance)
+                minTotalDistance = totalDistance;
+        }
+        return minTotalDistance;
+    }
+
+    /**
+     * PERMUTATIONS[n] holds all orderings of {0, ..., n - 1} for n up to MAX_CHALLENGE_COUNT.
+     */
+    private static int[][][] buildPermutations(int maxSize) {
+        int[][][] permutations = new int[maxSize + 1][][];
+        permutations[0] = new int[][]{{}};
+        for (int n = 1; n <= maxSize; n++) {
+            int[][] shorter = permutations[n - 1];
+            int[][] current = new int[shorter.length * n][];
+            int count = 0;
+            // Insert n - 1 at every position of every ordering of {0, ..., n - 2}
+            for (int[] p : shorter) {
+                for (int position = 0; position < n; position++) {
+                    int[] permutation = new int[n];
+                    for (int i = 0, j = 0; i < n; i++) {
+                        permutation[i] = (i == position) ? n - 1 : p[j++];
+                    }
+                    current[count++] = permutation;
+                }
+            }
+            permutations[n] = current;
         }
+        return permutations;
+    }
+
+    private static int getX(List<Point> response, int[] responseCoordinates, int i) {
+        return responseCoordinates != null ? responseCoordinates[2 * i] : response.get(i).x;
+    }
+
+    private static int getY(List<Point> response, int[] responseCoordinates, int i) {
+        return responseCoordinates != null ? responseCoordinates[2 * i + 1] : response.get(i).y;
     }
 }
@@ -8,6 +8,7 @@
 package com.salesforce.pixelcaptcha.dataobj;
 
 import com.salesforce.pixelcaptcha.core.GlobalConstants;
+import com.salesforce.pixelcaptcha.core.ImageColorMode;
 
 import java.awt.*;
 import java.util.List;
@@ -21,52 +22,87 @@ import java.util.List;
  * <li>Image Type</li>
  * <li>Solution for a CAPTCHA instance</li>
  * </ol>
+ * The characters are kept as GlyphArray objects. The PointProperty lists are created from them when first asked for.
  */
 public class CaptchaMetadata {
+    private GlyphArray challengeGlyphs;
+    private GlyphArray solutionOptionGlyphs;
     private List<PointProperty> challenge;
     private List<PointProperty> solutionOptions;
     private CaptchaSolution solution;
     private CaptchaDimension captchaDimension;
-    private int imageType;
+    private ImageColorMode imageColorMode;
     private Color backgroundColor;
 
     public CaptchaMetadata(List<PointProperty> challenge,
                            List<PointProperty> solutionOptions,
                            CaptchaSolution solution,
                            CaptchaDimension captchaDimension) {
+        this(toGlyphArray(challenge), toGlyphArray(solutionOptions), solution, captchaDimension);
+        this.challenge = challenge;
+        this.solutionOptions = solutionOptions;
+    }
+
+    public CaptchaMetadata(GlyphArray challengeGlyphs,
+                           GlyphArray solutionOptionGlyphs,
+                           CaptchaSolution solution,
+                           CaptchaDimension captchaDimension) {
+        this(challengeGlyphs, solutionOptionGlyphs, solution, captchaDimension, GlobalConstants.IMAGE_COLOR_MODE);
+    }
+
+    public CaptchaMetadata(GlyphArray challengeGlyphs,
+                           GlyphArray solutionOptionGlyphs,
+                           CaptchaSolution solution,
+                           CaptchaDimension captchaDimension,
+                           ImageColorMode imageColorMode) {
         super();
 
 
-        if (challenge == null || solutionOptions == null || solution == null || captchaDimension == null)
-            throw new NullPointerException("challenge, solutionOptions, solution or captchaDimension cannot be null");
+        if (challengeGlyphs == null || solutionOptionGlyphs == null || solution == null || captchaDimension == null || imageColorMode == null)
+            throw new NullPointerException("challenge, solutionOptions, solution, captchaDimension or imageColorMode cannot be null");
 
-        if (challenge.size() < GlobalConstants.MIN_CHALLENGE_COUNT ||
-                solutionOptions.size() < GlobalConstants.MIN_RESPONSE_COUNT ||
-                challenge.size() > GlobalConstants.MAX_CHALLENGE_COUNT ||
-                solutionOptions.size() > GlobalConstants.MAX_RESPONSE_COUNT
+        if (challengeGlyphs.size() < GlobalConstants.MIN_CHALLENGE_COUNT ||
+                solutionOptionGlyphs.size() < GlobalConstants.MIN_RESPONSE_COUNT ||
+                challengeGlyphs.size() > GlobalConstants.MAX_CHALLENGE_COUNT ||
+                solutionOptionGlyphs.size() > GlobalConstants.MAX_RESPONSE_COUNT
                 )
             throw new IllegalArgumentException("Either challenge count or solutionOptions count is illegal");
 
-        this.challenge = challenge;
-        this.solutionOptions = solutionOptions;
+        this.challengeGlyphs = challengeGlyphs;
+        this.solutionOptionGlyphs = solutionOptionGlyphs;
         this.solution = solution;
         this.captchaDimension = captchaDimension;
 
-//		 For now, imageType will always be set to GlobalConstants.DEFAULT_IMAGE_TYPE
-//		 if(imageType < 0)
-//			throw  new IllegalArgumentException("imageType cannot be less than 0");
-        this.imageType = GlobalConstants.DEFAULT_IMAGE_TYPE;
+        this.imageColorMode = imageColorMode;
         this.backgroundColor = Color.WHITE;
     }
 
+    private static GlyphArray toGlyphArray(List<PointProperty> pointProperties) {
+        if (pointProperties == null)
+            throw new NullPointerException("challenge, solutionOptions, solution or captchaDimension cannot be null");
+        return GlyphArray.fromPointProperties(pointProperties);
+    }
+
     public List<PointProperty> getChallenge() {
+        if (this.challenge == null)
+            this.challenge = this.challengeGlyphs.toPointProperties();
         return this.challenge;
     }
 
     public List<PointProperty> getSolutionOptions() {
+        if (this.solutionOptions == null)
+            this.solutionOptions = this.solutionOptionGlyphs.toPointProperties();
         return this.solutionOptions;
     }
 
+    public GlyphArray getChallengeGlyphs() {
+        return this.challengeGlyphs;
+    }
+
+    public GlyphArray getSolutionOptionGlyphs() {
+        return this.solutionOptionGlyphs;
+    }
+
     public CaptchaSolution getSolution() {
         return this.solution;
     }
@@ -76,7 +112,11 @@ public class CaptchaMetadata {
     }
 
     public int getImageType() {
-        return this.imageType;
+        return this.imageColorMode.getImageType();
+    }
+
+    public ImageColorMode getImageColorMode() {
+        return this.imageColorMode;
     }
 
 
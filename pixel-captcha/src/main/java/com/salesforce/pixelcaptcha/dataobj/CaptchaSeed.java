@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.dataobj;
+
+import java.util.Arrays;
+
+/**
+ * Everything needed to re-derive a CAPTCHA: the seed its random choices were drawn from and the version of the
+ * MasterConfig it was generated with.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public final class CaptchaSeed {
+    private final byte[] seed;
+    private final long configVersion;
+
+    public CaptchaSeed(byte[] seed, long configVersion) {
+        if (seed == null)
+            throw new NullPointerException("Seed cannot be null");
+        this.seed = seed.clone();
+        this.configVersion = configVersion;
+    }
+
+    public byte[] getSeed() {
+        return seed.clone();
+    }
+
+    public long getConfigVersion() {
+        return configVersion;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof CaptchaSeed))
+            return false;
+        CaptchaSeed other = (CaptchaSeed) o;
+        return configVersion == other.configVersion && Arrays.equals(seed, other.seed);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(seed) + (int) (configVersion ^ (configVersion >>> 32));
+    }
+}
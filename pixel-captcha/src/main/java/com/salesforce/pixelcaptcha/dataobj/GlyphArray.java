@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.dataobj;
+
+import com.salesforce.pixelcaptcha.dataobj.impl.PixelCaptchaPointProperty;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Point;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact form of a list of CAPTCHA characters. The properties of the characters are kept in parallel arrays: code
+ * point, x, y, untransformed font, color and the six values of the font transform.
+ * <p/>
+ * The fonts are the shared instances of the font factory, so adding a character allocates nothing. Transformed fonts,
+ * strings and PointProperty objects are only created when they are asked for.
+ * <p/>
+ * Not thread safe.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public final class GlyphArray {
+    // Number of values of an AffineTransform matrix kept for each character
+    private static final int MATRIX_SIZE = 6;
+
+    private final int[] codePoints;
+    private final int[] xs;
+    private final int[] ys;
+    private final Font[] fonts;
+    private final Color[] colors;
+    // m00, m10, m01, m11, m02 and m12 of each font transform, as in AffineTransform.getMatrix
+    private final double[] matrices;
+    private int size;
+
+    public GlyphArray(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity cannot be negative");
+
+        this.codePoints = new int[capacity];
+        this.xs = new int[capacity];
+        this.ys = new int[capacity];
+        this.fonts = new Font[capacity];
+        this.colors = new Color[capacity];
+        this.matrices = new double[capacity * MATRIX_SIZE];
+    }
+
+    /**
+     * Converts PointProperty objects with single character strings into the compact form.
+     */
+    public static GlyphArray fromPointProperties(List<PointProperty> pointProperties) {
+        if (pointProperties == null)
+            throw new NullPointerException("PointProperty list cannot be null");
+
+        GlyphArray glyphs = new GlyphArray(pointProperties.size());
+        AffineTransform identity = new AffineTransform();
+        for (PointProperty pp : pointProperties) {
+            Font font = pp.getFont();
+            glyphs.add(pp.getStringToWrite().codePointAt(0), pp.getPoint().x, pp.getPoint().y,
+                    font.isTransformed() ? font.deriveFont(identity) : font, font.getTransform(), pp.getColor());
+        }
+        return glyphs;
+    }
+
+    /**
+     * @param codePoint code point of the character
+     * @param x         x coordinate of the baseline origin
+     * @param y         y coordinate of the baseline origin
+     * @param font      untransformed font. It is kept as is.
+     * @param transform font transform. Its values are copied.
+     * @param color     color of the character
+     * @return index of the new character
+     */
+    public int add(int codePoint, int x, int y, Font font, AffineTransform transform, Color color) {
+        if (font == null || transform == null || color == null)
+            throw new NullPointerException("Font, transform and color cannot be null");
+        if (size == codePoints.length)
+            throw new IllegalStateException("GlyphArray is full");
+
+        int i = size++;
+        codePoints[i] = codePoint;
+        xs[i] = x;
+        ys[i] = y;
+        fonts[i] = font;
+        colors[i] = color;
+        int m = i * MATRIX_SIZE;
+        matrices[m] = transform.getScaleX();
+        matrices[m + 1] = transform.getShearY();
+        matrices[m + 2] = transform.getShearX();
+        matrices[m + 3] = transform.getScaleY();
+        matrices[m + 4] = transform.getTranslateX();
+        matrices[m + 5] = transform.getTranslateY();
+        return i;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCodePoint(int i) {
+        checkIndex(i);
+        return codePoints[i];
+    }
+
+    public int getX(int i) {
+        checkIndex(i);
+        return xs[i];
+    }
+
+    public int getY(int i) {
+        checkIndex(i);
+        return ys[i];
+    }
+
+    public void setPoint(int i, int x, int y) {
+        checkIndex(i);
+        xs[i] = x;
+        ys[i] = y;
+    }
+
+    /**
+     * @return the untransformed font of the character
+     */
+    public Font getBaseFont(int i) {
+        checkIndex(i);
+        return fonts[i];
+    }
+
+    public int getFontSize(int i) {
+        checkIndex(i);
+        return fonts[i].getSize();
+    }
+
+    public Color getColor(int i) {
+        checkIndex(i);
+        return colors[i];
+    }
+
+    /**
+     * Copies the font transform of the character into dest, so that a caller can reuse one AffineTransform.
+     *
+     * @return dest
+     */
+    public AffineTransform getTransform(int i, AffineTransform dest) {
+        checkIndex(i);
+        if (dest == null)
+            throw new NullPointerException("Destination transform cannot be null");
+        int m = i * MATRIX_SIZE;
+        dest.setTransform(matrices[m], matrices[m + 1], matrices[m + 2], matrices[m + 3], matrices[m + 4], matrices[m + 5]);
+        return dest;
+    }
+
+    /**
+     * @return rotation of the font transform in degrees
+     */
+    public double getRotation(int i) {
+        checkIndex(i);
+        int m = i * MATRIX_SIZE;
+        return Math.toDegrees(Math.atan2(matrices[m + 1], matrices[m + 3]));
+    }
+
+    /**
+     * @return a new font with the transform of the character applied
+     */
+    public Font getFont(int i) {
+        return getBaseFont(i).deriveFont(getTransform(i, new AffineTransform()));
+    }
+
+    public String getString(int i) {
+        return new String(Character.toChars(getCodePoint(i)));
+    }
+
+    public PointProperty getPointProperty(int i) {
+        return new PixelCaptchaPointProperty(getString(i), new Point(getX(i), getY(i)), getFont(i), getColor(i));
+    }
+
+    public List<PointProperty> toPointProperties() {
+        List<PointProperty> pointProperties = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            pointProperties.add(getPointProperty(i));
+        }
+        return pointProperties;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index " + i + " is not between 0 and " + (size - 1));
+    }
+}
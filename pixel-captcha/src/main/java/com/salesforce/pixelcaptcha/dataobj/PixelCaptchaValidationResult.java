@@ -7,16 +7,28 @@
 package com.salesforce.pixelcaptcha.dataobj;
 
 import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.salesforce.pixelcaptcha.interfaces.ValidationResult;
 
+import java.io.IOException;
+
 /**
  * @author Gursev Singh Kalra @ Salesforce.com
  */
+@JsonAdapter(PixelCaptchaValidationResult.JsonForm.class)
 public class PixelCaptchaValidationResult implements ValidationResult {
     private boolean positive;
     private int responseCode;
     private String responseDetails;
 
+    // Inputs for the deviation message. The JSON form carries the message itself.
+    private boolean deviationDetails;
+    private double maxDeviation;
+    private int actualDeviation;
+
 
     public PixelCaptchaValidationResult(boolean positive, int responseCode, String responseDetails) {
         this.positive = positive;
@@ -24,6 +36,24 @@ public class PixelCaptchaValidationResult implements ValidationResult {
         this.responseDetails = responseDetails;
     }
 
+    /**
+     * Creates a result whose details describe the permitted and the actual deviation. The message is only formatted
+     * when getResponseDetails() is called or the result is converted to JSON, so the verification path does not pay
+     * for it.
+     *
+     * @param positive        true if the solution is accepted
+     * @param responseCode    response code
+     * @param maxDeviation    maximum permissible deviation
+     * @param actualDeviation deviation of the response from the solution
+     */
+    public PixelCaptchaValidationResult(boolean positive, int responseCode, double maxDeviation, int actualDeviation) {
+        this.positive = positive;
+        this.responseCode = responseCode;
+        this.deviationDetails = true;
+        this.maxDeviation = maxDeviation;
+        this.actualDeviation = actualDeviation;
+    }
+
     @Override
     public boolean isPositive() {
         return this.positive;
@@ -36,6 +66,9 @@ public class PixelCaptchaValidationResult implements ValidationResult {
 
     @Override
     public String getResponseDetails() {
+        if (this.responseDetails == null && this.deviationDetails) {
+            this.responseDetails = "Maximum permissible deviation = " + String.format("%.2f", this.maxDeviation) + ", actual value = " + this.actualDeviation;
+        }
         return this.responseDetails;
     }
 
@@ -44,4 +77,47 @@ public class PixelCaptchaValidationResult implements ValidationResult {
         Gson gson = new Gson();
         return gson.toJson(this);
     }
+
+    /**
+     * Writes positive, responseCode and responseDetails through the getters, so that any Gson instance serializing a
+     * result, directly or inside another object, gets the deviation message.
+     */
+    static final class JsonForm extends TypeAdapter<PixelCaptchaValidationResult> {
+        @Override
+        public void write(JsonWriter out, PixelCaptchaValidationResult result) throws IOException {
+            if (result == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("positive").value(result.isPositive());
+            out.name("responseCode").value(result.getResponseCode());
+            String responseDetails = result.getResponseDetails();
+            if (responseDetails != null)
+                out.name("responseDetails").value(responseDetails);
+            out.endObject();
+        }
+
+        @Override
+        public PixelCaptchaValidationResult read(JsonReader in) throws IOException {
+            boolean positive = false;
+            int responseCode = 0;
+            String responseDetails = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if ("positive".equals(name)) {
+                    positive = in.nextBoolean();
+                } else if ("responseCode".equals(name)) {
+                    responseCode = in.nextInt();
+                } else if ("responseDetails".equals(name)) {
+                    responseDetails = in.nextString();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new PixelCaptchaValidationResult(positive, responseCode, responseDetails);
+        }
+    }
 }
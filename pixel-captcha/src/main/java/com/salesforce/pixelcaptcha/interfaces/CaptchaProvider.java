@@ -7,7 +7,13 @@
 
 package com.salesforce.pixelcaptcha.interfaces;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * This is the Interface that CAPTCHA provider will implement.
@@ -56,6 +62,41 @@ public interface CaptchaProvider {
      */
     public Captcha getCaptcha();
 
+    /**
+     * Generates a batch of CAPTCHAs, in parallel where the provider supports it. The default implementation calls
+     * getCaptcha() count times.
+     *
+     * @param count number of CAPTCHAs
+     * @return the CAPTCHA Objects
+     */
+    public default List<Captcha> getCaptchas(int count) {
+        if (count <= 0)
+            throw new IllegalArgumentException("CAPTCHA count must be greater than 0");
+        List<Captcha> captchas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            captchas.add(getCaptcha());
+        }
+        return captchas;
+    }
+
+    /**
+     * Generates count CAPTCHAs in batches of batchSize and passes each of them to the consumer as its batch completes.
+     * The default implementation generates and passes on one CAPTCHA at a time.
+     *
+     * @param count     number of CAPTCHAs
+     * @param batchSize number of CAPTCHAs generated together
+     * @param consumer  receives the CAPTCHA Objects
+     */
+    public default void getCaptchas(int count, int batchSize, Consumer<? super Captcha> consumer) {
+        if (consumer == null)
+            throw new NullPointerException("Consumer cannot be null");
+        if (count <= 0 || batchSize <= 0)
+            throw new IllegalArgumentException("CAPTCHA count and batch size must be greater than 0");
+        for (int i = 0; i < count; i++) {
+            consumer.accept(getCaptcha());
+        }
+    }
+
     /**
      * Verifies a CAPTCHA response
      *
@@ -64,4 +105,64 @@ public interface CaptchaProvider {
      * @return
      */
     public ValidationResult verify(String captchaIdentifier, String response);
+
+    /**
+     * Generates a CAPTCHA on a render thread owned by the provider. The default implementation runs getCaptcha() on
+     * the common fork/join pool.
+     *
+     * @return future completed with the CAPTCHA Object
+     */
+    public default CompletableFuture<Captcha> getCaptchaAsync() {
+        return CompletableFuture.supplyAsync(this::getCaptcha);
+    }
+
+    /**
+     * Generates a CAPTCHA on a render thread owned by the provider. The default implementation does not enforce the
+     * timeout and behaves as getCaptchaAsync().
+     *
+     * @param timeout time after which the future fails with a TimeoutException. 0 or less means no timeout.
+     * @param unit    unit of the timeout
+     * @return future completed with the CAPTCHA Object
+     */
+    public default CompletableFuture<Captcha> getCaptchaAsync(long timeout, TimeUnit unit) {
+        return getCaptchaAsync();
+    }
+
+    /**
+     * Generates a CAPTCHA on the supplied executor
+     *
+     * @param executor runs the generation
+     * @return future completed with the CAPTCHA Object
+     */
+    public default CompletableFuture<Captcha> getCaptchaAsync(Executor executor) {
+        if (executor == null)
+            throw new NullPointerException("Executor cannot be null");
+        return CompletableFuture.supplyAsync(this::getCaptcha, executor);
+    }
+
+    /**
+     * Verifies a CAPTCHA response on a thread owned by the provider. The default implementation runs verify() on the
+     * common fork/join pool.
+     *
+     * @param captchaIdentifier - Unique identifier of the CAPTCHA provider
+     * @param response          - The response string sent by the client
+     * @return future completed with the validation result
+     */
+    public default CompletableFuture<ValidationResult> verifyAsync(String captchaIdentifier, String response) {
+        return CompletableFuture.supplyAsync(() -> verify(captchaIdentifier, response));
+    }
+
+    /**
+     * Verifies a CAPTCHA response on a thread owned by the provider. The default implementation does not enforce the
+     * timeout and behaves as verifyAsync(captchaIdentifier, response).
+     *
+     * @param captchaIdentifier - Unique identifier of the CAPTCHA provider
+     * @param response          - The response string sent by the client
+     * @param timeout           - Time after which the future fails with a TimeoutException. 0 or less means no timeout.
+     * @param unit              - Unit of the timeout
+     * @return future completed with the validation result
+     */
+    public default CompletableFuture<ValidationResult> verifyAsync(String captchaIdentifier, String response, long timeout, TimeUnit unit) {
+        return verifyAsync(captchaIdentifier, response);
+    }
 }
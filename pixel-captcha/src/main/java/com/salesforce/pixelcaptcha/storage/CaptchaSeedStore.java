@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.storage;
+
+import com.google.common.base.Optional;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaSeed;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementations of this interface store the seed of each CAPTCHA instead of its solution. The image and the
+ * solution are derived again from the seed whenever they are needed.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public interface CaptchaSeedStore {
+    String storeCaptchaSeed(CaptchaSeed seed);
+
+    /**
+     * Stores a batch of seeds. The default implementation stores them one at a time; implementations override it
+     * with a bulk operation.
+     *
+     * @return the identifiers, in the order of the seeds
+     */
+    default List<String> storeCaptchaSeeds(List<CaptchaSeed> seeds) {
+        if (seeds == null)
+            throw new NullPointerException("CAPTCHA seeds cannot be null");
+        List<String> identifiers = new ArrayList<>(seeds.size());
+        for (CaptchaSeed seed : seeds) {
+            identifiers.add(storeCaptchaSeed(seed));
+        }
+        return identifiers;
+    }
+
+    /**
+     * Looks up a seed without removing it, for example to render the CAPTCHA image again.
+     */
+    Optional<CaptchaSeed> getCaptchaSeed(String identifier);
+
+    /**
+     * Looks up and removes a seed. A CAPTCHA is verified only once.
+     */
+    Optional<CaptchaSeed> removeCaptchaSeed(String identifier);
+
+    long getSize();
+}
@@ -9,6 +9,9 @@ package com.salesforce.pixelcaptcha.storage;
 import com.google.common.base.Optional;
 import com.salesforce.pixelcaptcha.dataobj.CaptchaSolution;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Implementations of this interface actually store the response coordinates to the CAPTCHA.
  *
@@ -17,6 +20,23 @@ import com.salesforce.pixelcaptcha.dataobj.CaptchaSolution;
 public interface CaptchaSolutionStore {
     String storeCaptchaSolution(CaptchaSolution solution);
 
+    /**
+     * Stores a batch of solutions. The default implementation stores them one at a time; implementations override it
+     * with a bulk operation.
+     *
+     * @param solutions solutions to store
+     * @return the identifiers, in the order of the solutions
+     */
+    default List<String> storeCaptchaSolutions(List<CaptchaSolution> solutions) {
+        if (solutions == null)
+            throw new NullPointerException("CAPTCHA solutions cannot be null");
+        List<String> identifiers = new ArrayList<>(solutions.size());
+        for (CaptchaSolution solution : solutions) {
+            identifiers.add(storeCaptchaSolution(solution));
+        }
+        return identifiers;
+    }
+
     Optional<CaptchaSolution> getCaptchaSolution(String identifier);
 
     long getSize();
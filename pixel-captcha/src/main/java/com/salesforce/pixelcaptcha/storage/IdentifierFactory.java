@@ -7,6 +7,10 @@
 
 package com.salesforce.pixelcaptcha.storage;
 
+import com.salesforce.pixelcaptcha.utils.RandomSource;
+import com.salesforce.pixelcaptcha.utils.impl.ChaCha20RandomSource;
+
+import java.nio.ByteBuffer;
 import java.util.UUID;
 
 /**
@@ -14,6 +18,24 @@ import java.util.UUID;
  */
 public class IdentifierFactory {
     public static String getInstance() {
-        return UUID.randomUUID().toString();
+        return getRandomUUID(ChaCha20RandomSource.getInstance()).toString();
+    }
+
+    /**
+     * Returns a version 4 UUID built from 16 bytes of randomSource, the same format as UUID.randomUUID.
+     *
+     * @param randomSource source of the random bits
+     * @return random UUID
+     */
+    public static UUID getRandomUUID(RandomSource randomSource) {
+        if (randomSource == null)
+            throw new NullPointerException("Random source cannot be null");
+
+        byte[] bytes = new byte[16];
+        randomSource.nextBytes(bytes);
+        bytes[6] = (byte) ((bytes[6] & 0x0f) | 0x40); // version 4
+        bytes[8] = (byte) ((bytes[8] & 0x3f) | 0x80); // IETF variant
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
     }
 }
@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.storage.impl;
+
+import com.google.common.base.Optional;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaSolution;
+import com.salesforce.pixelcaptcha.dataobj.impl.PixelCaptchaSolution;
+import com.salesforce.pixelcaptcha.storage.CaptchaSolutionStore;
+import com.salesforce.pixelcaptcha.storage.IdentifierFactory;
+import com.salesforce.pixelcaptcha.utils.impl.ChaCha20RandomSource;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A CaptchaSolutionStore that keeps every solution as a fixed width record in primitive arrays.
+ * <p/>
+ * A record holds the 128 bit identifier, up to MAX_POINTS coordinate pairs as shorts, the maximum deviation as a
+ * float, the point count and ordered flag, and the expiry time in seconds. That is 41 bytes per slot, and the arrays
+ * are allocated once, so a million outstanding CAPTCHAs take about 55 MB and the stored solutions create no garbage.
+ * <p/>
+ * The identifiers are random UUIDs, the same format as IdentifierFactory. The records are spread over segments
+ * that are locked independently. Each segment is an open addressing hash table with linear probing. When the store
+ * or a segment is full, expired records are dropped first. If none expired, the record expiring first out of a small
+ * sample that starts at a random slot is evicted. Like PixelCaptchaSolutionStore, a solution can be read only once.
+ * <p/>
+ * Solutions with more than MAX_POINTS points or coordinates outside the short range are rejected with an
+ * IllegalArgumentException.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class CompactCaptchaSolutionStore implements CaptchaSolutionStore {
+
+    public static final int DEFAULT_SIZE = PixelCaptchaSolutionStore.DEFAULT_SIZE;
+    public static final int DEFAULT_TIMEOUT = PixelCaptchaSolutionStore.DEFAULT_TIMEOUT;
+
+    public static final int MIN_TIMEOUT = PixelCaptchaSolutionStore.MIN_TIMEOUT;
+    public static final int MAX_TIMEOUT = PixelCaptchaSolutionStore.MAX_TIMEOUT;
+
+    public static final int MIN_SIZE = PixelCaptchaSolutionStore.MIN_SIZE;
+    public static final int MAX_POINTS = 4; // GlobalConstants.MAX_CHALLENGE_COUNT
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+    private static CompactCaptchaSolutionStore INSTANCE = null;
+
+    private final Segment[] segments;
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxSize;
+    private final int timeoutInSecs;
+    private final long startNanos = System.nanoTime();
+
+    public CompactCaptchaSolutionStore(int size, int timeoutInSecs) {
+        if (size < MIN_SIZE)
+            throw new IllegalArgumentException("The store size cannot be less than " + MIN_SIZE);
+        if (timeoutInSecs < MIN_TIMEOUT || timeoutInSecs > MAX_TIMEOUT)
+            throw new IllegalArgumentException("The store entry timeout cannot be less than " + MIN_TIMEOUT + " or greater than " + MAX_TIMEOUT);
+
+        this.maxSize = size;
+        this.timeoutInSecs = timeoutInSecs;
+
+        // A power of two that is not larger than size, so that every segment holds at least one record
+        int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(size));
+        // The identifiers are random, so the segments fill unevenly. The headroom of four standard deviations lets the
+        // store reach its size before a single segment runs out of room.
+        int averageEntries = (size + segmentCount - 1) / segmentCount;
+        int maxEntries = Math.min(size, averageEntries + 4 * (int) Math.ceil(Math.sqrt(averageEntries)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxEntries, this.size);
+        }
+    }
+
+    public static CompactCaptchaSolutionStore getInstance() {
+        return CompactCaptchaSolutionStore.getInstance(DEFAULT_SIZE, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Only one INSTANCE of the compact CAPTCHA store.
+     *
+     * @param size
+     * @param timeoutInSecs
+     * @return
+     */
+    public static synchronized CompactCaptchaSolutionStore getInstance(int size, int timeoutInSecs) {
+        if (INSTANCE == null) {
+            INSTANCE = new CompactCaptchaSolutionStore(size, timeoutInSecs);
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    public String storeCaptchaSolution(CaptchaSolution solution) {
+        List<Point> points = checkSolution(solution);
+
+        UUID uuid = IdentifierFactory.getRandomUUID(ChaCha20RandomSource.getInstance());
+        long hi = uuid.getMostSignificantBits();
+        long lo = uuid.getLeastSignificantBits();
+        long now = nowMillis();
+        int expiry = getExpiry(now);
+        Segment segment = getSegment(hi);
+        reserve(segment, now);
+        segment.put(hi, lo, solution, points, expiry, now);
+
+        return uuid.toString();
+    }
+
+    /**
+     * The records are grouped by segment so that each segment lock is taken once for the whole batch.
+     */
+    @Override
+    public List<String> storeCaptchaSolutions(List<CaptchaSolution> solutions) {
+        if (solutions == null)
+            throw new NullPointerException("CAPTCHA solutions cannot be null");
+
+        int count = solutions.size();
+        List<List<Point>> points = new ArrayList<>(count);
+        for (CaptchaSolution solution : solutions) {
+            points.add(checkSolution(solution));
+        }
+
+        long[] hi = new long[count];
+        long[] lo = new long[count];
+        List<String> identifiers = new ArrayList<>(count);
+        // Counting sort of the record positions by segment
+        int[] segmentStart = new int[segments.length + 1];
+        for (int i = 0; i < count; i++) {
+            UUID uuid = IdentifierFactory.getRandomUUID(ChaCha20RandomSource.getInstance());
+            hi[i] = uuid.getMostSignificantBits();
+            lo[i] = uuid.getLeastSignificantBits();
+            identifiers.add(uuid.toString());
+            segmentStart[getSegmentIndex(hi[i]) + 1]++;
+        }
+        for (int s = 0; s < segments.length; s++) {
+            segmentStart[s + 1] += segmentStart[s];
+        }
+        int[] order = new int[count];
+        int[] next = segmentStart.clone();
+        for (int i = 0; i < count; i++) {
+            order[next[getSegmentIndex(hi[i])]++] = i;
+        }
+
+        long now = nowMillis();
+        int expiry = getExpiry(now);
+        for (int s = 0; s < segments.length; s++) {
+            int from = segmentStart[s];
+            int to = segmentStart[s + 1];
+            if (from == to)
+                continue;
+            // Makes room outside the segment lock since eviction may visit the other segments
+            for (int i = from; i < to; i++) {
+                reserve(segments[s], now);
+            }
+            segments[s].putAll(hi, lo, solutions, points, order, from, to, expiry, now);
+        }
+        return identifiers;
+    }
+
+    private static List<Point> checkSolution(CaptchaSolution solution) {
+        if (solution == null)
+            throw new NullPointerException("CAPTCHA solution cannot be null");
+
+        List<Point> points = solution.getPoints();
+        if (points.size() > MAX_POINTS)
+            throw new IllegalArgumentException("The compact store cannot hold solutions with more than " + MAX_POINTS + " points");
+        for (Point p : points) {
+            if (p.x < Short.MIN_VALUE || p.x > Short.MAX_VALUE || p.y < Short.MIN_VALUE || p.y > Short.MAX_VALUE)
+                throw new IllegalArgumentException("Solution coordinates must be within the short range");
+        }
+        return points;
+    }
+
+    private int getExpiry(long now) {
+        // Round up so that a record lives for at least timeoutInSecs
+        return (int) ((now + TimeUnit.SECONDS.toMillis(timeoutInSecs) + 999) / 1000);
+    }
+
+    @Override
+    public Optional<CaptchaSolution> getCaptchaSolution(String identifier) {
+        if (identifier == null)
+            throw new NullPointerException("CAPTCHA identifier cannot be null");
+
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(identifier);
+        } catch (IllegalArgumentException e) {
+            // Not issued by this store
+            return Optional.absent();
+        }
+        long hi = uuid.getMostSignificantBits();
+        long lo = uuid.getLeastSignificantBits();
+        return getSegment(hi).remove(hi, lo, nowMillis());
+    }
+
+    @Override
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Counts a record before it is put, making room until the count fits in the store. Checking the size and putting
+     * the record separately would let concurrent stores pass the check together and overfill the store.
+     */
+    private void reserve(Segment preferred, long now) {
+        while (size.incrementAndGet() > maxSize) {
+            size.decrementAndGet();
+            makeRoom(preferred, now);
+        }
+    }
+
+    /**
+     * Removes at least one record, preferably from the segment that is about to receive a new one.
+     */
+    private void makeRoom(Segment preferred, long now) {
+        if (preferred.evict(now))
+            return;
+        for (Segment segment : segments) {
+            if (segment != preferred && segment.evict(now))
+                return;
+        }
+    }
+
+    private Segment getSegment(long hi) {
+        return segments[getSegmentIndex(hi)];
+    }
+
+    private int getSegmentIndex(long hi) {
+        // The low 12 bits of the most significant half of a random UUID are random
+        return (int) hi & (segments.length - 1);
+    }
+
+    private long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * One lock, one hash table. A slot is either empty or holds a record; removals shift the following records of
+     * the probe sequence back so that no tombstones are needed.
+     */
+    private static final class Segment {
+        private static final byte OCCUPIED = (byte) 0x80;
+        private static final byte ORDERED = 0x40;
+        private static final byte COUNT_MASK = 0x0F;
+
+        private final int maxEntries;
+        private final AtomicInteger storeSize;
+        private final int capacity;
+        private final long[] keyHi;
+        private final long[] keyLo;
+        private final short[] coordinates;
+        private final float[] maxDeviation;
+        private final byte[] flags;
+        private final int[] expiry;
+        private int size;
+        // No record expires before this second
+        private int earliestExpiry = Integer.MAX_VALUE;
+
+        Segment(int maxEntries, AtomicInteger storeSize) {
+            this.maxEntries = maxEntries;
+            this.storeSize = storeSize;
+            // Keeps the load factor at or below 0.75
+            this.capacity = maxEntries + maxEntries / 3 + 1;
+            this.keyHi = new long[capacity];
+            this.keyLo = new long[capacity];
+            this.coordinates = new short[capacity * MAX_POINTS * 2];
+            this.maxDeviation = new float[capacity];
+            this.flags = new byte[capacity];
+            this.expiry = new int[capacity];
+        }
+
+        /**
+         * Puts a record that the caller has already counted in the store size.
+         */
+        synchronized void put(long hi, long lo, CaptchaSolution solution, List<Point> points, int expiresAt, long now) {
+            if (size >= maxEntries)
+                evict(now);
+
+            int slot = home(lo);
+            while (flags[slot] != 0)
+                slot = next(slot);
+
+            keyHi[slot] = hi;
+            keyLo[slot] = lo;
+            int base = slot * MAX_POINTS * 2;
+            for (int i = 0; i < points.size(); i++) {
+                Point p = points.get(i);
+                coordinates[base + 2 * i] = (short) p.x;
+                coordinates[base + 2 * i + 1] = (short) p.y;
+            }
+            maxDeviation[slot] = (float) solution.getMaxDeviation();
+            flags[slot] = (byte) (OCCUPIED | (solution.isOrdered() ? ORDERED : 0) | points.size());
+            expiry[slot] = expiresAt;
+            earliestExpiry = Math.min(earliestExpiry, expiresAt);
+            size++;
+        }
+
+        /**
+         * Puts the records at order[from .. to - 1] under a single acquisition of the segment lock.
+         */
+        synchronized void putAll(long[] hi, long[] lo, List<CaptchaSolution> solutions, List<List<Point>> points,
+                                 int[] order, int from, int to, int expiresAt, long now) {
+            for (int i = from; i < to; i++) {
+                int record = order[i];
+                put(hi[record], lo[record], solutions.get(record), points.get(record), expiresAt, now);
+            }
+        }
+
+        /**
+         * Removes the expired records, or one record if none expired.
+         *
+         * @return false if the segment is empty
+         */
+        synchronized boolean evict(long now) {
+            if (size == 0)
+                return false;
+            int sizeBefore = size;
+            if (now >= earliestExpiry * 1000L)
+                removeExpired(now);
+            if (size == sizeBefore)
+                evictOne();
+            return true;
+        }
+
+        synchronized Optional<CaptchaSolution> remove(long hi, long lo, long now) {
+            int slot = home(lo);
+            while (flags[slot] != 0) {
+                if (keyLo[slot] == lo && keyHi[slot] == hi) {
+                    Optional<CaptchaSolution> result = isExpired(slot, now) ? Optional.<CaptchaSolution>absent() : Optional.of(decode(slot));
+                    delete(slot);
+                    return result;
+                }
+                slot = next(slot);
+            }
+            return Optional.absent();
+        }
+
+        private CaptchaSolution decode(int slot) {
+            int count = flags[slot] & COUNT_MASK;
+            List<Point> points = new ArrayList<>(count);
+            int base = slot * MAX_POINTS * 2;
+            for (int i = 0; i < count; i++)
+                points.add(new Point(coordinates[base + 2 * i], coordinates[base + 2 * i + 1]));
+            return new PixelCaptchaSolution(points, maxDeviation[slot], (flags[slot] & ORDERED) != 0);
+        }
+
+        private boolean isExpired(int slot, long now) {
+            return now >= expiry[slot] * 1000L;
+        }
+
+        private void removeExpired(long now) {
+            int remainingEarliestExpiry = Integer.MAX_VALUE;
+            int slot = 0;
+            while (slot < capacity) {
+                // delete() may move another record into this slot, so the slot is checked again
+                if (flags[slot] != 0 && isExpired(slot, now)) {
+                    delete(slot);
+                } else {
+                    if (flags[slot] != 0)
+                        remainingEarliestExpiry = Math.min(remainingEarliestExpiry, expiry[slot]);
+                    slot++;
+                }
+            }
+            earliestExpiry = remainingEarliestExpiry;
+        }
+
+        /**
+         * Evicts the record that expires first among the few records that follow a random slot. The keys are random,
+         * so the position of a record says nothing about its age. All records share the same timeout, so this
+         * approximates evicting the oldest record. The scan visits every slot at most once.
+         */
+        private void evictOne() {
+            int slot = ThreadLocalRandom.current().nextInt(capacity);
+            int victim = -1;
+            int sampled = 0;
+            for (int visited = 0; visited < capacity && sampled < EVICTION_SAMPLE_SIZE; visited++) {
+                if (flags[slot] != 0) {
+                    if (victim == -1 || expiry[slot] < expiry[victim])
+                        victim = slot;
+                    sampled++;
+                }
+                slot = next(slot);
+            }
+            delete(victim);
+        }
+
+        /**
+         * Backward shift deletion for linear probing.
+         */
+        private void delete(int slot) {
+            int hole = slot;
+            int current = next(slot);
+            while (flags[current] != 0) {
+                int home = home(keyLo[current]);
+                // Move the record into the hole unless its home lies cyclically in (hole, current]
+                boolean stays = hole <= current ? (hole < home && home <= current) : (hole < home || home <= current);
+                if (!stays) {
+                    move(current, hole);
+                    hole = current;
+                }
+                current = next(current);
+            }
+            flags[hole] = 0;
+            size--;
+            storeSize.decrementAndGet();
+        }
+
+        private void move(int from, int to) {
+            keyHi[to] = keyHi[from];
+            keyLo[to] = keyLo[from];
+            System.arraycopy(coordinates, from * MAX_POINTS * 2, coordinates, to * MAX_POINTS * 2, MAX_POINTS * 2);
+            maxDeviation[to] = maxDeviation[from];
+            flags[to] = flags[from];
+            expiry[to] = expiry[from];
+        }
+
+        private int home(long lo) {
+            return (int) ((lo & Long.MAX_VALUE) % capacity);
+        }
+
+        private int next(int slot) {
+            return slot + 1 == capacity ? 0 : slot + 1;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.storage.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaSeed;
+import com.salesforce.pixelcaptcha.storage.CaptchaSeedStore;
+import com.salesforce.pixelcaptcha.storage.IdentifierFactory;
+
+/**
+ * Keeps about 40 bytes of payload per CAPTCHA, the seed and the config version, instead of the solution points.
+ * Entries expire a fixed time after they are written, so re-rendering an image does not extend the CAPTCHA lifetime.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class PixelCaptchaSeedStore implements CaptchaSeedStore {
+
+    private final Cache<String, CaptchaSeed> seedStore;
+
+    public static final int DEFAULT_SIZE = PixelCaptchaSolutionStore.DEFAULT_SIZE;
+    public static final int DEFAULT_TIMEOUT = PixelCaptchaSolutionStore.DEFAULT_TIMEOUT;
+
+    private static PixelCaptchaSeedStore INSTANCE = null;
+
+    public PixelCaptchaSeedStore(int size, int timeoutInSecs) {
+        if (size < PixelCaptchaSolutionStore.MIN_SIZE)
+            throw new IllegalArgumentException("The cache size cannot be less than " + PixelCaptchaSolutionStore.MIN_SIZE);
+        if (timeoutInSecs < PixelCaptchaSolutionStore.MIN_TIMEOUT || timeoutInSecs > PixelCaptchaSolutionStore.MAX_TIMEOUT)
+            throw new IllegalArgumentException("The cache entry timeout cannot be less than " + PixelCaptchaSolutionStore.MIN_TIMEOUT
+                    + " or greater than " + PixelCaptchaSolutionStore.MAX_TIMEOUT);
+
+        seedStore = CacheBuilder.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(timeoutInSecs, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public static PixelCaptchaSeedStore getInstance() {
+        return PixelCaptchaSeedStore.getInstance(DEFAULT_SIZE, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Only one INSTANCE of the seed store.
+     */
+    public static synchronized PixelCaptchaSeedStore getInstance(int size, int timeoutInSecs) {
+        if (INSTANCE == null) {
+            INSTANCE = new PixelCaptchaSeedStore(size, timeoutInSecs);
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    public String storeCaptchaSeed(CaptchaSeed seed) {
+        if (seed == null)
+            throw new NullPointerException("CAPTCHA seed cannot be null");
+
+        String identifier = IdentifierFactory.getInstance();
+        seedStore.put(identifier, seed);
+        return identifier;
+    }
+
+    @Override
+    public List<String> storeCaptchaSeeds(List<CaptchaSeed> seeds) {
+        if (seeds == null)
+            throw new NullPointerException("CAPTCHA seeds cannot be null");
+
+        Map<String, CaptchaSeed> entries = new LinkedHashMap<>();
+        for (CaptchaSeed seed : seeds) {
+            if (seed == null)
+                throw new NullPointerException("CAPTCHA seed cannot be null");
+            entries.put(IdentifierFactory.getInstance(), seed);
+        }
+        seedStore.putAll(entries);
+        return new ArrayList<>(entries.keySet());
+    }
+
+    @Override
+    public Optional<CaptchaSeed> getCaptchaSeed(String identifier) {
+        if (identifier == null)
+            throw new NullPointerException("CAPTCHA identifier cannot be null");
+        return Optional.fromNullable(seedStore.getIfPresent(identifier));
+    }
+
+    @Override
+    public Optional<CaptchaSeed> removeCaptchaSeed(String identifier) {
+        if (identifier == null)
+            throw new NullPointerException("CAPTCHA identifier cannot be null");
+        // asMap().remove is atomic, so two concurrent verifications of the same CAPTCHA cannot both see the seed
+        return Optional.fromNullable(seedStore.asMap().remove(identifier));
+    }
+
+    @Override
+    public long getSize() {
+        return seedStore.size();
+    }
+}
@@ -7,6 +7,10 @@
 
 package com.salesforce.pixelcaptcha.storage.impl;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import com.salesforce.pixelcaptcha.dataobj.CaptchaSolution;
@@ -81,6 +85,21 @@ public class PixelCaptchaSolutionStore implements CaptchaSolutionStore {
         return identifier;
     }
 
+    @Override
+    public List<String> storeCaptchaSolutions(List<CaptchaSolution> solutions) {
+        if (solutions == null)
+            throw new NullPointerException("CAPTCHA solutions cannot be null");
+
+        Map<String, Optional<CaptchaSolution>> entries = new LinkedHashMap<>();
+        for (CaptchaSolution solution : solutions) {
+            if (solution == null)
+                throw new NullPointerException("CAPTCHA solution cannot be null");
+            entries.put(IdentifierFactory.getInstance(), Optional.of(solution));
+        }
+        solutionStore.putAll(entries);
+        return new ArrayList<>(entries.keySet());
+    }
+
     @Override
     public Optional<CaptchaSolution> getCaptchaSolution(String identifier) {
         if (identifier == null)
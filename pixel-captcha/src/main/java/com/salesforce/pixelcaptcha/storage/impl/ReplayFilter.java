@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.storage.impl;
+
+import java.util.Arrays;
+
+/**
+ * Remembers which random 64 bit token ids have been used during the last one to two time windows.
+ * <p/>
+ * Two Bloom filters take turns. Ids are added to the current filter and looked up in both. When a window has passed,
+ * the older filter is cleared and becomes the current one. With a window at least as long as the token lifetime,
+ * every id is remembered until its token has expired. The memory use is fixed by the expected number of ids per
+ * window. A false positive rejects an unused token, which happens for roughly 1 in 1000 ids at the expected load.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+class ReplayFilter {
+    private static final int BITS_PER_ENTRY = 16;
+    private static final int HASH_COUNT = 8;
+
+    private final long windowMillis;
+    private final int bitCount;
+    private long[] current;
+    private long[] previous;
+    private long windowEnd;
+
+    /**
+     * @param expectedEntries expected number of ids added per window
+     * @param windowMillis    length of a window
+     */
+    ReplayFilter(int expectedEntries, long windowMillis) {
+        if (expectedEntries <= 0 || windowMillis <= 0)
+            throw new IllegalArgumentException("Expected entries and window length must be positive");
+
+        long bits = Math.max((long) expectedEntries * BITS_PER_ENTRY, Long.SIZE);
+        // Bounded so that the bit index fits an int
+        this.bitCount = (int) Math.min(bits, 1L << 30);
+        this.windowMillis = windowMillis;
+        this.current = new long[(bitCount + Long.SIZE - 1) / Long.SIZE];
+        this.previous = new long[current.length];
+    }
+
+    /**
+     * Adds the id to the filter.
+     *
+     * @param id        random token id
+     * @param nowMillis current time
+     * @return false if the id may have been added before
+     */
+    synchronized boolean add(long id, long nowMillis) {
+        rotate(nowMillis);
+        if (contains(current, id) || contains(previous, id))
+            return false;
+
+        int h1 = (int) id;
+        int h2 = (int) (id >>> 32);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = index(h1 + i * h2);
+            current[bit >>> 6] |= 1L << bit;
+        }
+        return true;
+    }
+
+    private void rotate(long nowMillis) {
+        if (windowEnd == 0) {
+            windowEnd = nowMillis + windowMillis;
+        } else if (nowMillis >= windowEnd) {
+            long[] cleared = previous;
+            Arrays.fill(cleared, 0L);
+            // Nothing from two windows ago needs to be remembered
+            if (nowMillis >= windowEnd + windowMillis)
+                Arrays.fill(current, 0L);
+            previous = current;
+            current = cleared;
+            windowEnd = nowMillis + windowMillis;
+        }
+    }
+
+    private boolean contains(long[] filter, long id) {
+        // Double hashing. The ids are random, so both halves are uniformly distributed.
+        int h1 = (int) id;
+        int h2 = (int) (id >>> 32);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = index(h1 + i * h2);
+            if ((filter[bit >>> 6] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    private int index(int hash) {
+        return (hash & Integer.MAX_VALUE) % bitCount;
+    }
+}
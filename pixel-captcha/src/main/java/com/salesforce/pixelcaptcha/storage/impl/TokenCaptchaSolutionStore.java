@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.storage.impl;
+
+import com.google.common.base.Optional;
+import com.google.common.io.BaseEncoding;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaSolution;
+import com.salesforce.pixelcaptcha.dataobj.impl.PixelCaptchaSolution;
+import com.salesforce.pixelcaptcha.storage.CaptchaSolutionStore;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A CaptchaSolutionStore that keeps no solutions. The solution is encrypted into the identifier instead.
+ * <p/>
+ * storeCaptchaSolution returns an AES-GCM token holding the solution points, the maximum deviation, the ordered flag
+ * and the expiry time. getCaptchaSolution decrypts the token and checks the authentication tag and the expiry. Every
+ * node configured with the same key can verify any token, so no shared or sticky state is needed.
+ * <p/>
+ * A token can be used only once per node. The random IV of each token doubles as its id and is recorded in a
+ * ReplayFilter of fixed size that remembers the ids for at least the token lifetime. Replays across nodes are not
+ * detected. The IVs are random, so a key should not be used for more than about four billion tokens.
+ * <p/>
+ * Token layout before Base64 (URL safe, no padding) encoding:
+ * version (1 byte), IV (12 bytes), then encrypted: expiry in seconds since the epoch (4 bytes), maximum deviation
+ * (float, 4 bytes), ordered flag (1 byte), point count (1 byte), points (short x, short y each), followed by the
+ * 16 byte GCM tag.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class TokenCaptchaSolutionStore implements CaptchaSolutionStore {
+
+    public static final int DEFAULT_SIZE = PixelCaptchaSolutionStore.DEFAULT_SIZE;
+    public static final int DEFAULT_TIMEOUT = PixelCaptchaSolutionStore.DEFAULT_TIMEOUT;
+
+    public static final int MIN_TIMEOUT = PixelCaptchaSolutionStore.MIN_TIMEOUT;
+    public static final int MAX_TIMEOUT = PixelCaptchaSolutionStore.MAX_TIMEOUT;
+
+    public static final int MIN_SIZE = PixelCaptchaSolutionStore.MIN_SIZE;
+    public static final int MAX_POINTS = Byte.MAX_VALUE;
+
+    private static final byte VERSION = 1;
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int DEFAULT_KEY_LENGTH = 16;
+    private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+
+    private static TokenCaptchaSolutionStore INSTANCE = null;
+
+    private final SecretKeySpec key;
+    private final int timeoutInSecs;
+    private final ReplayFilter replayFilter;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final ThreadLocal<Cipher> ciphers = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            try {
+                return Cipher.getInstance(TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(TRANSFORMATION + " is not available", e);
+            }
+        }
+    };
+
+    /**
+     * @param key           AES key of 16, 24 or 32 bytes. Nodes that verify each other's CAPTCHAs must share the key.
+     * @param size          expected number of CAPTCHAs verified per timeout period. Sizes the replay filter.
+     * @param timeoutInSecs token lifetime
+     */
+    public TokenCaptchaSolutionStore(byte[] key, int size, int timeoutInSecs) {
+        if (key == null)
+            throw new NullPointerException("Key cannot be null");
+        if (key.length != 16 && key.length != 24 && key.length != 32)
+            throw new IllegalArgumentException("The key must be 16, 24 or 32 bytes long");
+        if (size < MIN_SIZE)
+            throw new IllegalArgumentException("The store size cannot be less than " + MIN_SIZE);
+        if (timeoutInSecs < MIN_TIMEOUT || timeoutInSecs > MAX_TIMEOUT)
+            throw new IllegalArgumentException("The token timeout cannot be less than " + MIN_TIMEOUT + " or greater than " + MAX_TIMEOUT);
+
+        this.key = new SecretKeySpec(key.clone(), "AES");
+        this.timeoutInSecs = timeoutInSecs;
+        // Tokens are at most timeoutInSecs old, plus one second for rounding the expiry
+        this.replayFilter = new ReplayFilter(size, TimeUnit.SECONDS.toMillis(timeoutInSecs + 1));
+    }
+
+    /**
+     * Returns the store with a key that is generated randomly at first use. Only this process can verify its tokens.
+     *
+     * @return the token store
+     */
+    public static synchronized TokenCaptchaSolutionStore getInstance() {
+        if (INSTANCE == null) {
+            byte[] key = new byte[DEFAULT_KEY_LENGTH];
+            new SecureRandom().nextBytes(key);
+            INSTANCE = new TokenCaptchaSolutionStore(key, DEFAULT_SIZE, DEFAULT_TIMEOUT);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Only one INSTANCE of the token store. The size and timeout of the first call are used.
+     *
+     * @param key
+     * @param size
+     * @param timeoutInSecs
+     * @return
+     * @throws IllegalStateException if the store was already created with another key, for example a random one by
+     *                               getInstance(). Its tokens could not be verified by nodes sharing this key.
+     */
+    public static synchronized TokenCaptchaSolutionStore getInstance(byte[] key, int size, int timeoutInSecs) {
+        if (INSTANCE == null) {
+            INSTANCE = new TokenCaptchaSolutionStore(key, size, timeoutInSecs);
+        } else if (key == null || !MessageDigest.isEqual(key, INSTANCE.key.getEncoded())) {
+            throw new IllegalStateException("The token store was already created with a different key");
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    public String storeCaptchaSolution(CaptchaSolution solution) {
+        if (solution == null)
+            throw new NullPointerException("Either CAPTCHA identifier or solution is null");
+
+        List<Point> points = solution.getPoints();
+        if (points.size() > MAX_POINTS)
+            throw new IllegalArgumentException("Tokens cannot hold solutions with more than " + MAX_POINTS + " points");
+
+        // Round up so that a token lives for at least timeoutInSecs
+        long expiry = (System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutInSecs) + 999) / 1000;
+        ByteBuffer plain = ByteBuffer.allocate(4 + 4 + 1 + 1 + 4 * points.size());
+        plain.putInt((int) expiry);
+        plain.putFloat((float) solution.getMaxDeviation());
+        plain.put((byte) (solution.isOrdered() ? 1 : 0));
+        plain.put((byte) points.size());
+        for (Point p : points) {
+            if (p.x < Short.MIN_VALUE || p.x > Short.MAX_VALUE || p.y < Short.MIN_VALUE || p.y > Short.MAX_VALUE)
+                throw new IllegalArgumentException("Solution coordinates must be within the short range");
+            plain.putShort((short) p.x);
+            plain.putShort((short) p.y);
+        }
+
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(iv);
+        byte[] token = new byte[1 + IV_LENGTH + plain.capacity() + TAG_BITS / 8];
+        token[0] = VERSION;
+        System.arraycopy(iv, 0, token, 1, IV_LENGTH);
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, token, 1, IV_LENGTH));
+            cipher.updateAAD(token, 0, 1);
+            cipher.doFinal(plain.array(), 0, plain.capacity(), token, 1 + IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to encrypt the CAPTCHA solution", e);
+        }
+        return ENCODING.encode(token);
+    }
+
+    @Override
+    public Optional<CaptchaSolution> getCaptchaSolution(String identifier) {
+        if (identifier == null)
+            throw new NullPointerException("CAPTCHA identifier cannot be null");
+
+        byte[] token;
+        try {
+            token = ENCODING.decode(identifier);
+        } catch (IllegalArgumentException e) {
+            return Optional.absent();
+        }
+        if (token.length < 1 + IV_LENGTH + 10 + TAG_BITS / 8 || token[0] != VERSION)
+            return Optional.absent();
+
+        byte[] plain;
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, token, 1, IV_LENGTH));
+            cipher.updateAAD(token, 0, 1);
+            plain = cipher.doFinal(token, 1 + IV_LENGTH, token.length - 1 - IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            // Forged, corrupted or encrypted with a different key
+            return Optional.absent();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(plain);
+        long expiry = buffer.getInt() & 0xFFFFFFFFL;
+        long now = System.currentTimeMillis();
+        if (now >= expiry * 1000)
+            return Optional.absent();
+
+        // The first 8 bytes of the random IV identify the token
+        if (!replayFilter.add(ByteBuffer.wrap(token, 1, 8).getLong(), now))
+            return Optional.absent();
+
+        double maxDeviation = buffer.getFloat();
+        boolean ordered = buffer.get() != 0;
+        int count = buffer.get();
+        if (count < 0 || buffer.remaining() != 4 * count)
+            return Optional.absent();
+        List<Point> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            points.add(new Point(buffer.getShort(), buffer.getShort()));
+
+        return Optional.<CaptchaSolution>of(new PixelCaptchaSolution(points, maxDeviation, ordered));
+    }
+
+    /**
+     * Solutions are not kept on the server.
+     *
+     * @return always 0
+     */
+    @Override
+    public long getSize() {
+        return 0;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+
+/**
+ * A bounded LRU cache of untransformed glyph outlines keyed by string, font name, style and size.
+ * <p/>
+ * The CAPTCHA fonts differ only in their random transform, so the outline of a character is laid out once and then
+ * transformed for each use instead of running glyph layout again. The cache is shared by all CAPTCHA configurations
+ * in the process. Hit and miss counts are available through getStats().
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class GlyphOutlineCache {
+    public static final int DEFAULT_SIZE = 20000;
+
+    // Matches the Graphics2D of a BufferedImage with default rendering hints
+    private static final FontRenderContext FRC = new FontRenderContext(null, false, false);
+    private static GlyphOutlineCache INSTANCE = null;
+
+    private final LoadingCache<GlyphKey, Shape> outlines;
+
+    public GlyphOutlineCache(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("The cache size must be positive");
+
+        outlines = CacheBuilder.newBuilder()
+                .maximumSize(size)
+                .recordStats()
+                .build(new CacheLoader<GlyphKey, Shape>() {
+                    @Override
+                    public Shape load(GlyphKey key) {
+                        Font font = new Font(key.name, key.style, 1).deriveFont(key.size);
+                        return font.createGlyphVector(FRC, key.string).getOutline();
+                    }
+                });
+    }
+
+    public static synchronized GlyphOutlineCache getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new GlyphOutlineCache(DEFAULT_SIZE);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the outline of the string as it would be drawn with the font at the given baseline origin, including the
+     * font transform.
+     *
+     * @param font   font, possibly transformed
+     * @param string string to draw
+     * @param x      x coordinate of the baseline origin
+     * @param y      y coordinate of the baseline origin
+     * @return the outline in image coordinates
+     */
+    public Shape getOutline(Font font, String string, float x, float y) {
+        if (font == null || string == null)
+            throw new NullPointerException("Font and string cannot be null");
+
+        return getOutline(font, string, font.isTransformed() ? font.getTransform() : null, x, y);
+    }
+
+    /**
+     * Same as getOutline(Font, String, float, float) for a font that is kept apart from its transform, so that the
+     * transformed font does not have to be derived.
+     *
+     * @param font          font. Its own transform is ignored.
+     * @param string        string to draw
+     * @param fontTransform transform of the font, or null for none. It is not modified.
+     * @param x             x coordinate of the baseline origin
+     * @param y             y coordinate of the baseline origin
+     * @return the outline in image coordinates
+     */
+    public Shape getOutline(Font font, String string, AffineTransform fontTransform, float x, float y) {
+        if (font == null || string == null)
+            throw new NullPointerException("Font and string cannot be null");
+
+        Shape outline = outlines.getUnchecked(new GlyphKey(string, font.getName(), font.getStyle(), font.getSize2D()));
+        AffineTransform transform = AffineTransform.getTranslateInstance(x, y);
+        if (fontTransform != null)
+            transform.concatenate(fontTransform);
+        return transform.createTransformedShape(outline);
+    }
+
+    /**
+     * @return hit, miss and eviction counts since the cache was created
+     */
+    public CacheStats getStats() {
+        return outlines.stats();
+    }
+
+    public long getSize() {
+        return outlines.size();
+    }
+
+    private static final class GlyphKey {
+        private final String string;
+        private final String name;
+        private final int style;
+        private final float size;
+
+        GlyphKey(String string, String name, int style, float size) {
+            this.string = string;
+            this.name = name;
+            this.style = style;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof GlyphKey))
+                return false;
+            GlyphKey other = (GlyphKey) o;
+            return style == other.style && Float.compare(size, other.size) == 0
+                    && string.equals(other.string) && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = string.hashCode();
+            result = 31 * result + name.hashCode();
+            result = 31 * result + style;
+            result = 31 * result + Float.floatToIntBits(size);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils;
+
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Stateless class. Fills shapes, such as the glyph outlines of GlyphOutlineCache, into a BufferedImage with a scanline
+ * rasterizer written in Java, so that neither Graphics2D nor the font pipeline of the JDK is involved.
+ * <p/>
+ * The shape is flattened into lines and every line adds the signed area it covers in each pixel to an accumulation
+ * buffer. Summing a row of the buffer from left to right gives the coverage of each pixel, which is blended into the
+ * image or, without antialiasing, painted where at least half of the pixel is covered. The accumulation buffer belongs
+ * to the calling thread, so concurrent fills share no locks and no state apart from the images they paint.
+ * <p/>
+ * Coverage is clamped to one, which fills overlapping contours as the non-zero winding rule of glyph outlines does.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public final class GlyphRasterizer {
+    // Maximum distance between a curve and the lines that replace it, in pixels
+    private static final double FLATNESS = 0.1;
+    // Coverage at or above which a pixel is painted without antialiasing
+    private static final float HALF_COVERED = 0.5f;
+    // With antialiasing, coverage that rounds to no change of an 8 bit channel is skipped or painted solid
+    private static final float NOT_COVERED = 1 / 512f;
+    private static final float FULLY_COVERED = 1 - NOT_COVERED;
+
+    private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    /**
+     * Fills a shape with a color. Parts of the shape outside the image are clipped.
+     *
+     * @param image       target image
+     * @param shape       shape in image coordinates
+     * @param color       fill color
+     * @param antialiased true to blend partially covered pixels, false to paint the pixels that are at least half
+     *                    covered
+     */
+    public static void fill(BufferedImage image, Shape shape, Color color, boolean antialiased) {
+        if (image == null || shape == null || color == null)
+            throw new NullPointerException("Image, shape and color cannot be null");
+
+        Rectangle2D bounds = shape.getBounds2D();
+        int minX = Math.max(0, (int) Math.floor(bounds.getMinX()));
+        int minY = Math.max(0, (int) Math.floor(bounds.getMinY()));
+        int maxX = Math.min(image.getWidth(), (int) Math.ceil(bounds.getMaxX()));
+        int maxY = Math.min(image.getHeight(), (int) Math.ceil(bounds.getMaxY()));
+        if (minX >= maxX || minY >= maxY)
+            return;
+
+        Buffers buffers = BUFFERS.get();
+        Accumulator accumulator = buffers.getAccumulator(maxX - minX, maxY - minY);
+        double[] coords = buffers.coords;
+        double startX = 0;
+        double startY = 0;
+        double lastX = 0;
+        double lastY = 0;
+        for (PathIterator iterator = shape.getPathIterator(null, FLATNESS); !iterator.isDone(); iterator.next()) {
+            switch (iterator.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                    // Open subpaths are filled as if they were closed
+                    accumulator.addLine(lastX, lastY, startX, startY);
+                    startX = lastX = coords[0] - minX;
+                    startY = lastY = coords[1] - minY;
+                    break;
+                case PathIterator.SEG_LINETO:
+                    accumulator.addLine(lastX, lastY, coords[0] - minX, coords[1] - minY);
+                    lastX = coords[0] - minX;
+                    lastY = coords[1] - minY;
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    accumulator.addLine(lastX, lastY, startX, startY);
+                    lastX = startX;
+                    lastY = startY;
+                    break;
+            }
+        }
+        accumulator.addLine(lastX, lastY, startX, startY);
+        accumulator.paint(image, minX, minY, color, antialiased);
+    }
+
+    private static final class Buffers {
+        private final double[] coords = new double[6];
+        private final Accumulator accumulator = new Accumulator();
+
+        private Accumulator getAccumulator(int width, int height) {
+            accumulator.reset(width, height);
+            return accumulator;
+        }
+    }
+
+    /**
+     * Signed area covered by the lines of a shape. Each row has two extra cells on the right, so that lines on the
+     * right edge need no bounds checks. The cells are all zero between fills.
+     */
+    private static final class Accumulator {
+        private float[] area = new float[0];
+        private int width;
+        private int height;
+        private int stride;
+
+        private void reset(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.stride = width + 2;
+            if (area.length < stride * height)
+                area = new float[stride * height];
+        }
+
+        /**
+         * Adds a line in buffer coordinates. The parts of the line to the left or right of the buffer are moved onto
+         * its edge, where they cover the same rows, so that the winding of the pixels inside is kept.
+         */
+        private void addLine(double x0, double y0, double x1, double y1) {
+            if ((x0 < 0 && x1 > 0) || (x0 > 0 && x1 < 0)) {
+                double y = y0 + (0 - x0) * (y1 - y0) / (x1 - x0);
+                addLine(x0, y0, 0, y);
+                addLine(0, y, x1, y1);
+                return;
+            }
+            if ((x0 < width && x1 > width) || (x0 > width && x1 < width)) {
+                double y = y0 + (width - x0) * (y1 - y0) / (x1 - x0);
+                addLine(x0, y0, width, y);
+                addLine(width, y, x1, y1);
+                return;
+            }
+            addClippedLine(clamp(x0), y0, clamp(x1), y1);
+        }
+
+        private double clamp(double x) {
+            return Math.max(0, Math.min(width, x));
+        }
+
+        /**
+         * Adds the area to the right of a line with 0 <= x <= width, one row at a time. Downward lines add positive
+         * area and upward lines negative area.
+         */
+        private void addClippedLine(double x0, double y0, double x1, double y1) {
+            if (y0 == y1)
+                return;
+            float direction = 1;
+            if (y0 > y1) {
+                direction = -1;
+                double t = x0;
+                x0 = x1;
+                x1 = t;
+                t = y0;
+                y0 = y1;
+                y1 = t;
+            }
+            double dxdy = (x1 - x0) / (y1 - y0);
+            double x = x0;
+            if (y0 < 0)
+                x = clamp(x - y0 * dxdy);
+            int lastRow = Math.min(height, (int) Math.ceil(y1));
+            for (int row = Math.max(0, (int) y0); row < lastRow; row++) {
+                int rowStart = row * stride;
+                double dy = Math.min(row + 1, y1) - Math.max(row, y0);
+                // Rounding errors add up along the line and must not move it off the buffer
+                double xNext = clamp(x + dxdy * dy);
+                float d = (float) dy * direction;
+                double left = Math.min(x, xNext);
+                double right = Math.max(x, xNext);
+                double leftFloor = Math.floor(left);
+                int leftCell = (int) leftFloor;
+                double rightCeil = Math.ceil(right);
+                int rightCell = (int) rightCeil;
+                if (rightCell <= leftCell + 1) {
+                    // The line stays within one pixel of the row
+                    float share = (float) (0.5 * (x + xNext) - leftFloor);
+                    area[rowStart + leftCell] += d - d * share;
+                    area[rowStart + leftCell + 1] += d * share;
+                } else {
+                    // The area under the line is split between the pixels it crosses
+                    double slope = 1 / (right - left);
+                    double leftFraction = left - leftFloor;
+                    double firstArea = 0.5 * slope * (1 - leftFraction) * (1 - leftFraction);
+                    double rightFraction = right - rightCeil + 1;
+                    double lastArea = 0.5 * slope * rightFraction * rightFraction;
+                    area[rowStart + leftCell] += d * firstArea;
+                    if (rightCell == leftCell + 2) {
+                        area[rowStart + leftCell + 1] += d * (1 - firstArea - lastArea);
+                    } else {
+                        double secondArea = slope * (1.5 - leftFraction);
+                        area[rowStart + leftCell + 1] += d * (secondArea - firstArea);
+                        for (int cell = leftCell + 2; cell < rightCell - 1; cell++) {
+                            area[rowStart + cell] += d * slope;
+                        }
+                        double beforeLast = secondArea + (rightCell - leftCell - 3) * slope;
+                        area[rowStart + rightCell - 1] += d * (1 - beforeLast - lastArea);
+                    }
+                    area[rowStart + rightCell] += d * lastArea;
+                }
+                x = xNext;
+            }
+        }
+
+        /**
+         * Paints the accumulated coverage into the image at (minX, minY) and clears the cells.
+         */
+        private void paint(BufferedImage image, int minX, int minY, Color color, boolean antialiased) {
+            WritableRaster raster = image.getRaster();
+            ColorModel colorModel = image.getColorModel();
+            PixelWriter writer = PixelWriter.of(raster, colorModel.getDataElements(color.getRGB(), null));
+            Object pixel = null;
+            for (int row = 0; row < height; row++) {
+                int rowStart = row * stride;
+                int y = minY + row;
+                float sum = 0;
+                for (int column = 0; column < width; column++) {
+                    sum += area[rowStart + column];
+                    area[rowStart + column] = 0;
+                    float coverage = Math.min(1, Math.abs(sum));
+                    if (antialiased ? coverage >= FULLY_COVERED : coverage >= HALF_COVERED) {
+                        writer.write(raster, minX + column, y);
+                    } else if (antialiased && coverage > NOT_COVERED) {
+                        pixel = raster.getDataElements(minX + column, y, pixel);
+                        int blended = blend(colorModel.getRGB(pixel), color.getRGB(), coverage);
+                        pixel = colorModel.getDataElements(blended, pixel);
+                        raster.setDataElements(minX + column, y, pixel);
+                    }
+                }
+                area[rowStart + width] = 0;
+                area[rowStart + width + 1] = 0;
+            }
+        }
+
+        private static int blend(int background, int foreground, float coverage) {
+            int rgb = 0xFF000000;
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int from = (background >> shift) & 0xFF;
+                int to = (foreground >> shift) & 0xFF;
+                rgb |= Math.round(from + (to - from) * coverage) << shift;
+            }
+            return rgb;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.WritableRaster;
+
+/**
+ * A bounded cache of pre-rasterized glyphs, keyed by code point, font name, style and base size, that paints
+ * transformed characters without running the glyph pipeline.
+ * <p/>
+ * Each character is rasterized once, antialiased and untransformed, into an 8 bit coverage bitmap at the smallest
+ * base size that is not smaller than the requested size. Painting maps every target pixel covered by the transformed
+ * sprite back into the sprite through the inverse of the scale, font transform and translation, samples the coverage
+ * bilinearly and sets the pixel to the character color when at least half of it is covered. The result has the hard
+ * edges of the non-antialiased drawString output, with the same rotation, shear and scale.
+ * <p/>
+ * The cache is shared by all CAPTCHA configurations in the process and is bounded by the total size of the bitmaps.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class GlyphSpriteAtlas {
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    // Sizes the sprites are rasterized at. Larger requested sizes are rasterized at their own size.
+    private static final int[] BASE_SIZES = {16, 24, 32, 48, 64, 96, 128};
+    // Coverage at or above which a target pixel is painted
+    private static final int COVERAGE_THRESHOLD = 128;
+    // Empty border around each sprite, so that bilinear sampling fades to zero at the edges
+    private static final int PADDING = 1;
+    private static final int FIXED_ONE = 1 << 16;
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, true);
+    private static GlyphSpriteAtlas INSTANCE = null;
+
+    private final LoadingCache<SpriteKey, Sprite> sprites;
+
+    public GlyphSpriteAtlas(long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("The atlas size must be positive");
+
+        sprites = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(new Weigher<SpriteKey, Sprite>() {
+                    @Override
+                    public int weigh(SpriteKey key, Sprite sprite) {
+                        return sprite.coverage.length;
+                    }
+                })
+                .recordStats()
+                .build(new CacheLoader<SpriteKey, Sprite>() {
+                    @Override
+                    public Sprite load(SpriteKey key) {
+                        return rasterize(key);
+                    }
+                });
+    }
+
+    public static synchronized GlyphSpriteAtlas getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new GlyphSpriteAtlas(DEFAULT_MAX_BYTES);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Paints a character into the image as drawString would with the font derived from font and fontTransform.
+     *
+     * @param image         target image
+     * @param font          untransformed font
+     * @param codePoint     character to paint
+     * @param fontTransform transform of the font, or null for none. It is not modified.
+     * @param x             x coordinate of the baseline origin
+     * @param y             y coordinate of the baseline origin
+     * @param color         character color
+     */
+    public void draw(BufferedImage image, Font font, int codePoint, AffineTransform fontTransform, int x, int y, Color color) {
+        if (image == null || font == null || color == null)
+            throw new NullPointerException("Image, font and color cannot be null");
+
+        float size = font.getSize2D();
+        Sprite sprite = sprites.getUnchecked(new SpriteKey(codePoint, font.getName(), font.getStyle(), getBaseSize(size)));
+        if (sprite.width == 0)
+            return;
+
+        // Sprite pixel (u, v) is at glyph space (u + originX, v + originY) of the base size
+        AffineTransform toImage = AffineTransform.getTranslateInstance(x, y);
+        if (fontTransform != null)
+            toImage.concatenate(fontTransform);
+        double scale = size / sprite.baseSize;
+        toImage.scale(scale, scale);
+        toImage.translate(sprite.originX, sprite.originY);
+
+        AffineTransform toSprite;
+        try {
+            toSprite = toImage.createInverse();
+        } catch (NoninvertibleTransformException e) {
+            return;
+        }
+
+        Rectangle2D bounds = toImage.createTransformedShape(new Rectangle2D.Double(0, 0, sprite.width, sprite.height)).getBounds2D();
+        int minX = Math.max(0, (int) Math.floor(bounds.getMinX()));
+        int minY = Math.max(0, (int) Math.floor(bounds.getMinY()));
+        int maxX = Math.min(image.getWidth() - 1, (int) Math.ceil(bounds.getMaxX()));
+        int maxY = Math.min(image.getHeight() - 1, (int) Math.ceil(bounds.getMaxY()));
+        if (minX > maxX || minY > maxY)
+            return;
+
+        WritableRaster raster = image.getRaster();
+        Object pixel = image.getColorModel().getDataElements(color.getRGB(), null);
+        PixelWriter writer = PixelWriter.of(raster, pixel);
+        double[] span = new double[2];
+
+        // Sprite coordinates move by a fixed step along a row of target pixels
+        double m00 = toSprite.getScaleX();
+        double m01 = toSprite.getShearX();
+        double m10 = toSprite.getShearY();
+        double m11 = toSprite.getScaleY();
+        double m02 = toSprite.getTranslateX();
+        double m12 = toSprite.getTranslateY();
+
+        for (int py = minY; py <= maxY; py++) {
+            // Sample at pixel centers. Sprite pixel centers are at u + 0.5.
+            double cx = minX + 0.5;
+            double cy = py + 0.5;
+            double u0 = m00 * cx + m01 * cy + m02 - 0.5;
+            double v0 = m10 * cx + m11 * cy + m12 - 0.5;
+
+            // Only the part of the row that maps inside the sprite is sampled
+            span[0] = 0;
+            span[1] = maxX - minX;
+            if (!clipSpan(span, u0, m00, sprite.width) || !clipSpan(span, v0, m10, sprite.height))
+                continue;
+
+            int first = (int) Math.ceil(span[0]);
+            int last = (int) Math.floor(span[1]);
+            // 16.16 fixed point sprite coordinates, offset by one so that they stay positive inside the span
+            int u = (int) ((u0 + first * m00 + 1) * FIXED_ONE);
+            int v = (int) ((v0 + first * m10 + 1) * FIXED_ONE);
+            int du = (int) (m00 * FIXED_ONE);
+            int dv = (int) (m10 * FIXED_ONE);
+            for (int k = first; k <= last; k++, u += du, v += dv) {
+                if (sprite.sample(u, v) >= COVERAGE_THRESHOLD)
+                    writer.write(raster, minX + k, py);
+            }
+        }
+    }
+
+    /**
+     * Narrows span, a range of steps k, to the steps where start + k * step lies in (-1, limit).
+     *
+     * @return false if no step is left
+     */
+    private static boolean clipSpan(double[] span, double start, double step, int limit) {
+        if (step == 0) {
+            return start > -1 && start < limit;
+        }
+        double a = (-1 - start) / step;
+        double b = (limit - start) / step;
+        span[0] = Math.max(span[0], Math.min(a, b));
+        span[1] = Math.min(span[1], Math.max(a, b));
+        return span[0] <= span[1];
+    }
+
+    /**
+     * @return hit, miss and eviction counts since the atlas was created
+     */
+    public CacheStats getStats() {
+        return sprites.stats();
+    }
+
+    public long getSize() {
+        return sprites.size();
+    }
+
+    private static int getBaseSize(float size) {
+        for (int baseSize : BASE_SIZES) {
+            if (baseSize >= size)
+                return baseSize;
+        }
+        return (int) Math.ceil(size);
+    }
+
+    private static Sprite rasterize(SpriteKey key) {
+        Font font = new Font(key.name, key.style, key.baseSize);
+        String string = new String(Character.toChars(key.codePoint));
+        Rectangle2D bounds = font.createGlyphVector(FRC, string).getVisualBounds();
+        if (bounds.isEmpty())
+            return new Sprite(new byte[0], 0, 0, 0, 0, key.baseSize);
+
+        int originX = (int) Math.floor(bounds.getMinX()) - PADDING;
+        int originY = (int) Math.floor(bounds.getMinY()) - PADDING;
+        int width = (int) Math.ceil(bounds.getMaxX()) + PADDING - originX;
+        int height = (int) Math.ceil(bounds.getMaxY()) + PADDING - originY;
+
+        BufferedImage bitmap = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2d = bitmap.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        g2d.setColor(Color.WHITE);
+        g2d.setFont(font);
+        g2d.drawString(string, -originX, -originY);
+        g2d.dispose();
+
+        byte[] coverage = ((DataBufferByte) bitmap.getRaster().getDataBuffer()).getData();
+        return new Sprite(coverage, width, height, originX, originY, key.baseSize);
+    }
+
+    private static final class Sprite {
+        // Row major, one byte of coverage per pixel
+        private final byte[] coverage;
+        private final int width;
+        private final int height;
+        // Glyph space coordinates of the top left pixel, relative to the baseline origin
+        private final int originX;
+        private final int originY;
+        private final int baseSize;
+
+        Sprite(byte[] coverage, int width, int height, int originX, int originY, int baseSize) {
+            this.coverage = coverage;
+            this.width = width;
+            this.height = height;
+            this.originX = originX;
+            this.originY = originY;
+            this.baseSize = baseSize;
+        }
+
+        /**
+         * @param u 16.16 fixed point sprite x coordinate plus one
+         * @param v 16.16 fixed point sprite y coordinate plus one
+         * @return bilinearly interpolated coverage between 0 and 255, 0 outside the sprite
+         */
+        int sample(int u, int v) {
+            int u0 = (u >> 16) - 1;
+            int v0 = (v >> 16) - 1;
+            // 8 bit interpolation weights
+            int fu = (u >> 8) & 0xFF;
+            int fv = (v >> 8) & 0xFF;
+            int top = at(u0, v0) * (256 - fu) + at(u0 + 1, v0) * fu;
+            int bottom = at(u0, v0 + 1) * (256 - fu) + at(u0 + 1, v0 + 1) * fu;
+            return (top * (256 - fv) + bottom * fv) >> 16;
+        }
+
+        private int at(int u, int v) {
+            if (u < 0 || v < 0 || u >= width || v >= height)
+                return 0;
+            return coverage[v * width + u] & 0xFF;
+        }
+    }
+
+    private static final class SpriteKey {
+        private final int codePoint;
+        private final String name;
+        private final int style;
+        private final int baseSize;
+
+        SpriteKey(int codePoint, String name, int style, int baseSize) {
+            this.codePoint = codePoint;
+            this.name = name;
+            this.style = style;
+            this.baseSize = baseSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof SpriteKey))
+                return false;
+            SpriteKey other = (SpriteKey) o;
+            return codePoint == other.codePoint && style == other.style && baseSize == other.baseSize
+                    && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = codePoint;
+            result = 31 * result + name.hashCode();
+            result = 31 * result + style;
+            result = 31 * result + baseSize;
+            return result;
+        }
+    }
+}
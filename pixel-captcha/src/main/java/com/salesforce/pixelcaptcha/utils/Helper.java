@@ -9,21 +9,26 @@ package com.salesforce.pixelcaptcha.utils;
 
 import com.google.common.base.Strings;
 import com.salesforce.pixelcaptcha.core.GlobalConstants;
+import com.salesforce.pixelcaptcha.utils.impl.ChaCha20RandomSource;
 
 import java.awt.Point;
 import java.util.*;
 
 public class Helper {
 
-    private static Random rnd = new Random();
-
     // http://stackoverflow.com/questions/1519736/random-shuffling-of-an-array
     public static void shuffleIntArray(int[] arr) {
+        shuffleIntArray(arr, ChaCha20RandomSource.getInstance());
+    }
+
+    public static void shuffleIntArray(int[] arr, RandomSource randomSource) {
         if (arr == null || arr.length == 0)
             throw new IllegalArgumentException("Array cannot be null or have zero length");
+        if (randomSource == null)
+            throw new NullPointerException("Random source cannot be null");
 
         for (int i = arr.length - 1; i > 0; i--) {
-            int index = rnd.nextInt(i + 1);
+            int index = randomSource.nextInt(i + 1);
             int a = arr[index];
             arr[index] = arr[i];
             arr[i] = a;
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Sets target pixels to one color. Writes straight into the pixel array for single pixel packed rasters, such as those
+ * of the default CAPTCHA image type, and through the raster otherwise.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+class PixelWriter {
+    private final Object pixel;
+
+    PixelWriter(Object pixel) {
+        this.pixel = pixel;
+    }
+
+    /**
+     * @param raster target raster
+     * @param pixel  data elements of the color in the color model of the raster
+     */
+    static PixelWriter of(WritableRaster raster, Object pixel) {
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        if (raster.getSampleModel() instanceof SinglePixelPackedSampleModel && dataBuffer.getNumBanks() == 1
+                && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0) {
+            int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            int offset = dataBuffer.getOffset();
+            if (dataBuffer instanceof DataBufferUShort)
+                return new ShortPixelWriter(((DataBufferUShort) dataBuffer).getData(), offset, stride, ((short[]) pixel)[0]);
+            if (dataBuffer instanceof DataBufferInt)
+                return new IntPixelWriter(((DataBufferInt) dataBuffer).getData(), offset, stride, ((int[]) pixel)[0]);
+        }
+        return new PixelWriter(pixel);
+    }
+
+    void write(WritableRaster raster, int x, int y) {
+        raster.setDataElements(x, y, pixel);
+    }
+
+    private static final class ShortPixelWriter extends PixelWriter {
+        private final short[] data;
+        private final int offset;
+        private final int stride;
+        private final short value;
+
+        ShortPixelWriter(short[] data, int offset, int stride, short value) {
+            super(null);
+            this.data = data;
+            this.offset = offset;
+            this.stride = stride;
+            this.value = value;
+        }
+
+        @Override
+        void write(WritableRaster raster, int x, int y) {
+            data[offset + y * stride + x] = value;
+        }
+    }
+
+    private static final class IntPixelWriter extends PixelWriter {
+        private final int[] data;
+        private final int offset;
+        private final int stride;
+        private final int value;
+
+        IntPixelWriter(int[] data, int offset, int stride, int value) {
+            super(null);
+            this.data = data;
+            this.offset = offset;
+            this.stride = stride;
+            this.value = value;
+        }
+
+        @Override
+        void write(WritableRaster raster, int x, int y) {
+            data[offset + y * stride + x] = value;
+        }
+    }
+}
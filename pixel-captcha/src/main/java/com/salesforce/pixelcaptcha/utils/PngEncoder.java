@@ -0,0 +1,611 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils;
+
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PNG encoder for CAPTCHA images that works without ImageIO.
+ * <p/>
+ * Images with an IndexColorModel and 1, 2, 4 or 8 bit pixels, such as those of the indexed ImageColorModes, are
+ * written as palette images straight from their raster. Images with a DirectColorModel of at most 8 bits per channel,
+ * such as TYPE_USHORT_555_RGB and TYPE_INT_RGB, are read from their raster and written as 8 bit RGB. Other images are
+ * read through getRGB. Alpha is not written, except for the transparency of palette entries.
+ * <p/>
+ * Every thread keeps its own Deflater, CRC and buffers, which are sized by the largest image the thread has encoded.
+ * The whole PNG is built in the thread's output buffer and then copied out once. Encoders are immutable and thread
+ * safe.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public final class PngEncoder {
+    public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    // CAPTCHA rows are mostly background, which compresses best unfiltered
+    public static final Filter DEFAULT_FILTER = Filter.NONE;
+
+    /**
+     * PNG filter applied to every row before compression
+     */
+    public enum Filter {
+        NONE(0),
+        SUB(1),
+        UP(2),
+        AVERAGE(3),
+        PAETH(4),
+        /**
+         * Tries all five filters on every row and keeps the one with the smallest sum of absolute differences
+         */
+        ADAPTIVE(-1);
+
+        private final int type;
+
+        Filter(int type) {
+            this.type = type;
+        }
+
+        /**
+         * Converts a property value to a Filter, ignoring case.
+         *
+         * @param value        property value, may be null
+         * @param defaultValue value returned when the property value is null or not recognized
+         * @return the filter
+         */
+        public static Filter fromStringOrDefault(String value, Filter defaultValue) {
+            if (value != null) {
+                for (Filter filter : values()) {
+                    if (filter.name().equalsIgnoreCase(value.trim()))
+                        return filter;
+                }
+            }
+            return defaultValue;
+        }
+    }
+
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504C5445;
+    private static final int TRNS = 0x74524E53;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+    private static final int COLOR_TYPE_TRUECOLOR = 2;
+    private static final int COLOR_TYPE_INDEXED = 3;
+    private static final int FILTER_TYPES = 5;
+    private static final int INITIAL_OUTPUT_SIZE = 1 << 16;
+
+    private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<Buffers>() {
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    private static PngEncoder instance;
+
+    private final int compressionLevel;
+    private final Filter filter;
+
+    private PngEncoder(int compressionLevel, Filter filter) {
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+    }
+
+    /**
+     * @return the encoder with the default compression level and filter
+     */
+    public static synchronized PngEncoder getInstance() {
+        if (instance == null)
+            instance = new Builder().build();
+        return instance;
+    }
+
+    public static class Builder {
+        private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+        private Filter filter = DEFAULT_FILTER;
+
+        /**
+         * @param compressionLevel Deflater level from 0 (no compression) to 9 (best compression)
+         */
+        public Builder compressionLevel(int compressionLevel) {
+            if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)
+                throw new IllegalArgumentException("Compression level must be between " + Deflater.NO_COMPRESSION + " and " + Deflater.BEST_COMPRESSION);
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        public Builder filter(Filter filter) {
+            if (filter == null)
+                throw new NullPointerException("Filter cannot be null");
+            this.filter = filter;
+            return this;
+        }
+
+        public PngEncoder build() {
+            return new PngEncoder(compressionLevel, filter);
+        }
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return the PNG image
+     */
+    public byte[] encode(BufferedImage image) {
+        Buffers buffers = BUFFERS.get();
+        int length = encode(image, buffers);
+        return Arrays.copyOf(buffers.out, length);
+    }
+
+    /**
+     * Writes the PNG image to the stream with a single write call.
+     *
+     * @param out receives the PNG image. It is not closed.
+     * @return number of bytes written
+     * @throws IOException if writing to the stream fails
+     */
+    public int write(BufferedImage image, OutputStream out) throws IOException {
+        if (out == null)
+            throw new NullPointerException("OutputStream cannot be null");
+        Buffers buffers = BUFFERS.get();
+        int length = encode(image, buffers);
+        out.write(buffers.out, 0, length);
+        return length;
+    }
+
+    /**
+     * Puts the PNG image into the buffer at its position and advances the position.
+     *
+     * @return number of bytes put
+     * @throws BufferOverflowException if the remaining space is too small. Nothing is put in that case.
+     */
+    public int write(BufferedImage image, ByteBuffer dest) {
+        if (dest == null)
+            throw new NullPointerException("ByteBuffer cannot be null");
+        Buffers buffers = BUFFERS.get();
+        int length = encode(image, buffers);
+        if (dest.remaining() < length)
+            throw new BufferOverflowException();
+        dest.put(buffers.out, 0, length);
+        return length;
+    }
+
+    private int encode(BufferedImage image, Buffers buffers) {
+        if (image == null)
+            throw new NullPointerException("Image cannot be null");
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        RowReader rowReader = RowReader.of(image, buffers);
+        int rowBytes = (int) (((long) width * rowReader.bitDepth * rowReader.channels + 7) / 8);
+        int bytesPerPixel = Math.max(1, rowReader.bitDepth * rowReader.channels / 8);
+        buffers.ensureRowCapacity(rowBytes, (long) height * (rowBytes + 1));
+
+        // Filter every row into the raw image data
+        byte[] raw = buffers.raw;
+        byte[] current = buffers.current;
+        byte[] previous = buffers.previous;
+        Arrays.fill(previous, 0, rowBytes, (byte) 0);
+        int rawLength = 0;
+        for (int y = 0; y < height; y++) {
+            rowReader.read(y, current);
+            if (filter == Filter.ADAPTIVE) {
+                int best = 0;
+                long bestSum = Long.MAX_VALUE;
+                for (int type = 0; type < FILTER_TYPES; type++) {
+                    filterRow(type, current, previous, rowBytes, bytesPerPixel, buffers.candidates[type], 0);
+                    long sum = sumOfAbsoluteValues(buffers.candidates[type], rowBytes);
+                    if (sum < bestSum) {
+                        bestSum = sum;
+                        best = type;
+                    }
+                }
+                raw[rawLength] = (byte) best;
+                System.arraycopy(buffers.candidates[best], 0, raw, rawLength + 1, rowBytes);
+            } else {
+                raw[rawLength] = (byte) filter.type;
+                filterRow(filter.type, current, previous, rowBytes, bytesPerPixel, raw, rawLength + 1);
+            }
+            rawLength += rowBytes + 1;
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        buffers.current = current;
+        buffers.previous = previous;
+
+        // Signature, header and palette
+        int position = 0;
+        position = put(buffers, position, SIGNATURE);
+        int chunk = startChunk(buffers, position, IHDR);
+        position = putInt(buffers, chunk + 8, width);
+        position = putInt(buffers, position, height);
+        position = putByte(buffers, position, rowReader.bitDepth);
+        position = putByte(buffers, position, rowReader.colorType);
+        position = putByte(buffers, position, 0); // deflate compression
+        position = putByte(buffers, position, 0); // adaptive filtering
+        position = putByte(buffers, position, 0); // no interlace
+        position = endChunk(buffers, chunk, position);
+        if (rowReader.palette != null)
+            position = putPalette(buffers, position, rowReader.palette);
+
+        // Compressed image data
+        Deflater deflater = buffers.deflater;
+        deflater.reset();
+        deflater.setLevel(compressionLevel);
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        chunk = startChunk(buffers, position, IDAT);
+        position = chunk + 8;
+        while (!deflater.finished()) {
+            if (position == buffers.out.length)
+                buffers.grow(position + 1);
+            position += deflater.deflate(buffers.out, position, buffers.out.length - position);
+        }
+        position = endChunk(buffers, chunk, position);
+
+        chunk = startChunk(buffers, position, IEND);
+        return endChunk(buffers, chunk, chunk + 8);
+    }
+
+    private static void filterRow(int type, byte[] current, byte[] previous, int length, int bytesPerPixel, byte[] dest, int offset) {
+        switch (type) {
+            case 0:
+                System.arraycopy(current, 0, dest, offset, length);
+                break;
+            case 1:
+                for (int i = 0; i < length; i++) {
+                    int left = i >= bytesPerPixel ? current[i - bytesPerPixel] & 0xFF : 0;
+                    dest[offset + i] = (byte) (current[i] - left);
+                }
+                break;
+            case 2:
+                for (int i = 0; i < length; i++) {
+                    dest[offset + i] = (byte) (current[i] - previous[i]);
+                }
+                break;
+            case 3:
+                for (int i = 0; i < length; i++) {
+                    int left = i >= bytesPerPixel ? current[i - bytesPerPixel] & 0xFF : 0;
+                    dest[offset + i] = (byte) (current[i] - ((left + (previous[i] & 0xFF)) >>> 1));
+                }
+                break;
+            default:
+                for (int i = 0; i < length; i++) {
+                    int left = i >= bytesPerPixel ? current[i - bytesPerPixel] & 0xFF : 0;
+                    int upperLeft = i >= bytesPerPixel ? previous[i - bytesPerPixel] & 0xFF : 0;
+                    dest[offset + i] = (byte) (current[i] - paeth(left, previous[i] & 0xFF, upperLeft));
+                }
+        }
+    }
+
+    private static int paeth(int left, int up, int upperLeft) {
+        int estimate = left + up - upperLeft;
+        int distanceLeft = Math.abs(estimate - left);
+        int distanceUp = Math.abs(estimate - up);
+        int distanceUpperLeft = Math.abs(estimate - upperLeft);
+        if (distanceLeft <= distanceUp && distanceLeft <= distanceUpperLeft)
+            return left;
+        return distanceUp <= distanceUpperLeft ? up : upperLeft;
+    }
+
+    private static long sumOfAbsoluteValues(byte[] row, int length) {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += Math.abs((int) row[i]);
+        }
+        return sum;
+    }
+
+    private static int putPalette(Buffers buffers, int position, IndexColorModel palette) {
+        int size = palette.getMapSize();
+        int chunk = startChunk(buffers, position, PLTE);
+        position = chunk + 8;
+        for (int i = 0; i < size; i++) {
+            position = putByte(buffers, position, palette.getRed(i));
+            position = putByte(buffers, position, palette.getGreen(i));
+            position = putByte(buffers, position, palette.getBlue(i));
+        }
+        position = endChunk(buffers, chunk, position);
+
+        if (palette.getTransparency() == Transparency.OPAQUE)
+            return position;
+        // Entries after the last translucent one are opaque
+        int alphaCount = size;
+        while (alphaCount > 0 && palette.getAlpha(alphaCount - 1) == 0xFF)
+            alphaCount--;
+        chunk = startChunk(buffers, position, TRNS);
+        position = chunk + 8;
+        for (int i = 0; i < alphaCount; i++) {
+            position = putByte(buffers, position, palette.getAlpha(i));
+        }
+        return endChunk(buffers, chunk, position);
+    }
+
+    /**
+     * Reserves the length and writes the type of a chunk.
+     *
+     * @return position of the chunk
+     */
+    private static int startChunk(Buffers buffers, int position, int type) {
+        putInt(buffers, position + 4, type);
+        return position;
+    }
+
+    /**
+     * Fills in the length of the chunk and appends its CRC.
+     *
+     * @return position after the chunk
+     */
+    private static int endChunk(Buffers buffers, int chunk, int end) {
+        int dataLength = end - chunk - 8;
+        putInt(buffers, chunk, dataLength);
+        CRC32 crc = buffers.crc;
+        crc.reset();
+        crc.update(buffers.out, chunk + 4, dataLength + 4);
+        return putInt(buffers, end, (int) crc.getValue());
+    }
+
+    private static int put(Buffers buffers, int position, byte[] bytes) {
+        buffers.ensureOutputCapacity(position + bytes.length);
+        System.arraycopy(bytes, 0, buffers.out, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    private static int putInt(Buffers buffers, int position, int value) {
+        buffers.ensureOutputCapacity(position + 4);
+        byte[] out = buffers.out;
+        out[position] = (byte) (value >>> 24);
+        out[position + 1] = (byte) (value >>> 16);
+        out[position + 2] = (byte) (value >>> 8);
+        out[position + 3] = (byte) value;
+        return position + 4;
+    }
+
+    private static int putByte(Buffers buffers, int position, int value) {
+        buffers.ensureOutputCapacity(position + 1);
+        buffers.out[position] = (byte) value;
+        return position + 1;
+    }
+
+    /**
+     * Per-thread encoding state
+     */
+    private static final class Buffers {
+        private final Deflater deflater = new Deflater();
+        private final CRC32 crc = new CRC32();
+        private final byte[][] candidates = new byte[FILTER_TYPES][];
+        // Lookup tables from DirectColorModel channel values to 8 bit values
+        private final byte[] reds = new byte[256];
+        private final byte[] greens = new byte[256];
+        private final byte[] blues = new byte[256];
+        private byte[] current = new byte[0];
+        private byte[] previous = new byte[0];
+        private byte[] raw = new byte[0];
+        private int[] argb = new int[0];
+        private byte[] out = new byte[INITIAL_OUTPUT_SIZE];
+
+        private void ensureRowCapacity(int rowBytes, long rawLength) {
+            if (rawLength > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("Image is too large");
+            if (current.length < rowBytes) {
+                current = new byte[rowBytes];
+                previous = new byte[rowBytes];
+                for (int i = 0; i < FILTER_TYPES; i++) {
+                    candidates[i] = new byte[rowBytes];
+                }
+            }
+            if (raw.length < rawLength)
+                raw = new byte[(int) rawLength];
+        }
+
+        private void ensureOutputCapacity(int capacity) {
+            if (out.length < capacity)
+                grow(capacity);
+        }
+
+        private void grow(int capacity) {
+            out = Arrays.copyOf(out, Math.max(capacity, out.length * 2));
+        }
+
+        private int[] getArgbRow(int width) {
+            if (argb.length < width)
+                argb = new int[width];
+            return argb;
+        }
+    }
+
+    /**
+     * Reads rows of an image in PNG sample layout
+     */
+    private abstract static class RowReader {
+        private static final int RED = 0;
+        private static final int GREEN = 1;
+        private static final int BLUE = 2;
+
+        final int colorType;
+        final int bitDepth;
+        final int channels;
+        final IndexColorModel palette;
+
+        RowReader(int colorType, int bitDepth, int channels, IndexColorModel palette) {
+            this.colorType = colorType;
+            this.bitDepth = bitDepth;
+            this.channels = channels;
+            this.palette = palette;
+        }
+
+        abstract void read(int y, byte[] row);
+
+        static RowReader of(BufferedImage image, Buffers buffers) {
+            Raster raster = image.getRaster();
+            SampleModel sampleModel = raster.getSampleModel();
+            ColorModel colorModel = image.getColorModel();
+            DataBuffer dataBuffer = raster.getDataBuffer();
+            boolean untranslated = raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+                    && dataBuffer.getNumBanks() == 1;
+
+            if (untranslated && colorModel instanceof IndexColorModel && dataBuffer instanceof DataBufferByte) {
+                IndexColorModel palette = (IndexColorModel) colorModel;
+                if (sampleModel instanceof MultiPixelPackedSampleModel
+                        && ((MultiPixelPackedSampleModel) sampleModel).getDataBitOffset() == 0) {
+                    MultiPixelPackedSampleModel packed = (MultiPixelPackedSampleModel) sampleModel;
+                    return new PackedRowReader(image, packed.getPixelBitStride(), packed.getScanlineStride(), palette);
+                }
+                if (sampleModel instanceof ComponentSampleModel && sampleModel.getNumBands() == 1
+                        && ((ComponentSampleModel) sampleModel).getPixelStride() == 1
+                        && ((ComponentSampleModel) sampleModel).getBandOffsets()[0] == 0) {
+                    return new PackedRowReader(image, 8, ((ComponentSampleModel) sampleModel).getScanlineStride(), palette);
+                }
+            }
+            if (untranslated && colorModel instanceof DirectColorModel && sampleModel instanceof SinglePixelPackedSampleModel
+                    && (dataBuffer instanceof DataBufferUShort || dataBuffer instanceof DataBufferInt)) {
+                DirectColorModel direct = (DirectColorModel) colorModel;
+                if (fillTable(direct, RED, buffers.reds) && fillTable(direct, GREEN, buffers.greens)
+                        && fillTable(direct, BLUE, buffers.blues))
+                    return new DirectRowReader(image, (SinglePixelPackedSampleModel) sampleModel, direct, buffers);
+            }
+            return new ArgbRowReader(image, buffers);
+        }
+
+        /**
+         * Maps every value of a channel of at most 8 bits to its 8 bit value as the color model converts it.
+         */
+        private static boolean fillTable(DirectColorModel colorModel, int channel, byte[] table) {
+            int mask = channel == RED ? colorModel.getRedMask() : channel == GREEN ? colorModel.getGreenMask() : colorModel.getBlueMask();
+            int shift = Integer.numberOfTrailingZeros(mask);
+            if (mask == 0 || (mask >>> shift) >= table.length)
+                return false;
+            for (int value = 0; value <= mask >>> shift; value++) {
+                int pixel = value << shift;
+                int converted = channel == RED ? colorModel.getRed(pixel) : channel == GREEN ? colorModel.getGreen(pixel) : colorModel.getBlue(pixel);
+                table[value] = (byte) converted;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Palette images whose rows are already laid out as PNG rows: 1, 2 and 4 bit pixels packed from the most
+     * significant bit, or 8 bit pixels
+     */
+    private static final class PackedRowReader extends RowReader {
+        private final byte[] data;
+        private final int offset;
+        private final int stride;
+        private final int rowBytes;
+
+        PackedRowReader(BufferedImage image, int bitDepth, int stride, IndexColorModel palette) {
+            super(COLOR_TYPE_INDEXED, bitDepth, 1, palette);
+            DataBufferByte dataBuffer = (DataBufferByte) image.getRaster().getDataBuffer();
+            this.data = dataBuffer.getData();
+            this.offset = dataBuffer.getOffset();
+            this.stride = stride;
+            this.rowBytes = (image.getWidth() * bitDepth + 7) / 8;
+        }
+
+        @Override
+        void read(int y, byte[] row) {
+            System.arraycopy(data, offset + y * stride, row, 0, rowBytes);
+        }
+    }
+
+    /**
+     * Packed RGB pixels of at most 8 bits per channel, converted through lookup tables
+     */
+    private static final class DirectRowReader extends RowReader {
+        private final short[] shortData;
+        private final int[] intData;
+        private final int offset;
+        private final int stride;
+        private final int width;
+        private final int redMask, greenMask, blueMask;
+        private final int redShift, greenShift, blueShift;
+        private final byte[] reds, greens, blues;
+
+        DirectRowReader(BufferedImage image, SinglePixelPackedSampleModel sampleModel, DirectColorModel colorModel, Buffers buffers) {
+            super(COLOR_TYPE_TRUECOLOR, 8, 3, null);
+            DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+            this.shortData = dataBuffer instanceof DataBufferUShort ? ((DataBufferUShort) dataBuffer).getData() : null;
+            this.intData = dataBuffer instanceof DataBufferInt ? ((DataBufferInt) dataBuffer).getData() : null;
+            this.offset = dataBuffer.getOffset();
+            this.stride = sampleModel.getScanlineStride();
+            this.width = image.getWidth();
+            this.redMask = colorModel.getRedMask();
+            this.greenMask = colorModel.getGreenMask();
+            this.blueMask = colorModel.getBlueMask();
+            this.redShift = Integer.numberOfTrailingZeros(redMask);
+            this.greenShift = Integer.numberOfTrailingZeros(greenMask);
+            this.blueShift = Integer.numberOfTrailingZeros(blueMask);
+            this.reds = buffers.reds;
+            this.greens = buffers.greens;
+            this.blues = buffers.blues;
+        }
+
+        @Override
+        void read(int y, byte[] row) {
+            int start = offset + y * stride;
+            for (int x = 0, i = 0; x < width; x++, i += 3) {
+                int pixel = shortData != null ? shortData[start + x] & 0xFFFF : intData[start + x];
+                row[i] = reds[(pixel & redMask) >>> redShift];
+                row[i + 1] = greens[(pixel & greenMask) >>> greenShift];
+                row[i + 2] = blues[(pixel & blueMask) >>> blueShift];
+            }
+        }
+    }
+
+    /**
+     * Any other image, read through getRGB
+     */
+    private static final class ArgbRowReader extends RowReader {
+        private final BufferedImage image;
+        private final int[] argb;
+
+        ArgbRowReader(BufferedImage image, Buffers buffers) {
+            super(COLOR_TYPE_TRUECOLOR, 8, 3, null);
+            this.image = image;
+            this.argb = buffers.getArgbRow(image.getWidth());
+        }
+
+        @Override
+        void read(int y, byte[] row) {
+            int width = image.getWidth();
+            image.getRGB(0, y, width, 1, argb, 0, width);
+            for (int x = 0, i = 0; x < width; x++, i += 3) {
+                int pixel = argb[x];
+                row[i] = (byte) (pixel >>> 16);
+                row[i + 1] = (byte) (pixel >>> 8);
+                row[i + 2] = (byte) pixel;
+            }
+        }
+    }
+}
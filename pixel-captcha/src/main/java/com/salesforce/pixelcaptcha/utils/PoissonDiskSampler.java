@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils;
+
+import com.google.common.base.Optional;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Places random points inside a rectangle so that no two points are closer than a minimum distance.
+ * <p/>
+ * The points are indexed in a background grid as in Bridson's Poisson-disk sampling. The cell size is
+ * minDistance / sqrt(2), so a candidate is checked against the points of the surrounding 5 x 5 cells only instead of
+ * every previous point. Each call draws at most maxAttempts uniform candidates. If all of them are rejected, the
+ * pixels of the rectangle are scanned in row order from a random start and the first pixel that is far enough is
+ * taken, so a call does a bounded amount of work and finds a point whenever one exists.
+ * <p/>
+ * Not thread safe. Create one instance per CAPTCHA.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public final class PoissonDiskSampler {
+    public static final int DEFAULT_MAX_ATTEMPTS = 30;
+
+    // Keeps the grid small when the minimum distance is tiny compared with the rectangle
+    private static final int MAX_CELLS = 4096;
+
+    private final Rectangle area;
+    private final double minDistance;
+    private final double minDistanceSquared;
+    private final int maxAttempts;
+    private final RandomSource rand;
+
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    // Number of cells around a cell that can hold a point closer than minDistance
+    private final int reach;
+    // Points of a cell form a linked list: head holds the first point and next the following one, -1 ends the list
+    private final int[] head;
+    private int[] next = new int[16];
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int size;
+
+    private long rejectedCount;
+    private long fallbackCount;
+
+    public PoissonDiskSampler(Rectangle area, double minDistance, RandomSource rand) {
+        this(area, minDistance, DEFAULT_MAX_ATTEMPTS, rand);
+    }
+
+    /**
+     * @param area        rectangle the points are placed in. Points are drawn from [x, x + width) and [y, y + height).
+     * @param minDistance minimum distance between two points. 0 places points without any constraint.
+     * @param maxAttempts number of random candidates drawn before falling back to the scan
+     * @param rand        source of the random candidates
+     */
+    public PoissonDiskSampler(Rectangle area, double minDistance, int maxAttempts, RandomSource rand) {
+        if (area == null || rand == null)
+            throw new NullPointerException("Area and random source cannot be null");
+        if (area.width <= 0 || area.height <= 0)
+            throw new IllegalArgumentException("Width or height cannot be zero or negative");
+        if (minDistance < 0)
+            throw new IllegalArgumentException("Minimum distance cannot be negative");
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("At least one attempt is needed");
+
+        this.area = new Rectangle(area);
+        this.minDistance = minDistance;
+        this.minDistanceSquared = minDistance * minDistance;
+        this.maxAttempts = maxAttempts;
+        this.rand = rand;
+
+        double cell = Math.max(minDistance / Math.sqrt(2), 1);
+        cell = Math.max(cell, Math.sqrt((double) area.width * area.height / MAX_CELLS));
+        this.cellSize = cell;
+        this.columns = (int) (area.width / cellSize) + 1;
+        this.rows = (int) (area.height / cellSize) + 1;
+        this.reach = (int) (minDistance / cellSize) + 1;
+        this.head = new int[columns * rows];
+        Arrays.fill(head, -1);
+    }
+
+    /**
+     * Adds an existing point that the following points must keep their distance from. The point may lie outside the
+     * area.
+     */
+    public void add(Point point) {
+        if (point == null)
+            throw new NullPointerException("Point cannot be null");
+        add(point.x, point.y);
+    }
+
+    /**
+     * @return a new point at least minDistance away from every point added or returned so far, or Optional.absent()
+     * if no pixel of the area is far enough
+     */
+    public Optional<Point> next() {
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            int x = area.x + rand.nextInt(area.width);
+            int y = area.y + rand.nextInt(area.height);
+            if (isFarEnough(x, y))
+                return Optional.of(add(x, y));
+            rejectedCount++;
+        }
+
+        fallbackCount++;
+        int startColumn = rand.nextInt(area.width);
+        int startRow = rand.nextInt(area.height);
+        for (int i = 0; i < area.height; i++) {
+            int y = area.y + (startRow + i) % area.height;
+            for (int j = 0; j < area.width; j++) {
+                int x = area.x + (startColumn + j) % area.width;
+                if (isFarEnough(x, y))
+                    return Optional.of(add(x, y));
+            }
+        }
+        return Optional.absent();
+    }
+
+    /**
+     * @return number of random candidates rejected for being too close to an existing point
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return number of calls to next that ran out of attempts and scanned the area
+     */
+    public long getFallbackCount() {
+        return fallbackCount;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private boolean isFarEnough(int x, int y) {
+        if (size == 0 || minDistance == 0)
+            return true;
+
+        int column = column(x);
+        int row = row(y);
+        for (int r = Math.max(0, row - reach); r <= Math.min(rows - 1, row + reach); r++) {
+            for (int c = Math.max(0, column - reach); c <= Math.min(columns - 1, column + reach); c++) {
+                for (int p = head[r * columns + c]; p != -1; p = next[p]) {
+                    long dx = xs[p] - x;
+                    long dy = ys[p] - y;
+                    if (dx * dx + dy * dy < minDistanceSquared)
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private Point add(int x, int y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+            next = Arrays.copyOf(next, size * 2);
+        }
+        // Points outside the area are indexed in the nearest border cell. Clamping never increases the distance to a
+        // point inside the area, so the neighbourhood search still finds them.
+        int cell = row(y) * columns + column(x);
+        xs[size] = x;
+        ys[size] = y;
+        next[size] = head[cell];
+        head[cell] = size;
+        size++;
+        return new Point(x, y);
+    }
+
+    private int column(int x) {
+        return clamp((int) ((x - area.x) / cellSize), columns);
+    }
+
+    private int row(int y) {
+        return clamp((int) ((y - area.y) / cellSize), rows);
+    }
+
+    private static int clamp(int value, int count) {
+        return value < 0 ? 0 : value >= count ? count - 1 : value;
+    }
+}
@@ -10,44 +10,45 @@ import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 import com.google.common.base.CharMatcher;
 
-import java.util.Scanner;
 import java.util.logging.Logger;
 
 /**
  * @author Gursev Singh Kalra @ Salesforce.com
- *         This class initializes its contents from serif_printable.txt inside resources.
- *         It creates a boolean array of size 65536 and stores true or false inside each index.
- *         A true at an index means that the character is printable and will leave a visible impression on the CAPTCHA
- *         A true at an index means that the character is not printable and will not leave a visible impression on the CAPTCHA
+ *         This class initializes its contents from serif_printable.bin inside resources.
+ *         The resource is a PrintableCodePointIndex bitset with one bit for each of the 65536 BMP code points.
+ *         A set bit means that the character is printable and will leave a visible impression on the CAPTCHA
+ *         A clear bit means that the character is not printable and will not leave a visible impression on the CAPTCHA
+ *         serif_printable.txt holds the same code points as text and is the source of the binary resource.
  */
 public class PrintableCharFinder {
 
     private static final Logger LOGGER = Logger.getLogger( PrintableCharFinder.class.getName() );
     private static int CAPTCHA_SIZE = 100;
-    private static int SIZE = 65536;
+    private static int SIZE = PrintableCodePointIndex.SIZE;
     private static int WHITE = -1;
-    private static String suffix = "_printable.txt";
+    private static String suffix = "_printable.bin";
+    private static String textSuffix = ".txt";
     private static String directory = "printable_chars";
     private static String separator = "/";
     private static Font font = new Font(Font.SERIF, Font.PLAIN, CAPTCHA_SIZE / 4);
 
-    //Stores the exact code points that are printable. It is not being used at the moment.
-    private int[] printableGlyphsInt = new int[SIZE];
-
-    // The boolean array contains a true/false for each location in an array so querying is simple
-    // An index for which a printable character is available has the value set to true, everything else is false.
-    private boolean[] printableGlyphsBoolean = new boolean[SIZE];
+    // Set bits mark the printable code points
+    private final PrintableCodePointIndex printableGlyphs;
     private static PrintableCharFinder instance;
 
     private PrintableCharFinder() {
-        loadPrintableCharsFromResourceFile(font);
+        printableGlyphs = loadPrintableCharsFromResourceFile(font);
     }
 
     public static synchronized PrintableCharFinder getInstance() {
@@ -61,53 +62,80 @@ public class PrintableCharFinder {
         if (codePoint < 0 || codePoint >= SIZE)
             throw new IllegalArgumentException("codePoint parameter cannot be greater than " + SIZE + " or less than " + 0);
 
-        return printableGlyphsBoolean[codePoint];
+        return printableGlyphs.contains(codePoint);
+    }
+
+    /**
+     * @param codePoint a code point between 0 and 65536, inclusive
+     * @return number of printable code points less than codePoint
+     */
+    public int rank(int codePoint) {
+        return printableGlyphs.rank(codePoint);
     }
 
+    /**
+     * @param n zero based position
+     * @return the n-th smallest printable code point
+     */
+    public int select(int n) {
+        return printableGlyphs.select(n);
+    }
 
-    private void loadPrintableCharsFromResourceFile(Font font) {
-        int[] cPs = new int[SIZE];
-        int index = 0;
+    /**
+     * @return the printable code points between min and max, inclusive, in ascending order
+     */
+    public int[] getPrintableCodePoints(int min, int max) {
+        return printableGlyphs.codePoints(min, max);
+    }
 
-        // The serif_printable.txt file currently has code points for all the printable characters for Serif font.
+    /**
+     * A contiguous range of code points is answered with rank and select on the bitset without looking at every code
+     * point in the range.
+     *
+     * @param sortedCodePoints code points in ascending order without duplicates
+     * @return the printable code points among sortedCodePoints, in ascending order
+     */
+    public int[] getPrintableCodePoints(int[] sortedCodePoints) {
+        return printableGlyphs.filter(sortedCodePoints);
+    }
+
+
+    private static PrintableCodePointIndex loadPrintableCharsFromResourceFile(Font font) {
+        // The serif_printable.bin file currently has code points for all the printable characters for Serif font.
         // It appears to work for the CAPTCHA at this time even when code points for other Fonts are provided.
         // This WILL change when physical and fancy fonts are used.
         // TODO: In future, I may try to use Font specific printable characters.
         /*
         The split is needed because different JDK versions return different values for getFontName. For example, some versions
-        return Serif, others return Serif.plain. This was causing issues when trying to load the serif_printable.txt resource
+        return Serif, others return Serif.plain. This was causing issues when trying to load the serif_printable.bin resource
         between the different JDK versions.
          */
-        String fontName;
         String resourcePath;
-        Scanner sc;
 
         if(System.getenv("codePointList") != null) {
             resourcePath = System.getenv("codePointList");
-            try {
-                LOGGER.info(">>> Using file " + resourcePath + " to load unicode code points");
-                sc = new Scanner(new File(resourcePath));
-            } catch (FileNotFoundException ex) {
-                throw new RuntimeException("File not found or invalid " + System.getProperty("codePointList"));
+            LOGGER.info(">>> Using file " + resourcePath + " to load unicode code points");
+            try (InputStream in = new FileInputStream(resourcePath)) {
+                // A text list, as printed by main, or a binary index written by PrintableCodePointIndex
+                if (resourcePath.endsWith(textSuffix))
+                    return PrintableCodePointIndex.parse(new InputStreamReader(in, StandardCharsets.US_ASCII));
+                return PrintableCodePointIndex.read(in);
+            } catch (IOException ex) {
+                throw new RuntimeException("File not found or invalid " + resourcePath, ex);
             }
 
         } else {
             LOGGER.info(">>> Using unicode code points from inbuilt resource file");
-            fontName = font.getFontName().toLowerCase().split("\\.")[0];
+            String fontName = font.getFontName().toLowerCase().split("\\.")[0];
             resourcePath = directory + separator + fontName + suffix;
-            sc = new Scanner(PrintableCharFinder.class.getClassLoader().getResourceAsStream(resourcePath));
-
-        }
-        while (sc.hasNextLine()) {
-            String line = sc.nextLine();
-            String[] ints = line.split(",");
-            for (String i : ints) {
-                cPs[index] = Integer.parseInt(i.trim());
-                printableGlyphsBoolean[cPs[index]] = true;
-                index++;
+            try (InputStream in = PrintableCharFinder.class.getClassLoader().getResourceAsStream(resourcePath)) {
+                if (in == null)
+                    throw new IllegalStateException("Resource " + resourcePath + " not found");
+                return PrintableCodePointIndex.read(in);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Unable to read resource " + resourcePath, ex);
             }
         }
-        printableGlyphsInt = Arrays.copyOf(cPs, index);
     }
 
     public static void main(String... args) throws FileNotFoundException, InterruptedException {
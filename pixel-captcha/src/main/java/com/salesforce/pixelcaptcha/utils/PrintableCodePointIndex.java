@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An immutable bitset over the Basic Multilingual Plane with rank and select support.
+ * <p/>
+ * Bit i is set when code point i is printable. The binary form is the 1024 words of the bitset written as big endian
+ * longs, 8 KB in total, so it is loaded with a single read. A cumulative count per word is computed at load time so
+ * that rank is constant time and select is a binary search over the 1024 counts.
+ * <p/>
+ * The binary resource is generated from the comma separated code point list with
+ * {@code java com.salesforce.pixelcaptcha.utils.PrintableCodePointIndex <input.txt> <output.bin>}.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public final class PrintableCodePointIndex {
+    public static final int SIZE = 65536;
+    public static final int BYTES = SIZE / Byte.SIZE;
+
+    private static final int WORDS = SIZE / Long.SIZE;
+
+    private final long[] words;
+    // ranks[i] is the number of set bits in words[0 .. i - 1]
+    private final int[] ranks;
+
+    private PrintableCodePointIndex(long[] words) {
+        this.words = words;
+        this.ranks = new int[WORDS + 1];
+        for (int i = 0; i < WORDS; i++) {
+            ranks[i + 1] = ranks[i] + Long.bitCount(words[i]);
+        }
+    }
+
+    public static PrintableCodePointIndex fromCodePoints(int[] codePoints) {
+        if (codePoints == null)
+            throw new NullPointerException("Code points cannot be null");
+
+        long[] words = new long[WORDS];
+        for (int cp : codePoints) {
+            checkCodePoint(cp);
+            words[cp >>> 6] |= 1L << cp;
+        }
+        return new PrintableCodePointIndex(words);
+    }
+
+    /**
+     * Reads the binary form written by write.
+     *
+     * @param in stream positioned at the bitset. It is not closed.
+     * @return the index
+     * @throws IOException if the stream holds fewer than BYTES bytes
+     */
+    public static PrintableCodePointIndex read(InputStream in) throws IOException {
+        if (in == null)
+            throw new NullPointerException("Input stream cannot be null");
+
+        byte[] bytes = new byte[BYTES];
+        new DataInputStream(in).readFully(bytes);
+        long[] words = new long[WORDS];
+        ByteBuffer.wrap(bytes).asLongBuffer().get(words);
+        return new PrintableCodePointIndex(words);
+    }
+
+    /**
+     * Parses a list of decimal code points separated by commas, whitespace or line breaks.
+     *
+     * @param reader source of the list. It is not closed.
+     * @return the index
+     * @throws IOException if reading fails
+     */
+    public static PrintableCodePointIndex parse(Reader reader) throws IOException {
+        if (reader == null)
+            throw new NullPointerException("Reader cannot be null");
+
+        long[] words = new long[WORDS];
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        int value = -1;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value >= SIZE)
+                    throw new IllegalArgumentException("Code point must be less than " + SIZE);
+            } else if (c == ',' || Character.isWhitespace(c)) {
+                if (value >= 0)
+                    words[value >>> 6] |= 1L << value;
+                value = -1;
+            } else {
+                throw new IllegalArgumentException("Unexpected character '" + (char) c + "' in code point list");
+            }
+        }
+        if (value >= 0)
+            words[value >>> 6] |= 1L << value;
+        return new PrintableCodePointIndex(words);
+    }
+
+    public void write(OutputStream out) throws IOException {
+        if (out == null)
+            throw new NullPointerException("Output stream cannot be null");
+
+        ByteBuffer buffer = ByteBuffer.allocate(BYTES);
+        buffer.asLongBuffer().put(words);
+        out.write(buffer.array());
+    }
+
+    public boolean contains(int codePoint) {
+        checkCodePoint(codePoint);
+        return (words[codePoint >>> 6] & (1L << codePoint)) != 0;
+    }
+
+    /**
+     * @return number of code points in the index
+     */
+    public int cardinality() {
+        return ranks[WORDS];
+    }
+
+    /**
+     * @param codePoint a code point between 0 and SIZE, inclusive
+     * @return number of code points in the index that are less than codePoint
+     */
+    public int rank(int codePoint) {
+        if (codePoint < 0 || codePoint > SIZE)
+            throw new IllegalArgumentException("Code point must be between 0 and " + SIZE);
+        if (codePoint == SIZE)
+            return ranks[WORDS];
+
+        int word = codePoint >>> 6;
+        return ranks[word] + Long.bitCount(words[word] & ((1L << codePoint) - 1));
+    }
+
+    /**
+     * @param n zero based position
+     * @return the n-th smallest code point in the index
+     */
+    public int select(int n) {
+        if (n < 0 || n >= cardinality())
+            throw new IllegalArgumentException("Position must be between 0 and " + (cardinality() - 1));
+
+        // The last word whose preceding count is at most n holds the n-th bit
+        int low = 0;
+        int high = WORDS - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (ranks[mid] <= n) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        long word = words[low];
+        for (int i = ranks[low]; i < n; i++) {
+            word &= word - 1;
+        }
+        return (low << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * @return number of code points in the index between min and max, inclusive
+     */
+    public int count(int min, int max) {
+        checkRange(min, max);
+        return rank(max + 1) - rank(min);
+    }
+
+    /**
+     * @return the code points in the index between min and max, inclusive, in ascending order
+     */
+    public int[] codePoints(int min, int max) {
+        int count = count(min, max);
+        int[] result = new int[count];
+        if (count == 0)
+            return result;
+
+        int wordIndex = min >>> 6;
+        long word = words[wordIndex] & (-1L << min);
+        for (int i = 0; i < count; i++) {
+            while (word == 0) {
+                word = words[++wordIndex];
+            }
+            result[i] = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            word &= word - 1;
+        }
+        return result;
+    }
+
+    /**
+     * @param sortedCodePoints code points in ascending order without duplicates
+     * @return the code points that are in the index, in the same order
+     */
+    public int[] filter(int[] sortedCodePoints) {
+        if (sortedCodePoints == null)
+            throw new NullPointerException("Code points cannot be null");
+        if (sortedCodePoints.length == 0)
+            return new int[0];
+
+        int first = sortedCodePoints[0];
+        int last = sortedCodePoints[sortedCodePoints.length - 1];
+        if (last - first + 1 == sortedCodePoints.length)
+            return codePoints(first, last);
+
+        int[] result = new int[sortedCodePoints.length];
+        int count = 0;
+        for (int cp : sortedCodePoints) {
+            if (contains(cp))
+                result[count++] = cp;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static void checkCodePoint(int codePoint) {
+        if (codePoint < 0 || codePoint >= SIZE)
+            throw new IllegalArgumentException("codePoint parameter cannot be greater than " + SIZE + " or less than " + 0);
+    }
+
+    private static void checkRange(int min, int max) {
+        checkCodePoint(min);
+        checkCodePoint(max);
+        if (min > max)
+            throw new IllegalArgumentException("min cannot be greater than max");
+    }
+
+    /**
+     * Converts a comma separated code point list into the binary form.
+     *
+     * @param args input text file and output binary file
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length != 2)
+            throw new IllegalArgumentException("Usage: PrintableCodePointIndex <input.txt> <output.bin>");
+
+        PrintableCodePointIndex index;
+        try (Reader reader = new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.US_ASCII)) {
+            index = parse(reader);
+        }
+        try (OutputStream out = new FileOutputStream(args[1])) {
+            index.write(out);
+        }
+        System.err.println("Wrote " + index.cardinality() + " code points to " + args[1]);
+    }
+}
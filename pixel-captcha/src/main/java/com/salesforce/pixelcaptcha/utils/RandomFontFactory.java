@@ -7,12 +7,13 @@
 package com.salesforce.pixelcaptcha.utils;
 
 import java.awt.*;
-import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.google.common.base.Optional;
+import com.salesforce.pixelcaptcha.utils.impl.ChaCha20RandomSource;
 
 public class RandomFontFactory {
 
@@ -24,12 +25,6 @@ public class RandomFontFactory {
     public static final int DEFAULT_MIN_FONT_SIZE = 30;
     public static final int DEFAULT_MAX_FONT_SIZE = 45;
 
-    private static final SecureRandom rand;
-
-    static {
-        rand = new SecureRandom();
-    }
-
     public static final List<String> FONTS_SUPPORTED = (List<String>) Collections.unmodifiableList(
             Arrays.asList(
                     Font.SANS_SERIF,
@@ -46,6 +41,11 @@ public class RandomFontFactory {
     // Font and rotation can be chosen to be between two values
     private Optional<Integer> minFontSize;
     private Optional<Integer> maxFontSize;
+    private final RandomSource rand;
+    // Every font this factory can return, by name, size and style. Fonts are immutable, so each is created once on
+    // first use and then shared by all callers.
+    private final AtomicReferenceArray<Font> fontTable;
+    private static final int STYLE_COUNT = 4; // PLAIN, BOLD, ITALIC and BOLD | ITALIC
 
 
     public static class Builder {
@@ -66,6 +66,7 @@ public class RandomFontFactory {
         private Optional<Boolean> italic;
         private Optional<Integer> minFontSize;
         private Optional<Integer> maxFontSize;
+        private Optional<RandomSource> randomSource;
 
 
         public Builder() {
@@ -79,6 +80,9 @@ public class RandomFontFactory {
             minFontSize = Optional.absent();
             maxFontSize = Optional.absent();
 
+            // If not set, the shared ChaCha20RandomSource is used
+            randomSource = Optional.absent();
+
         }
 
         public Builder minFontSize(int minFontSize) {
@@ -115,6 +119,13 @@ public class RandomFontFactory {
         }
 
 
+        public Builder randomSource(RandomSource randomSource) {
+            if (randomSource == null)
+                throw new NullPointerException("Random source cannot be null");
+            this.randomSource = Optional.of(randomSource);
+            return this;
+        }
+
         public Builder bold(boolean bold) {
             this.bold = Optional.of(bold);
             return this;
@@ -137,6 +148,8 @@ public class RandomFontFactory {
 
         private void setDefaultsIfNotPresent() {
             setDefaultFontSizeIfNotPresent();
+            if (!this.randomSource.isPresent())
+                this.randomSource = Optional.<RandomSource>of(ChaCha20RandomSource.getInstance());
         }
 
         private void validateFontSizes() {
@@ -163,10 +176,17 @@ public class RandomFontFactory {
 
         this.minFontSize = builder.minFontSize;
         this.maxFontSize = builder.maxFontSize;
+        this.rand = builder.randomSource.get();
+        this.fontTable = new AtomicReferenceArray<>(
+                FONTS_SUPPORTED.size() * getFontSizeCount() * STYLE_COUNT);
+    }
+
+    private int getFontSizeCount() {
+        return this.maxFontSize.get() - this.minFontSize.get() + 1;
     }
 
 
-    private int getFontStyle() {
+    private int getFontStyle(RandomSource rand) {
         int fontStyle = 0;
         int temp;
 
@@ -192,23 +212,41 @@ public class RandomFontFactory {
 
 
     public Font getRandomFont() {
-        Font randomFont;
+        return getRandomFont(this.rand);
+    }
+
+    /**
+     * Draws the font from the supplied source instead of the one the factory was built with, so that a seeded source
+     * reproduces the same font.
+     *
+     * @param rand source of the random choices
+     * @return a random font as per the factory configuration. Fonts are shared between calls.
+     */
+    public Font getRandomFont(RandomSource rand) {
+        if (rand == null)
+            throw new NullPointerException("RandomSource cannot be null");
+
         int fontSize;
-        String fontName;
+        int fontNameIndex;
         int fontStyle;
 
         if (this.fontName.isPresent()) {
-            fontName = this.fontName.get();
+            fontNameIndex = FONTS_SUPPORTED.indexOf(this.fontName.get());
         } else {
-            fontName = FONTS_SUPPORTED.get(rand.nextInt(FONTS_SUPPORTED.size()));
+            fontNameIndex = rand.nextInt(FONTS_SUPPORTED.size());
         }
 
         // 1 is added to make sure that 0 is not passed to the random number generator and appropriate random values
         // are generated
         fontSize = this.minFontSize.get() + rand.nextInt(this.maxFontSize.get() - this.minFontSize.get() + 1);
-        fontStyle = getFontStyle();
+        fontStyle = getFontStyle(rand);
 
-        randomFont = new Font(fontName, fontStyle, fontSize);
-        return randomFont;
+        int index = (fontNameIndex * getFontSizeCount() + fontSize - this.minFontSize.get()) * STYLE_COUNT + fontStyle;
+        Font font = fontTable.get(index);
+        if (font == null) {
+            font = new Font(FONTS_SUPPORTED.get(fontNameIndex), fontStyle, fontSize);
+            fontTable.lazySet(index, font);
+        }
+        return font;
     }
 }
@@ -9,17 +9,17 @@ package com.salesforce.pixelcaptcha.utils;
 import java.awt.Font;
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.common.base.Optional;
 import com.salesforce.pixelcaptcha.core.GlobalConstants;
+import com.salesforce.pixelcaptcha.utils.impl.ChaCha20RandomSource;
 
 public class RandomPointFactory {
 
     public static final int DEFAULT_SPACING = 10;
     public static final int MAX_SPACING = 100;
-    private static final SecureRandom rand = new SecureRandom();
 
     /*
      * I plotted the string "AWMICZ" with these different fonts (SERIF, SANS_SERIF, MONOSPACE and DIALOG) with font size of 150
@@ -35,11 +35,16 @@ public class RandomPointFactory {
 
     private final int xSpacing;
     private final int ySpacing;
+    private final RandomSource rand;
 
     public RandomPointFactory() {
         this(DEFAULT_SPACING, DEFAULT_SPACING);
     }
 
+    public RandomPointFactory(int xSpacing, int ySpacing) {
+        this(xSpacing, ySpacing, ChaCha20RandomSource.getInstance());
+    }
+
     /**
      * xSpacing and ySpacing fields store the maximum allowed buffer in X and Y coordinates while
      * generating random coordinates for the next character to be placed.
@@ -47,13 +52,17 @@ public class RandomPointFactory {
      * For example, if a pixel instance is provided, the x and y coordinates will be calculated as:
      * newX = x +- (a number between 0 and xSpacing)
      * newY = y +- (a number between 0 and ySpacing)
+     * The randomSource provides the random offsets.
      */
-    public RandomPointFactory(int xSpacing, int ySpacing) {
+    public RandomPointFactory(int xSpacing, int ySpacing, RandomSource randomSource) {
         if (xSpacing < 0 || ySpacing < 0 || xSpacing > MAX_SPACING || ySpacing > MAX_SPACING) {
             throw new IllegalArgumentException("Illegal xSpacing or ySpacing value");
         }
+        if (randomSource == null)
+            throw new NullPointerException("Random source cannot be null");
         this.xSpacing = xSpacing;
         this.ySpacing = ySpacing;
+        this.rand = randomSource;
     }
 
 
@@ -65,9 +74,13 @@ public class RandomPointFactory {
      * @return A Point object that has coordinates where the first challenge character is to be drawn when challenges are drawn vertically
      */
     public static Point getFirstVChallengePointFromTopInRegion(Rectangle challengeRectangle, int challengeCount) {
+        return getFirstVChallengePointFromTopInRegion(challengeRectangle, challengeCount, ChaCha20RandomSource.getInstance());
+    }
+
+    public static Point getFirstVChallengePointFromTopInRegion(Rectangle challengeRectangle, int challengeCount, RandomSource randomSource) {
         // extract a smaller region towards the top of the challenge rectangle
         Rectangle region = new Rectangle(challengeRectangle.x, challengeRectangle.y, challengeRectangle.width, challengeRectangle.height / challengeCount);
-        return getRandomPoint(region);
+        return getRandomPoint(region, randomSource);
     }
 
     /**
@@ -120,8 +133,12 @@ public class RandomPointFactory {
 
 
     public static Point getFirstHChallengePointFromLeftInRegion(Rectangle challengeRectangle, int challengeCount) {
+        return getFirstHChallengePointFromLeftInRegion(challengeRectangle, challengeCount, ChaCha20RandomSource.getInstance());
+    }
+
+    public static Point getFirstHChallengePointFromLeftInRegion(Rectangle challengeRectangle, int challengeCount, RandomSource randomSource) {
         Rectangle region = new Rectangle(challengeRectangle.x, challengeRectangle.y, challengeRectangle.width / challengeCount, challengeRectangle.height);
-        return getRandomPoint(region);
+        return getRandomPoint(region, randomSource);
     }
 
     /**
@@ -182,7 +199,11 @@ public class RandomPointFactory {
      * @return
      */
     public static Point getRandomPoint(Rectangle rect) { // is used
-        Point p = getRandomPointWithDistance(rect, new ArrayList<Point>(), 0);
+        return getRandomPoint(rect, ChaCha20RandomSource.getInstance());
+    }
+
+    public static Point getRandomPoint(Rectangle rect, RandomSource randomSource) {
+        Point p = getRandomPointWithDistance(rect, new ArrayList<Point>(), 0, randomSource);
         return p;
     }
 
@@ -196,10 +217,20 @@ public class RandomPointFactory {
      * @return Random point in the rectangle.
      */
     public static Point getRandomPointWithDistance(Rectangle rectangle, List<Point> reference, int distance) {
-        int i = 0;
-        int max = 100000;
+        return getRandomPointWithDistance(rectangle, reference, distance, ChaCha20RandomSource.getInstance());
+    }
+
+    /**
+     * Same as getRandomPointWithDistance(Rectangle, List, int), with the coordinates drawn from randomSource.
+     * The work is bounded: see PoissonDiskSampler.
+     *
+     * @throws RuntimeException if no pixel of the rectangle is at the minimum distance from all the reference points
+     */
+    public static Point getRandomPointWithDistance(Rectangle rectangle, List<Point> reference, int distance, RandomSource randomSource) {
         if (rectangle == null)
             throw new NullPointerException("rectangle parameter cannot be null");
+        if (randomSource == null)
+            throw new NullPointerException("Random source cannot be null");
 
         if (rectangle.getX() < 0 || rectangle.getY() < 0) {
             throw new IllegalArgumentException("X or Y coordinates cannot be negative");
@@ -209,26 +240,14 @@ public class RandomPointFactory {
             throw new IllegalArgumentException("Width or height cannot be zero or negative");
         }
 
-        int x;
-        int y;
-        Point temp = null;
-        while (temp == null) {
-            if (i >= Integer.MAX_VALUE / 2048)
-                throw new RuntimeException("Cannot find random point in " + Integer.toString(max) + " attempts");
-            x = (int) (rectangle.getX() + rand.nextInt(rectangle.width));
-            y = (int) (rectangle.getY() + rand.nextInt(rectangle.height));
-            temp = new Point(x, y);
-
-            for (Point p : reference) {
-
-                if (p.distance(temp) < distance) {
-                    i++;
-                    temp = null;
-                    break;
-                }
-            }
+        PoissonDiskSampler sampler = new PoissonDiskSampler(rectangle, Math.max(distance, 0), randomSource);
+        for (Point p : reference) {
+            sampler.add(p);
         }
-        return temp;
+        Optional<Point> point = sampler.next();
+        if (!point.isPresent())
+            throw new RuntimeException("Cannot find random point at distance " + distance + " from " + reference.size() + " points");
+        return point.get();
     }
 
 	/*
@@ -254,6 +273,7 @@ public class RandomPointFactory {
         int width = rectangle.width;
         int height = rectangle.height;
 
+        RandomSource rand = ChaCha20RandomSource.getInstance();
         int yOffset = ((height - fontSize * challengeCount) / 2) + rand.nextInt(fontSize); // Optionally add another fontSize
         // The X coordinate has to be between (0.35 * fontSize) upto (width - fontSize)
         int xOffset = (int) 0.35 * fontSize + rand.nextInt(width - fontSize + 1);
@@ -332,6 +352,7 @@ public class RandomPointFactory {
         int width = (int) rectangle.getWidth();
         int height = (int) rectangle.getHeight();
 
+        RandomSource rand = ChaCha20RandomSource.getInstance();
         int xOffset = (int) (((width - fontSize * challengeCount) / 2.0) + rand.nextInt(fontSize));
         // The X coordinate has to be between (0.35 * fontSize) upto (width - fontSize)
         int yOffset = fontSize + rand.nextInt(height - fontSize);
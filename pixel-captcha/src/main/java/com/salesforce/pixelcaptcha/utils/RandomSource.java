@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils;
+
+/**
+ * Source of the random values used to generate CAPTCHAs and identifiers. Implementations must be safe for use by
+ * multiple threads and unpredictable to clients.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com.
+ */
+public interface RandomSource {
+    /**
+     * @param bound upper bound, exclusive. Must be positive.
+     * @return a uniformly distributed value between 0, inclusive, and bound, exclusive
+     */
+    public int nextInt(int bound);
+
+    public boolean nextBoolean();
+
+    /**
+     * @return a uniformly distributed value between 0.0, inclusive, and 1.0, exclusive
+     */
+    public double nextDouble();
+
+    public void nextBytes(byte[] bytes);
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils.impl;
+
+/**
+ * A deterministic random bit generator built on the ChaCha20 block function (RFC 7539) with fast key erasure.
+ * <p/>
+ * Each refill runs the block function on a 64 bit counter for BATCH_BLOCKS blocks. The first 32 bytes of the batch
+ * replace the key and the rest is handed out, so a later compromise of the state does not reveal output that was
+ * produced before the refill. Output that is still buffered is not protected.
+ * <p/>
+ * Not thread safe.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+final class ChaCha20Drbg {
+    static final int SEED_LENGTH = 32;
+
+    private static final int KEY_WORDS = 8;
+    private static final int BLOCK_WORDS = 16;
+    private static final int BATCH_BLOCKS = 16;
+    private static final int BATCH_WORDS = BATCH_BLOCKS * BLOCK_WORDS;
+
+    private final int[] key = new int[KEY_WORDS];
+    private final int[] state = new int[BLOCK_WORDS];
+    private final int[] batch = new int[BATCH_WORDS];
+    private int position = BATCH_WORDS;
+    private long counter;
+    private long refillCount;
+
+    /**
+     * @param seed at least SEED_LENGTH bytes of full entropy
+     */
+    ChaCha20Drbg(byte[] seed) {
+        reseed(seed);
+    }
+
+    /**
+     * Mixes the first SEED_LENGTH bytes of seed into the key. Buffered output is discarded.
+     */
+    void reseed(byte[] seed) {
+        if (seed == null)
+            throw new NullPointerException("Seed cannot be null");
+        if (seed.length < SEED_LENGTH)
+            throw new IllegalArgumentException("Seed must be at least " + SEED_LENGTH + " bytes long");
+
+        for (int i = 0; i < KEY_WORDS; i++)
+            key[i] ^= littleEndianInt(seed, 4 * i);
+        position = BATCH_WORDS;
+        refillCount = 0;
+    }
+
+    /**
+     * @return number of refills since the last reseed
+     */
+    long getRefillCount() {
+        return refillCount;
+    }
+
+    int nextInt() {
+        if (position == BATCH_WORDS)
+            refill();
+        return batch[position++];
+    }
+
+    /**
+     * @param bound upper bound, exclusive. Must be positive.
+     * @return a uniformly distributed value between 0, inclusive, and bound, exclusive
+     */
+    int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("Bound must be positive");
+
+        int r = nextInt() >>> 1;
+        int m = bound - 1;
+        if ((bound & m) == 0)
+            return (int) ((bound * (long) r) >> 31);
+
+        // Rejects the values of the incomplete last range, as java.util.Random does
+        for (int u = r; u - (r = u % bound) + m < 0; u = nextInt() >>> 1)
+            ;
+        return r;
+    }
+
+    boolean nextBoolean() {
+        return nextInt() < 0;
+    }
+
+    double nextDouble() {
+        long high = nextInt() >>> 6;
+        long low = nextInt() >>> 5;
+        return ((high << 27) + low) * 0x1.0p-53;
+    }
+
+    /**
+     * Fills bytes with output words in little endian order. A partly used word is discarded.
+     */
+    void nextBytes(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i += 4) {
+            int word = nextInt();
+            for (int j = i; j < Math.min(i + 4, bytes.length); j++) {
+                bytes[j] = (byte) word;
+                word >>>= 8;
+            }
+        }
+    }
+
+    private void refill() {
+        state[0] = 0x61707865;
+        state[1] = 0x3320646e;
+        state[2] = 0x79622d32;
+        state[3] = 0x6b206574;
+        System.arraycopy(key, 0, state, 4, KEY_WORDS);
+        state[14] = 0;
+        state[15] = 0;
+        for (int i = 0; i < BATCH_BLOCKS; i++) {
+            state[12] = (int) counter;
+            state[13] = (int) (counter >>> 32);
+            counter++;
+            block(state, batch, i * BLOCK_WORDS);
+        }
+        System.arraycopy(batch, 0, key, 0, KEY_WORDS);
+        position = KEY_WORDS;
+        refillCount++;
+    }
+
+    /**
+     * The ChaCha20 block function. Writes the 16 output words of input to out, starting at offset.
+     */
+    static void block(int[] input, int[] out, int offset) {
+        int x0 = input[0], x1 = input[1], x2 = input[2], x3 = input[3];
+        int x4 = input[4], x5 = input[5], x6 = input[6], x7 = input[7];
+        int x8 = input[8], x9 = input[9], x10 = input[10], x11 = input[11];
+        int x12 = input[12], x13 = input[13], x14 = input[14], x15 = input[15];
+
+        for (int i = 0; i < 10; i++) {
+            // Column rounds
+            x0 += x4; x12 = Integer.rotateLeft(x12 ^ x0, 16); x8 += x12; x4 = Integer.rotateLeft(x4 ^ x8, 12);
+            x0 += x4; x12 = Integer.rotateLeft(x12 ^ x0, 8); x8 += x12; x4 = Integer.rotateLeft(x4 ^ x8, 7);
+            x1 += x5; x13 = Integer.rotateLeft(x13 ^ x1, 16); x9 += x13; x5 = Integer.rotateLeft(x5 ^ x9, 12);
+            x1 += x5; x13 = Integer.rotateLeft(x13 ^ x1, 8); x9 += x13; x5 = Integer.rotateLeft(x5 ^ x9, 7);
+            x2 += x6; x14 = Integer.rotateLeft(x14 ^ x2, 16); x10 += x14; x6 = Integer.rotateLeft(x6 ^ x10, 12);
+            x2 += x6; x14 = Integer.rotateLeft(x14 ^ x2, 8); x10 += x14; x6 = Integer.rotateLeft(x6 ^ x10, 7);
+            x3 += x7; x15 = Integer.rotateLeft(x15 ^ x3, 16); x11 += x15; x7 = Integer.rotateLeft(x7 ^ x11, 12);
+            x3 += x7; x15 = Integer.rotateLeft(x15 ^ x3, 8); x11 += x15; x7 = Integer.rotateLeft(x7 ^ x11, 7);
+            // Diagonal rounds
+            x0 += x5; x15 = Integer.rotateLeft(x15 ^ x0, 16); x10 += x15; x5 = Integer.rotateLeft(x5 ^ x10, 12);
+            x0 += x5; x15 = Integer.rotateLeft(x15 ^ x0, 8); x10 += x15; x5 = Integer.rotateLeft(x5 ^ x10, 7);
+            x1 += x6; x12 = Integer.rotateLeft(x12 ^ x1, 16); x11 += x12; x6 = Integer.rotateLeft(x6 ^ x11, 12);
+            x1 += x6; x12 = Integer.rotateLeft(x12 ^ x1, 8); x11 += x12; x6 = Integer.rotateLeft(x6 ^ x11, 7);
+            x2 += x7; x13 = Integer.rotateLeft(x13 ^ x2, 16); x8 += x13; x7 = Integer.rotateLeft(x7 ^ x8, 12);
+            x2 += x7; x13 = Integer.rotateLeft(x13 ^ x2, 8); x8 += x13; x7 = Integer.rotateLeft(x7 ^ x8, 7);
+            x3 += x4; x14 = Integer.rotateLeft(x14 ^ x3, 16); x9 += x14; x4 = Integer.rotateLeft(x4 ^ x9, 12);
+            x3 += x4; x14 = Integer.rotateLeft(x14 ^ x3, 8); x9 += x14; x4 = Integer.rotateLeft(x4 ^ x9, 7);
+        }
+
+        out[offset] = x0 + input[0];
+        out[offset + 1] = x1 + input[1];
+        out[offset + 2] = x2 + input[2];
+        out[offset + 3] = x3 + input[3];
+        out[offset + 4] = x4 + input[4];
+        out[offset + 5] = x5 + input[5];
+        out[offset + 6] = x6 + input[6];
+        out[offset + 7] = x7 + input[7];
+        out[offset + 8] = x8 + input[8];
+        out[offset + 9] = x9 + input[9];
+        out[offset + 10] = x10 + input[10];
+        out[offset + 11] = x11 + input[11];
+        out[offset + 12] = x12 + input[12];
+        out[offset + 13] = x13 + input[13];
+        out[offset + 14] = x14 + input[14];
+        out[offset + 15] = x15 + input[15];
+    }
+
+    private static int littleEndianInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8
+                | (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils.impl;
+
+import com.salesforce.pixelcaptcha.utils.RandomSource;
+
+import java.security.SecureRandom;
+
+/**
+ * A RandomSource with one ChaCha20 generator per thread, so that threads never wait for each other.
+ * <p/>
+ * Each generator is seeded from a shared SecureRandom when a thread first uses it, and reseeded from it after
+ * reseedInterval refills of 992 bytes. The shared SecureRandom is only touched when seeding.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class ChaCha20RandomSource implements RandomSource {
+    public static final long DEFAULT_RESEED_INTERVAL = 1024;
+
+    private static ChaCha20RandomSource INSTANCE = null;
+
+    private final SecureRandom seeder;
+    private final long reseedInterval;
+    private final ThreadLocal<ChaCha20Drbg> generators = new ThreadLocal<ChaCha20Drbg>() {
+        @Override
+        protected ChaCha20Drbg initialValue() {
+            return new ChaCha20Drbg(nextSeed());
+        }
+    };
+
+    /**
+     * @param seeder         source of the seeds
+     * @param reseedInterval number of refills a generator does before it is reseeded
+     */
+    public ChaCha20RandomSource(SecureRandom seeder, long reseedInterval) {
+        if (seeder == null)
+            throw new NullPointerException("Seeder cannot be null");
+        if (reseedInterval <= 0)
+            throw new IllegalArgumentException("Reseed interval must be positive");
+        this.seeder = seeder;
+        this.reseedInterval = reseedInterval;
+    }
+
+    public static synchronized ChaCha20RandomSource getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new ChaCha20RandomSource(new SecureRandom(), DEFAULT_RESEED_INTERVAL);
+        }
+        return INSTANCE;
+    }
+
+    private byte[] nextSeed() {
+        byte[] seed = new byte[ChaCha20Drbg.SEED_LENGTH];
+        seeder.nextBytes(seed);
+        return seed;
+    }
+
+    private ChaCha20Drbg generator() {
+        ChaCha20Drbg generator = generators.get();
+        if (generator.getRefillCount() >= reseedInterval)
+            generator.reseed(nextSeed());
+        return generator;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return generator().nextInt(bound);
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return generator().nextBoolean();
+    }
+
+    @Override
+    public double nextDouble() {
+        return generator().nextDouble();
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        if (bytes == null)
+            throw new NullPointerException("Bytes cannot be null");
+        generator().nextBytes(bytes);
+    }
+}
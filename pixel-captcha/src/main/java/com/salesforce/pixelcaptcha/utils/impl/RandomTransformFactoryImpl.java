@@ -8,10 +8,10 @@
 package com.salesforce.pixelcaptcha.utils.impl;
 
 import com.google.common.base.Optional;
+import com.salesforce.pixelcaptcha.utils.RandomSource;
 import com.salesforce.pixelcaptcha.utils.RandomTransformFactory;
 
 import java.awt.geom.AffineTransform;
-import java.security.SecureRandom;
 
 public class RandomTransformFactoryImpl implements RandomTransformFactory {
 
@@ -37,12 +37,6 @@ public class RandomTransformFactoryImpl implements RandomTransformFactory {
     public static final double DEFAULT_SCALE_X = 1.0;
     public static final double DEFAULT_SCALE_Y = 1.0;
 
-    private static final SecureRandom rand;
-
-    static {
-        rand = new SecureRandom();
-    }
-
     private Optional<Integer> minRotation;
     private Optional<Integer> maxRotation;
 
@@ -55,6 +49,7 @@ public class RandomTransformFactoryImpl implements RandomTransformFactory {
     private Optional<Double> minScaleY;
     private Optional<Double> maxScaleX;
     private Optional<Double> maxScaleY;
+    private final RandomSource rand;
 
 
     public static class Builder {
@@ -85,6 +80,8 @@ public class RandomTransformFactoryImpl implements RandomTransformFactory {
         private Optional<Double> maxScaleX;
         private Optional<Double> maxScaleY;
 
+        private Optional<RandomSource> randomSource;
+
         public Builder() {
 
             minRotation = Optional.absent();
@@ -100,6 +97,9 @@ public class RandomTransformFactoryImpl implements RandomTransformFactory {
             minScaleY = Optional.absent();
             maxScaleY = Optional.absent();
 
+            // If not set, the shared ChaCha20RandomSource is used
+            randomSource = Optional.absent();
+
         }
 
         public Builder minRotation(int minRotation) {
@@ -204,10 +204,20 @@ public class RandomTransformFactoryImpl implements RandomTransformFactory {
                 this.maxRotation = Optional.of(DEFAULT_MAX_ROTATION);
         }
 
+        public Builder randomSource(RandomSource randomSource) {
+            if (randomSource == null)
+                throw new NullPointerException("Random source cannot be null");
+            this.randomSource = Optional.of(randomSource);
+            return this;
+        }
+
+
         private void setDefaultsIfNotPresent() {
             setDefaultShearsIfNotPresent();
             setDefaultRotationIfNotPresent();
             setDefaultScalesIfNotPresent();
+            if (!this.randomSource.isPresent())
+                this.randomSource = Optional.<RandomSource>of(ChaCha20RandomSource.getInstance());
         }
 
         private void validateShears() {
@@ -260,13 +270,41 @@ public class RandomTransformFactoryImpl implements RandomTransformFactory {
         this.minScaleY = builder.minScaleY;
         this.maxScaleY = builder.maxScaleY;
 
+        this.rand = builder.randomSource.get();
 
     }
 
     @Override
     public AffineTransform getRandomTransform() {
+        return getRandomTransform(this.rand);
+    }
+
+    /**
+     * Draws the transform from the supplied source instead of the one the factory was built with, so that a seeded
+     * source reproduces the same transform.
+     *
+     * @param rand source of the random choices
+     * @return a random transform as per the factory configuration
+     */
+    public AffineTransform getRandomTransform(RandomSource rand) {
+        return getRandomTransform(rand, new AffineTransform());
+    }
+
+    /**
+     * Same as getRandomTransform(RandomSource), but overwrites aft instead of allocating a new transform.
+     *
+     * @param rand source of the random choices
+     * @param aft  transform to overwrite
+     * @return aft
+     */
+    public AffineTransform getRandomTransform(RandomSource rand, AffineTransform aft) {
+        if (rand == null)
+            throw new NullPointerException("RandomSource cannot be null");
+        if (aft == null)
+            throw new NullPointerException("AffineTransform cannot be null");
+
         int rotation;
-        AffineTransform aft = new AffineTransform();
+        aft.setToIdentity();
 
         double shearX;
         double shearY;
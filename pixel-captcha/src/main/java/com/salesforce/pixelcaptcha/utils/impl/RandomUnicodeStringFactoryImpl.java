@@ -8,10 +8,10 @@
 package com.salesforce.pixelcaptcha.utils.impl;
 
 import java.awt.Font;
-import java.security.SecureRandom;
 import java.util.Arrays;
 
 import com.salesforce.pixelcaptcha.utils.Helper;
+import com.salesforce.pixelcaptcha.utils.RandomSource;
 import com.salesforce.pixelcaptcha.utils.RandomStringFactory;
 
 /**
@@ -22,11 +22,7 @@ public class RandomUnicodeStringFactoryImpl implements RandomStringFactory {
     public static final int MAX_LENGTH = 100;
     public static final int ONE = 1;
     private int[] printableCodePoints;
-    private static final SecureRandom rand;
-
-    static {
-        rand = new SecureRandom();
-    }
+    private final RandomSource rand;
 
     /**
      * Initialize the class with a Code Point array. This class assumes that all the characters passed to it are printable
@@ -37,10 +33,32 @@ public class RandomUnicodeStringFactoryImpl implements RandomStringFactory {
      * @param printableCodePointArray
      */
     public RandomUnicodeStringFactoryImpl(int[] printableCodePointArray) {
+        this(printableCodePointArray, ChaCha20RandomSource.getInstance());
+    }
+
+    /**
+     * @param printableCodePointArray sorted printable code points
+     * @param randomSource            source of the random characters
+     */
+    public RandomUnicodeStringFactoryImpl(int[] printableCodePointArray, RandomSource randomSource) {
+        if (randomSource == null)
+            throw new NullPointerException("Random source cannot be null");
         if (printableCodePointArray == null || printableCodePointArray.length == 0)
             throw new IllegalArgumentException("PrintableCodePointArray is either null or of zero length");
         Helper.validateCodePointValues(printableCodePointArray);
-        this.printableCodePoints = Arrays.copyOf(printableCodePointArray, printableCodePointArray.length);
+        this.printableCodePoints = getDistinctSortedCopy(printableCodePointArray);
+        this.rand = randomSource;
+    }
+
+    private static int[] getDistinctSortedCopy(int[] codePoints) {
+        int[] copy = Arrays.copyOf(codePoints, codePoints.length);
+        Arrays.sort(copy);
+        int count = 1;
+        for (int i = 1; i < copy.length; i++) {
+            if (copy[i] != copy[count - 1])
+                copy[count++] = copy[i];
+        }
+        return Arrays.copyOf(copy, count);
     }
 
     /**
@@ -62,6 +80,18 @@ public class RandomUnicodeStringFactoryImpl implements RandomStringFactory {
 
     @Override
     public String getString(int length) {
+        return getString(length, this.rand);
+    }
+
+    /**
+     * @param length Length of the returned string. Must be greater than 0 and less than MAX_LENGTH
+     * @param rand   source of the random choices, used instead of the one the factory was created with
+     * @return a string of random printable characters
+     */
+    public String getString(int length, RandomSource rand) {
+        if (rand == null)
+            throw new NullPointerException("RandomSource cannot be null");
+
         StringBuilder sb = new StringBuilder();
         if (length <= 0 || length > MAX_LENGTH)
             throw new IllegalArgumentException("String length must be greater than 0 and less that or equal to " + MAX_LENGTH);
@@ -77,4 +107,53 @@ public class RandomUnicodeStringFactoryImpl implements RandomStringFactory {
     public String getOneCharString() {
         return getString(ONE);
     }
+
+    public String getOneCharString(RandomSource rand) {
+        return getString(ONE, rand);
+    }
+
+    /**
+     * Picks count different code points with a partial Fisher-Yates shuffle of the printable code points. The shuffle
+     * does not copy the code point array: the few positions it swaps are tracked on the side, so the cost depends only
+     * on count.
+     *
+     * @param count number of code points to pick. Cannot be more than the number of printable code points.
+     * @param rand  source of the random choices
+     * @return count distinct code points in random order
+     */
+    public int[] getDistinctCodePoints(int count, RandomSource rand) {
+        if (rand == null)
+            throw new NullPointerException("RandomSource cannot be null");
+        if (count < 0 || count > printableCodePoints.length)
+            throw new IllegalArgumentException("Count must be between 0 and " + printableCodePoints.length);
+
+        int[] result = new int[count];
+        // Position swappedPositions[k] of the shuffled array holds swappedValues[k]
+        int[] swappedPositions = new int[count];
+        int[] swappedValues = new int[count];
+        int swapCount = 0;
+
+        for (int i = 0; i < count; i++) {
+            int j = i + rand.nextInt(printableCodePoints.length - i);
+            int jSlot = -1;
+            int iValue = printableCodePoints[i];
+            int jValue = printableCodePoints[j];
+            for (int k = 0; k < swapCount; k++) {
+                if (swappedPositions[k] == i)
+                    iValue = swappedValues[k];
+                if (swappedPositions[k] == j) {
+                    jValue = swappedValues[k];
+                    jSlot = k;
+                }
+            }
+            result[i] = jValue;
+            // Position i is never read again, so only position j needs to remember the swap
+            if (jSlot < 0) {
+                jSlot = swapCount++;
+                swappedPositions[jSlot] = j;
+            }
+            swappedValues[jSlot] = iValue;
+        }
+        return result;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils.impl;
+
+import com.salesforce.pixelcaptcha.utils.RandomSource;
+
+import java.security.SecureRandom;
+
+/**
+ * A RandomSource backed by one SecureRandom shared by all threads. The platform SecureRandom implementations
+ * synchronize internally, so threads generating CAPTCHAs concurrently wait for each other. Use ChaCha20RandomSource
+ * unless the platform SecureRandom is required.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class SecureRandomSource implements RandomSource {
+    private static SecureRandomSource INSTANCE = null;
+
+    private final SecureRandom secureRandom;
+
+    public SecureRandomSource(SecureRandom secureRandom) {
+        if (secureRandom == null)
+            throw new NullPointerException("SecureRandom cannot be null");
+        this.secureRandom = secureRandom;
+    }
+
+    public static synchronized SecureRandomSource getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new SecureRandomSource(new SecureRandom());
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return secureRandom.nextInt(bound);
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return secureRandom.nextBoolean();
+    }
+
+    @Override
+    public double nextDouble() {
+        return secureRandom.nextDouble();
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        secureRandom.nextBytes(bytes);
+    }
+}
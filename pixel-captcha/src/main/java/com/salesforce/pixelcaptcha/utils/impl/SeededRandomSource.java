@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+
+package com.salesforce.pixelcaptcha.utils.impl;
+
+import com.salesforce.pixelcaptcha.utils.RandomSource;
+
+/**
+ * A RandomSource whose output is fully determined by a 256 bit seed. It is a single ChaCha20 generator that is never
+ * reseeded, so the same seed yields the same sequence on every node and JVM.
+ * <p/>
+ * Not thread safe. Create one instance per CAPTCHA.
+ *
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class SeededRandomSource implements RandomSource {
+    public static final int SEED_LENGTH = ChaCha20Drbg.SEED_LENGTH;
+
+    private final ChaCha20Drbg generator;
+
+    /**
+     * @param seed SEED_LENGTH random bytes
+     */
+    public SeededRandomSource(byte[] seed) {
+        if (seed == null)
+            throw new NullPointerException("Seed cannot be null");
+        if (seed.length != SEED_LENGTH)
+            throw new IllegalArgumentException("Seed must be " + SEED_LENGTH + " bytes long");
+        this.generator = new ChaCha20Drbg(seed);
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return generator.nextInt(bound);
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return generator.nextBoolean();
+    }
+
+    @Override
+    public double nextDouble() {
+        return generator.nextDouble();
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        if (bytes == null)
+            throw new NullPointerException("Bytes cannot be null");
+        generator.nextBytes(bytes);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.core;
+
+import com.salesforce.pixelcaptcha.interfaces.Captcha;
+import com.salesforce.pixelcaptcha.interfaces.ValidationResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class AsyncCaptchaExecutorTest {
+    private AsyncCaptchaExecutor executor;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        executor = new AsyncCaptchaExecutor(1, 1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    // Occupies the only render thread until release is counted down
+    private CompletableFuture<String> block() {
+        return executor.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "blocked";
+        }, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private static Throwable getCause(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Future completed normally");
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (TimeoutException e) {
+            fail("Future did not complete");
+        }
+        return null;
+    }
+
+    @Test
+    public void testResultIsDelivered() throws Exception {
+        assertEquals("done", executor.submit(() -> "done", 0, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        block();
+        CompletableFuture<String> queued = executor.submit(() -> "late", 50, TimeUnit.MILLISECONDS);
+        assertTrue(getCause(queued) instanceof TimeoutException);
+        // The timed out task leaves the queue once the completion callbacks have run
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getQueueSize() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertEquals(0, executor.getQueueSize());
+    }
+
+    @Test
+    public void testCancelledTaskDoesNotRun() throws Exception {
+        CompletableFuture<String> blocker = block();
+        final AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<String> queued = executor.submit(() -> {
+            ran.set(true);
+            return "cancelled";
+        }, 0, TimeUnit.MILLISECONDS);
+        assertTrue(queued.cancel(false));
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void testFullQueueRejects() throws Exception {
+        block();
+        // Give the render thread time to take the blocking task off the queue
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getQueueSize() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        executor.submit(() -> "queued", 0, TimeUnit.MILLISECONDS);
+        assertTrue(getCause(executor.submit(() -> "rejected", 0, TimeUnit.MILLISECONDS)) instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void testSuppliedExecutorRunsTheTask() throws Exception {
+        final AtomicReference<String> thread = new AtomicReference<>();
+        CompletableFuture<String> future = executor.submit(() -> {
+            thread.set(Thread.currentThread().getName());
+            return "done";
+        }, r -> new Thread(r, "caller-supplied").start(), 0, TimeUnit.MILLISECONDS);
+        assertEquals("done", future.get(5, TimeUnit.SECONDS));
+        assertEquals("caller-supplied", thread.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreadCount() throws Exception {
+        new AsyncCaptchaExecutor(AsyncCaptchaExecutor.MIN_THREADS - 1, 1);
+    }
+
+    @Test
+    public void testProviderAsyncApi() throws Exception {
+        Properties p = new Properties();
+        p.setProperty("codePoints", "0-255");
+        p.setProperty("asyncThreads", "2");
+        PixelCaptchaProvider provider = new PixelCaptchaProvider(p);
+        try {
+            Captcha captcha = provider.getCaptchaAsync(10, TimeUnit.SECONDS).get();
+            assertNotNull(captcha.getImage());
+
+            ValidationResult result = provider.verifyAsync(captcha.getIdentifier(), "{\"0\":{\"x\":1,\"y\":1}}").get();
+            assertFalse(result.isPositive());
+            // Verified once already
+            result = provider.verifyAsync(captcha.getIdentifier(), "{}").get();
+            assertEquals("Solution not found or expired", result.getResponseDetails());
+        } finally {
+            provider.shutdown();
+        }
+    }
+}
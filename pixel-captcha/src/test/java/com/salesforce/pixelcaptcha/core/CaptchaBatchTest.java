@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.core;
+
+import com.salesforce.pixelcaptcha.interfaces.Captcha;
+import com.salesforce.pixelcaptcha.interfaces.CaptchaProvider;
+import com.salesforce.pixelcaptcha.interfaces.ValidationResult;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class CaptchaBatchTest {
+    private static final String NOT_FOUND = "Solution not found or expired";
+
+    private Properties getProperties(boolean seeded) {
+        Properties p = new Properties();
+        p.setProperty("captchaWidth", "400");
+        p.setProperty("captchaHeight", "300");
+        p.setProperty("codePoints", "0-255");
+        p.setProperty("seededGeneration", Boolean.toString(seeded));
+        return p;
+    }
+
+    private static void assertStored(PixelCaptchaController pcc, List<Captcha> captchas) {
+        Set<String> identifiers = new HashSet<>();
+        for (Captcha captcha : captchas) {
+            assertNotNull(captcha.getImage());
+            assertTrue(identifiers.add(captcha.getIdentifier()));
+            assertNotEquals(NOT_FOUND, pcc.verifyCaptcha(captcha.getIdentifier(), new ArrayList<Point>()).getResponseDetails());
+        }
+    }
+
+    @Test
+    public void testBatchIsStored() throws Exception {
+        PixelCaptchaController pcc = new PixelCaptchaController();
+        pcc.initProperties(getProperties(false));
+        List<Captcha> captchas = pcc.getCaptchas(9);
+        assertEquals(9, captchas.size());
+        assertStored(pcc, captchas);
+    }
+
+    @Test
+    public void testSeededCaptchaIsWrittenAsPng() throws Exception {
+        PixelCaptchaController pcc = new PixelCaptchaController();
+        pcc.initProperties(getProperties(true));
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        String identifier = pcc.writeCaptcha(written);
+        ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+        assertTrue(pcc.renderCaptcha(identifier, rendered));
+
+        assertArrayEquals(written.toByteArray(), rendered.toByteArray());
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(rendered.toByteArray()));
+        assertEquals(400, image.getWidth());
+        assertEquals(300, image.getHeight());
+        assertFalse(pcc.renderCaptcha("unknown", new ByteArrayOutputStream()));
+        assertNotEquals(NOT_FOUND, pcc.verifyCaptcha(identifier, new ArrayList<Point>()).getResponseDetails());
+    }
+
+    @Test
+    public void testSeededBatchCanBeRenderedAgain() throws Exception {
+        PixelCaptchaController pcc = new PixelCaptchaController();
+        pcc.initProperties(getProperties(true));
+        List<Captcha> captchas = pcc.getCaptchas(3);
+
+        for (Captcha captcha : captchas) {
+            BufferedImage image = pcc.renderCaptcha(captcha.getIdentifier()).get();
+            for (int x = 0; x < image.getWidth(); x += 7) {
+                for (int y = 0; y < image.getHeight(); y += 7) {
+                    assertEquals(captcha.getImage().getRGB(x, y), image.getRGB(x, y));
+                }
+            }
+        }
+        assertStored(pcc, captchas);
+    }
+
+    @Test
+    public void testStreamingBatchDeliversEveryCaptcha() throws Exception {
+        CaptchaProvider provider = new PixelCaptchaProvider(getProperties(false));
+        final List<Captcha> captchas = new ArrayList<>();
+        provider.getCaptchas(7, 3, captchas::add);
+        assertEquals(7, captchas.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCount() throws Exception {
+        PixelCaptchaController pcc = new PixelCaptchaController();
+        pcc.initProperties(getProperties(false));
+        pcc.getCaptchas(0);
+    }
+
+    @Test
+    public void testDefaultMethodsOfProvidersWithoutBatchOrAsyncSupport() throws Exception {
+        final PixelCaptchaController pcc = new PixelCaptchaController();
+        pcc.initProperties(getProperties(false));
+        // Implements only the abstract methods, as providers written before the batch and asynchronous APIs do
+        CaptchaProvider provider = new CaptchaProvider() {
+            public void init(Properties config) {
+            }
+
+            public String getName() {
+                return "TEST";
+            }
+
+            public String getIdentifier() {
+                return "TEST";
+            }
+
+            public String getVersion() {
+                return "1.0";
+            }
+
+            public Captcha getCaptcha() {
+                return pcc.getCaptcha();
+            }
+
+            public ValidationResult verify(String captchaIdentifier, String response) {
+                return pcc.verifyCaptcha(captchaIdentifier, new ArrayList<Point>());
+            }
+        };
+
+        List<Captcha> captchas = provider.getCaptchas(3);
+        assertEquals(3, captchas.size());
+        assertStored(pcc, captchas);
+
+        final List<Captcha> streamed = new ArrayList<>();
+        provider.getCaptchas(5, 2, streamed::add);
+        assertEquals(5, streamed.size());
+
+        Captcha captcha = provider.getCaptchaAsync(1, TimeUnit.MINUTES).get();
+        assertStored(pcc, Collections.singletonList(captcha));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            captcha = provider.getCaptchaAsync(executor).get();
+        } finally {
+            executor.shutdown();
+        }
+        ValidationResult vr = provider.verifyAsync(captcha.getIdentifier(), "[]", 1, TimeUnit.MINUTES).get();
+        assertFalse(vr.isPositive());
+        assertNotEquals(NOT_FOUND, vr.getResponseDetails());
+    }
+}
@@ -8,6 +8,7 @@ package com.salesforce.pixelcaptcha.core;
 
 import com.salesforce.pixelcaptcha.dataobj.CaptchaDimension;
 import com.salesforce.pixelcaptcha.dataobj.CaptchaMetadata;
+import com.salesforce.pixelcaptcha.dataobj.GlyphArray;
 import com.salesforce.pixelcaptcha.dataobj.PointProperty;
 import org.junit.After;
 import org.junit.Before;
@@ -45,14 +46,18 @@ public class CaptchaBuilderTest {
     @Before
     public void setUp() throws Exception {
         List<PointProperty> list = getPointProperties();
+        GlyphArray glyphs = GlyphArray.fromPointProperties(list);
         captchaMetadata = mock(CaptchaMetadata.class);
 
         //Takes care of getBufferedImage
         when(captchaMetadata.getCaptchaDimension()).thenReturn(new CaptchaDimension(200, 100));
         when(captchaMetadata.getImageType()).thenReturn(GlobalConstants.DEFAULT_IMAGE_TYPE);
+        when(captchaMetadata.getImageColorMode()).thenReturn(GlobalConstants.IMAGE_COLOR_MODE);
 
         when(captchaMetadata.getBackgroundColor()).thenReturn(Color.WHITE);
         when(captchaMetadata.getChallenge()).thenReturn(list);
+        when(captchaMetadata.getChallengeGlyphs()).thenReturn(glyphs);
+        when(captchaMetadata.getSolutionOptionGlyphs()).thenReturn(new GlyphArray(0));
 
     }
 
@@ -68,4 +73,98 @@ public class CaptchaBuilderTest {
         assertEquals(200, bi.getWidth());
         assertEquals(100, bi.getHeight());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRenderContextImageMatchesNewImage() throws Exception {
+        BufferedImage expected = CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, GlyphRenderingMode.DRAW_STRING);
+        try (RenderContext context = RenderContext.acquire()) {
+            // The second CAPTCHA is painted over the first one in the same image
+            BufferedImage first = CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, GlyphRenderingMode.CACHED_OUTLINE, context);
+            BufferedImage second = CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, GlyphRenderingMode.DRAW_STRING, context);
+            assertSame(first, second);
+            for (int x = 0; x < expected.getWidth(); x++) {
+                for (int y = 0; y < expected.getHeight(); y++) {
+                    assertEquals(expected.getRGB(x, y), second.getRGB(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIndexedImagesUseThePalette() throws Exception {
+        BufferedImage rgb = CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, GlyphRenderingMode.DRAW_STRING);
+        when(captchaMetadata.getImageColorMode()).thenReturn(ImageColorMode.INDEXED_2_BIT);
+        BufferedImage twoBit = CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, GlyphRenderingMode.DRAW_STRING);
+        when(captchaMetadata.getImageColorMode()).thenReturn(ImageColorMode.INDEXED_4_BIT);
+        BufferedImage fourBit = CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, GlyphRenderingMode.DRAW_STRING);
+
+        assertEquals(2, twoBit.getColorModel().getPixelSize());
+        assertEquals(4, fourBit.getColorModel().getPixelSize());
+        int shadedCount = 0;
+        for (int x = 0; x < rgb.getWidth(); x++) {
+            for (int y = 0; y < rgb.getHeight(); y++) {
+                // Black and white are exact in 16 bit RGB, so without antialiasing the images are identical
+                assertEquals(rgb.getRGB(x, y), twoBit.getRGB(x, y));
+                int shaded = fourBit.getRGB(x, y);
+                if (shaded != Color.WHITE.getRGB() && shaded != Color.BLACK.getRGB())
+                    shadedCount++;
+            }
+        }
+        assertTrue(shadedCount > 0);
+    }
+
+    @Test
+    public void testOutlineRenderingPaintsTheSamePlaces() throws Exception {
+        when(captchaMetadata.getSolutionOptions()).thenReturn(new ArrayList<PointProperty>());
+        when(captchaMetadata.getSolutionOptionGlyphs()).thenReturn(new GlyphArray(0));
+        BufferedImage drawn = CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, GlyphRenderingMode.DRAW_STRING);
+        BufferedImage filled = CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, GlyphRenderingMode.CACHED_OUTLINE);
+
+        int drawnCount = 0;
+        int sharedCount = 0;
+        for (int x = 0; x < drawn.getWidth(); x++) {
+            for (int y = 0; y < drawn.getHeight(); y++) {
+                boolean isDrawn = drawn.getRGB(x, y) != Color.WHITE.getRGB();
+                boolean isFilled = filled.getRGB(x, y) != Color.WHITE.getRGB();
+                if (isDrawn)
+                    drawnCount++;
+                if (isDrawn && isFilled)
+                    sharedCount++;
+            }
+        }
+        assertTrue(drawnCount > 0);
+        // Edges may differ by a pixel since the outline is filled without text hints
+        assertTrue(sharedCount >= drawnCount / 2);
+    }
+
+    @Test
+    public void testScanlineRenderingMatchesOutlineFill() throws Exception {
+        BufferedImage filled = CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, GlyphRenderingMode.CACHED_OUTLINE);
+        BufferedImage rasterized = CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, GlyphRenderingMode.SCANLINE);
+
+        int filledCount = 0;
+        int rasterizedCount = 0;
+        int sharedCount = 0;
+        for (int x = 0; x < filled.getWidth(); x++) {
+            for (int y = 0; y < filled.getHeight(); y++) {
+                boolean isFilled = filled.getRGB(x, y) != Color.WHITE.getRGB();
+                boolean isRasterized = rasterized.getRGB(x, y) != Color.WHITE.getRGB();
+                if (isFilled)
+                    filledCount++;
+                if (isRasterized)
+                    rasterizedCount++;
+                if (isFilled && isRasterized)
+                    sharedCount++;
+            }
+        }
+        assertTrue(filledCount > 0);
+        // Graphics2D normalizes the outline by a fraction of a pixel, so edge pixels of these small glyphs may differ
+        assertTrue(sharedCount >= filledCount * 2 / 3);
+        assertTrue(rasterizedCount <= filledCount * 3 / 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullGlyphRenderingMode() throws Exception {
+        CaptchaBuilder.buildImageWithCollapsedChallenge(captchaMetadata, null);
+    }
+}
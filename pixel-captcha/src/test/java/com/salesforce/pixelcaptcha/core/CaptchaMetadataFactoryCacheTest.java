@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.core;
+
+import com.salesforce.pixelcaptcha.interfaces.Captcha;
+import com.salesforce.pixelcaptcha.utils.impl.ChaCha20RandomSource;
+import com.salesforce.pixelcaptcha.utils.impl.SecureRandomSource;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class CaptchaMetadataFactoryCacheTest {
+    private static final String NOT_FOUND = "Solution not found or expired";
+
+    private static CaptchaSpec getSpec(int width, int height) {
+        return new CaptchaSpec.Builder().captchaWidth(width).captchaHeight(height).codePoints("0-255").build();
+    }
+
+    @Test
+    public void testFactoriesAreSharedPerConfiguration() throws Exception {
+        CaptchaMetadataFactoryCache cache = new CaptchaMetadataFactoryCache(CaptchaMetadataFactoryCache.DEFAULT_SIZE);
+        CaptchaMetadataFactory horizontal = cache.getCaptchaMetadataFactory(getSpec(400, 300), ChaCha20RandomSource.getInstance());
+        CaptchaMetadataFactory vertical = cache.getCaptchaMetadataFactory(getSpec(300, 400), ChaCha20RandomSource.getInstance());
+
+        assertSame(horizontal, cache.getCaptchaMetadataFactory(getSpec(400, 300), ChaCha20RandomSource.getInstance()));
+        assertNotSame(horizontal, vertical);
+        assertNotSame(horizontal, cache.getCaptchaMetadataFactory(getSpec(400, 300), SecureRandomSource.getInstance()));
+        assertEquals(3, cache.getSize());
+        assertEquals(1, cache.getStats().hitCount());
+
+        assertTrue(horizontal.getMasterConfig().isHorizontalCaptcha());
+        assertFalse(vertical.getMasterConfig().isHorizontalCaptcha());
+        assertSame(vertical, cache.getCaptchaMetadataFactory(vertical.getMasterConfig().getVersion()).get());
+        assertFalse(cache.getCaptchaMetadataFactory(-1L).isPresent());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFactoryIsEvicted() throws Exception {
+        CaptchaMetadataFactoryCache cache = new CaptchaMetadataFactoryCache(1);
+        CaptchaMetadataFactory first = cache.getCaptchaMetadataFactory(getSpec(400, 300), ChaCha20RandomSource.getInstance());
+        cache.getCaptchaMetadataFactory(getSpec(300, 400), ChaCha20RandomSource.getInstance());
+        assertEquals(1, cache.getSize());
+        assertFalse(cache.getCaptchaMetadataFactory(first.getMasterConfig().getVersion()).isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidConfigurationIsReported() throws Exception {
+        // Width and height may differ by at most a factor of two
+        new CaptchaMetadataFactoryCache(1).getCaptchaMetadataFactory(getSpec(900, 300), ChaCha20RandomSource.getInstance());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() throws Exception {
+        new CaptchaMetadataFactoryCache(0);
+    }
+
+    @Test
+    public void testControllerSwitchesConfigurations() throws Exception {
+        for (boolean seeded : new boolean[]{false, true}) {
+            Properties p = new Properties();
+            p.setProperty("codePoints", "0-255");
+            p.setProperty("seededGeneration", Boolean.toString(seeded));
+            PixelCaptchaController pcc = new PixelCaptchaController();
+            pcc.initProperties(p);
+
+            Captcha vertical = pcc.getCaptcha(getSpec(300, 400));
+            assertEquals(300, vertical.getImage().getWidth());
+            assertEquals(400, vertical.getImage().getHeight());
+            Captcha own = pcc.getCaptcha(CaptchaSpec.fromProperties(p));
+            assertEquals(GlobalConstants.DEFAULT_WIDTH, own.getImage().getWidth());
+
+            // Seeded CAPTCHAs of another configuration are derived through the cache
+            assertNotEquals(NOT_FOUND, pcc.verifyCaptcha(vertical.getIdentifier(), new ArrayList<Point>()).getResponseDetails());
+            assertNotEquals(NOT_FOUND, pcc.verifyCaptcha(own.getIdentifier(), new ArrayList<Point>()).getResponseDetails());
+        }
+    }
+
+    @Test
+    public void testSeededCaptchaIsRenderedOnDemand() throws Exception {
+        Properties p = new Properties();
+        p.setProperty("codePoints", "0-255");
+        p.setProperty("seededGeneration", "true");
+        PixelCaptchaProvider provider = new PixelCaptchaProvider(p);
+        try {
+            String id = provider.issueSeededCaptcha(getSpec(300, 400));
+            ByteArrayOutputStream first = new ByteArrayOutputStream();
+            assertTrue(provider.renderCaptcha(id, first));
+            BufferedImage bi = ImageIO.read(new ByteArrayInputStream(first.toByteArray()));
+            assertEquals(300, bi.getWidth());
+            assertEquals(400, bi.getHeight());
+
+            // The same image every time, until the CAPTCHA is verified
+            ByteArrayOutputStream second = new ByteArrayOutputStream();
+            assertTrue(provider.renderCaptcha(id, second));
+            assertArrayEquals(first.toByteArray(), second.toByteArray());
+            assertNotEquals(NOT_FOUND, provider.verify(id, "[]").getResponseDetails());
+            assertFalse(provider.renderCaptcha(id, new ByteArrayOutputStream()));
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIssuingSeededCaptchaRequiresSeededGeneration() throws Exception {
+        PixelCaptchaController pcc = new PixelCaptchaController();
+        pcc.initProperties(new Properties());
+        pcc.issueSeededCaptcha(getSpec(400, 300));
+    }
+}
@@ -11,10 +11,12 @@ import com.salesforce.pixelcaptcha.dataobj.CaptchaDimension;
 import com.salesforce.pixelcaptcha.dataobj.CaptchaMetadata;
 import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
 import com.salesforce.pixelcaptcha.dataobj.PointProperty;
+import com.salesforce.pixelcaptcha.utils.PoissonDiskSampler;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -59,6 +61,7 @@ public class CaptchaMetadataFactoryTest {
         when(masterConfig.isHorizontalCaptcha()).thenReturn(isHorizontal);
         when(masterConfig.getCaptchaDimensions()).thenReturn(captchaDimensions);
         when(masterConfig.getPrintableCodePoints()).thenReturn(printableCodePoints);
+        when(masterConfig.getImageColorMode()).thenReturn(GlobalConstants.IMAGE_COLOR_MODE);
         captchaMetadataFactory = new CaptchaMetadataFactory(masterConfig);
         captchaMetadata = captchaMetadataFactory.getCaptchaMetadata();
 
@@ -122,4 +125,63 @@ public class CaptchaMetadataFactoryTest {
         }
     }
 
+    private static byte[] getSeed(int first) {
+        byte[] seed = new byte[32];
+        for (int i = 0; i < seed.length; i++)
+            seed[i] = (byte) (first + i);
+        return seed;
+    }
+
+    private static void assertSamePointProperties(List<PointProperty> expected, List<PointProperty> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getStringToWrite(), actual.get(i).getStringToWrite());
+            assertEquals(expected.get(i).getPoint(), actual.get(i).getPoint());
+            assertEquals(expected.get(i).getFont(), actual.get(i).getFont());
+        }
+    }
+
+    @Test
+    public void testSameSeedYieldsSameCaptcha() throws Exception {
+        CaptchaMetadata first = captchaMetadataFactory.getCaptchaMetadata(getSeed(1));
+        // Draws in between must not affect the seeded CAPTCHA
+        captchaMetadataFactory.getCaptchaMetadata();
+        CaptchaMetadata second = captchaMetadataFactory.getCaptchaMetadata(getSeed(1));
+
+        assertSamePointProperties(first.getChallenge(), second.getChallenge());
+        assertSamePointProperties(first.getSolutionOptions(), second.getSolutionOptions());
+        assertEquals(first.getSolution().getPoints(), second.getSolution().getPoints());
+        assertEquals(first.getSolution().getMaxDeviation(), second.getSolution().getMaxDeviation(), 0);
+
+        BufferedImage firstImage = CaptchaBuilder.buildImageWithCollapsedChallenge(first);
+        BufferedImage secondImage = CaptchaBuilder.buildImageWithCollapsedChallenge(second);
+        for (int x = 0; x < firstImage.getWidth(); x++) {
+            for (int y = 0; y < firstImage.getHeight(); y++) {
+                assertEquals(firstImage.getRGB(x, y), secondImage.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testDifferentSeedsYieldDifferentCaptchas() throws Exception {
+        CaptchaMetadata first = captchaMetadataFactory.getCaptchaMetadata(getSeed(1));
+        CaptchaMetadata second = captchaMetadataFactory.getCaptchaMetadata(getSeed(2));
+        assertNotEquals(first.getSolution().getPoints(), second.getSolution().getPoints());
+    }
+
+    @Test
+    public void testResponseLayoutCostIsCounted() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            captchaMetadataFactory.getCaptchaMetadata();
+        }
+        // Every fallback follows a full round of rejected attempts
+        assertTrue(captchaMetadataFactory.getRejectedResponseSampleCount()
+                >= PoissonDiskSampler.DEFAULT_MAX_ATTEMPTS * captchaMetadataFactory.getResponseLayoutFallbackCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShortSeed() throws Exception {
+        captchaMetadataFactory.getCaptchaMetadata(new byte[16]);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.core;
+
+import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class CaptchaSpecTest {
+
+    @Test
+    public void testDefaults() throws Exception {
+        CaptchaSpec spec = CaptchaSpec.fromProperties(new Properties());
+        assertEquals(new CaptchaSpec.Builder().build(), spec);
+        assertEquals(GlobalConstants.DEFAULT_WIDTH, spec.getCaptchaWidth());
+        assertEquals(GlobalConstants.DEFAULT_HEIGHT, spec.getCaptchaHeight());
+        assertEquals(ChallengeAndResponseCount.FOUR_TWELVE, spec.getChallengeAndResponseCount());
+        assertEquals(4096, spec.getCodePoints().length);
+        assertEquals(GlobalConstants.IMAGE_COLOR_MODE, spec.getImageColorMode());
+        assertFalse(spec.isOrdered());
+    }
+
+    @Test
+    public void testPropertiesAreRead() throws Exception {
+        Properties p = new Properties();
+        p.setProperty("captchaWidth", "300");
+        p.setProperty("captchaHeight", "400");
+        p.setProperty("challengeCount", "2");
+        p.setProperty("responseCount", "11");
+        p.setProperty("codePoints", "0-255");
+        p.setProperty("ordered", "true");
+        p.setProperty("imageColorMode", "indexed2Bit");
+
+        CaptchaSpec expected = new CaptchaSpec.Builder()
+                .captchaWidth(300)
+                .captchaHeight(400)
+                .challengeCount(2)
+                .responseCount(11)
+                .codePoints("0-255")
+                .ordered(true)
+                .imageColorMode(ImageColorMode.INDEXED_2_BIT)
+                .build();
+        assertEquals(expected, CaptchaSpec.fromProperties(p));
+        assertEquals(expected.hashCode(), CaptchaSpec.fromProperties(p).hashCode());
+    }
+
+    @Test
+    public void testCodePointsAreNormalized() throws Exception {
+        CaptchaSpec ranges = new CaptchaSpec.Builder().codePoints("100-200, 0-150").build();
+        CaptchaSpec range = new CaptchaSpec.Builder().codePoints("0-200").build();
+        assertEquals(range, ranges);
+        assertEquals(range.hashCode(), ranges.hashCode());
+        assertNotEquals(range, new CaptchaSpec.Builder().codePoints("0-201").build());
+
+        // The code points cannot be changed through the getter
+        range.getCodePoints()[0] = 5000;
+        assertEquals(0, range.getCodePoints()[0]);
+    }
+
+    @Test
+    public void testInvalidCounts() throws Exception {
+        try {
+            new CaptchaSpec.Builder().challengeCount(5).responseCount(12).build();
+            fail("An invalid challenge count was accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("challengeCount is invalid", e.getMessage());
+        }
+        try {
+            new CaptchaSpec.Builder().challengeCount(3).responseCount(13).build();
+            fail("An invalid response count was accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invalid challenge response count combination", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() throws Exception {
+        new CaptchaSpec.Builder().captchaWidth(0).build();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.core;
+
+import com.salesforce.pixelcaptcha.dataobj.CaptchaDimension;
+import com.salesforce.pixelcaptcha.dataobj.PointProperty;
+import com.salesforce.pixelcaptcha.dataobj.impl.PixelCaptchaPointProperty;
+import com.salesforce.pixelcaptcha.utils.impl.ChaCha20RandomSource;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class CollapsedChallengeLayoutTest {
+    private static final int FONT_SIZE = 40;
+    private static final int MAX_OVERLAP = (FONT_SIZE * 15) / 100;
+
+    private List<PointProperty> getChallenge(Point first, int dx, int dy) {
+        List<PointProperty> list = new ArrayList<>();
+        Font font = new Font(Font.SANS_SERIF, Font.PLAIN, FONT_SIZE).deriveFont(AffineTransform.getRotateInstance(Math.toRadians(20)));
+        String[] strings = {"A", "B", "C", "D"};
+        for (int i = 0; i < strings.length; i++) {
+            Point point = new Point(first.x + i * dx, first.y + i * dy);
+            list.add(new PixelCaptchaPointProperty(strings[i], point, font, Color.BLUE));
+        }
+        return list;
+    }
+
+    @Test
+    public void testHorizontalCaptchaStacksBottomUp() throws Exception {
+        List<PointProperty> challenge = getChallenge(new Point(30, 60), 2, FONT_SIZE + 10);
+        List<PointProperty> placed = CollapsedChallengeLayout.layout(challenge, new CaptchaDimension(400, 300), true, ChaCha20RandomSource.getInstance());
+
+        assertEquals(challenge.size(), placed.size());
+        // The last character is the anchor
+        assertSame(challenge.get(3), placed.get(3));
+        for (int i = 0; i < placed.size() - 1; i++) {
+            assertEquals(challenge.get(i).getStringToWrite(), placed.get(i).getStringToWrite());
+            assertEquals(challenge.get(i).getFont(), placed.get(i).getFont());
+            assertEquals(challenge.get(i + 1).getPoint().x, placed.get(i).getPoint().x);
+            // Each character sits on top of the one below it, at most the overlap lower than its top
+            int lowerY = placed.get(i + 1).getPoint().y;
+            assertTrue(placed.get(i).getPoint().y < lowerY);
+            assertTrue(placed.get(i).getPoint().y >= lowerY - (int) (FONT_SIZE * 1.5) + 1);
+        }
+    }
+
+    @Test
+    public void testVerticalCaptchaLinesUpLeftToRight() throws Exception {
+        List<PointProperty> challenge = getChallenge(new Point(20, 80), FONT_SIZE + 10, 2);
+        List<PointProperty> placed = CollapsedChallengeLayout.layout(challenge, new CaptchaDimension(300, 400), false, ChaCha20RandomSource.getInstance());
+
+        assertEquals(challenge.size(), placed.size());
+        // The first character is the anchor
+        assertSame(challenge.get(0), placed.get(0));
+        for (int i = 1; i < placed.size(); i++) {
+            assertEquals(challenge.get(i).getStringToWrite(), placed.get(i).getStringToWrite());
+            assertEquals(challenge.get(i - 1).getPoint().y, placed.get(i).getPoint().y);
+            int leftX = placed.get(i - 1).getPoint().x;
+            assertTrue(placed.get(i).getPoint().x > leftX - MAX_OVERLAP);
+            assertTrue(placed.get(i).getPoint().x < leftX + (int) (FONT_SIZE * 1.5));
+        }
+    }
+
+    @Test
+    public void testEmptyGlyphKeepsPreviousCoordinate() throws Exception {
+        Font font = new Font(Font.SANS_SERIF, Font.PLAIN, FONT_SIZE);
+        List<PointProperty> challenge = new ArrayList<>();
+        challenge.add(new PixelCaptchaPointProperty("A", new Point(30, 60), font, Color.BLUE));
+        challenge.add(new PixelCaptchaPointProperty(" ", new Point(30, 200), font, Color.BLUE));
+
+        // Nothing is drawn by the space, so the next character starts at the previous baseline plus the overlap
+        List<PointProperty> placed = CollapsedChallengeLayout.layout(challenge, new CaptchaDimension(400, 300), true, ChaCha20RandomSource.getInstance());
+        assertTrue(placed.get(0).getPoint().y >= 200);
+        assertTrue(placed.get(0).getPoint().y < 200 + MAX_OVERLAP);
+    }
+}
@@ -59,6 +59,31 @@ public class MasterConfigTest {
 
     }
 
+    @Test
+    public void testVersionDependsOnlyOnConfiguration() {
+        assertEquals(getCaptchaMasterConfig(true).getVersion(), getCaptchaMasterConfig(true).getVersion());
+        assertNotEquals(getCaptchaMasterConfig(true).getVersion(), getCaptchaMasterConfig(false).getVersion());
+
+        MasterConfig ordered = new MasterConfig(getHorizontalDimension(), getPrintableCodePoints(),
+                ChallengeAndResponseCount.FOUR_TWELVE, true);
+        assertNotEquals(getCaptchaMasterConfig(true).getVersion(), ordered.getVersion());
+
+        MasterConfig twoBit = new MasterConfig(getHorizontalDimension(), getPrintableCodePoints(),
+                ChallengeAndResponseCount.FOUR_TWELVE, false, ImageColorMode.INDEXED_2_BIT);
+        MasterConfig fourBit = new MasterConfig(getHorizontalDimension(), getPrintableCodePoints(),
+                ChallengeAndResponseCount.FOUR_TWELVE, false, ImageColorMode.INDEXED_4_BIT);
+        assertNotEquals(getCaptchaMasterConfig(true).getVersion(), twoBit.getVersion());
+        assertNotEquals(twoBit.getVersion(), fourBit.getVersion());
+    }
+
+    @Test
+    public void testImageColorModeNames() {
+        assertEquals(ImageColorMode.INDEXED_2_BIT, ImageColorMode.fromStringOrDefault("indexed2Bit", ImageColorMode.RGB));
+        assertEquals(ImageColorMode.INDEXED_4_BIT, ImageColorMode.fromStringOrDefault("INDEXED_4_BIT", ImageColorMode.RGB));
+        assertEquals(ImageColorMode.RGB, ImageColorMode.fromStringOrDefault("unknown", ImageColorMode.RGB));
+        assertEquals(GlobalConstants.DEFAULT_IMAGE_TYPE, getCaptchaMasterConfig(true).getImageType());
+    }
+
     @Test
     public void testPrintableCodePointsAreNotChanged() {
         boolean isHorizontal = true;
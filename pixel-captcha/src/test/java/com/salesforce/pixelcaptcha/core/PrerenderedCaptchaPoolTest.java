@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.core;
+
+import com.salesforce.pixelcaptcha.interfaces.Captcha;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class PrerenderedCaptchaPoolTest {
+    private PixelCaptchaController pcc;
+
+    private Properties getProperties(boolean poolEnabled) {
+        Properties p = new Properties();
+        p.setProperty("captchaWidth", "400");
+        p.setProperty("captchaHeight", "300");
+        p.setProperty("codePoints", "0-255");
+        p.setProperty("poolEnabled", Boolean.toString(poolEnabled));
+        p.setProperty("poolRenderThreads", "1");
+        p.setProperty("poolLowWatermark", "2");
+        p.setProperty("poolHighWatermark", "4");
+        return p;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        pcc = new PixelCaptchaController();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pcc.shutdown();
+    }
+
+    @Test
+    public void testPoolIsAbsentByDefault() throws Exception {
+        pcc.initProperties(getProperties(false));
+        assertFalse(pcc.getCaptchaPool().isPresent());
+        assertNotNull(pcc.getCaptcha().getImage());
+    }
+
+    @Test
+    public void testPoolFillsUpToHighWatermarkAndServesHits() throws Exception {
+        pcc.initProperties(getProperties(true));
+        PrerenderedCaptchaPool pool = pcc.getCaptchaPool().get();
+
+        long deadline = System.currentTimeMillis() + 30 * 1000;
+        while (pool.getSize() < pool.getHighWatermark() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(pool.getHighWatermark(), pool.getSize());
+
+        Captcha c = pcc.getCaptcha();
+        assertNotNull(c.getImage());
+        assertNotNull(c.getIdentifier());
+        assertEquals(1, pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+    }
+
+    @Test
+    public void testEmptyPoolFallsBackToInlineRendering() throws Exception {
+        pcc.initProperties(getProperties(true));
+        PrerenderedCaptchaPool pool = pcc.getCaptchaPool().get();
+        pool.shutdown();
+
+        Captcha c = pcc.getCaptcha();
+        assertNotNull(c.getImage());
+        assertEquals(1, pool.getMissCount());
+    }
+
+    @Test
+    public void testReinitializingShutsDownPreviousPool() throws Exception {
+        pcc.initProperties(getProperties(true));
+        PrerenderedCaptchaPool first = pcc.getCaptchaPool().get();
+        pcc.initProperties(getProperties(false));
+        assertFalse(pcc.getCaptchaPool().isPresent());
+        assertEquals(0, first.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLowWatermarkGreaterThanHighWatermark() throws Exception {
+        Properties p = getProperties(true);
+        p.setProperty("poolLowWatermark", "10");
+        pcc.initProperties(p);
+    }
+
+    @Test
+    public void testFailingRendersBackOff() throws Exception {
+        CaptchaMetadataFactory factory = mock(CaptchaMetadataFactory.class);
+        when(factory.getCaptchaMetadata()).thenThrow(new IllegalStateException("No fonts"));
+        Logger logger = Logger.getLogger(PrerenderedCaptchaPool.class.getName());
+        Level level = logger.getLevel();
+        logger.setLevel(Level.OFF);
+        final int attempts = 13;
+        final List<Long> delays = new CopyOnWriteArrayList<>();
+        final CountDownLatch stopped = new CountDownLatch(1);
+        PrerenderedCaptchaPool.BackOffSleeper sleeper = new PrerenderedCaptchaPool.BackOffSleeper() {
+            @Override
+            public void sleep(long millis) throws InterruptedException {
+                delays.add(millis);
+                if (delays.size() == attempts) {
+                    stopped.countDown();
+                    // Ends the render thread
+                    throw new InterruptedException();
+                }
+            }
+        };
+        PrerenderedCaptchaPool pool = new PrerenderedCaptchaPool(factory, GlobalConstants.GLYPH_RENDERING_MODE, 1, 2, 4, sleeper);
+        try {
+            assertTrue(stopped.await(30, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(100L, 200L, 400L, 800L, 1600L, 3200L, 6400L, 12800L, 25600L, 51200L,
+                    60000L, 60000L, 60000L), delays);
+            assertEquals(attempts, pool.getFailureCount());
+            assertNull(pool.poll());
+        } finally {
+            pool.shutdown();
+            logger.setLevel(level);
+        }
+    }
+}
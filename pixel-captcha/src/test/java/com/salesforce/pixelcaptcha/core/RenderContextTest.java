@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class RenderContextTest {
+    private static final ImageColorMode TYPE = GlobalConstants.IMAGE_COLOR_MODE;
+
+    @Test
+    public void testImageIsReusedPerSize() throws Exception {
+        try (RenderContext context = RenderContext.acquire()) {
+            long allocations = context.getAllocationCount();
+            RenderContext.Buffer first = context.getBuffer(40, 30, TYPE);
+            RenderContext.Buffer other = context.getBuffer(30, 40, TYPE);
+
+            assertNotSame(first, other);
+            assertSame(first, context.getBuffer(40, 30, TYPE));
+            assertSame(other, context.getBuffer(30, 40, TYPE));
+            assertNotSame(first, context.getBuffer(40, 30, ImageColorMode.INDEXED_2_BIT));
+            assertTrue(context.getAllocationCount() - allocations <= 3);
+        }
+    }
+
+    @Test
+    public void testThreadContextIsKeptAcrossReleases() throws Exception {
+        RenderContext context = RenderContext.acquire();
+        RenderContext.Buffer buffer = context.getBuffer(40, 30, TYPE);
+        context.release();
+
+        try (RenderContext again = RenderContext.acquire()) {
+            assertSame(context, again);
+            assertSame(buffer, again.getBuffer(40, 30, TYPE));
+        }
+    }
+
+    @Test
+    public void testNestedAcquireGetsSeparateContext() throws Exception {
+        try (RenderContext outer = RenderContext.acquire()) {
+            try (RenderContext inner = RenderContext.acquire()) {
+                assertNotSame(outer, inner);
+                assertNotSame(outer.getBuffer(40, 30, TYPE).getImage(), inner.getBuffer(40, 30, TYPE).getImage());
+            }
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSizeIsEvicted() throws Exception {
+        try (RenderContext context = RenderContext.acquire()) {
+            RenderContext.Buffer first = context.getBuffer(1, 1, TYPE);
+            for (int i = 2; i <= RenderContext.MAX_BUFFERS; i++) {
+                context.getBuffer(i, i, TYPE);
+            }
+            assertSame(first, context.getBuffer(1, 1, TYPE));
+
+            // 2 x 2 is now the least recently used size
+            context.getBuffer(100, 100, TYPE);
+            long allocations = context.getAllocationCount();
+            assertSame(first, context.getBuffer(1, 1, TYPE));
+            context.getBuffer(2, 2, TYPE);
+            assertEquals(allocations + 1, context.getAllocationCount());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleasedContextCannotBeUsed() throws Exception {
+        RenderContext context = RenderContext.acquire();
+        context.release();
+        context.getBuffer(40, 30, TYPE);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDoubleReleaseIsRejected() throws Exception {
+        RenderContext context = RenderContext.acquire();
+        context.release();
+        context.release();
+    }
+}
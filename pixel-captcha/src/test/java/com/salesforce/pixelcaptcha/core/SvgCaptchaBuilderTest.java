@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.core;
+
+import com.salesforce.pixelcaptcha.dataobj.CaptchaDimension;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaMetadata;
+import com.salesforce.pixelcaptcha.dataobj.ChallengeAndResponseCount;
+import com.salesforce.pixelcaptcha.dataobj.GlyphArray;
+import com.salesforce.pixelcaptcha.utils.GlyphOutlineCache;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class SvgCaptchaBuilderTest {
+    private static final Pattern TOKEN = Pattern.compile("[a-zA-Z]|-?(?:\\d+(?:\\.\\d+)?|\\.\\d+)");
+
+    private CaptchaMetadata getCaptchaMetadata(int width, int height) {
+        int[] codePoints = new int[68];
+        for (int i = 0; i < codePoints.length; i++) {
+            codePoints[i] = 33 + i;
+        }
+        MasterConfig masterConfig = new MasterConfig(new CaptchaDimension(width, height), codePoints,
+                ChallengeAndResponseCount.FOUR_TWELVE, false);
+        return new CaptchaMetadataFactory(masterConfig).getCaptchaMetadata();
+    }
+
+    private static Document parse(String svg) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Follows the relative commands of a path and returns the bounds of all points, control points included.
+     */
+    private static Rectangle2D getPathBounds(String d) {
+        Matcher matcher = TOKEN.matcher(d);
+        Rectangle2D bounds = null;
+        double x = 0, y = 0, startX = 0, startY = 0;
+        char command = 0;
+        while (matcher.find()) {
+            String token = matcher.group();
+            if (Character.isLetter(token.charAt(0))) {
+                command = token.charAt(0);
+                if (command == 'z') {
+                    x = startX;
+                    y = startY;
+                }
+                continue;
+            }
+            int points = command == 'c' ? 3 : command == 'q' ? 2 : 1;
+            double[] coords = new double[2 * points];
+            coords[0] = Double.parseDouble(token);
+            for (int i = 1; i < coords.length; i++) {
+                assertTrue(matcher.find());
+                coords[i] = Double.parseDouble(matcher.group());
+            }
+            for (int p = 0; p < points; p++) {
+                double px = x + coords[2 * p];
+                double py = y + coords[2 * p + 1];
+                if (bounds == null)
+                    bounds = new Rectangle2D.Double(px, py, 0, 0);
+                else
+                    bounds.add(px, py);
+            }
+            x += coords[coords.length - 2];
+            y += coords[coords.length - 1];
+            if (command == 'm') {
+                startX = x;
+                startY = y;
+            }
+        }
+        return bounds;
+    }
+
+    private static Rectangle2D getOutlineBounds(GlyphArray glyphs, Color color, Rectangle2D bounds) {
+        AffineTransform fontTransform = new AffineTransform();
+        for (int i = 0; i < glyphs.size(); i++) {
+            if (!glyphs.getColor(i).equals(color))
+                continue;
+            glyphs.getTransform(i, fontTransform);
+            Rectangle2D glyphBounds = GlyphOutlineCache.getInstance().getOutline(glyphs.getBaseFont(i),
+                    glyphs.getString(i), fontTransform, glyphs.getX(i), glyphs.getY(i)).getBounds2D();
+            if (bounds == null)
+                bounds = glyphBounds;
+            else
+                bounds.add(glyphBounds);
+        }
+        return bounds;
+    }
+
+    private void assertSvgMatchesOutlines(CaptchaMetadata captchaMetadata) throws Exception {
+        String svg = SvgCaptchaBuilder.buildSvgWithCollapsedChallenge(captchaMetadata);
+        assertTrue("SVG of " + svg.length() + " characters", svg.length() < 16 * 1024);
+
+        Element root = parse(svg).getDocumentElement();
+        assertEquals("svg", root.getTagName());
+        assertEquals(Integer.toString(captchaMetadata.getCaptchaDimension().getWidth()), root.getAttribute("width"));
+        assertEquals(Integer.toString(captchaMetadata.getCaptchaDimension().getHeight()), root.getAttribute("height"));
+
+        NodeList paths = root.getElementsByTagName("path");
+        assertEquals(2, paths.getLength());
+        Color[] colors = {CaptchaMetadataFactory.challengeColor, CaptchaMetadataFactory.responseColor};
+        for (int i = 0; i < colors.length; i++) {
+            Element path = (Element) paths.item(i);
+            assertEquals(SvgCaptchaBuilder.toHex(colors[i]), path.getAttribute("fill"));
+
+            Rectangle2D expected = getOutlineBounds(captchaMetadata.getChallengeGlyphs(), colors[i], null);
+            expected = getOutlineBounds(captchaMetadata.getSolutionOptionGlyphs(), colors[i], expected);
+            Rectangle2D actual = getPathBounds(path.getAttribute("d"));
+            // Every point is rounded to a tenth of a pixel
+            assertEquals(expected.getMinX(), actual.getMinX(), 0.05001);
+            assertEquals(expected.getMinY(), actual.getMinY(), 0.05001);
+            assertEquals(expected.getMaxX(), actual.getMaxX(), 0.05001);
+            assertEquals(expected.getMaxY(), actual.getMaxY(), 0.05001);
+        }
+    }
+
+    @Test
+    public void testHorizontalSvgMatchesGlyphOutlines() throws Exception {
+        assertSvgMatchesOutlines(getCaptchaMetadata(400, 300));
+    }
+
+    @Test
+    public void testVerticalSvgMatchesGlyphOutlines() throws Exception {
+        assertSvgMatchesOutlines(getCaptchaMetadata(300, 400));
+    }
+
+    @Test
+    public void testFractionDigits() throws Exception {
+        CaptchaMetadata captchaMetadata = getCaptchaMetadata(400, 300);
+        String rounded = SvgCaptchaBuilder.buildSvgWithCollapsedChallenge(captchaMetadata, 0);
+        String precise = SvgCaptchaBuilder.buildSvgWithCollapsedChallenge(captchaMetadata, SvgCaptchaBuilder.MAX_FRACTION_DIGITS);
+        assertTrue(rounded.length() < precise.length());
+        Element path = (Element) parse(rounded).getDocumentElement().getElementsByTagName("path").item(0);
+        assertFalse(path.getAttribute("d").contains("."));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFractionDigitsAreLimited() throws Exception {
+        SvgCaptchaBuilder.buildSvgWithCollapsedChallenge(getCaptchaMetadata(400, 300), SvgCaptchaBuilder.MAX_FRACTION_DIGITS + 1);
+    }
+
+    @Test
+    public void testToHex() throws Exception {
+        assertEquals("#fff", SvgCaptchaBuilder.toHex(Color.WHITE));
+        assertEquals("#f00", SvgCaptchaBuilder.toHex(new Color(255, 0, 0)));
+        assertEquals("#123456", SvgCaptchaBuilder.toHex(new Color(0x12, 0x34, 0x56)));
+    }
+
+    @Test
+    public void testControllerStoresSvgCaptcha() throws Exception {
+        for (boolean seeded : new boolean[]{false, true}) {
+            Properties p = new Properties();
+            p.setProperty("captchaWidth", "400");
+            p.setProperty("captchaHeight", "300");
+            p.setProperty("codePoints", "0-255");
+            p.setProperty("seededGeneration", Boolean.toString(seeded));
+            PixelCaptchaController pcc = new PixelCaptchaController();
+            pcc.initProperties(p);
+
+            StringBuilder svg = new StringBuilder();
+            String identifier = pcc.writeCaptchaSvg(svg);
+            assertEquals("svg", parse(svg.toString()).getDocumentElement().getTagName());
+            assertNotEquals("Solution not found or expired",
+                    pcc.verifyCaptcha(identifier, new ArrayList<Point>()).getResponseDetails());
+        }
+    }
+}
@@ -144,5 +144,101 @@ public class VerificationEngineTest extends TestCase {
         assertEquals(false, result.isPositive());
     }
 
+    public void testValidateSolutionWithCoordinatesUnOrdered() throws Exception {
+        int deviation = maxDeviation / 4;
+        CaptchaSolution cs = mock(PixelCaptchaSolution.class);
+        when(cs.getMaxDeviation()).thenReturn((double) maxDeviation);
+        when(cs.isOrdered()).thenReturn(false);
+        when(cs.getPoints()).thenReturn(twoChallenges);
+
+        // Reversed order, each point off by the deviation on the x axis
+        ValidationResult result = ve.verifySolution(cs, new int[]{200 + deviation, 200, 100 + deviation, 100});
+        assertEquals(true, result.isPositive());
+        assertEquals(VerificationEngine.MATCH, result.getResponseCode());
+        assertEquals("Maximum permissible deviation = 100.00, actual value = " + 2 * deviation, result.getResponseDetails());
+
+        result = ve.verifySolution(cs, new int[]{200 + 2 * deviation, 200, 100 + 2 * deviation, 100 + deviation});
+        assertEquals(false, result.isPositive());
+        assertEquals(VerificationEngine.THRESHOLD_EXCEEDED, result.getResponseCode());
+    }
+
+    public void testValidateSolutionWithCoordinatesOrdered() throws Exception {
+        CaptchaSolution cs = mock(PixelCaptchaSolution.class);
+        when(cs.getMaxDeviation()).thenReturn((double) maxDeviation);
+        when(cs.isOrdered()).thenReturn(true);
+        when(cs.getPoints()).thenReturn(twoChallenges);
 
-}
\ No newline at end of file
+        assertEquals(true, ve.verifySolution(cs, new int[]{103, 104, 200, 200}).isPositive());
+        // Correct points in the wrong order
+        assertEquals(false, ve.verifySolution(cs, new int[]{200, 200, 100, 100}).isPositive());
+        assertEquals(VerificationEngine.SIZE_MISMATCH, ve.verifySolution(cs, new int[]{100, 100}).getResponseCode());
+    }
+
+    public void testValidateSolutionWithOddCoordinateCount() throws Exception {
+        CaptchaSolution cs = mock(PixelCaptchaSolution.class);
+        when(cs.getPoints()).thenReturn(twoChallenges);
+        try {
+            ve.verifySolution(cs, new int[]{100, 100, 200});
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testOptimalMatchingAcceptsResponseRejectedByGreedyMatching() throws Exception {
+        List<Point> solution = new ArrayList<>();
+        solution.add(new Point(0, 0));
+        solution.add(new Point(10, 0));
+        CaptchaSolution cs = mock(PixelCaptchaSolution.class);
+        when(cs.getMaxDeviation()).thenReturn(15.0);
+        when(cs.isOrdered()).thenReturn(false);
+        when(cs.getPoints()).thenReturn(solution);
+
+        // The first click is nearest to (10, 0), which leaves (0, 0) for the second click: 4 + 16 = 20.
+        // Pairing the first click with (0, 0) gives 6 + 6 = 12.
+        int[] response = {6, 0, 16, 0};
+        ValidationResult greedy = ve.verifySolution(cs, response, UnorderedMatching.GREEDY);
+        assertEquals(false, greedy.isPositive());
+        assertEquals("Maximum permissible deviation = 15.00, actual value = 20", greedy.getResponseDetails());
+
+        ValidationResult optimal = ve.verifySolution(cs, response, UnorderedMatching.OPTIMAL);
+        assertEquals(true, optimal.isPositive());
+        assertEquals("Maximum permissible deviation = 15.00, actual value = 12", optimal.getResponseDetails());
+    }
+
+    public void testOptimalMatchingDoesNotDependOnClickOrder() throws Exception {
+        List<Point> solution = new ArrayList<>();
+        solution.add(new Point(100, 100));
+        solution.add(new Point(130, 100));
+        solution.add(new Point(100, 140));
+        solution.add(new Point(160, 150));
+        CaptchaSolution cs = mock(PixelCaptchaSolution.class);
+        when(cs.getMaxDeviation()).thenReturn(1000.0);
+        when(cs.isOrdered()).thenReturn(false);
+        when(cs.getPoints()).thenReturn(solution);
+
+        int[][] clicks = {{118, 100}, {100, 122}, {140, 130}, {150, 160}};
+        String expected = null;
+        // All 24 click orders
+        for (int a = 0; a < 4; a++)
+            for (int b = 0; b < 4; b++)
+                for (int c = 0; c < 4; c++) {
+                    int d = 6 - a - b - c;
+                    if (a == b || a == c || b == c || d < 0 || d > 3 || d == a || d == b || d == c)
+                        continue;
+                    int[] response = {clicks[a][0], clicks[a][1], clicks[b][0], clicks[b][1],
+                            clicks[c][0], clicks[c][1], clicks[d][0], clicks[d][1]};
+                    String details = ve.verifySolution(cs, response, UnorderedMatching.OPTIMAL).getResponseDetails();
+                    if (expected == null)
+                        expected = details;
+                    assertEquals(expected, details);
+                }
+    }
+
+    public void testUnorderedMatchingFromString() throws Exception {
+        assertEquals(UnorderedMatching.OPTIMAL, UnorderedMatching.fromStringOrDefault("optimal", UnorderedMatching.GREEDY));
+        assertEquals(UnorderedMatching.GREEDY, UnorderedMatching.fromStringOrDefault(" GREEDY ", UnorderedMatching.OPTIMAL));
+        assertEquals(UnorderedMatching.GREEDY, UnorderedMatching.fromStringOrDefault("hungarian", UnorderedMatching.GREEDY));
+        assertEquals(UnorderedMatching.GREEDY, UnorderedMatching.fromStringOrDefault(null, UnorderedMatching.GREEDY));
+    }
+}
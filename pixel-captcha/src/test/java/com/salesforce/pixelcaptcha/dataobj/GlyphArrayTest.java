@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.dataobj;
+
+import com.salesforce.pixelcaptcha.dataobj.impl.PixelCaptchaPointProperty;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class GlyphArrayTest {
+    private final Font font = new Font(Font.SERIF, Font.ITALIC, 30);
+    private final AffineTransform transform = AffineTransform.getRotateInstance(Math.toRadians(25));
+
+    @Test
+    public void testAddCopiesTheTransform() throws Exception {
+        GlyphArray glyphs = new GlyphArray(2);
+        AffineTransform aft = new AffineTransform(transform);
+        int i = glyphs.add('A', 10, 20, font, aft, Color.BLUE);
+        aft.setToIdentity();
+
+        assertEquals(0, i);
+        assertEquals(1, glyphs.size());
+        assertEquals('A', glyphs.getCodePoint(0));
+        assertEquals("A", glyphs.getString(0));
+        assertEquals(10, glyphs.getX(0));
+        assertEquals(20, glyphs.getY(0));
+        assertSame(font, glyphs.getBaseFont(0));
+        assertEquals(Color.BLUE, glyphs.getColor(0));
+        assertEquals(transform, glyphs.getTransform(0, new AffineTransform()));
+        assertEquals(25, glyphs.getRotation(0), 1e-9);
+        assertEquals(font.deriveFont(transform), glyphs.getFont(0));
+    }
+
+    @Test
+    public void testPointPropertiesRoundTrip() throws Exception {
+        List<PointProperty> list = new ArrayList<>();
+        list.add(new PixelCaptchaPointProperty("x", new Point(1, 2), font.deriveFont(transform), Color.BLACK));
+        list.add(new PixelCaptchaPointProperty("y", new Point(3, 4), font, Color.BLUE));
+
+        List<PointProperty> copy = GlyphArray.fromPointProperties(list).toPointProperties();
+        assertEquals(list.size(), copy.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(list.get(i).getStringToWrite(), copy.get(i).getStringToWrite());
+            assertEquals(list.get(i).getPoint(), copy.get(i).getPoint());
+            assertEquals(list.get(i).getFont(), copy.get(i).getFont());
+            assertEquals(list.get(i).getColor(), copy.get(i).getColor());
+        }
+    }
+
+    @Test
+    public void testSetPoint() throws Exception {
+        GlyphArray glyphs = new GlyphArray(1);
+        glyphs.add('A', 10, 20, font, transform, Color.BLUE);
+        glyphs.setPoint(0, 30, 40);
+        assertEquals(new Point(30, 40), glyphs.getPointProperty(0).getPoint());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddBeyondCapacity() throws Exception {
+        GlyphArray glyphs = new GlyphArray(1);
+        glyphs.add('A', 0, 0, font, transform, Color.BLUE);
+        glyphs.add('B', 0, 0, font, transform, Color.BLUE);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexBeyondSize() throws Exception {
+        new GlyphArray(4).getX(0);
+    }
+}
@@ -7,9 +7,14 @@
 package com.salesforce.pixelcaptcha.dataobj;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.salesforce.pixelcaptcha.interfaces.ValidationResult;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.Assert.*;
 
 /**
@@ -26,5 +31,28 @@ public class PixelCaptchaValidationResultTest {
         assertEquals(vr.getResponseDetails(), vr2.getResponseDetails());
     }
 
+    @Test
+    public void testDeviationDetailsAreFormattedOnDemand() {
+        ValidationResult vr = new PixelCaptchaValidationResult(false, 2, 33.333, 40);
+        assertEquals("Maximum permissible deviation = 33.33, actual value = 40", vr.getResponseDetails());
 
-}
\ No newline at end of file
+        ValidationResult vr2 = new Gson().fromJson(new PixelCaptchaValidationResult(false, 2, 33.333, 40).toString(), PixelCaptchaValidationResult.class);
+        assertEquals(vr.getResponseDetails(), vr2.getResponseDetails());
+        assertEquals(vr.getResponseCode(), vr2.getResponseCode());
+    }
+
+    @Test
+    public void testDeviationDetailsAreSerialized() {
+        // Serialized without calling any getter first
+        String json = new Gson().toJson(new PixelCaptchaValidationResult(false, 2, 12.5, 40));
+        ValidationResult vr = new Gson().fromJson(json, PixelCaptchaValidationResult.class);
+        assertEquals(String.format("Maximum permissible deviation = %.2f, actual value = 40", 12.5), vr.getResponseDetails());
+
+        // As a value of a map, the way the demo application returns it
+        Map<String, Object> m = new HashMap<>();
+        m.put("details", new PixelCaptchaValidationResult(false, 2, 12.5, 40));
+        JsonObject details = new JsonParser().parse(new Gson().toJson(m)).getAsJsonObject().getAsJsonObject("details");
+        assertEquals(vr.getResponseDetails(), details.get("responseDetails").getAsString());
+        assertFalse(new Gson().toJson(new PixelCaptchaValidationResult(true, 1, null)).contains("responseDetails"));
+    }
+}
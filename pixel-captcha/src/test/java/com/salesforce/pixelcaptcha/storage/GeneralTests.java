@@ -68,4 +68,18 @@ public class GeneralTests {
             pcss.storeCaptchaSolution(mock(CaptchaSolution.class));
         assertEquals(size, pcss.getSize());
     }
+
+    @Test
+    public void testBulkStore() {
+        CaptchaSolutionStore pcss = new PixelCaptchaSolutionStore(testSize, testTimeout);
+        List<CaptchaSolution> solutions = new ArrayList<>();
+        for (int i = 0; i < testSize / 2; i++)
+            solutions.add(mock(CaptchaSolution.class));
+
+        List<String> identifiers = pcss.storeCaptchaSolutions(solutions);
+        assertEquals(solutions.size(), identifiers.size());
+        assertEquals(solutions.size(), pcss.getSize());
+        for (int i = 0; i < solutions.size(); i++)
+            assertSame(solutions.get(i), pcss.getCaptchaSolution(identifiers.get(i)).get());
+    }
 }
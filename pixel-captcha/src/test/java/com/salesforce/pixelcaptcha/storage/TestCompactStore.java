@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.storage;
+
+import com.google.common.base.Optional;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaSolution;
+import com.salesforce.pixelcaptcha.dataobj.impl.PixelCaptchaSolution;
+import com.salesforce.pixelcaptcha.storage.impl.CompactCaptchaSolutionStore;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+@RunWith(JUnitParamsRunner.class)
+public class TestCompactStore {
+
+    private static CaptchaSolution getSolution(int seed, int count, boolean ordered) {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            points.add(new Point(seed + i, -seed - i));
+        return new PixelCaptchaSolution(points, seed + 0.5, ordered);
+    }
+
+    private static void assertSameSolution(CaptchaSolution expected, Optional<CaptchaSolution> actual) {
+        assertTrue(actual.isPresent());
+        assertEquals(expected.getPoints(), actual.get().getPoints());
+        assertEquals(expected.getMaxDeviation(), actual.get().getMaxDeviation(), 0.001);
+        assertEquals(expected.isOrdered(), actual.get().isOrdered());
+    }
+
+    private static final Object[] getInvalidValues() {
+        return new Object[]{
+                new Object[]{CompactCaptchaSolutionStore.MIN_SIZE - 1, CompactCaptchaSolutionStore.MAX_TIMEOUT},
+                new Object[]{10, CompactCaptchaSolutionStore.MIN_TIMEOUT - 1},
+                new Object[]{10, CompactCaptchaSolutionStore.MAX_TIMEOUT + 1}
+        };
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @Parameters(method = "getInvalidValues")
+    public void testInvalidValuesForSizeAndTimeoutThrowExceptions(int size, int timeOut) {
+        new CompactCaptchaSolutionStore(size, timeOut);
+    }
+
+    @Test
+    public void testSolutionIsReturnedOnlyOnce() {
+        CaptchaSolutionStore store = new CompactCaptchaSolutionStore(10, CompactCaptchaSolutionStore.DEFAULT_TIMEOUT);
+        CaptchaSolution solution = getSolution(300, 4, true);
+        String identifier = store.storeCaptchaSolution(solution);
+        assertEquals(1, store.getSize());
+
+        assertSameSolution(solution, store.getCaptchaSolution(identifier));
+        assertEquals(Optional.absent(), store.getCaptchaSolution(identifier));
+        assertEquals(0, store.getSize());
+    }
+
+    @Test
+    public void testUnknownIdentifiers() {
+        CaptchaSolutionStore store = new CompactCaptchaSolutionStore(10, CompactCaptchaSolutionStore.DEFAULT_TIMEOUT);
+        store.storeCaptchaSolution(getSolution(1, 2, false));
+        assertEquals(Optional.absent(), store.getCaptchaSolution("not-an-identifier"));
+        assertEquals(Optional.absent(), store.getCaptchaSolution(IdentifierFactory.getInstance()));
+        assertEquals(1, store.getSize());
+    }
+
+    @Test
+    public void testAllSolutionsSurviveRemovalInAnyOrder() {
+        int size = 2000;
+        CaptchaSolutionStore store = new CompactCaptchaSolutionStore(size, CompactCaptchaSolutionStore.DEFAULT_TIMEOUT);
+        List<String> identifiers = new ArrayList<>();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            identifiers.add(store.storeCaptchaSolution(getSolution(i, 1 + i % 4, i % 2 == 0)));
+            order.add(i);
+        }
+        assertEquals(size, store.getSize());
+
+        Collections.shuffle(order, new Random(7));
+        for (int i : order)
+            assertSameSolution(getSolution(i, 1 + i % 4, i % 2 == 0), store.getCaptchaSolution(identifiers.get(i)));
+        assertEquals(0, store.getSize());
+    }
+
+    @Test
+    public void testBulkStoreReturnsIdentifiersInOrder() {
+        int count = 500;
+        CaptchaSolutionStore store = new CompactCaptchaSolutionStore(1000, CompactCaptchaSolutionStore.DEFAULT_TIMEOUT);
+        List<CaptchaSolution> solutions = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            solutions.add(getSolution(i, 1 + i % 4, i % 2 == 0));
+
+        List<String> identifiers = store.storeCaptchaSolutions(solutions);
+        assertEquals(count, identifiers.size());
+        assertEquals(count, store.getSize());
+        for (int i = 0; i < count; i++)
+            assertSameSolution(solutions.get(i), store.getCaptchaSolution(identifiers.get(i)));
+        assertEquals(0, store.getSize());
+    }
+
+    @Test
+    public void testBulkStoreRespectsStorageSize() {
+        int size = 16;
+        CaptchaSolutionStore store = new CompactCaptchaSolutionStore(size, CompactCaptchaSolutionStore.DEFAULT_TIMEOUT);
+        List<CaptchaSolution> solutions = new ArrayList<>();
+        for (int i = 0; i < size * 4; i++)
+            solutions.add(getSolution(i, 2, false));
+
+        store.storeCaptchaSolutions(solutions);
+        List<String> identifiers = store.storeCaptchaSolutions(solutions);
+        assertTrue(store.getSize() <= size);
+        int found = 0;
+        for (String identifier : identifiers) {
+            if (store.getCaptchaSolution(identifier).isPresent())
+                found++;
+        }
+        assertTrue(found > 0);
+    }
+
+    @Test
+    public void testStorageSize() {
+        int size = 10;
+        CaptchaSolutionStore store = new CompactCaptchaSolutionStore(size, CompactCaptchaSolutionStore.DEFAULT_TIMEOUT);
+        String last = null;
+        for (int i = 0; i < size * 20; i++)
+            last = store.storeCaptchaSolution(mock(CaptchaSolution.class));
+        assertTrue(store.getSize() <= size);
+        assertTrue(store.getCaptchaSolution(last).isPresent());
+    }
+
+    @Test
+    public void testConcurrentStoresRespectStorageSize() throws Exception {
+        final int size = 32;
+        final CaptchaSolutionStore store = new CompactCaptchaSolutionStore(size, CompactCaptchaSolutionStore.DEFAULT_TIMEOUT);
+        final CyclicBarrier start = new CyclicBarrier(8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int i = 0; i < 20000; i++)
+                            store.storeCaptchaSolution(getSolution(i, 2, false));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(store.getSize() <= size);
+    }
+
+    @Test
+    public void testStorageTimeOut() throws InterruptedException {
+        CaptchaSolutionStore store = new CompactCaptchaSolutionStore(10, 1);
+        String identifier = store.storeCaptchaSolution(getSolution(5, 3, false));
+        Thread.sleep(2 * 1000);
+        assertEquals(Optional.absent(), store.getCaptchaSolution(identifier));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyPointsAreRejected() {
+        new CompactCaptchaSolutionStore(10, 10).storeCaptchaSolution(getSolution(1, CompactCaptchaSolutionStore.MAX_POINTS + 1, false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCoordinatesOutsideShortRangeAreRejected() {
+        List<Point> points = new ArrayList<>();
+        points.add(new Point(Short.MAX_VALUE + 1, 0));
+        new CompactCaptchaSolutionStore(10, 10).storeCaptchaSolution(new PixelCaptchaSolution(points, 1));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.storage;
+
+import com.google.common.base.Optional;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaSeed;
+import com.salesforce.pixelcaptcha.storage.impl.PixelCaptchaSeedStore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class TestSeedStore {
+
+    private static CaptchaSeed getSeed(int first, long version) {
+        byte[] seed = new byte[32];
+        for (int i = 0; i < seed.length; i++)
+            seed[i] = (byte) (first + i);
+        return new CaptchaSeed(seed, version);
+    }
+
+    @Test
+    public void testGetDoesNotRemoveTheSeed() {
+        CaptchaSeedStore store = new PixelCaptchaSeedStore(10, PixelCaptchaSeedStore.DEFAULT_TIMEOUT);
+        CaptchaSeed seed = getSeed(7, 42L);
+        String identifier = store.storeCaptchaSeed(seed);
+
+        assertEquals(Optional.of(seed), store.getCaptchaSeed(identifier));
+        assertEquals(Optional.of(seed), store.getCaptchaSeed(identifier));
+        assertEquals(1, store.getSize());
+    }
+
+    @Test
+    public void testRemoveIsOneTimeUse() {
+        CaptchaSeedStore store = new PixelCaptchaSeedStore(10, PixelCaptchaSeedStore.DEFAULT_TIMEOUT);
+        CaptchaSeed seed = getSeed(7, 42L);
+        String identifier = store.storeCaptchaSeed(seed);
+
+        Optional<CaptchaSeed> removed = store.removeCaptchaSeed(identifier);
+        assertTrue(removed.isPresent());
+        assertArrayEquals(seed.getSeed(), removed.get().getSeed());
+        assertEquals(42L, removed.get().getConfigVersion());
+        assertFalse(store.removeCaptchaSeed(identifier).isPresent());
+        assertFalse(store.getCaptchaSeed(identifier).isPresent());
+    }
+
+    @Test
+    public void testBulkStore() {
+        CaptchaSeedStore store = new PixelCaptchaSeedStore(100, PixelCaptchaSeedStore.DEFAULT_TIMEOUT);
+        List<CaptchaSeed> seeds = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            seeds.add(getSeed(i, i));
+
+        List<String> identifiers = store.storeCaptchaSeeds(seeds);
+        assertEquals(20, identifiers.size());
+        assertEquals(20, store.getSize());
+        for (int i = 0; i < 20; i++)
+            assertEquals(Optional.of(seeds.get(i)), store.removeCaptchaSeed(identifiers.get(i)));
+    }
+
+    @Test
+    public void testUnknownIdentifier() {
+        CaptchaSeedStore store = new PixelCaptchaSeedStore(10, PixelCaptchaSeedStore.DEFAULT_TIMEOUT);
+        assertFalse(store.getCaptchaSeed("unknown").isPresent());
+        assertFalse(store.removeCaptchaSeed("unknown").isPresent());
+        assertEquals(0, store.getSize());
+    }
+
+    @Test
+    public void testSeedIsCopied() {
+        byte[] bytes = new byte[32];
+        CaptchaSeed seed = new CaptchaSeed(bytes, 1L);
+        bytes[0] = 1;
+        assertEquals(0, seed.getSeed()[0]);
+        seed.getSeed()[1] = 1;
+        assertEquals(0, seed.getSeed()[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTimeout() {
+        new PixelCaptchaSeedStore(10, PixelCaptchaSeedStore.DEFAULT_TIMEOUT * 10);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullSeed() {
+        new PixelCaptchaSeedStore(10, PixelCaptchaSeedStore.DEFAULT_TIMEOUT).storeCaptchaSeed(null);
+    }
+
+    @Test
+    public void testDefaultBulkStoreStoresEachSeed() {
+        // Implements only storeCaptchaSeed, as stores written before the bulk API do
+        final Map<String, CaptchaSeed> seeds = new HashMap<>();
+        CaptchaSeedStore store = new CaptchaSeedStore() {
+            public String storeCaptchaSeed(CaptchaSeed seed) {
+                String identifier = Integer.toString(seeds.size());
+                seeds.put(identifier, seed);
+                return identifier;
+            }
+
+            public Optional<CaptchaSeed> getCaptchaSeed(String identifier) {
+                return Optional.fromNullable(seeds.get(identifier));
+            }
+
+            public Optional<CaptchaSeed> removeCaptchaSeed(String identifier) {
+                return Optional.fromNullable(seeds.remove(identifier));
+            }
+
+            public long getSize() {
+                return seeds.size();
+            }
+        };
+
+        List<CaptchaSeed> batch = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            batch.add(getSeed(i, 42L));
+        List<String> identifiers = store.storeCaptchaSeeds(batch);
+        assertEquals(4, identifiers.size());
+        for (int i = 0; i < batch.size(); i++)
+            assertSame(batch.get(i), store.getCaptchaSeed(identifiers.get(i)).get());
+    }
+}
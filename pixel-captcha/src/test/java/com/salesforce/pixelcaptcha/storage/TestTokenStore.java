@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.storage;
+
+import com.google.common.base.Optional;
+import com.salesforce.pixelcaptcha.dataobj.CaptchaSolution;
+import com.salesforce.pixelcaptcha.dataobj.impl.PixelCaptchaSolution;
+import com.salesforce.pixelcaptcha.storage.impl.TokenCaptchaSolutionStore;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+@RunWith(JUnitParamsRunner.class)
+public class TestTokenStore {
+    private static final byte[] KEY = new byte[16];
+    private static final byte[] OTHER_KEY = new byte[32];
+
+    static {
+        for (int i = 0; i < OTHER_KEY.length; i++)
+            OTHER_KEY[i] = (byte) i;
+    }
+
+    private static CaptchaSolution getSolution() {
+        List<Point> points = new ArrayList<>();
+        points.add(new Point(12, 250));
+        points.add(new Point(300, 40));
+        points.add(new Point(-5, 7));
+        return new PixelCaptchaSolution(points, 42.5, true);
+    }
+
+    private static final Object[] getInvalidValues() {
+        return new Object[]{
+                new Object[]{new byte[15], 10, TokenCaptchaSolutionStore.MAX_TIMEOUT},
+                new Object[]{KEY, TokenCaptchaSolutionStore.MIN_SIZE - 1, TokenCaptchaSolutionStore.MAX_TIMEOUT},
+                new Object[]{KEY, 10, TokenCaptchaSolutionStore.MIN_TIMEOUT - 1},
+                new Object[]{KEY, 10, TokenCaptchaSolutionStore.MAX_TIMEOUT + 1}
+        };
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @Parameters(method = "getInvalidValues")
+    public void testInvalidValuesThrowExceptions(byte[] key, int size, int timeOut) {
+        new TokenCaptchaSolutionStore(key, size, timeOut);
+    }
+
+    @Test
+    public void testTokenIsVerifiedByAnotherStoreWithTheSameKey() {
+        CaptchaSolution solution = getSolution();
+        String token = new TokenCaptchaSolutionStore(KEY, 10, 60).storeCaptchaSolution(solution);
+
+        Optional<CaptchaSolution> decoded = new TokenCaptchaSolutionStore(KEY, 10, 60).getCaptchaSolution(token);
+        assertTrue(decoded.isPresent());
+        assertEquals(solution.getPoints(), decoded.get().getPoints());
+        assertEquals(solution.getMaxDeviation(), decoded.get().getMaxDeviation(), 0.001);
+        assertEquals(solution.isOrdered(), decoded.get().isOrdered());
+    }
+
+    @Test
+    public void testTokenIsAcceptedOnlyOnce() {
+        CaptchaSolutionStore store = new TokenCaptchaSolutionStore(KEY, 10, 60);
+        String token = store.storeCaptchaSolution(getSolution());
+        assertTrue(store.getCaptchaSolution(token).isPresent());
+        assertEquals(Optional.absent(), store.getCaptchaSolution(token));
+        assertEquals(0, store.getSize());
+    }
+
+    @Test
+    public void testTokensAreUnique() {
+        CaptchaSolutionStore store = new TokenCaptchaSolutionStore(KEY, 10, 60);
+        CaptchaSolution solution = getSolution();
+        assertNotEquals(store.storeCaptchaSolution(solution), store.storeCaptchaSolution(solution));
+    }
+
+    @Test
+    public void testBulkStore() {
+        CaptchaSolutionStore store = new TokenCaptchaSolutionStore(KEY, 10, 60);
+        List<String> tokens = store.storeCaptchaSolutions(Arrays.asList(getSolution(), getSolution()));
+        assertEquals(2, tokens.size());
+        assertNotEquals(tokens.get(0), tokens.get(1));
+        for (String token : tokens)
+            assertEquals(getSolution().getPoints(), store.getCaptchaSolution(token).get().getPoints());
+    }
+
+    @Test
+    public void testTamperedAndForeignTokensAreRejected() {
+        CaptchaSolutionStore store = new TokenCaptchaSolutionStore(KEY, 10, 60);
+        String token = store.storeCaptchaSolution(getSolution());
+
+        char[] chars = token.toCharArray();
+        chars[chars.length / 2] = chars[chars.length / 2] == 'A' ? 'B' : 'A';
+        assertEquals(Optional.absent(), store.getCaptchaSolution(new String(chars)));
+
+        String foreign = new TokenCaptchaSolutionStore(OTHER_KEY, 10, 60).storeCaptchaSolution(getSolution());
+        assertEquals(Optional.absent(), store.getCaptchaSolution(foreign));
+
+        assertEquals(Optional.absent(), store.getCaptchaSolution(IdentifierFactory.getInstance()));
+        assertEquals(Optional.absent(), store.getCaptchaSolution(""));
+
+        // The untouched token is still good
+        assertTrue(store.getCaptchaSolution(token).isPresent());
+    }
+
+    @Test
+    public void testStorageTimeOut() throws InterruptedException {
+        CaptchaSolutionStore store = new TokenCaptchaSolutionStore(KEY, 10, 1);
+        String token = store.storeCaptchaSolution(getSolution());
+        Thread.sleep(2 * 1000);
+        assertEquals(Optional.absent(), store.getCaptchaSolution(token));
+    }
+
+    @Test
+    public void testSharedKeyIsNotReplacedSilently() {
+        TokenCaptchaSolutionStore store = TokenCaptchaSolutionStore.getInstance();
+        assertSame(store, TokenCaptchaSolutionStore.getInstance());
+        try {
+            // The shared instance already has a random key
+            TokenCaptchaSolutionStore.getInstance(KEY, 10, 60);
+            fail("A different key was accepted");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.utils;
+
+import com.google.common.cache.CacheStats;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class GlyphOutlineCacheTest {
+    private static final FontRenderContext FRC = new FontRenderContext(null, false, false);
+
+    private static void assertBoundsEqual(Rectangle2D expected, Rectangle2D actual) {
+        assertEquals(expected.getX(), actual.getX(), 0.01);
+        assertEquals(expected.getY(), actual.getY(), 0.01);
+        assertEquals(expected.getWidth(), actual.getWidth(), 0.01);
+        assertEquals(expected.getHeight(), actual.getHeight(), 0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new GlyphOutlineCache(0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullFont() {
+        new GlyphOutlineCache(10).getOutline(null, "A", 0, 0);
+    }
+
+    @Test
+    public void testOutlineMatchesGlyphVector() {
+        GlyphOutlineCache cache = new GlyphOutlineCache(10);
+        Font font = new Font(Font.SANS_SERIF, Font.BOLD, 1).deriveFont(40f);
+        Rectangle2D expected = font.createGlyphVector(FRC, "W").getOutline(15, 60).getBounds2D();
+        assertBoundsEqual(expected, cache.getOutline(font, "W", 15, 60).getBounds2D());
+    }
+
+    @Test
+    public void testTransformedFontsShareTheCachedOutline() {
+        GlyphOutlineCache cache = new GlyphOutlineCache(10);
+        Font font = new Font(Font.SERIF, Font.PLAIN, 1).deriveFont(32f);
+        Font rotated = font.deriveFont(AffineTransform.getRotateInstance(0.5));
+        Font sheared = font.deriveFont(AffineTransform.getShearInstance(0.3, 0));
+
+        cache.getOutline(font, "K", 0, 0);
+        Rectangle2D rotatedBounds = cache.getOutline(rotated, "K", 20, 50).getBounds2D();
+        Rectangle2D shearedBounds = cache.getOutline(sheared, "K", 20, 50).getBounds2D();
+
+        assertBoundsEqual(rotated.createGlyphVector(FRC, "K").getOutline(20, 50).getBounds2D(), rotatedBounds);
+        assertBoundsEqual(sheared.createGlyphVector(FRC, "K").getOutline(20, 50).getBounds2D(), shearedBounds);
+
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.missCount());
+        assertEquals(2, stats.hitCount());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        GlyphOutlineCache cache = new GlyphOutlineCache(5);
+        Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(20f);
+        for (char c = 'A'; c <= 'Z'; c++)
+            cache.getOutline(font, String.valueOf(c), 0, 0);
+        assertTrue(cache.getSize() <= 5);
+        assertEquals(26, cache.getStats().missCount());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.utils;
+
+import com.salesforce.pixelcaptcha.core.GlobalConstants;
+import com.salesforce.pixelcaptcha.core.ImageColorMode;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class GlyphRasterizerTest {
+    private static final int SIZE = 120;
+
+    private static BufferedImage getWhiteImage(int imageType) {
+        BufferedImage bi = new BufferedImage(SIZE, SIZE, imageType);
+        Graphics2D g2d = bi.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, SIZE, SIZE);
+        g2d.dispose();
+        return bi;
+    }
+
+    private static int gray(BufferedImage bi, int x, int y) {
+        return bi.getRGB(x, y) & 0xFF;
+    }
+
+    /**
+     * Fills the shape with Graphics2D and with GlyphRasterizer and returns the number of pixels painted by only one.
+     * Without normalization Graphics2D paints the pixels whose centers are inside the shape, which along a straight
+     * edge are the pixels that are at least half covered.
+     */
+    private static int countDifferences(Shape shape) {
+        BufferedImage filled = getWhiteImage(GlobalConstants.DEFAULT_IMAGE_TYPE);
+        Graphics2D g2d = filled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        g2d.setColor(Color.BLACK);
+        g2d.fill(shape);
+        g2d.dispose();
+
+        BufferedImage rasterized = getWhiteImage(GlobalConstants.DEFAULT_IMAGE_TYPE);
+        GlyphRasterizer.fill(rasterized, shape, Color.BLACK, false);
+
+        int differences = 0;
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                if (filled.getRGB(x, y) != rasterized.getRGB(x, y))
+                    differences++;
+            }
+        }
+        return differences;
+    }
+
+    @Test
+    public void testAntialiasedRectangleCoverage() throws Exception {
+        BufferedImage bi = getWhiteImage(BufferedImage.TYPE_INT_RGB);
+        GlyphRasterizer.fill(bi, new Rectangle2D.Double(10.5, 20, 30, 10.25), Color.BLACK, true);
+
+        assertEquals(0, gray(bi, 11, 25));
+        assertEquals(0, gray(bi, 39, 20));
+        // Half covered columns and a quarter covered row
+        assertEquals(128, gray(bi, 10, 25), 1);
+        assertEquals(128, gray(bi, 40, 25), 1);
+        assertEquals(191, gray(bi, 20, 30), 1);
+        assertEquals(255, gray(bi, 9, 25));
+        assertEquals(255, gray(bi, 41, 25));
+        assertEquals(255, gray(bi, 20, 19));
+        assertEquals(255, gray(bi, 20, 31));
+    }
+
+    @Test
+    public void testGlyphOutlineMatchesGraphics2D() throws Exception {
+        AffineTransform transform = new AffineTransform();
+        transform.shear(0.3, -0.2);
+        transform.rotate(Math.toRadians(-35));
+        Shape outline = new GlyphOutlineCache(10).getOutline(new Font(Font.SERIF, Font.BOLD, 60), "Kg", transform, 20, 80);
+        Rectangle bounds = outline.getBounds();
+        // Only pixels along curved edges differ
+        assertTrue(countDifferences(outline) < (bounds.width + bounds.height) / 8);
+    }
+
+    @Test
+    public void testShapesAreClippedToTheImage() throws Exception {
+        assertTrue(countDifferences(new Ellipse2D.Double(-40.3, -20.6, 100, 70)) < 20);
+        assertTrue(countDifferences(new Ellipse2D.Double(SIZE - 30.2, SIZE - 50.7, 90, 120)) < 20);
+
+        BufferedImage bi = getWhiteImage(BufferedImage.TYPE_INT_RGB);
+        GlyphRasterizer.fill(bi, new Rectangle2D.Double(-500, -500, 1000 + SIZE, 1000 + SIZE), Color.BLACK, true);
+        GlyphRasterizer.fill(bi, new Rectangle2D.Double(5000, 5000, 10, 10), Color.WHITE, true);
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                assertEquals(0, gray(bi, x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testOutlinesCrossingTheLeftAndTopEdges() throws Exception {
+        GlyphOutlineCache outlineCache = new GlyphOutlineCache(1000);
+        BufferedImage bi = getWhiteImage(GlobalConstants.DEFAULT_IMAGE_TYPE);
+        AffineTransform transform = new AffineTransform();
+        transform.rotate(Math.toRadians(-20));
+        String[] families = {Font.MONOSPACED, Font.SERIF, Font.SANS_SERIF};
+        for (String family : families) {
+            for (int size = 30; size <= 44; size += 7) {
+                Font font = new Font(family, Font.ITALIC, size);
+                for (char c = 'a'; c <= 'z'; c++) {
+                    for (float x = -10.9f; x < 0; x += 0.7f) {
+                        // Along the left edge and across the top left corner
+                        GlyphRasterizer.fill(bi, outlineCache.getOutline(font, String.valueOf(c), transform, x, 8), Color.BLACK, true);
+                        GlyphRasterizer.fill(bi, outlineCache.getOutline(font, String.valueOf(c), transform, x, x + 5), Color.BLACK, false);
+                    }
+                }
+            }
+        }
+
+        Shape outline = outlineCache.getOutline(new Font(Font.MONOSPACED, Font.ITALIC, 37), "k", new AffineTransform(), -10, 8);
+        assertTrue(countDifferences(outline) < 10);
+    }
+
+    @Test
+    public void testHolesAreNotFilled() throws Exception {
+        Area ring = new Area(new Ellipse2D.Double(10, 10, 100, 100));
+        ring.subtract(new Area(new Ellipse2D.Double(35, 35, 50, 50)));
+        BufferedImage bi = getWhiteImage(BufferedImage.TYPE_INT_RGB);
+        GlyphRasterizer.fill(bi, ring, Color.BLACK, true);
+        assertEquals(255, gray(bi, 60, 60));
+        assertEquals(0, gray(bi, 60, 20));
+
+        // An open subpath is closed
+        Path2D triangle = new Path2D.Double();
+        triangle.moveTo(10.2, 10.2);
+        triangle.lineTo(100.3, 10.2);
+        triangle.lineTo(10.2, 100.1);
+        assertEquals(0, countDifferences(triangle));
+    }
+
+    @Test
+    public void testIndexedImagesGetTheNearestShade() throws Exception {
+        BufferedImage bi = ImageColorMode.INDEXED_4_BIT.createImage(SIZE, SIZE);
+        GlyphRasterizer.fill(bi, new Rectangle2D.Double(10.5, 20, 30, 10), Color.BLACK, true);
+        assertEquals(Color.BLACK.getRGB(), bi.getRGB(20, 25));
+        assertEquals(Color.WHITE.getRGB(), bi.getRGB(9, 25));
+        // The shade halfway between white and black
+        assertEquals(128, gray(bi, 10, 25), 20);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullShape() throws Exception {
+        GlyphRasterizer.fill(getWhiteImage(BufferedImage.TYPE_INT_RGB), null, Color.BLACK, true);
+    }
+}
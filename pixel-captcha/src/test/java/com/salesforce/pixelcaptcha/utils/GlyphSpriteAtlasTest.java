@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.utils;
+
+import com.salesforce.pixelcaptcha.core.GlobalConstants;
+import com.salesforce.pixelcaptcha.core.GlyphRenderingMode;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class GlyphSpriteAtlasTest {
+    private static final int SIZE = 120;
+
+    private static BufferedImage getWhiteImage() {
+        BufferedImage bi = new BufferedImage(SIZE, SIZE, GlobalConstants.DEFAULT_IMAGE_TYPE);
+        Graphics2D g2d = bi.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, SIZE, SIZE);
+        return bi;
+    }
+
+    private static boolean isPainted(BufferedImage bi, int x, int y) {
+        return bi.getRGB(x, y) != Color.WHITE.getRGB();
+    }
+
+    private static void assertSimilarToDrawString(Font font, AffineTransform transform, int codePoint) {
+        BufferedImage drawn = getWhiteImage();
+        Graphics2D g2d = drawn.createGraphics();
+        g2d.setColor(Color.BLACK);
+        g2d.setFont(font.deriveFont(transform));
+        g2d.drawString(new String(Character.toChars(codePoint)), 40, 70);
+
+        BufferedImage composited = getWhiteImage();
+        new GlyphSpriteAtlas(GlyphSpriteAtlas.DEFAULT_MAX_BYTES).draw(composited, font, codePoint, transform, 40, 70, Color.BLACK);
+
+        int drawnCount = 0;
+        int compositedCount = 0;
+        int sharedCount = 0;
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                if (isPainted(drawn, x, y))
+                    drawnCount++;
+                if (isPainted(composited, x, y))
+                    compositedCount++;
+                if (isPainted(drawn, x, y) && isPainted(composited, x, y))
+                    sharedCount++;
+            }
+        }
+        assertTrue(drawnCount > 0);
+        // Edges may differ by a pixel since the sprite is resampled
+        assertTrue(sharedCount >= drawnCount * 2 / 3);
+        assertTrue(compositedCount <= drawnCount * 3 / 2);
+    }
+
+    @Test
+    public void testUntransformedGlyphMatchesDrawString() throws Exception {
+        assertSimilarToDrawString(new Font(Font.SANS_SERIF, Font.BOLD, 40), new AffineTransform(), 'W');
+    }
+
+    @Test
+    public void testTransformedGlyphMatchesDrawString() throws Exception {
+        AffineTransform transform = new AffineTransform();
+        transform.shear(0.3, -0.2);
+        transform.rotate(Math.toRadians(-35));
+        transform.scale(1.1, 0.9);
+        assertSimilarToDrawString(new Font(Font.SERIF, Font.PLAIN, 37), transform, 'K');
+    }
+
+    @Test
+    public void testGlyphsAreRasterizedOncePerBaseSize() throws Exception {
+        GlyphSpriteAtlas atlas = new GlyphSpriteAtlas(GlyphSpriteAtlas.DEFAULT_MAX_BYTES);
+        BufferedImage bi = getWhiteImage();
+        // 33 and 40 share the base size of 48
+        atlas.draw(bi, new Font(Font.DIALOG, Font.PLAIN, 33), 'A', null, 10, 60, Color.BLACK);
+        atlas.draw(bi, new Font(Font.DIALOG, Font.PLAIN, 40), 'A', AffineTransform.getRotateInstance(0.4), 50, 60, Color.BLACK);
+        assertEquals(1, atlas.getSize());
+        assertEquals(1, atlas.getStats().missCount());
+        assertEquals(1, atlas.getStats().hitCount());
+    }
+
+    @Test
+    public void testGlyphsAreClippedToTheImage() throws Exception {
+        GlyphSpriteAtlas atlas = new GlyphSpriteAtlas(GlyphSpriteAtlas.DEFAULT_MAX_BYTES);
+        BufferedImage bi = getWhiteImage();
+        Font font = new Font(Font.MONOSPACED, Font.BOLD, 60);
+        atlas.draw(bi, font, 'M', null, -20, 30, Color.BLACK);
+        atlas.draw(bi, font, 'M', null, SIZE - 10, SIZE + 20, Color.BLACK);
+        atlas.draw(bi, font, 'M', null, 5000, 5000, Color.BLACK);
+    }
+
+    @Test
+    public void testEmptyGlyphPaintsNothing() throws Exception {
+        BufferedImage bi = getWhiteImage();
+        new GlyphSpriteAtlas(GlyphSpriteAtlas.DEFAULT_MAX_BYTES).draw(bi, new Font(Font.SERIF, Font.PLAIN, 30), ' ', null, 40, 70, Color.BLACK);
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                assertFalse(isPainted(bi, x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testRenderingModeNames() throws Exception {
+        assertEquals(GlyphRenderingMode.SPRITE_ATLAS, GlyphRenderingMode.fromStringOrDefault("spriteAtlas", GlyphRenderingMode.DRAW_STRING));
+        assertEquals(GlyphRenderingMode.CACHED_OUTLINE, GlyphRenderingMode.fromStringOrDefault(" CACHED_OUTLINE ", GlyphRenderingMode.DRAW_STRING));
+        assertEquals(GlyphRenderingMode.DRAW_STRING, GlyphRenderingMode.fromStringOrDefault("bitmap", GlyphRenderingMode.DRAW_STRING));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() throws Exception {
+        new GlyphSpriteAtlas(0);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.utils;
+
+import com.salesforce.pixelcaptcha.core.ImageColorMode;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class PngEncoderTest {
+
+    private static BufferedImage paint(BufferedImage image) {
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g2d.setFont(new Font(Font.SERIF, Font.BOLD, 30));
+        g2d.setColor(Color.BLUE);
+        g2d.drawString("Ab", 3, 30);
+        g2d.setColor(Color.BLACK);
+        g2d.drawString("Zq", 40, 45);
+        g2d.dispose();
+        return image;
+    }
+
+    private static void assertDecodesTo(BufferedImage expected, byte[] png) throws Exception {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(expected.getWidth(), decoded.getWidth());
+        assertEquals(expected.getHeight(), decoded.getHeight());
+        for (int x = 0; x < expected.getWidth(); x++) {
+            for (int y = 0; y < expected.getHeight(); y++) {
+                assertEquals(expected.getRGB(x, y), decoded.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testImageTypesRoundTrip() throws Exception {
+        BufferedImage[] images = {
+                new BufferedImage(71, 53, BufferedImage.TYPE_USHORT_555_RGB),
+                new BufferedImage(71, 53, BufferedImage.TYPE_INT_RGB),
+                new BufferedImage(71, 53, BufferedImage.TYPE_BYTE_INDEXED),
+                new BufferedImage(71, 53, BufferedImage.TYPE_3BYTE_BGR),
+                ImageColorMode.INDEXED_2_BIT.createImage(71, 53),
+                ImageColorMode.INDEXED_4_BIT.createImage(71, 53),
+        };
+        for (BufferedImage image : images) {
+            assertDecodesTo(paint(image), PngEncoder.getInstance().encode(image));
+        }
+    }
+
+    @Test
+    public void testEveryFilterRoundTrips() throws Exception {
+        BufferedImage rgb = paint(new BufferedImage(64, 50, BufferedImage.TYPE_USHORT_555_RGB));
+        BufferedImage indexed = paint(ImageColorMode.INDEXED_2_BIT.createImage(64, 50));
+        for (PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+            PngEncoder encoder = new PngEncoder.Builder().filter(filter).compressionLevel(9).build();
+            assertDecodesTo(rgb, encoder.encode(rgb));
+            assertDecodesTo(indexed, encoder.encode(indexed));
+        }
+    }
+
+    @Test
+    public void testIndexedImagesKeepTheirBitDepth() throws Exception {
+        BufferedImage image = paint(ImageColorMode.INDEXED_2_BIT.createImage(400, 300));
+        byte[] png = PngEncoder.getInstance().encode(image);
+        // IHDR data starts after the signature, chunk length and chunk type
+        assertEquals(2, png[24]);
+        assertEquals(3, png[25]);
+        assertTrue(png.length < PngEncoder.getInstance().encode(paint(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB))).length);
+    }
+
+    @Test
+    public void testOutputsAreIdentical() throws Exception {
+        BufferedImage image = paint(new BufferedImage(90, 60, BufferedImage.TYPE_USHORT_555_RGB));
+        PngEncoder encoder = PngEncoder.getInstance();
+        byte[] encoded = encoder.encode(image);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(encoded.length, encoder.write(image, out));
+        assertArrayEquals(encoded, out.toByteArray());
+
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 3);
+        buffer.put((byte) 1);
+        assertEquals(encoded.length, encoder.write(image, buffer));
+        assertEquals(encoded.length + 1, buffer.position());
+        assertArrayEquals(encoded, Arrays.copyOfRange(buffer.array(), 1, encoded.length + 1));
+    }
+
+    @Test
+    public void testSmallBufferIsLeftUntouched() throws Exception {
+        BufferedImage image = paint(new BufferedImage(90, 60, BufferedImage.TYPE_USHORT_555_RGB));
+        ByteBuffer buffer = ByteBuffer.allocate(10);
+        try {
+            PngEncoder.getInstance().write(image, buffer);
+            fail("BufferOverflowException expected");
+        } catch (BufferOverflowException e) {
+            assertEquals(0, buffer.position());
+        }
+    }
+
+    @Test
+    public void testLargerImageAfterSmallerOne() throws Exception {
+        PngEncoder encoder = new PngEncoder.Builder().compressionLevel(0).build();
+        BufferedImage small = paint(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+        BufferedImage large = paint(new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB));
+        assertDecodesTo(small, encoder.encode(small));
+        // Uncompressed, the large image does not fit the initial output buffer
+        assertDecodesTo(large, encoder.encode(large));
+        assertDecodesTo(small, encoder.encode(small));
+    }
+
+    @Test
+    public void testFilterNames() throws Exception {
+        assertEquals(PngEncoder.Filter.PAETH, PngEncoder.Filter.fromStringOrDefault("paeth", PngEncoder.Filter.UP));
+        assertEquals(PngEncoder.Filter.UP, PngEncoder.Filter.fromStringOrDefault("bogus", PngEncoder.Filter.UP));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCompressionLevel() throws Exception {
+        new PngEncoder.Builder().compressionLevel(10);
+    }
+}
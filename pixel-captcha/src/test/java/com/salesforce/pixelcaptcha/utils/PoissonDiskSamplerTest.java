@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.utils;
+
+import com.google.common.base.Optional;
+import com.salesforce.pixelcaptcha.utils.impl.ChaCha20RandomSource;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class PoissonDiskSamplerTest {
+    private final RandomSource rand = ChaCha20RandomSource.getInstance();
+
+    private List<Point> sampleAll(PoissonDiskSampler sampler) {
+        List<Point> points = new ArrayList<>();
+        Optional<Point> point;
+        while ((point = sampler.next()).isPresent()) {
+            points.add(point.get());
+        }
+        return points;
+    }
+
+    @Test
+    public void testPointsKeepMinimumDistance() throws Exception {
+        Rectangle area = new Rectangle(20, 30, 300, 200);
+        PoissonDiskSampler sampler = new PoissonDiskSampler(area, 25, rand);
+        List<Point> points = sampleAll(sampler);
+
+        assertEquals(points.size(), sampler.size());
+        assertTrue(points.size() > 12);
+        for (int i = 0; i < points.size(); i++) {
+            assertTrue(area.contains(points.get(i)));
+            for (int j = i + 1; j < points.size(); j++) {
+                assertTrue(points.get(i).distance(points.get(j)) >= 25);
+            }
+        }
+    }
+
+    @Test
+    public void testFallbackFindsLastFreePixel() throws Exception {
+        Rectangle area = new Rectangle(0, 0, 10, 10);
+        PoissonDiskSampler sampler = new PoissonDiskSampler(area, 1, 1, rand);
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                if (x != 7 || y != 3)
+                    sampler.add(new Point(x, y));
+            }
+        }
+
+        Optional<Point> point = sampler.next();
+        assertTrue(point.isPresent());
+        assertEquals(new Point(7, 3), point.get());
+        assertFalse(sampler.next().isPresent());
+    }
+
+    @Test
+    public void testAttemptsAndFallbacksAreCounted() throws Exception {
+        Rectangle area = new Rectangle(0, 0, 4, 4);
+        PoissonDiskSampler sampler = new PoissonDiskSampler(area, 1, 5, rand);
+        List<Point> points = sampleAll(sampler);
+
+        // Every pixel is taken and the final call scans the whole area without success
+        assertEquals(16, points.size());
+        assertTrue(sampler.getFallbackCount() >= 1);
+        assertTrue(sampler.getRejectedCount() >= 5 * sampler.getFallbackCount());
+    }
+
+    @Test
+    public void testReferencePointsOutsideTheAreaAreRespected() throws Exception {
+        Rectangle area = new Rectangle(0, 0, 100, 100);
+        Point outside = new Point(-5, 50);
+        PoissonDiskSampler sampler = new PoissonDiskSampler(area, 30, rand);
+        sampler.add(outside);
+
+        for (Point point : sampleAll(sampler)) {
+            assertTrue(point.distance(outside) >= 30);
+        }
+    }
+
+    @Test
+    public void testZeroDistanceAcceptsFirstCandidate() throws Exception {
+        PoissonDiskSampler sampler = new PoissonDiskSampler(new Rectangle(0, 0, 5, 5), 0, rand);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(sampler.next().isPresent());
+        }
+        assertEquals(0, sampler.getRejectedCount());
+        assertEquals(0, sampler.getFallbackCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyAreaIsRejected() throws Exception {
+        new PoissonDiskSampler(new Rectangle(0, 0, 0, 10), 5, rand);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDistanceIsRejected() throws Exception {
+        new PoissonDiskSampler(new Rectangle(0, 0, 10, 10), -1, rand);
+    }
+}
@@ -43,4 +43,21 @@ public class PrintableCharFinderTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testGetPrintableCodePointsForRange() throws Exception {
+        int[] printable = pcf.getPrintableCodePoints(0, 4095);
+        assertArrayEquals(printable, pcf.getPrintableCodePoints(Helper.constructCodePointArrayFomMinMaxValues(0, 4095)));
+        assertEquals(pcf.rank(4096), printable.length);
+
+        int count = 0;
+        for (int i = 0; i <= 4095; i++) {
+            if (pcf.isPrintableChar(i)) {
+                assertEquals(i, printable[count]);
+                assertEquals(i, pcf.select(count));
+                count++;
+            }
+        }
+        assertEquals(count, printable.length);
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class PrintableCodePointIndexTest {
+    private static final int[] CODE_POINTS = {0, 5, 63, 64, 127, 128, 1000, 4095, 65535};
+
+    @Test
+    public void testRankAndSelect() {
+        PrintableCodePointIndex index = PrintableCodePointIndex.fromCodePoints(CODE_POINTS);
+        assertEquals(CODE_POINTS.length, index.cardinality());
+        for (int i = 0; i < CODE_POINTS.length; i++) {
+            assertEquals(CODE_POINTS[i], index.select(i));
+            assertEquals(i, index.rank(CODE_POINTS[i]));
+            assertEquals(i + 1, index.rank(CODE_POINTS[i] + 1));
+        }
+        assertEquals(0, index.rank(0));
+        assertEquals(CODE_POINTS.length, index.rank(PrintableCodePointIndex.SIZE));
+    }
+
+    @Test
+    public void testRangeQueries() {
+        PrintableCodePointIndex index = PrintableCodePointIndex.fromCodePoints(CODE_POINTS);
+        assertArrayEquals(new int[]{63, 64, 127, 128}, index.codePoints(6, 999));
+        assertArrayEquals(new int[]{5}, index.codePoints(5, 5));
+        assertArrayEquals(new int[0], index.codePoints(6, 62));
+        assertArrayEquals(CODE_POINTS, index.codePoints(0, 65535));
+        assertEquals(4, index.count(6, 999));
+
+        // Contiguous and sparse lists give the same answer as a lookup per code point
+        assertArrayEquals(new int[]{63, 64}, index.filter(new int[]{60, 61, 62, 63, 64, 65}));
+        assertArrayEquals(new int[]{5, 1000}, index.filter(new int[]{1, 5, 999, 1000, 1001}));
+        assertArrayEquals(new int[0], index.filter(new int[0]));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        PrintableCodePointIndex index = PrintableCodePointIndex.fromCodePoints(CODE_POINTS);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+        assertEquals(PrintableCodePointIndex.BYTES, out.size());
+
+        PrintableCodePointIndex read = PrintableCodePointIndex.read(new ByteArrayInputStream(out.toByteArray()));
+        assertArrayEquals(CODE_POINTS, read.codePoints(0, 65535));
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        PrintableCodePointIndex index = PrintableCodePointIndex.parse(new StringReader("65535, 0, 5\n63, 64,127\r\n128, 1000, 4095"));
+        assertArrayEquals(CODE_POINTS, index.codePoints(0, 65535));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRejectsGarbage() throws Exception {
+        PrintableCodePointIndex.parse(new StringReader("1, 2, x"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSelectOutOfRange() {
+        PrintableCodePointIndex.fromCodePoints(CODE_POINTS).select(CODE_POINTS.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        PrintableCodePointIndex.fromCodePoints(CODE_POINTS).codePoints(10, 9);
+    }
+
+    @Test
+    public void testBinaryResourceMatchesTextResource() throws Exception {
+        ClassLoader loader = PrintableCodePointIndexTest.class.getClassLoader();
+        PrintableCodePointIndex text;
+        PrintableCodePointIndex binary;
+        try (InputStream in = loader.getResourceAsStream("printable_chars/serif_printable.txt")) {
+            text = PrintableCodePointIndex.parse(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        }
+        try (InputStream in = loader.getResourceAsStream("printable_chars/serif_printable.bin")) {
+            binary = PrintableCodePointIndex.read(in);
+        }
+        assertArrayEquals(text.codePoints(0, 65535), binary.codePoints(0, 65535));
+    }
+}
@@ -66,5 +66,19 @@ public class RandomFontFactoryTest {
         assertNotNull(rff.getRandomFont());
     }
 
+    @Test
+    public void testFontsAreShared() throws Exception {
+        RandomFontFactory rff = new RandomFontFactory.Builder()
+                .fontName(Font.SERIF)
+                .bold(true)
+                .italic(false)
+                .minFontSize(20)
+                .maxFontSize(20)
+                .build();
+        Font font = rff.getRandomFont();
+        assertEquals(new Font(Font.SERIF, Font.BOLD, 20), font);
+        assertSame(font, rff.getRandomFont());
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017, salesforce.com, inc.
+ * All rights reserved.
+ * Licensed under the BSD 3-Clause license.
+ * For full license text, see LICENSE.txt file in the repo root  or https://opensource.org/licenses/BSD-3-Clause
+ */
+package com.salesforce.pixelcaptcha.utils.impl;
+
+import com.salesforce.pixelcaptcha.utils.RandomSource;
+import org.junit.Test;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gursev Singh Kalra @ Salesforce.com
+ */
+public class ChaCha20RandomSourceTest {
+
+    private static byte[] getSeed() {
+        byte[] seed = new byte[ChaCha20Drbg.SEED_LENGTH];
+        for (int i = 0; i < seed.length; i++)
+            seed[i] = (byte) i;
+        return seed;
+    }
+
+    @Test
+    public void testBlockFunction() {
+        // RFC 7539, section 2.3.2
+        int[] input = {0x61707865, 0x3320646e, 0x79622d32, 0x6b206574,
+                0x03020100, 0x07060504, 0x0b0a0908, 0x0f0e0d0c, 0x13121110, 0x17161514, 0x1b1a1918, 0x1f1e1d1c,
+                0x00000001, 0x09000000, 0x4a000000, 0x00000000};
+        int[] expected = {0xe4e7f110, 0x15593bd1, 0x1fdd0f50, 0xc47120a3, 0xc7f4d1c7, 0x0368c033, 0x9aaa2204, 0x4e6cd4c3,
+                0x466482d2, 0x09aa9f07, 0x05d7c214, 0xa2028bd9, 0xd19c12b5, 0xb94e16de, 0xe883d0cb, 0x4e3c50a2};
+        int[] out = new int[20];
+        ChaCha20Drbg.block(input, out, 4);
+        assertArrayEquals(expected, Arrays.copyOfRange(out, 4, 20));
+    }
+
+    @Test
+    public void testKnownStream() {
+        // Computed with an independent implementation of the same construction
+        ChaCha20Drbg drbg = new ChaCha20Drbg(getSeed());
+        assertEquals(0xe7cc232b, drbg.nextInt());
+        assertEquals(0xab2360a2, drbg.nextInt());
+        for (int i = 2; i < 247; i++)
+            drbg.nextInt();
+        assertEquals(0x74af8f13, drbg.nextInt());
+        assertEquals(1, drbg.getRefillCount());
+        // The second batch runs under the key taken from the first batch
+        assertEquals(0x6b085bac, drbg.nextInt());
+        assertEquals(2, drbg.getRefillCount());
+    }
+
+    @Test
+    public void testBytesAreLittleEndianWords() {
+        byte[] bytes = new byte[6];
+        new ChaCha20Drbg(getSeed()).nextBytes(bytes);
+        assertArrayEquals(new byte[]{0x2b, 0x23, (byte) 0xcc, (byte) 0xe7, (byte) 0xa2, 0x60}, bytes);
+    }
+
+    @Test
+    public void testReseedChangesTheStream() {
+        ChaCha20Drbg drbg = new ChaCha20Drbg(getSeed());
+        drbg.reseed(new byte[ChaCha20Drbg.SEED_LENGTH]);
+        // A zero seed leaves the key unchanged
+        assertEquals(0xe7cc232b, drbg.nextInt());
+
+        byte[] seed = new byte[ChaCha20Drbg.SEED_LENGTH];
+        seed[0] = 1;
+        drbg.reseed(seed);
+        assertEquals(0, drbg.getRefillCount());
+        assertNotEquals(0xe7cc232b, drbg.nextInt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShortSeedIsRejected() {
+        new ChaCha20Drbg(new byte[16]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveBound() {
+        ChaCha20RandomSource.getInstance().nextInt(0);
+    }
+
+    @Test
+    public void testValuesAreWithinBounds() {
+        // A reseed on every refill exercises reseeding as well
+        RandomSource source = new ChaCha20RandomSource(new SecureRandom(), 1);
+        int[] counts = new int[7];
+        for (int i = 0; i < 7000; i++)
+            counts[source.nextInt(7)]++;
+        for (int count : counts)
+            assertTrue(Arrays.toString(counts), count > 800 && count < 1200);
+
+        for (int i = 0; i < 1000; i++) {
+            int value = source.nextInt(16);
+            assertTrue(value >= 0 && value < 16);
+            double d = source.nextDouble();
+            assertTrue(d >= 0.0 && d < 1.0);
+        }
+    }
+
+    @Test
+    public void testThreadsHaveTheirOwnGenerators() throws Exception {
+        final RandomSource source = ChaCha20RandomSource.getInstance();
+        final AtomicReference<byte[]> other = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] bytes = new byte[32];
+                source.nextBytes(bytes);
+                other.set(bytes);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        byte[] bytes = new byte[32];
+        source.nextBytes(bytes);
+        assertFalse(Arrays.equals(bytes, other.get()));
+
+        Set<Integer> values = new HashSet<>();
+        for (int i = 0; i < 100; i++)
+            values.add(source.nextInt(Integer.MAX_VALUE));
+        assertTrue(values.size() > 95);
+    }
+
+    @Test
+    public void testSeededRandomSourceIsReproducible() {
+        SeededRandomSource first = new SeededRandomSource(getSeed());
+        SeededRandomSource second = new SeededRandomSource(getSeed());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(first.nextInt(1000), second.nextInt(1000));
+            assertEquals(first.nextDouble(), second.nextDouble(), 0);
+        }
+        // Same construction as the DRBG, without reseeding
+        SeededRandomSource third = new SeededRandomSource(getSeed());
+        byte[] bytes = new byte[4];
+        third.nextBytes(bytes);
+        assertArrayEquals(new byte[]{0x2b, 0x23, (byte) 0xcc, (byte) 0xe7}, bytes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSeededRandomSourceRejectsShortSeed() {
+        new SeededRandomSource(new byte[SeededRandomSource.SEED_LENGTH - 1]);
+    }
+}
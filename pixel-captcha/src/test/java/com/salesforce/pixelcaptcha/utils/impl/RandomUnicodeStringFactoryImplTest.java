@@ -5,6 +5,9 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import static org.junit.Assert.*;
 
 /**
@@ -74,6 +77,24 @@ public class RandomUnicodeStringFactoryImplTest {
         rsf.getOneCharString(null);
     }
 
+    @Test
+    public void testDistinctCodePoints() throws Exception {
+        RandomUnicodeStringFactoryImpl factory = new RandomUnicodeStringFactoryImpl(new int[]{5, 1, 3, 3, 2, 4});
+        for (int i = 0; i < 50; i++) {
+            int[] codePoints = factory.getDistinctCodePoints(5, ChaCha20RandomSource.getInstance());
+            Set<Integer> seen = new HashSet<>();
+            for (int codePoint : codePoints) {
+                assertTrue(codePoint >= 1 && codePoint <= 5);
+                assertTrue(seen.add(codePoint));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMoreDistinctCodePointsThanAvailable() throws Exception {
+        new RandomUnicodeStringFactoryImpl(new int[]{1, 2, 3}).getDistinctCodePoints(4, ChaCha20RandomSource.getInstance());
+    }
+
     @Test(expected = UnsupportedOperationException.class)
     public void testGetStringFontArgument() throws Exception {
         rsf.getString(null, 10);